@@ -88,6 +88,7 @@ public class Experimenter implements Runnable {
                     ExperimentTask task = new ExperimentTask(taskId, experimentDAO, globalRetriever, evFactory,
                             configs[i]);
                     task.setAnnotatorOutputWriter(annotatorOutputWriter);
+                    task.setExperimentId(experimentId);
                     overseer.startTask(task);
                 }
             }
@@ -64,6 +64,14 @@ public class AnnotatorConfigurationImpl extends AbstractAdapterConfiguration imp
         return instance;
     }
 
+    public Constructor<? extends Annotator> getConstructor() {
+        return constructor;
+    }
+
+    public Object[] getConstructorArgs() {
+        return constructorArgs;
+    }
+
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
@@ -0,0 +1,126 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.annotator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.aksw.gerbil.exceptions.GerbilException;
+import org.aksw.gerbil.transfer.nif.Document;
+import org.aksw.gerbil.transfer.nif.Marking;
+import org.aksw.gerbil.transfer.nif.Meaning;
+import org.aksw.gerbil.transfer.nif.MeaningSpan;
+import org.aksw.gerbil.transfer.nif.Span;
+import org.aksw.gerbil.transfer.nif.TypedSpan;
+import org.aksw.gerbil.transfer.nif.data.TypedNamedEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An annotator that does not contact any service but answers every request
+ * with the markings of a previously stored document that has the same URI as
+ * the requested document, e.g., with the output of an annotator that has been
+ * written by the {@link org.aksw.gerbil.execute.AnnotatorOutputWriter}. If
+ * there is no stored document for a requested document, an empty list is
+ * returned.
+ * 
+ * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
+ *
+ */
+public class InstanceListBasedAnnotator implements OKETask1Annotator, OKETask2Annotator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InstanceListBasedAnnotator.class);
+
+    private String name;
+    private Map<String, Document> uriInstanceMapping;
+
+    public InstanceListBasedAnnotator(String name, List<Document> instances) {
+        this.name = name;
+        this.uriInstanceMapping = new HashMap<String, Document>(instances.size());
+        for (Document document : instances) {
+            uriInstanceMapping.put(document.getDocumentURI(), document);
+        }
+    }
+
+    protected <T extends Marking> List<T> performAnnotation(Document document, Class<T> markingClass) {
+        Document result = uriInstanceMapping.get(document.getDocumentURI());
+        if (result == null) {
+            LOGGER.warn("There is no stored result of \"{}\" for the document \"{}\". Returning an empty list.", name,
+                    document.getDocumentURI());
+            return new ArrayList<T>(0);
+        }
+        return result.getMarkings(markingClass);
+    }
+
+    @Override
+    public List<Span> performRecognition(Document document) throws GerbilException {
+        return performAnnotation(document, Span.class);
+    }
+
+    @Override
+    public List<MeaningSpan> performD2KBTask(Document document) throws GerbilException {
+        return performAnnotation(document, MeaningSpan.class);
+    }
+
+    @Override
+    public List<Meaning> performC2KB(Document document) throws GerbilException {
+        return performAnnotation(document, Meaning.class);
+    }
+
+    @Override
+    public List<MeaningSpan> performA2KBTask(Document document) throws GerbilException {
+        return performAnnotation(document, MeaningSpan.class);
+    }
+
+    @Override
+    public List<TypedSpan> performTyping(Document document) throws GerbilException {
+        return performAnnotation(document, TypedSpan.class);
+    }
+
+    @Override
+    public List<TypedNamedEntity> performTask1(Document document) throws GerbilException {
+        return performAnnotation(document, TypedNamedEntity.class);
+    }
+
+    @Override
+    public List<TypedNamedEntity> performTask2(Document document) throws GerbilException {
+        return performAnnotation(document, TypedNamedEntity.class);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public void setClosePermitionGranter(ClosePermitionGranter granter) {
+        // nothing to do
+    }
+
+    @Override
+    public void close() throws IOException {
+        // nothing to do
+    }
+}
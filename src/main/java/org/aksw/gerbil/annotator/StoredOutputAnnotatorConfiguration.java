@@ -0,0 +1,73 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.annotator;
+
+import java.io.File;
+
+import org.aksw.gerbil.dataset.impl.nif.FileBasedNIFDataset;
+import org.aksw.gerbil.datatypes.AbstractAdapterConfiguration;
+import org.aksw.gerbil.datatypes.ErrorTypes;
+import org.aksw.gerbil.datatypes.ExperimentType;
+import org.aksw.gerbil.exceptions.GerbilException;
+import org.apache.jena.riot.Lang;
+
+/**
+ * The configuration of an annotator that is replaced by its stored output,
+ * i.e., a NIF file written by the
+ * {@link org.aksw.gerbil.execute.AnnotatorOutputWriter}. The file is parsed
+ * when the annotator is created and the created
+ * {@link InstanceListBasedAnnotator} answers the requests using the parsed
+ * documents. Thus, the original annotator is never contacted.
+ * 
+ * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
+ *
+ */
+public class StoredOutputAnnotatorConfiguration extends AbstractAdapterConfiguration
+        implements AnnotatorConfiguration {
+
+    private File outputFile;
+
+    public StoredOutputAnnotatorConfiguration(String name, File outputFile, ExperimentType applicableForExperiment) {
+        super(name, false, applicableForExperiment);
+        this.outputFile = outputFile;
+    }
+
+    @Override
+    public Annotator getAnnotator(ExperimentType type) throws GerbilException {
+        if (!applicableForExperiment.equalsOrContainsType(type)) {
+            return null;
+        }
+        FileBasedNIFDataset storedOutput = new FileBasedNIFDataset(outputFile.getAbsolutePath(), getName(),
+                Lang.TTL);
+        try {
+            storedOutput.init();
+        } catch (GerbilException e) {
+            throw new GerbilException("Couldn't load the stored output file \"" + outputFile.getAbsolutePath() + "\".",
+                    e, ErrorTypes.ANNOTATOR_LOADING_ERROR);
+        }
+        return new InstanceListBasedAnnotator(getName(), storedOutput.getInstances());
+    }
+
+    public File getOutputFile() {
+        return outputFile;
+    }
+
+    @Override
+    public String toString() {
+        return getName() + "(" + outputFile.getName() + ")";
+    }
+}
@@ -0,0 +1,567 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.annotator.decorator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StreamCorruptedException;
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.aksw.gerbil.transfer.nif.Marking;
+import org.aksw.gerbil.transfer.nif.Meaning;
+import org.aksw.gerbil.transfer.nif.ScoredMarking;
+import org.aksw.gerbil.transfer.nif.ScoredSpan;
+import org.aksw.gerbil.transfer.nif.Span;
+import org.aksw.gerbil.transfer.nif.TypedMarking;
+import org.aksw.gerbil.transfer.nif.data.Annotation;
+import org.aksw.gerbil.transfer.nif.data.NamedEntity;
+import org.aksw.gerbil.transfer.nif.data.ScoredAnnotation;
+import org.aksw.gerbil.transfer.nif.data.ScoredNamedEntity;
+import org.aksw.gerbil.transfer.nif.data.ScoredSpanImpl;
+import org.aksw.gerbil.transfer.nif.data.ScoredTypedNamedEntity;
+import org.aksw.gerbil.transfer.nif.data.SpanImpl;
+import org.aksw.gerbil.transfer.nif.data.TypedNamedEntity;
+import org.aksw.gerbil.transfer.nif.data.TypedSpanImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A persistent store for the responses of annotators. The responses are
+ * appended to a single file. Every record consists of the key of the
+ * response, the length of the response and the response itself, i.e., the
+ * list of markings in a compact binary form (see
+ * {@link #writeMarkings(Collection, DataOutputStream)}). The positions of the
+ * responses are kept in memory and are restored by scanning the file when the
+ * store is opened. An incomplete or corrupted record (e.g., caused by a
+ * crash) is removed together with all records following it.
+ * 
+ * <p>
+ * Stored responses are read with positional reads on the channel of the file.
+ * Thus, concurrent requests are not blocked by each other or by a request that
+ * appends a new response.
+ * </p>
+ * 
+ * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
+ *
+ */
+public class AnnotatorResponseStore implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AnnotatorResponseStore.class);
+
+    private static final byte SPAN_FLAG = 1;
+    private static final byte MEANING_FLAG = 2;
+    private static final byte TYPED_FLAG = 4;
+    private static final byte SCORED_FLAG = 8;
+    private static final byte ALL_FLAGS = SPAN_FLAG | MEANING_FLAG | TYPED_FLAG | SCORED_FLAG;
+
+    public static AnnotatorResponseStore open(File storeFile) throws IOException {
+        File parent = storeFile.getAbsoluteFile().getParentFile();
+        if ((parent != null) && (!parent.exists())) {
+            parent.mkdirs();
+        }
+        AnnotatorResponseStore store = new AnnotatorResponseStore(new RandomAccessFile(storeFile, "rw"));
+        try {
+            store.readIndex();
+        } catch (IOException e) {
+            store.close();
+            throw e;
+        }
+        return store;
+    }
+
+    private RandomAccessFile file;
+    private FileChannel channel;
+    /**
+     * Mapping of the keys to the positions of the responses inside the file.
+     */
+    private ConcurrentHashMap<String, ResponsePosition> positions = new ConcurrentHashMap<String, ResponsePosition>();
+    /**
+     * The length of the file, i.e., the position at which the next record will
+     * be appended. Guarded by this store.
+     */
+    private long fileLength;
+
+    protected AnnotatorResponseStore(RandomAccessFile file) {
+        this.file = file;
+        this.channel = file.getChannel();
+    }
+
+    private void readIndex() throws IOException {
+        long length = file.length();
+        long recordStart = 0;
+        file.seek(0);
+        try {
+            String key;
+            int responseLength;
+            long responseStart;
+            byte response[];
+            while (recordStart < length) {
+                key = file.readUTF();
+                responseLength = file.readInt();
+                responseStart = file.getFilePointer();
+                if ((responseLength < 0) || ((responseStart + responseLength) > length)) {
+                    throw new EOFException();
+                }
+                response = new byte[responseLength];
+                file.readFully(response);
+                checkResponse(response);
+                positions.put(key, new ResponsePosition(responseStart, responseLength));
+                recordStart = responseStart + responseLength;
+            }
+        } catch (EOFException e) {
+            LOGGER.warn("The response store contains an incomplete record at position {}. It will be removed.",
+                    recordStart);
+            file.setLength(recordStart);
+        } catch (UTFDataFormatException e) {
+            removeCorruptedRecords(recordStart, e);
+        } catch (StreamCorruptedException e) {
+            removeCorruptedRecords(recordStart, e);
+        }
+        fileLength = file.length();
+    }
+
+    private void removeCorruptedRecords(long recordStart, IOException e) throws IOException {
+        LOGGER.warn("The response store contains a corrupted record at position " + recordStart
+                + ". It and all following records will be removed.", e);
+        file.setLength(recordStart);
+    }
+
+    /**
+     * Checks whether the given bytes contain exactly one valid response.
+     * 
+     * @throws StreamCorruptedException
+     *             if the response can not be read
+     */
+    private static void checkResponse(byte response[]) throws StreamCorruptedException {
+        ByteArrayInputStream bytes = new ByteArrayInputStream(response);
+        try {
+            readMarkings(new DataInputStream(bytes));
+        } catch (StreamCorruptedException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new StreamCorruptedException("The response is not readable: " + e.getMessage());
+        }
+        if (bytes.available() > 0) {
+            throw new StreamCorruptedException("The response has " + bytes.available() + " trailing bytes.");
+        }
+    }
+
+    /**
+     * Returns the stored response for the given key or null if there is no
+     * such response.
+     */
+    public List<Marking> get(String key) throws IOException {
+        ResponsePosition position = positions.get(key);
+        if (position == null) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(position.length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position.start + buffer.position()) < 0) {
+                throw new EOFException("The stored response of \"" + key + "\" is incomplete.");
+            }
+        }
+        return readMarkings(new DataInputStream(new ByteArrayInputStream(buffer.array())));
+    }
+
+    /**
+     * Stores the given response. If there already is a response for the given
+     * key, the stored response is kept and nothing is written. Thus, the store
+     * file never contains two records with the same key.
+     * 
+     * @throws IllegalArgumentException
+     *             if the response contains a marking that can not be stored
+     */
+    public void put(String key, Collection<? extends Marking> response) throws IOException {
+        if (positions.containsKey(key)) {
+            return;
+        }
+        ByteArrayOutputStream responseBytes = new ByteArrayOutputStream();
+        writeMarkings(response, new DataOutputStream(responseBytes));
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(record);
+        out.writeUTF(key);
+        out.writeInt(responseBytes.size());
+        out.flush();
+        int headerLength = record.size();
+        responseBytes.writeTo(record);
+        ByteBuffer buffer = ByteBuffer.wrap(record.toByteArray());
+        synchronized (this) {
+            // another thread might have stored a response in the meantime
+            if (positions.containsKey(key)) {
+                return;
+            }
+            long recordStart = fileLength;
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, recordStart + buffer.position());
+            }
+            fileLength = recordStart + buffer.limit();
+            positions.put(key, new ResponsePosition(recordStart + headerLength, responseBytes.size()));
+        }
+    }
+
+    public boolean contains(String key) {
+        return positions.containsKey(key);
+    }
+
+    public int size() {
+        return positions.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        file.close();
+    }
+
+    /**
+     * Writes the given markings in a compact binary form. Every marking starts
+     * with a byte containing flags that define which of the following fields
+     * are present: the start position and length of a span, the URIs of a
+     * meaning, the types of a typed marking and the confidence of a scored
+     * marking. URIs and types are written in their natural order.
+     * 
+     * @throws IllegalArgumentException
+     *             if a marking is neither a span nor a meaning
+     */
+    public static void writeMarkings(Collection<? extends Marking> markings, DataOutputStream out) throws IOException {
+        out.writeInt(markings.size());
+        byte flags;
+        for (Marking marking : markings) {
+            flags = 0;
+            if (marking instanceof Span) {
+                flags |= SPAN_FLAG;
+            }
+            if (marking instanceof Meaning) {
+                flags |= MEANING_FLAG;
+            }
+            if (flags == 0) {
+                throw new IllegalArgumentException("Can not store a marking of the " + marking.getClass()
+                        + " class. Only spans and meanings are supported.");
+            }
+            if (marking instanceof TypedMarking) {
+                flags |= TYPED_FLAG;
+            }
+            if (marking instanceof ScoredMarking) {
+                flags |= SCORED_FLAG;
+            }
+            out.writeByte(flags);
+            if ((flags & SPAN_FLAG) > 0) {
+                out.writeInt(((Span) marking).getStartPosition());
+                out.writeInt(((Span) marking).getLength());
+            }
+            if ((flags & MEANING_FLAG) > 0) {
+                writeStrings(((Meaning) marking).getUris(), out);
+            }
+            if ((flags & TYPED_FLAG) > 0) {
+                writeStrings(((TypedMarking) marking).getTypes(), out);
+            }
+            if ((flags & SCORED_FLAG) > 0) {
+                out.writeDouble(((ScoredMarking) marking).getConfidence());
+            }
+        }
+        out.flush();
+    }
+
+    private static void writeStrings(Set<String> strings, DataOutputStream out) throws IOException {
+        if (strings == null) {
+            out.writeInt(0);
+            return;
+        }
+        String sorted[] = strings.toArray(new String[strings.size()]);
+        Arrays.sort(sorted);
+        out.writeInt(sorted.length);
+        for (int i = 0; i < sorted.length; ++i) {
+            out.writeUTF(sorted[i]);
+        }
+    }
+
+    /**
+     * Reads markings that have been written by
+     * {@link #writeMarkings(Collection, DataOutputStream)}.
+     */
+    public static List<Marking> readMarkings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            throw new StreamCorruptedException("Got a negative number of markings (" + count + ").");
+        }
+        // the count is not trusted before the markings have been read
+        List<Marking> markings = new ArrayList<Marking>(Math.min(count, 64));
+        byte flags;
+        int start = 0, length = 0;
+        Set<String> uris = null, types = null;
+        double confidence = 0;
+        for (int i = 0; i < count; ++i) {
+            flags = in.readByte();
+            if ((flags & ~ALL_FLAGS) != 0) {
+                throw new StreamCorruptedException("Got unknown marking flags " + flags + ".");
+            }
+            if ((flags & SPAN_FLAG) > 0) {
+                start = in.readInt();
+                length = in.readInt();
+            }
+            if ((flags & MEANING_FLAG) > 0) {
+                uris = readStrings(in);
+            }
+            if ((flags & TYPED_FLAG) > 0) {
+                types = readStrings(in);
+            }
+            if ((flags & SCORED_FLAG) > 0) {
+                confidence = in.readDouble();
+            }
+            markings.add(createMarking(flags, start, length, uris, types, confidence));
+        }
+        return markings;
+    }
+
+    private static Set<String> readStrings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            throw new StreamCorruptedException("Got a negative number of strings (" + count + ").");
+        }
+        Set<String> strings = new HashSet<String>();
+        for (int i = 0; i < count; ++i) {
+            strings.add(in.readUTF());
+        }
+        return strings;
+    }
+
+    private static Marking createMarking(byte flags, int start, int length, Set<String> uris, Set<String> types,
+            double confidence) throws StreamCorruptedException {
+        boolean scored = (flags & SCORED_FLAG) > 0;
+        switch (flags & (SPAN_FLAG | MEANING_FLAG | TYPED_FLAG)) {
+        case SPAN_FLAG:
+            return scored ? new ScoredSpanImpl(start, length, confidence) : new SpanImpl(start, length);
+        case SPAN_FLAG | TYPED_FLAG:
+            return scored ? new ScoredTypedSpanImpl(start, length, types, confidence)
+                    : new TypedSpanImpl(start, length, types);
+        case MEANING_FLAG:
+            return scored ? new ScoredAnnotation(uris, confidence) : new Annotation(uris);
+        case MEANING_FLAG | TYPED_FLAG:
+            return scored ? new ScoredTypedAnnotation(uris, types, confidence) : new TypedAnnotation(uris, types);
+        case SPAN_FLAG | MEANING_FLAG:
+            return scored ? new ScoredNamedEntity(start, length, uris, confidence)
+                    : new NamedEntity(start, length, uris);
+        case SPAN_FLAG | MEANING_FLAG | TYPED_FLAG:
+            return scored ? new ScoredTypedNamedEntity(start, length, uris, types, confidence)
+                    : new TypedNamedEntity(start, length, uris, types);
+        default:
+            throw new StreamCorruptedException("Got unknown marking flags " + flags + ".");
+        }
+    }
+
+    private static final class ResponsePosition {
+        private final long start;
+        private final int length;
+
+        public ResponsePosition(long start, int length) {
+            this.start = start;
+            this.length = length;
+        }
+    }
+
+    /**
+     * A typed span with a confidence. It is used to restore stored markings
+     * that are typed and scored spans without a meaning.
+     */
+    public static class ScoredTypedSpanImpl extends TypedSpanImpl implements ScoredSpan {
+
+        private double confidence;
+
+        public ScoredTypedSpanImpl(int startPosition, int length, Set<String> types, double confidence) {
+            super(startPosition, length, types);
+            this.confidence = confidence;
+        }
+
+        @Override
+        public double getConfidence() {
+            return confidence;
+        }
+
+        @Override
+        public void setConfidence(double confidence) {
+            this.confidence = confidence;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            builder.append('(');
+            builder.append(startPosition);
+            builder.append(", ");
+            builder.append(length);
+            builder.append(", a ");
+            builder.append(Arrays.toString(types.toArray()));
+            builder.append(", ");
+            builder.append(confidence);
+            builder.append(')');
+            return builder.toString();
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = super.hashCode();
+            long temp = Double.doubleToLongBits(confidence);
+            result = prime * result + (int) (temp ^ (temp >>> 32));
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!super.equals(obj))
+                return false;
+            ScoredTypedSpanImpl other = (ScoredTypedSpanImpl) obj;
+            if (Double.doubleToLongBits(confidence) != Double.doubleToLongBits(other.confidence))
+                return false;
+            return true;
+        }
+    }
+
+    /**
+     * A typed meaning without a span. It is used to restore stored markings
+     * that have URIs and types but no position.
+     */
+    public static class TypedAnnotation extends Annotation implements TypedMarking {
+
+        protected Set<String> types;
+
+        public TypedAnnotation(Set<String> uris, Set<String> types) {
+            super(uris);
+            this.types = types;
+        }
+
+        @Override
+        public Set<String> getTypes() {
+            return types;
+        }
+
+        @Override
+        public void setTypes(Set<String> types) {
+            this.types = types;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            builder.append('(');
+            builder.append(Arrays.toString(uris.toArray()));
+            builder.append(", a ");
+            builder.append(Arrays.toString(types.toArray()));
+            builder.append(')');
+            return builder.toString();
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = super.hashCode();
+            result = prime * result + ((types == null) ? 0 : types.hashCode());
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!super.equals(obj))
+                return false;
+            TypedAnnotation other = (TypedAnnotation) obj;
+            if (types == null) {
+                if (other.types != null)
+                    return false;
+            } else if (!types.equals(other.types))
+                return false;
+            return true;
+        }
+    }
+
+    /**
+     * A typed meaning with a confidence. It is used to restore stored markings
+     * that have URIs, types and a confidence but no position.
+     */
+    public static class ScoredTypedAnnotation extends TypedAnnotation implements ScoredMarking {
+
+        private double confidence;
+
+        public ScoredTypedAnnotation(Set<String> uris, Set<String> types, double confidence) {
+            super(uris, types);
+            this.confidence = confidence;
+        }
+
+        @Override
+        public double getConfidence() {
+            return confidence;
+        }
+
+        @Override
+        public void setConfidence(double confidence) {
+            this.confidence = confidence;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            builder.append('(');
+            builder.append(Arrays.toString(uris.toArray()));
+            builder.append(", a ");
+            builder.append(Arrays.toString(types.toArray()));
+            builder.append(", ");
+            builder.append(confidence);
+            builder.append(')');
+            return builder.toString();
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = super.hashCode();
+            long temp = Double.doubleToLongBits(confidence);
+            result = prime * result + (int) (temp ^ (temp >>> 32));
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!super.equals(obj))
+                return false;
+            ScoredTypedAnnotation other = (ScoredTypedAnnotation) obj;
+            if (Double.doubleToLongBits(confidence) != Double.doubleToLongBits(other.confidence))
+                return false;
+            return true;
+        }
+    }
+}
@@ -391,16 +391,25 @@ public abstract class ErrorCountingAnnotatorDecorator extends AbstractAnnotatorD
     }
 
     @Override
-    public int getErrorCount() {
+    public synchronized int getErrorCount() {
         return errorCount;
     }
 
     @Override
-    public void setErrorCount(int errorCount) {
+    public synchronized void setErrorCount(int errorCount) {
         this.errorCount = errorCount;
     }
 
-    protected void increaseErrorCount() throws GerbilException {
+    /**
+     * Increases the error count. Note that this method is synchronized since
+     * the decorated annotator might be called by several threads at the same
+     * time.
+     * 
+     * @throws GerbilException
+     *             if the number of errors exceeds the maximum number of
+     *             tolerated errors
+     */
+    protected synchronized void increaseErrorCount() throws GerbilException {
         ++errorCount;
         if (errorCount > maxErrors) {
             throw new GerbilException("Saw to many errors (maximum was set to " + maxErrors + ").",
@@ -411,6 +420,6 @@ public abstract class ErrorCountingAnnotatorDecorator extends AbstractAnnotatorD
     @Override
     public void evaluate(List<List<Marking>> annotatorResults, List<List<Marking>> goldStandard,
             EvaluationResultContainer results) {
-        results.addResult(new IntEvaluationResult(ERROR_COUNT_RESULT_NAME, errorCount));
+        results.addResult(new IntEvaluationResult(ERROR_COUNT_RESULT_NAME, getErrorCount()));
     }
 }
@@ -0,0 +1,540 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.annotator.decorator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.aksw.gerbil.annotator.A2KBAnnotator;
+import org.aksw.gerbil.annotator.Annotator;
+import org.aksw.gerbil.annotator.AnnotatorConfiguration;
+import org.aksw.gerbil.annotator.AnnotatorConfigurationImpl;
+import org.aksw.gerbil.annotator.C2KBAnnotator;
+import org.aksw.gerbil.annotator.D2KBAnnotator;
+import org.aksw.gerbil.annotator.EntityRecognizer;
+import org.aksw.gerbil.annotator.EntityTyper;
+import org.aksw.gerbil.annotator.OKETask1Annotator;
+import org.aksw.gerbil.annotator.OKETask2Annotator;
+import org.aksw.gerbil.config.GerbilConfiguration;
+import org.aksw.gerbil.datatypes.ErrorTypes;
+import org.aksw.gerbil.datatypes.ExperimentType;
+import org.aksw.gerbil.evaluate.EvaluationResultContainer;
+import org.aksw.gerbil.evaluate.Evaluator;
+import org.aksw.gerbil.evaluate.IntEvaluationResult;
+import org.aksw.gerbil.exceptions.GerbilException;
+import org.aksw.gerbil.transfer.nif.Document;
+import org.aksw.gerbil.transfer.nif.Marking;
+import org.aksw.gerbil.transfer.nif.Meaning;
+import org.aksw.gerbil.transfer.nif.MeaningSpan;
+import org.aksw.gerbil.transfer.nif.Span;
+import org.aksw.gerbil.transfer.nif.TypedSpan;
+import org.aksw.gerbil.transfer.nif.data.TypedNamedEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This decorator stores the responses of an annotator in an
+ * {@link AnnotatorResponseStore} and answers repeated requests from this
+ * store. A response is identified by the name and version of the annotator,
+ * the experiment type and a hash of the document that is sent to the annotator
+ * (its text and markings). Thus, experiments can be repeated without
+ * contacting the annotator, e.g., after changing the matching or the
+ * evaluation.
+ * 
+ * <p>
+ * The decorator has three modes (see {@link Mode}). It should be placed
+ * between the {@link ErrorCountingAnnotatorDecorator} and the
+ * {@link TimeMeasuringAnnotatorDecorator}. Thus, answers from the store are
+ * not part of the measured runtime. The number of answers that have been
+ * taken from the store is reported as separate result.
+ * </p>
+ * 
+ * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
+ *
+ */
+public abstract class ResponseCachingAnnotatorDecorator extends AbstractAnnotatorDecorator
+        implements Evaluator<Marking> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResponseCachingAnnotatorDecorator.class);
+
+    public static final String MODE_KEY = "org.aksw.gerbil.annotator.decorator.ResponseCachingAnnotatorDecorator.mode";
+    public static final String STORE_FILE_KEY = "org.aksw.gerbil.annotator.decorator.ResponseCachingAnnotatorDecorator.storeFile";
+
+    public static final String CACHED_RESPONSES_RESULT_NAME = "cached responses";
+
+    public static enum Mode {
+        /**
+         * The annotator is always called. Its responses are not stored.
+         */
+        OFF,
+        /**
+         * Stored responses are reused. Other requests are sent to the
+         * annotator and its responses are stored.
+         */
+        CACHE,
+        /**
+         * Only stored responses are used. A request without a stored response
+         * is handled as an error of the annotator.
+         */
+        REPLAY
+    }
+
+    private static Mode mode = null;
+    private static AnnotatorResponseStore store = null;
+
+    /**
+     * @return the mode of the response cache defined in the
+     *         {@link GerbilConfiguration}. The default is {@link Mode#OFF}.
+     */
+    public synchronized static Mode getMode() {
+        if (mode == null) {
+            mode = Mode.OFF;
+            if (GerbilConfiguration.getInstance().containsKey(MODE_KEY)) {
+                String value = GerbilConfiguration.getInstance().getString(MODE_KEY);
+                try {
+                    mode = Mode.valueOf(value.trim().toUpperCase());
+                } catch (Exception e) {
+                    LOGGER.warn("Couldn't parse the mode of the annotator response cache (\"" + value
+                            + "\"). Using default " + Mode.OFF + ".", e);
+                }
+            }
+        }
+        return mode;
+    }
+
+    /**
+     * @return the response store defined in the {@link GerbilConfiguration} or
+     *         null if it couldn't be opened
+     */
+    public synchronized static AnnotatorResponseStore getStore() {
+        if (store == null) {
+            String storeFile = GerbilConfiguration.getInstance().getString(STORE_FILE_KEY);
+            if (storeFile == null) {
+                LOGGER.error("Couldn't get the file of the annotator response store from the configuration.");
+                return null;
+            }
+            try {
+                store = AnnotatorResponseStore.open(new File(storeFile));
+            } catch (IOException e) {
+                LOGGER.error("Couldn't open the annotator response store \"" + storeFile + "\".", e);
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Closes the response store defined in the {@link GerbilConfiguration} if
+     * it has been opened.
+     */
+    public synchronized static void closeStore() {
+        if (store != null) {
+            try {
+                store.close();
+            } catch (IOException e) {
+                LOGGER.error("Exception while closing the annotator response store.", e);
+            }
+            store = null;
+        }
+    }
+
+    /**
+     * Creates a decorator using the mode and store defined in the
+     * {@link GerbilConfiguration}.
+     * 
+     * @return the decorator or null if the response cache is switched off or
+     *         not available
+     */
+    public static ResponseCachingAnnotatorDecorator createDecorator(ExperimentType type,
+            AnnotatorConfiguration configuration, Annotator annotator) {
+        Mode mode = getMode();
+        if (mode == Mode.OFF) {
+            return null;
+        }
+        AnnotatorResponseStore store = getStore();
+        if (store == null) {
+            return null;
+        }
+        return createDecorator(type, annotator, getAnnotatorVersion(configuration), store, mode == Mode.REPLAY);
+    }
+
+    /**
+     * Returns a string identifying the version of the annotator that is
+     * created by the given configuration, i.e., the class of the annotator and
+     * the arguments of its constructor (e.g., the URL of a web service). Thus,
+     * two annotators sharing the same name do not share their responses.
+     */
+    public static String getAnnotatorVersion(AnnotatorConfiguration configuration) {
+        if (configuration instanceof AnnotatorConfigurationImpl) {
+            AnnotatorConfigurationImpl configImpl = (AnnotatorConfigurationImpl) configuration;
+            return configImpl.getConstructor().getDeclaringClass().getName()
+                    + Arrays.toString(configImpl.getConstructorArgs());
+        } else {
+            return configuration.getClass().getName() + '(' + configuration.toString() + ')';
+        }
+    }
+
+    /**
+     * Creates a decorator for the given annotator.
+     * 
+     * @param annotatorVersion
+     *            the version of the annotator (see
+     *            {@link #getAnnotatorVersion(AnnotatorConfiguration)}) that is
+     *            part of the keys of its responses
+     */
+    @SuppressWarnings("deprecation")
+    public static ResponseCachingAnnotatorDecorator createDecorator(ExperimentType type, Annotator annotator,
+            String annotatorVersion, AnnotatorResponseStore store, boolean replay) {
+        switch (type) {
+        case C2KB:
+            return new ResponseCachingC2KBAnnotator((C2KBAnnotator) annotator, type, annotatorVersion, store,
+                    replay);
+        case A2KB:
+            return new ResponseCachingA2KBAnnotator((A2KBAnnotator) annotator, type, annotatorVersion, store,
+                    replay);
+        case D2KB:
+            return new ResponseCachingD2KBAnnotator((D2KBAnnotator) annotator, type, annotatorVersion, store,
+                    replay);
+        case ERec:
+            return new ResponseCachingEntityRecognizer((EntityRecognizer) annotator, type, annotatorVersion, store,
+                    replay);
+        case ETyping:
+            return new ResponseCachingEntityTyper((EntityTyper) annotator, type, annotatorVersion, store,
+                    replay);
+        case OKE_Task1:
+            return new ResponseCachingOKETask1Annotator((OKETask1Annotator) annotator, type, annotatorVersion, store,
+                    replay);
+        case OKE_Task2:
+            return new ResponseCachingOKETask2Annotator((OKETask2Annotator) annotator, type, annotatorVersion, store,
+                    replay);
+        case Rc2KB:
+            break;
+        case Sa2KB:
+            break;
+        case Sc2KB:
+            break;
+        default:
+            break;
+        }
+        return null;
+    }
+
+    private static class ResponseCachingC2KBAnnotator extends ResponseCachingAnnotatorDecorator
+            implements C2KBAnnotator {
+
+        public ResponseCachingC2KBAnnotator(C2KBAnnotator decoratedAnnotator, ExperimentType type,
+                String annotatorVersion, AnnotatorResponseStore store, boolean replay) {
+            super(decoratedAnnotator, type, annotatorVersion, store, replay);
+        }
+
+        @Override
+        public List<Meaning> performC2KB(Document document) throws GerbilException {
+            return ResponseCachingAnnotatorDecorator.performC2KB(this, document);
+        }
+    }
+
+    private static class ResponseCachingD2KBAnnotator extends ResponseCachingAnnotatorDecorator
+            implements D2KBAnnotator {
+
+        public ResponseCachingD2KBAnnotator(D2KBAnnotator decoratedAnnotator, ExperimentType type,
+                String annotatorVersion, AnnotatorResponseStore store, boolean replay) {
+            super(decoratedAnnotator, type, annotatorVersion, store, replay);
+        }
+
+        @Override
+        public List<MeaningSpan> performD2KBTask(Document document) throws GerbilException {
+            return ResponseCachingAnnotatorDecorator.performD2KBTask(this, document);
+        }
+    }
+
+    private static class ResponseCachingEntityRecognizer extends ResponseCachingAnnotatorDecorator
+            implements EntityRecognizer {
+
+        public ResponseCachingEntityRecognizer(EntityRecognizer decoratedAnnotator, ExperimentType type,
+                String annotatorVersion, AnnotatorResponseStore store, boolean replay) {
+            super(decoratedAnnotator, type, annotatorVersion, store, replay);
+        }
+
+        @Override
+        public List<Span> performRecognition(Document document) throws GerbilException {
+            return ResponseCachingAnnotatorDecorator.performRecognition(this, document);
+        }
+    }
+
+    private static class ResponseCachingA2KBAnnotator extends ResponseCachingD2KBAnnotator
+            implements A2KBAnnotator {
+
+        public ResponseCachingA2KBAnnotator(A2KBAnnotator decoratedAnnotator, ExperimentType type,
+                String annotatorVersion, AnnotatorResponseStore store, boolean replay) {
+            super(decoratedAnnotator, type, annotatorVersion, store, replay);
+        }
+
+        @Override
+        public List<Meaning> performC2KB(Document document) throws GerbilException {
+            return ResponseCachingAnnotatorDecorator.performC2KB(this, document);
+        }
+
+        @Override
+        public List<Span> performRecognition(Document document) throws GerbilException {
+            return ResponseCachingAnnotatorDecorator.performRecognition(this, document);
+        }
+
+        @Override
+        public List<MeaningSpan> performA2KBTask(Document document) throws GerbilException {
+            return ResponseCachingAnnotatorDecorator.performExtraction(this, document);
+        }
+    }
+
+    private static class ResponseCachingEntityTyper extends ResponseCachingAnnotatorDecorator
+            implements EntityTyper {
+
+        public ResponseCachingEntityTyper(EntityTyper decoratedAnnotator, ExperimentType type,
+                String annotatorVersion, AnnotatorResponseStore store, boolean replay) {
+            super(decoratedAnnotator, type, annotatorVersion, store, replay);
+        }
+
+        @Override
+        public List<TypedSpan> performTyping(Document document) throws GerbilException {
+            return ResponseCachingAnnotatorDecorator.performTyping(this, document);
+        }
+    }
+
+    private static class ResponseCachingOKETask1Annotator extends ResponseCachingA2KBAnnotator
+            implements OKETask1Annotator {
+
+        public ResponseCachingOKETask1Annotator(OKETask1Annotator decoratedAnnotator, ExperimentType type,
+                String annotatorVersion, AnnotatorResponseStore store, boolean replay) {
+            super(decoratedAnnotator, type, annotatorVersion, store, replay);
+        }
+
+        @Override
+        public List<TypedSpan> performTyping(Document document) throws GerbilException {
+            return ResponseCachingAnnotatorDecorator.performTyping(this, document);
+        }
+
+        @Override
+        public List<TypedNamedEntity> performTask1(Document document) throws GerbilException {
+            return ResponseCachingAnnotatorDecorator.performOKETask1(this, document);
+        }
+    }
+
+    private static class ResponseCachingOKETask2Annotator extends ResponseCachingAnnotatorDecorator
+            implements OKETask2Annotator {
+
+        public ResponseCachingOKETask2Annotator(OKETask2Annotator decoratedAnnotator, ExperimentType type,
+                String annotatorVersion, AnnotatorResponseStore store, boolean replay) {
+            super(decoratedAnnotator, type, annotatorVersion, store, replay);
+        }
+
+        @Override
+        public List<TypedNamedEntity> performTask2(Document document) throws GerbilException {
+            return ResponseCachingAnnotatorDecorator.performOKETask2(this, document);
+        }
+    }
+
+    protected static List<Meaning> performC2KB(ResponseCachingAnnotatorDecorator responseCache, Document document)
+            throws GerbilException {
+        String key = responseCache.generateKey("C2KB", document);
+        List<Meaning> result = responseCache.getStoredResponse(key);
+        if (result == null) {
+            result = ((C2KBAnnotator) responseCache.getDecoratedAnnotator()).performC2KB(document);
+            responseCache.storeResponse(key, result);
+        }
+        return result;
+    }
+
+    protected static List<MeaningSpan> performD2KBTask(ResponseCachingAnnotatorDecorator responseCache,
+            Document document) throws GerbilException {
+        String key = responseCache.generateKey("D2KB", document);
+        List<MeaningSpan> result = responseCache.getStoredResponse(key);
+        if (result == null) {
+            result = ((D2KBAnnotator) responseCache.getDecoratedAnnotator()).performD2KBTask(document);
+            responseCache.storeResponse(key, result);
+        }
+        return result;
+    }
+
+    protected static List<MeaningSpan> performExtraction(ResponseCachingAnnotatorDecorator responseCache,
+            Document document) throws GerbilException {
+        String key = responseCache.generateKey("A2KB", document);
+        List<MeaningSpan> result = responseCache.getStoredResponse(key);
+        if (result == null) {
+            result = ((A2KBAnnotator) responseCache.getDecoratedAnnotator()).performA2KBTask(document);
+            responseCache.storeResponse(key, result);
+        }
+        return result;
+    }
+
+    protected static List<TypedSpan> performTyping(ResponseCachingAnnotatorDecorator responseCache,
+            Document document) throws GerbilException {
+        String key = responseCache.generateKey("ETyping", document);
+        List<TypedSpan> result = responseCache.getStoredResponse(key);
+        if (result == null) {
+            result = ((EntityTyper) responseCache.getDecoratedAnnotator()).performTyping(document);
+            responseCache.storeResponse(key, result);
+        }
+        return result;
+    }
+
+    protected static List<Span> performRecognition(ResponseCachingAnnotatorDecorator responseCache,
+            Document document) throws GerbilException {
+        String key = responseCache.generateKey("ERec", document);
+        List<Span> result = responseCache.getStoredResponse(key);
+        if (result == null) {
+            result = ((EntityRecognizer) responseCache.getDecoratedAnnotator()).performRecognition(document);
+            responseCache.storeResponse(key, result);
+        }
+        return result;
+    }
+
+    protected static List<TypedNamedEntity> performOKETask1(ResponseCachingAnnotatorDecorator responseCache,
+            Document document) throws GerbilException {
+        String key = responseCache.generateKey("OKE_Task1", document);
+        List<TypedNamedEntity> result = responseCache.getStoredResponse(key);
+        if (result == null) {
+            result = ((OKETask1Annotator) responseCache.getDecoratedAnnotator()).performTask1(document);
+            responseCache.storeResponse(key, result);
+        }
+        return result;
+    }
+
+    protected static List<TypedNamedEntity> performOKETask2(ResponseCachingAnnotatorDecorator responseCache,
+            Document document) throws GerbilException {
+        String key = responseCache.generateKey("OKE_Task2", document);
+        List<TypedNamedEntity> result = responseCache.getStoredResponse(key);
+        if (result == null) {
+            result = ((OKETask2Annotator) responseCache.getDecoratedAnnotator()).performTask2(document);
+            responseCache.storeResponse(key, result);
+        }
+        return result;
+    }
+
+    protected ExperimentType type;
+    protected String annotatorVersion;
+    protected AnnotatorResponseStore responseStore;
+    protected boolean replay;
+    protected AtomicInteger storedResponsesCount = new AtomicInteger();
+
+    protected ResponseCachingAnnotatorDecorator(Annotator decoratedAnnotator, ExperimentType type,
+            String annotatorVersion, AnnotatorResponseStore responseStore, boolean replay) {
+        super(decoratedAnnotator);
+        this.type = type;
+        this.annotatorVersion = annotatorVersion;
+        this.responseStore = responseStore;
+        this.replay = replay;
+    }
+
+    /**
+     * Generates the key of the response of the annotator for the given
+     * document and method. Returns null if the document can not be hashed,
+     * i.e., the response can not be cached.
+     */
+    protected String generateKey(String method, Document document) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            String text = document.getText();
+            out.writeInt(text == null ? -1 : text.length());
+            if (text != null) {
+                out.write(text.getBytes("UTF-8"));
+            }
+            AnnotatorResponseStore.writeMarkings(document.getMarkings(), out);
+            byte hash[] = MessageDigest.getInstance("SHA-256").digest(bytes.toByteArray());
+            StringBuilder key = new StringBuilder();
+            key.append(getName());
+            key.append('\t');
+            key.append(annotatorVersion);
+            key.append('\t');
+            key.append(type.name());
+            key.append('\t');
+            key.append(method);
+            key.append('\t');
+            for (int i = 0; i < hash.length; ++i) {
+                key.append(Character.forDigit((hash[i] >> 4) & 0xF, 16));
+                key.append(Character.forDigit(hash[i] & 0xF, 16));
+            }
+            return key.toString();
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Couldn't hash the document {}. Its response won't be cached. Exception: {}",
+                    document.getDocumentURI(), e.getMessage());
+        } catch (NoSuchAlgorithmException e) {
+            LOGGER.error("Couldn't hash the document. Its response won't be cached.", e);
+        } catch (IOException e) {
+            LOGGER.error("Couldn't hash the document. Its response won't be cached.", e);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the stored response for the given key or null if there is no
+     * such response.
+     * 
+     * @throws GerbilException
+     *             if the decorator is in replay mode and there is no stored
+     *             response
+     */
+    @SuppressWarnings("unchecked")
+    protected <T extends Marking> List<T> getStoredResponse(String key) throws GerbilException {
+        List<Marking> response = null;
+        if (key != null) {
+            try {
+                response = responseStore.get(key);
+            } catch (IOException e) {
+                LOGGER.error("Couldn't read the stored response. Returning null.", e);
+            }
+        }
+        if (response != null) {
+            storedResponsesCount.incrementAndGet();
+        } else if (replay) {
+            throw new GerbilException("There is no stored response of the annotator " + getName()
+                    + " for this document (replay mode).", ErrorTypes.NO_STORED_ANNOTATOR_RESPONSE);
+        }
+        return (List<T>) response;
+    }
+
+    protected void storeResponse(String key, List<? extends Marking> response) {
+        if ((key == null) || (response == null)) {
+            return;
+        }
+        try {
+            responseStore.put(key, response);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Couldn't store the response of the annotator {}. Exception: {}", getName(), e.getMessage());
+        } catch (IOException e) {
+            LOGGER.error("Couldn't store the response of the annotator " + getName() + ".", e);
+        }
+    }
+
+    /**
+     * @return the number of responses that have been taken from the store
+     */
+    public int getStoredResponsesCount() {
+        return storedResponsesCount.get();
+    }
+
+    @Override
+    public void evaluate(List<List<Marking>> annotatorResults, List<List<Marking>> goldStandard,
+            EvaluationResultContainer results) {
+        results.addResult(new IntEvaluationResult(CACHED_RESPONSES_RESULT_NAME, getStoredResponsesCount()));
+    }
+}
@@ -16,6 +16,7 @@
  */
 package org.aksw.gerbil.annotator.decorator;
 
+import java.util.Arrays;
 import java.util.List;
 
 import org.aksw.gerbil.annotator.Annotator;
@@ -38,6 +39,7 @@ import org.aksw.gerbil.transfer.nif.MeaningSpan;
 import org.aksw.gerbil.transfer.nif.Span;
 import org.aksw.gerbil.transfer.nif.TypedSpan;
 import org.aksw.gerbil.transfer.nif.data.TypedNamedEntity;
+import org.aksw.gerbil.utils.LatencyHistogram;
 
 /**
  * This is a simple decorator for an annotator which measures the time needed
@@ -45,6 +47,15 @@ import org.aksw.gerbil.transfer.nif.data.TypedNamedEntity;
  * easier adapter implementation and time measuring problems if an error occur
  * inside the adapter.
  * 
+ * <p>
+ * Next to the average runtime, the decorator records the runtimes of the
+ * single calls inside a {@link LatencyHistogram} to be able to report the
+ * median, the 90th and the 99th percentile as well as the maximum runtime. The
+ * throughput is calculated based on the time between the start of the first
+ * and the end of the last call. Additionally, the average runtime is reported
+ * for documents of different lengths.
+ * </p>
+ * 
  * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
  * 
  */
@@ -52,6 +63,41 @@ public abstract class TimeMeasuringAnnotatorDecorator extends AbstractAnnotatorD
         implements Evaluator<Marking>, TimeMeasurer {
 
     public static final String AVG_TIME_RESULT_NAME = "avg millis/doc";
+    public static final String P50_TIME_RESULT_NAME = "p50 millis/doc";
+    public static final String P90_TIME_RESULT_NAME = "p90 millis/doc";
+    public static final String P99_TIME_RESULT_NAME = "p99 millis/doc";
+    public static final String MAX_TIME_RESULT_NAME = "max millis/doc";
+    public static final String THROUGHPUT_RESULT_NAME = "docs/s";
+
+    /**
+     * Upper bounds (exclusive) of the document length classes for which the
+     * average runtime is reported. Documents that are longer than the last
+     * bound are counted in an additional class.
+     */
+    private static final int DOCUMENT_LENGTH_BOUNDS[] = new int[] { 1000, 10000 };
+    public static final String SHORT_DOCS_AVG_TIME_RESULT_NAME = "avg millis/doc (<1000 chars)";
+    public static final String MEDIUM_DOCS_AVG_TIME_RESULT_NAME = "avg millis/doc (1000-9999 chars)";
+    public static final String LONG_DOCS_AVG_TIME_RESULT_NAME = "avg millis/doc (>=10000 chars)";
+    private static final String DOCUMENT_LENGTH_RESULT_NAMES[] = new String[] { SHORT_DOCS_AVG_TIME_RESULT_NAME,
+            MEDIUM_DOCS_AVG_TIME_RESULT_NAME, LONG_DOCS_AVG_TIME_RESULT_NAME };
+
+    /**
+     * Returns true if the result with the given name is one of the runtime
+     * results created by this decorator.
+     */
+    public static boolean isTimeResultName(String name) {
+        if (AVG_TIME_RESULT_NAME.equals(name) || P50_TIME_RESULT_NAME.equals(name)
+                || P90_TIME_RESULT_NAME.equals(name) || P99_TIME_RESULT_NAME.equals(name)
+                || MAX_TIME_RESULT_NAME.equals(name) || THROUGHPUT_RESULT_NAME.equals(name)) {
+            return true;
+        }
+        for (int i = 0; i < DOCUMENT_LENGTH_RESULT_NAMES.length; ++i) {
+            if (DOCUMENT_LENGTH_RESULT_NAMES[i].equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
     @SuppressWarnings("deprecation")
     public static TimeMeasuringAnnotatorDecorator createDecorator(ExperimentType type, Annotator annotator) {
@@ -191,7 +237,7 @@ public abstract class TimeMeasuringAnnotatorDecorator extends AbstractAnnotatorD
         long startTime = System.currentTimeMillis();
         List<Meaning> result = null;
         result = ((C2KBAnnotator) timeMeasurer.getDecoratedAnnotator()).performC2KB(document);
-        timeMeasurer.addCallRuntime(System.currentTimeMillis() - startTime);
+        timeMeasurer.addCallRuntime(System.currentTimeMillis() - startTime, document);
         return result;
     }
 
@@ -200,7 +246,7 @@ public abstract class TimeMeasuringAnnotatorDecorator extends AbstractAnnotatorD
         long startTime = System.currentTimeMillis();
         List<MeaningSpan> result = null;
         result = ((D2KBAnnotator) timeMeasurer.getDecoratedAnnotator()).performD2KBTask(document);
-        timeMeasurer.addCallRuntime(System.currentTimeMillis() - startTime);
+        timeMeasurer.addCallRuntime(System.currentTimeMillis() - startTime, document);
         return result;
     }
 
@@ -209,7 +255,7 @@ public abstract class TimeMeasuringAnnotatorDecorator extends AbstractAnnotatorD
         long startTime = System.currentTimeMillis();
         List<MeaningSpan> result = null;
         result = ((A2KBAnnotator) timeMeasurer.getDecoratedAnnotator()).performA2KBTask(document);
-        timeMeasurer.addCallRuntime(System.currentTimeMillis() - startTime);
+        timeMeasurer.addCallRuntime(System.currentTimeMillis() - startTime, document);
         return result;
     }
 
@@ -218,7 +264,7 @@ public abstract class TimeMeasuringAnnotatorDecorator extends AbstractAnnotatorD
         long startTime = System.currentTimeMillis();
         List<TypedSpan> result = null;
         result = ((EntityTyper) timeMeasurer.getDecoratedAnnotator()).performTyping(document);
-        timeMeasurer.addCallRuntime(System.currentTimeMillis() - startTime);
+        timeMeasurer.addCallRuntime(System.currentTimeMillis() - startTime, document);
         return result;
     }
 
@@ -227,7 +273,7 @@ public abstract class TimeMeasuringAnnotatorDecorator extends AbstractAnnotatorD
         long startTime = System.currentTimeMillis();
         List<Span> result = null;
         result = ((EntityRecognizer) timeMeasurer.getDecoratedAnnotator()).performRecognition(document);
-        timeMeasurer.addCallRuntime(System.currentTimeMillis() - startTime);
+        timeMeasurer.addCallRuntime(System.currentTimeMillis() - startTime, document);
         return result;
     }
 
@@ -236,7 +282,7 @@ public abstract class TimeMeasuringAnnotatorDecorator extends AbstractAnnotatorD
         long startTime = System.currentTimeMillis();
         List<TypedNamedEntity> result = null;
         result = ((OKETask1Annotator) timeMeasurer.getDecoratedAnnotator()).performTask1(document);
-        timeMeasurer.addCallRuntime(System.currentTimeMillis() - startTime);
+        timeMeasurer.addCallRuntime(System.currentTimeMillis() - startTime, document);
         return result;
     }
 
@@ -245,24 +291,73 @@ public abstract class TimeMeasuringAnnotatorDecorator extends AbstractAnnotatorD
         long startTime = System.currentTimeMillis();
         List<TypedNamedEntity> result = null;
         result = ((OKETask2Annotator) timeMeasurer.getDecoratedAnnotator()).performTask2(document);
-        timeMeasurer.addCallRuntime(System.currentTimeMillis() - startTime);
+        timeMeasurer.addCallRuntime(System.currentTimeMillis() - startTime, document);
         return result;
     }
 
     protected long timeSum = 0;
     protected int callCount = 0;
+    protected LatencyHistogram histogram = new LatencyHistogram();
+    protected long firstCallStart = Long.MAX_VALUE;
+    protected long lastCallEnd = Long.MIN_VALUE;
+    protected long lengthClassTimeSums[] = new long[DOCUMENT_LENGTH_BOUNDS.length + 1];
+    protected int lengthClassCallCounts[] = new int[DOCUMENT_LENGTH_BOUNDS.length + 1];
 
     protected TimeMeasuringAnnotatorDecorator(Annotator decoratedAnnotator) {
         super(decoratedAnnotator);
     }
 
-    protected void addCallRuntime(long runtime) {
+    /**
+     * Adds the runtime of a single call. Note that this method is synchronized
+     * since the decorated annotator might be called by several threads at the
+     * same time.
+     * 
+     * @param runtime
+     *            the runtime of the call in milliseconds
+     */
+    protected synchronized void addCallRuntime(long runtime) {
         timeSum += runtime;
         ++callCount;
+        histogram.record(runtime);
+        long callEnd = System.currentTimeMillis();
+        if ((callEnd - runtime) < firstCallStart) {
+            firstCallStart = callEnd - runtime;
+        }
+        if (callEnd > lastCallEnd) {
+            lastCallEnd = callEnd;
+        }
+    }
+
+    /**
+     * Adds the runtime of a single call for the given document. Additionally
+     * to {@link #addCallRuntime(long)}, the runtime is counted for the length
+     * class of the document.
+     * 
+     * @param runtime
+     *            the runtime of the call in milliseconds
+     * @param document
+     *            the document that has been processed by the call
+     */
+    protected synchronized void addCallRuntime(long runtime, Document document) {
+        addCallRuntime(runtime);
+        if ((document != null) && (document.getText() != null)) {
+            int lengthClass = getLengthClass(document.getText().length());
+            lengthClassTimeSums[lengthClass] += runtime;
+            ++lengthClassCallCounts[lengthClass];
+        }
+    }
+
+    protected static int getLengthClass(int documentLength) {
+        int lengthClass = 0;
+        while ((lengthClass < DOCUMENT_LENGTH_BOUNDS.length)
+                && (documentLength >= DOCUMENT_LENGTH_BOUNDS[lengthClass])) {
+            ++lengthClass;
+        }
+        return lengthClass;
     }
 
     @Override
-    public double getAverageRuntime() {
+    public synchronized double getAverageRuntime() {
         if (callCount > 0) {
             return (double) timeSum / (double) callCount;
         } else {
@@ -270,17 +365,83 @@ public abstract class TimeMeasuringAnnotatorDecorator extends AbstractAnnotatorD
         }
     }
 
+    /**
+     * Returns the runtime in milliseconds below or equal to which the given
+     * percentage of calls have been finished.
+     * 
+     * @param percentile
+     *            the percentile in the range [0, 100]
+     * @return the runtime at the given percentile or {@link Double#NaN} if
+     *         there are no measurements available.
+     */
+    public synchronized double getRuntimeAtPercentile(double percentile) {
+        if (callCount > 0) {
+            return histogram.getValueAtPercentile(percentile);
+        } else {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Returns the maximum runtime in milliseconds.
+     * 
+     * @return the maximum runtime in milliseconds or {@link Double#NaN} if
+     *         there are no measurements available.
+     */
+    public synchronized double getMaxRuntime() {
+        if (callCount > 0) {
+            return histogram.getMaxValue();
+        } else {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Returns the number of documents processed per second between the start
+     * of the first and the end of the last call. Note that this takes calls
+     * into account that have been executed in parallel.
+     * 
+     * @return the throughput in documents per second or {@link Double#NaN} if
+     *         there are no measurements available.
+     */
+    public synchronized double getThroughput() {
+        if (callCount > 0) {
+            // avoid a division by zero for very fast calls
+            long duration = Math.max(1, lastCallEnd - firstCallStart);
+            return (callCount * 1000.0) / duration;
+        } else {
+            return Double.NaN;
+        }
+    }
+
     @Override
-    public void reset() {
+    public synchronized void reset() {
         timeSum = 0;
         callCount = 0;
+        histogram.reset();
+        firstCallStart = Long.MAX_VALUE;
+        lastCallEnd = Long.MIN_VALUE;
+        Arrays.fill(lengthClassTimeSums, 0);
+        Arrays.fill(lengthClassCallCounts, 0);
     }
 
     @Override
-    public void evaluate(List<List<Marking>> annotatorResults, List<List<Marking>> goldStandard,
+    public synchronized void evaluate(List<List<Marking>> annotatorResults, List<List<Marking>> goldStandard,
             EvaluationResultContainer results) {
-        if (callCount > 0) {
-            results.addResult(new DoubleEvaluationResult(AVG_TIME_RESULT_NAME, getAverageRuntime()));
+        double averageRuntime = getAverageRuntime();
+        if (!Double.isNaN(averageRuntime)) {
+            results.addResult(new DoubleEvaluationResult(AVG_TIME_RESULT_NAME, averageRuntime));
+            results.addResult(new DoubleEvaluationResult(P50_TIME_RESULT_NAME, getRuntimeAtPercentile(50)));
+            results.addResult(new DoubleEvaluationResult(P90_TIME_RESULT_NAME, getRuntimeAtPercentile(90)));
+            results.addResult(new DoubleEvaluationResult(P99_TIME_RESULT_NAME, getRuntimeAtPercentile(99)));
+            results.addResult(new DoubleEvaluationResult(MAX_TIME_RESULT_NAME, getMaxRuntime()));
+            results.addResult(new DoubleEvaluationResult(THROUGHPUT_RESULT_NAME, getThroughput()));
+            for (int i = 0; i < lengthClassCallCounts.length; ++i) {
+                if (lengthClassCallCounts[i] > 0) {
+                    results.addResult(new DoubleEvaluationResult(DOCUMENT_LENGTH_RESULT_NAMES[i],
+                            (double) lengthClassTimeSums[i] / (double) lengthClassCallCounts[i]));
+                }
+            }
         }
     }
 }
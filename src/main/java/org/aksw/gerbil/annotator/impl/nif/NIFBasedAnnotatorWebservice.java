@@ -139,7 +139,6 @@ public class NIFBasedAnnotatorWebservice extends AbstractHttpBasedAnnotator
                 throw new GerbilException("Couldn't parse the response.", e, ErrorTypes.UNEXPECTED_EXCEPTION);
             }
         } finally {
-            closeRequest(request);
             if (entity != null) {
                 try {
                     EntityUtils.consume(entity);
@@ -147,6 +146,7 @@ public class NIFBasedAnnotatorWebservice extends AbstractHttpBasedAnnotator
                 }
             }
             IOUtils.closeQuietly(response);
+            closeRequest(request);
         }
         LOGGER.info("Finished request for {}", document.getDocumentURI());
         return document;
@@ -30,6 +30,8 @@ import org.slf4j.LoggerFactory;
  * implementing the {@link ExperimentDAO} class directly since this class
  * already takes care of the synchronization problem of the
  * {@link ExperimentDAO#connectCachedResultOrCreateTask(String, String, String, String, String)} method.
+ * Calls for the same experiment task configuration are executed one after the
+ * other while calls for different configurations are not blocking each other.
  * 
  * @author m.roeder
  * 
@@ -44,13 +46,34 @@ public abstract class AbstractExperimentDAO implements ExperimentDAO {
      */
     protected static final int EXPERIMENT_TASK_NOT_CACHED = -1;
 
+    /**
+     * Number of locks that are used to synchronize the
+     * {@link #connectCachedResultOrCreateTask(String, String, String, String, String)}
+     * calls.
+     */
+    private static final int NUMBER_OF_TASK_LOCKS = 64;
+
+    /**
+     * Locks guarding the lookup and creation of experiment tasks. A
+     * configuration is always mapped to the same lock. Thus, a second
+     * experiment with the same configuration waits until the task of the first
+     * experiment has been created and is connected to this (maybe still
+     * running) task instead of creating its own.
+     */
+    private final Object taskLocks[];
+
     protected long resultDurability;
     protected boolean initialized = false;
 
     public AbstractExperimentDAO() {
+        taskLocks = new Object[NUMBER_OF_TASK_LOCKS];
+        for (int i = 0; i < taskLocks.length; ++i) {
+            taskLocks[i] = new Object();
+        }
     }
 
     public AbstractExperimentDAO(long resultDurability) {
+        this();
         setResultDurability(resultDurability);
     }
 
@@ -89,24 +112,48 @@ public abstract class AbstractExperimentDAO implements ExperimentDAO {
         return resultDurability;
     }
 
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>
+     * Note that a task that is still running is reused as well, i.e., the
+     * experiment is connected to the running task and gets its result as soon
+     * as the task has been finished.
+     * </p>
+     */
     @Override
-    public synchronized int connectCachedResultOrCreateTask(String annotatorName, String datasetName,
-            String experimentType, String matching, String experimentId) {
-        int experimentTaskId = EXPERIMENT_TASK_NOT_CACHED;
-        if (resultDurability > 0) {
-            experimentTaskId = getCachedExperimentTaskId(annotatorName, datasetName, experimentType, matching);
-        } else {
-            LOGGER.warn("The durability of results is <= 0. I won't be able to cache results.");
-        }
-        if (experimentTaskId == EXPERIMENT_TASK_NOT_CACHED) {
-            return createTask(annotatorName, datasetName, experimentType, matching, experimentId);
-        } else {
-            LOGGER.debug("Could reuse cached task (id={}).", experimentTaskId);
-            connectExistingTaskWithExperiment(experimentTaskId, experimentId);
-            return CACHED_EXPERIMENT_TASK_CAN_BE_USED;
+    public int connectCachedResultOrCreateTask(String annotatorName, String datasetName, String experimentType,
+            String matching, String experimentId) {
+        synchronized (getTaskLock(annotatorName, datasetName, experimentType, matching)) {
+            int experimentTaskId = EXPERIMENT_TASK_NOT_CACHED;
+            if (resultDurability > 0) {
+                experimentTaskId = getCachedExperimentTaskId(annotatorName, datasetName, experimentType, matching);
+            } else {
+                LOGGER.warn("The durability of results is <= 0. I won't be able to cache results.");
+            }
+            if (experimentTaskId == EXPERIMENT_TASK_NOT_CACHED) {
+                return createTask(annotatorName, datasetName, experimentType, matching, experimentId);
+            } else {
+                LOGGER.debug("Could reuse cached task (id={}).", experimentTaskId);
+                connectExistingTaskWithExperiment(experimentTaskId, experimentId);
+                return CACHED_EXPERIMENT_TASK_CAN_BE_USED;
+            }
         }
     }
 
+    /**
+     * Returns the lock guarding the experiment tasks with the given
+     * configuration.
+     */
+    protected Object getTaskLock(String annotatorName, String datasetName, String experimentType, String matching) {
+        int hash = 17;
+        hash = (31 * hash) + ((annotatorName == null) ? 0 : annotatorName.hashCode());
+        hash = (31 * hash) + ((datasetName == null) ? 0 : datasetName.hashCode());
+        hash = (31 * hash) + ((experimentType == null) ? 0 : experimentType.hashCode());
+        hash = (31 * hash) + ((matching == null) ? 0 : matching.hashCode());
+        return taskLocks[(hash & Integer.MAX_VALUE) % taskLocks.length];
+    }
+
     /**
      * The method checks whether there exists an experiment task with the given
      * preferences inside the database. If such a task exists, if it is not to
@@ -114,8 +161,9 @@ public abstract class AbstractExperimentDAO implements ExperimentDAO {
      * is not an error code, its experiment task id is returned. Otherwise {@link #EXPERIMENT_TASK_NOT_CACHED} is
      * returned.
      * 
-     * <b>NOTE:</b> this method MUST be synchronized since it should only be
-     * called by a single thread at once.
+     * <b>NOTE:</b> this method is only called while holding the lock of the
+     * given configuration. However, it might be called for different
+     * configurations at the same time.
      * 
      * @param annotatorName
      *            the name with which the annotator can be identified
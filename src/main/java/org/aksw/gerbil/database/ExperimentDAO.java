@@ -95,9 +95,13 @@ public interface ExperimentDAO extends Closeable {
      * new experiment task is created, set to unfinished by setting its state to
      * {@link #TASK_STARTED_BUT_NOT_FINISHED_YET}, connected to the given
      * experiment and the id of the newly created experiment task is returned.
+     * Note that a task which is still running (its state is
+     * {@link #TASK_STARTED_BUT_NOT_FINISHED_YET}) can be reused as well.
      * 
-     * <b>NOTE:</b> this method MUST be synchronized since it should only be
-     * called by a single thread at once.
+     * <b>NOTE:</b> this method MUST be synchronized for the single experiment
+     * task configurations, i.e., it must not be called by two threads with the
+     * same configuration at once. Calls for different configurations should
+     * not block each other.
      * 
      * @param annotatorName
      *            the name with which the annotator can be identified
@@ -185,7 +189,8 @@ public interface ExperimentDAO extends Closeable {
 
     /**
      * Returns the latest results for experiments with the given experiment type and matching type. Note that the
-     * experiment tasks of which the results are returned should be finished.
+     * experiment tasks of which the results are returned should be finished. Implementations may keep the results in
+     * memory and return the same unmodifiable list as long as the results have not been changed.
      * 
      * @param experimentType
      *            the name of the experiment type
@@ -18,8 +18,12 @@ package org.aksw.gerbil.database;
 
 import java.io.IOException;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.sql.DataSource;
 
@@ -30,10 +34,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.carrotsearch.hppc.IntObjectOpenHashMap;
 
 /**
  * SQL database based implementation of the {@link AbstractExperimentDAO} class.
@@ -48,7 +60,8 @@ public class ExperimentDAOImpl extends AbstractExperimentDAO {
 
     private final static String INSERT_TASK = "INSERT INTO ExperimentTasks (annotatorName, datasetName, experimentType, matching, state, lastChanged) VALUES (:annotatorName, :datasetName, :experimentType, :matching, :state, :lastChanged)";
     private final static String SET_TASK_STATE = "UPDATE ExperimentTasks SET state=:state, lastChanged=:lastChanged WHERE id=:id";
-    private final static String SET_EXPERIMENT_TASK_RESULT = "UPDATE ExperimentTasks SET microF1=:microF1 , microPrecision=:microPrecision, microRecall=:microRecall, macroF1=:macroF1, macroPrecision=:macroPrecision, macroRecall=:macroRecall, errorCount=:errorCount, lastChanged=:lastChanged WHERE id=:id";
+    private final static String INSERT_SUB_TASK = "INSERT INTO ExperimentTasks (annotatorName, datasetName, experimentType, matching, state, microF1, microPrecision, microRecall, macroF1, macroPrecision, macroRecall, errorCount, lastChanged) VALUES (:annotatorName, :datasetName, :experimentType, :matching, :state, :microF1, :microPrecision, :microRecall, :macroF1, :macroPrecision, :macroRecall, :errorCount, :lastChanged)";
+    private final static String SET_EXPERIMENT_TASK_RESULT = "UPDATE ExperimentTasks SET state=:state, microF1=:microF1 , microPrecision=:microPrecision, microRecall=:microRecall, macroF1=:macroF1, macroPrecision=:macroPrecision, macroRecall=:macroRecall, errorCount=:errorCount, lastChanged=:lastChanged WHERE id=:id";
     private final static String CONNECT_TASK_EXPERIMENT = "INSERT INTO Experiments (id, taskId) VALUES(:id, :taskId)";
     private final static String GET_TASK_STATE = "SELECT state FROM ExperimentTasks WHERE id=:id";
     private final static String GET_EXPERIMENT_RESULTS = "SELECT annotatorName, datasetName, experimentType, matching, microF1, microPrecision, microRecall, macroF1, macroPrecision, macroRecall, state, errorCount, lastChanged, taskId FROM ExperimentTasks t, Experiments e WHERE e.id=:id AND e.taskId=t.id";
@@ -60,64 +73,115 @@ public class ExperimentDAOImpl extends AbstractExperimentDAO {
     @Deprecated
     private final static String GET_LATEST_EXPERIMENT_TASK_RESULT = "SELECT annotatorName, datasetName, experimentType, matching, microF1, microPrecision, microRecall, macroF1, macroPrecision, macroRecall, state, errorCount, lastChanged FROM ExperimentTasks WHERE annotatorName=:annotatorName AND datasetName=:datasetName AND experimentType=:experimentType AND matching=:matching AND state<>:unfinishedState ORDER BY lastChanged DESC LIMIT 1";
     private final static String GET_LATEST_EXPERIMENT_TASK_RESULTS = "SELECT tasks.annotatorName, tasks.datasetName, tasks.experimentType, tasks.matching, tasks.microF1, tasks.microPrecision, tasks.microRecall, tasks.macroF1, tasks.macroPrecision, tasks.macroRecall, tasks.state, tasks.errorCount, tasks.lastChanged, tasks.id FROM ExperimentTasks tasks, (SELECT datasetName, annotatorName, MAX(lastChanged) AS lastChanged FROM ExperimentTasks WHERE experimentType=:experimentType AND matching=:matching AND state<>:unfinishedState GROUP BY datasetName, annotatorName) pairs WHERE tasks.annotatorName=pairs.annotatorName AND tasks.datasetName=pairs.datasetName AND tasks.experimentType=:experimentType AND tasks.matching=:matching AND tasks.lastChanged=pairs.lastChanged";
+    private final static String GET_LATEST_EXPERIMENT_TASK_ADDITIONAL_RESULTS = "SELECT a.taskId, a.resultId, a.value FROM ExperimentTasks_AdditionalResults a, ExperimentTasks tasks, (SELECT datasetName, annotatorName, MAX(lastChanged) AS lastChanged FROM ExperimentTasks WHERE experimentType=:experimentType AND matching=:matching AND state<>:unfinishedState GROUP BY datasetName, annotatorName) pairs WHERE tasks.annotatorName=pairs.annotatorName AND tasks.datasetName=pairs.datasetName AND tasks.experimentType=:experimentType AND tasks.matching=:matching AND tasks.lastChanged=pairs.lastChanged AND a.taskId=tasks.id";
+    private final static String GET_EXPERIMENT_TASK_RESULT = "SELECT annotatorName, datasetName, experimentType, matching, microF1, microPrecision, microRecall, macroF1, macroPrecision, macroRecall, state, errorCount, lastChanged, id FROM ExperimentTasks WHERE id=:id";
     private final static String GET_RUNNING_EXPERIMENT_TASKS = "SELECT annotatorName, datasetName, experimentType, matching, microF1, microPrecision, microRecall, macroF1, macroPrecision, macroRecall, state, errorCount, lastChanged FROM ExperimentTasks WHERE state=:unfinishedState";
     private final static String SHUTDOWN = "SHUTDOWN";
 
-    private final static String GET_ADDITIONAL_RESULTS = "SELECT resultId, value FROM ExperimentTasks_AdditionalResults WHERE taskId=:taskId";
     private final static String INSERT_ADDITIONAL_RESULT = "INSERT INTO ExperimentTasks_AdditionalResults(taskId, resultId, value) VALUES (:taskId, :resultId, :value)";
-    private final static String GET_SUB_TASK_RESULTS = "SELECT annotatorName, datasetName, experimentType, matching, microF1, microPrecision, microRecall, macroF1, macroPrecision, macroRecall, state, errorCount, lastChanged, taskId FROM ExperimentTasks t, ExperimentTasks_SubTasks s WHERE s.taskId=:taskId AND s.subTaskId=t.id";
+    // the following statements load the details of all tasks of an experiment
+    // at once
+    private final static String GET_EXPERIMENT_VERSIONS = "SELECT DISTINCT v.id, v.version FROM ExperimentTasks_Version v, Experiments e WHERE e.id=:id AND e.taskId=v.id";
+    private final static String GET_EXPERIMENT_ADDITIONAL_RESULTS = "SELECT DISTINCT a.taskId, a.resultId, a.value FROM ExperimentTasks_AdditionalResults a, Experiments e WHERE e.id=:id AND e.taskId=a.taskId";
+    private final static String GET_EXPERIMENT_SUB_TASK_RESULTS = "SELECT DISTINCT t.annotatorName, t.datasetName, t.experimentType, t.matching, t.microF1, t.microPrecision, t.microRecall, t.macroF1, t.macroPrecision, t.macroRecall, t.state, t.errorCount, t.lastChanged, s.subTaskId, s.taskId FROM ExperimentTasks t, ExperimentTasks_SubTasks s, Experiments e WHERE e.id=:id AND e.taskId=s.taskId AND s.subTaskId=t.id";
+    private final static String GET_EXPERIMENT_SUB_TASK_ADDITIONAL_RESULTS = "SELECT DISTINCT a.taskId, a.resultId, a.value FROM ExperimentTasks_AdditionalResults a, ExperimentTasks_SubTasks s, Experiments e WHERE e.id=:id AND e.taskId=s.taskId AND s.subTaskId=a.taskId";
     private final static String INSERT_SUB_TASK_RELATION = "INSERT INTO ExperimentTasks_SubTasks(taskId, subTaskId) VALUES (:taskId, :subTaskId)";
 
     // FIXME remove the following two statements by removing the experiment task
     // version workaround
-    private final static String GET_VERSION_OF_EXPERIMENT_TASK = "SELECT version FROM ExperimentTasks_Version WHERE id=:id";
     private final static String INSERT_VERSION_OF_EXPERIMENT_TASK = "INSERT INTO ExperimentTasks_Version (id, version) VALUES(:id,:version)";
 
     private final NamedParameterJdbcTemplate template;
+    /**
+     * Template used to store the results of a task inside a single
+     * transaction.
+     */
+    private final TransactionTemplate transactionTemplate;
+    /**
+     * Leaderboards (i.e., latest results) of the experiment type and matching
+     * combinations that have been requested before.
+     */
+    private final ConcurrentMap<String, Leaderboard> leaderboards = new ConcurrentHashMap<String, Leaderboard>();
+    /**
+     * The time (in ms) after which a leaderboard is reloaded from the
+     * database, e.g., to take results into account that have been stored by a
+     * different process. A value &lt;= 0 means that a leaderboard is never
+     * reloaded.
+     */
+    private long leaderboardMaxAge = 0;
 
     public ExperimentDAOImpl(DataSource dataSource) {
         this.template = new NamedParameterJdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
     }
 
     public ExperimentDAOImpl(DataSource dataSource, long resultDurability) {
         super(resultDurability);
         this.template = new NamedParameterJdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
     }
 
+    /**
+     * Loads the results of the tasks of the given experiment together with
+     * their versions, additional results and sub tasks. Independent of the
+     * number of tasks, this needs five queries. The single parts are
+     * assembled in memory.
+     */
     @Override
     public List<ExperimentTaskResult> getResultsOfExperiment(String experimentId) {
         MapSqlParameterSource parameters = new MapSqlParameterSource();
         parameters.addValue("id", experimentId);
-        List<ExperimentTaskResult> result = this.template.query(GET_EXPERIMENT_RESULTS, parameters,
+        List<ExperimentTaskResult> results = this.template.query(GET_EXPERIMENT_RESULTS, parameters,
                 new ExperimentTaskResultRowMapper());
-        // FIXME remove this ugly workaround regarding the version of an
-        // experiment task
-        for (ExperimentTaskResult e : result) {
-            addVersion(e);
-            addAdditionalResults(e);
-            addSubTasks(e);
+        if (results.isEmpty()) {
+            return results;
         }
-        return result;
-    }
-
-    // FIXME remove this method and implement a better version handling
-    private void addVersion(ExperimentTaskResult result) {
-        result.gerbilVersion = getVersion(result.idInDb);
-        if (result.gerbilVersion == null) {
-            result.gerbilVersion = "1.0.0";
+        final IntObjectOpenHashMap<ExperimentTaskResult> tasks = new IntObjectOpenHashMap<ExperimentTaskResult>();
+        ExperimentTaskResult result;
+        for (int i = 0; i < results.size(); ++i) {
+            result = results.get(i);
+            if (tasks.containsKey(result.idInDb)) {
+                // the task has been connected to the experiment several times
+                results.set(i, tasks.get(result.idInDb));
+            } else {
+                // FIXME remove this ugly workaround regarding the version of
+                // an experiment task
+                result.gerbilVersion = "1.0.0";
+                result.setSubTasks(new ArrayList<ExperimentTaskResult>());
+                tasks.put(result.idInDb, result);
+            }
         }
-    }
+        this.template.query(GET_EXPERIMENT_VERSIONS, parameters, new RowCallbackHandler() {
+            @Override
+            public void processRow(ResultSet resultSet) throws SQLException {
+                String version = resultSet.getString(2);
+                if ((version != null) && tasks.containsKey(resultSet.getInt(1))) {
+                    tasks.get(resultSet.getInt(1)).gerbilVersion = version;
+                }
+            }
+        });
+        this.template.query(GET_EXPERIMENT_ADDITIONAL_RESULTS, parameters, new AdditionalResultsHandler(tasks));
+        // load the sub tasks and their additional results
+        final IntObjectOpenHashMap<ExperimentTaskResult> subTasks = new IntObjectOpenHashMap<ExperimentTaskResult>();
+        this.template.query(GET_EXPERIMENT_SUB_TASK_RESULTS, parameters, new RowCallbackHandler() {
+            private ExperimentTaskResultRowMapper mapper = new ExperimentTaskResultRowMapper();
 
-    // FIXME remove this method and implement a better version handling
-    private String getVersion(int experimentTaskId) {
-        MapSqlParameterSource parameters = new MapSqlParameterSource();
-        parameters.addValue("id", experimentTaskId);
-        List<String> result = this.template.query(GET_VERSION_OF_EXPERIMENT_TASK, parameters, new StringRowMapper());
-        if (result.size() > 0) {
-            return result.get(0);
-        } else {
-            return null;
+            @Override
+            public void processRow(ResultSet resultSet) throws SQLException {
+                ExperimentTaskResult parent = tasks.get(resultSet.getInt(15));
+                if (parent != null) {
+                    ExperimentTaskResult subTask = mapper.mapRow(resultSet, resultSet.getRow());
+                    subTask.gerbilVersion = parent.gerbilVersion;
+                    parent.addSubTask(subTask);
+                    subTasks.put(subTask.idInDb, subTask);
+                }
+            }
+        });
+        if (!subTasks.isEmpty()) {
+            this.template.query(GET_EXPERIMENT_SUB_TASK_ADDITIONAL_RESULTS, parameters,
+                    new AdditionalResultsHandler(subTasks));
         }
+        return results;
     }
 
     // FIXME remove this method and implement a better version handling
@@ -170,15 +234,32 @@ public class ExperimentDAOImpl extends AbstractExperimentDAO {
         return parameters;
     }
 
+    /**
+     * Stores the given result, its additional results and its sub tasks. All
+     * statements are executed inside a single transaction, i.e., a reader
+     * will never see a partially stored result. The additional results, the
+     * versions of the sub tasks and the sub task relations are inserted using
+     * batch updates.
+     */
     @Override
-    public void setExperimentTaskResult(int experimentTaskId, ExperimentTaskResult result) {
-        // Note that we have to set the state first if we want to override the
-        // automatic timestamp with the one from the
-        // result object
-        setExperimentState(experimentTaskId, result.state);
+    public void setExperimentTaskResult(final int experimentTaskId, final ExperimentTaskResult result) {
+        transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                ResultBatch batch = new ResultBatch();
+                MapSqlParameterSource parameters = createResultParameters(result);
+                parameters.addValue("id", experimentTaskId);
+                template.update(SET_EXPERIMENT_TASK_RESULT, parameters);
+                addResultDetails(experimentTaskId, result, batch);
+                batch.execute(template);
+            }
+        });
+        updateLeaderboards(result);
+    }
 
+    private MapSqlParameterSource createResultParameters(ExperimentTaskResult result) {
         MapSqlParameterSource parameters = new MapSqlParameterSource();
-        parameters.addValue("id", experimentTaskId);
+        parameters.addValue("state", result.state);
         parameters.addValue("microF1", result.getMicroF1Measure());
         parameters.addValue("microPrecision", result.getMicroPrecision());
         parameters.addValue("microRecall", result.getMicroRecall());
@@ -187,31 +268,30 @@ public class ExperimentDAOImpl extends AbstractExperimentDAO {
         parameters.addValue("macroRecall", result.getMacroRecall());
         parameters.addValue("errorCount", result.getErrorCount());
         parameters.addValue("lastChanged", new java.sql.Timestamp(result.timestamp));
+        return parameters;
+    }
 
-        this.template.update(SET_EXPERIMENT_TASK_RESULT, parameters);
+    /**
+     * Adds the additional results and the sub tasks of the given result to the
+     * given batch. Note that the sub tasks themselves are inserted directly
+     * since their generated ids are needed.
+     */
+    protected void addResultDetails(int experimentTaskId, ExperimentTaskResult result, ResultBatch batch) {
         if (result.hasAdditionalResults()) {
             for (int i = 0; i < result.additionalResults.allocated.length; ++i) {
                 if ((result.additionalResults.allocated[i]) && (result.additionalResults.keys[i] >= 6)) {
-                    addAdditionaResult(experimentTaskId, result.additionalResults.keys[i],
+                    batch.addAdditionalResult(experimentTaskId, result.additionalResults.keys[i],
                             result.additionalResults.values[i]);
                 }
             }
         }
         if (result.hasSubTasks()) {
             for (ExperimentTaskResult subTask : result.getSubTasks()) {
-                insertSubTask(subTask, experimentTaskId);
+                insertSubTask(subTask, experimentTaskId, batch);
             }
         }
     }
 
-    protected void addAdditionaResult(int taskId, int resultId, double value) {
-        MapSqlParameterSource parameters = new MapSqlParameterSource();
-        parameters.addValue("taskId", taskId);
-        parameters.addValue("resultId", resultId);
-        parameters.addValue("value", value);
-        this.template.update(INSERT_ADDITIONAL_RESULT, parameters);
-    }
-
     @Override
     public void setExperimentState(int experimentTaskId, int state) {
         MapSqlParameterSource parameters = new MapSqlParameterSource();
@@ -220,6 +300,9 @@ public class ExperimentDAOImpl extends AbstractExperimentDAO {
         java.util.Date today = new java.util.Date();
         parameters.addValue("lastChanged", new java.sql.Timestamp(today.getTime()));
         this.template.update(SET_TASK_STATE, parameters);
+        if ((state != TASK_STARTED_BUT_NOT_FINISHED_YET) && !leaderboards.isEmpty()) {
+            updateLeaderboards(experimentTaskId);
+        }
     }
 
     @Override
@@ -305,8 +388,101 @@ public class ExperimentDAOImpl extends AbstractExperimentDAO {
         return this.template.query(GET_RUNNING_EXPERIMENT_TASKS, params, new ExperimentTaskResultRowMapper());
     }
 
+    /**
+     * Returns the latest results of the given experiment type and matching.
+     * The results are loaded from the database only once and are kept as
+     * {@link Leaderboard} which is updated with every newly stored result. As
+     * long as the results do not change, the same (unmodifiable) list is
+     * returned.
+     */
     @Override
     public List<ExperimentTaskResult> getLatestResultsOfExperiments(String experimentType, String matching) {
+        String key = createLeaderboardKey(experimentType, matching);
+        Leaderboard leaderboard = leaderboards.get(key);
+        if ((leaderboard == null) || ((leaderboardMaxAge > 0) && (leaderboard.getAge() > leaderboardMaxAge))) {
+            synchronized (leaderboards) {
+                leaderboard = leaderboards.get(key);
+                if ((leaderboard == null)
+                        || ((leaderboardMaxAge > 0) && (leaderboard.getAge() > leaderboardMaxAge))) {
+                    leaderboard = new Leaderboard();
+                    // results that are stored while we are loading the
+                    // leaderboard are added to it as well, but they have to
+                    // wait until the loading is done
+                    synchronized (leaderboard) {
+                        leaderboards.put(key, leaderboard);
+                        try {
+                            for (ExperimentTaskResult result : loadLatestResultsOfExperiments(experimentType,
+                                    matching)) {
+                                leaderboard.update(result);
+                            }
+                        } catch (RuntimeException e) {
+                            leaderboards.remove(key);
+                            throw e;
+                        }
+                    }
+                }
+            }
+        }
+        return leaderboard.getResults();
+    }
+
+    private static String createLeaderboardKey(String experimentType, String matching) {
+        return experimentType + '\n' + matching;
+    }
+
+    /**
+     * Adds the given result and the results of its sub tasks to the
+     * leaderboards that have been loaded before.
+     */
+    protected void updateLeaderboards(ExperimentTaskResult result) {
+        if ((result.state != TASK_STARTED_BUT_NOT_FINISHED_YET) && (result.type != null)
+                && (result.matching != null)) {
+            Leaderboard leaderboard = leaderboards.get(createLeaderboardKey(result.type.name(),
+                    result.matching.name()));
+            if (leaderboard != null) {
+                leaderboard.update(result);
+            }
+        }
+        if (result.hasSubTasks()) {
+            for (ExperimentTaskResult subTask : result.getSubTasks()) {
+                updateLeaderboards(subTask);
+            }
+        }
+    }
+
+    /**
+     * Loads the experiment task with the given id and adds it to the
+     * leaderboards that have been loaded before.
+     */
+    protected void updateLeaderboards(int experimentTaskId) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        parameters.addValue("id", experimentTaskId);
+        this.template.query(GET_EXPERIMENT_TASK_RESULT, parameters, new RowCallbackHandler() {
+            @Override
+            public void processRow(ResultSet resultSet) throws SQLException {
+                Leaderboard leaderboard = leaderboards.get(createLeaderboardKey(resultSet.getString(3),
+                        resultSet.getString(4)));
+                if (leaderboard != null) {
+                    leaderboard.update((new ExperimentTaskResultRowMapper()).mapRow(resultSet, resultSet.getRow()));
+                }
+            }
+        });
+    }
+
+    public void setLeaderboardMaxAge(long leaderboardMaxAge) {
+        this.leaderboardMaxAge = leaderboardMaxAge;
+    }
+
+    public long getLeaderboardMaxAge() {
+        return leaderboardMaxAge;
+    }
+
+    /**
+     * Loads the latest results of the given experiment type and matching
+     * together with their additional results. Independent of the number of
+     * results, this needs two queries.
+     */
+    protected List<ExperimentTaskResult> loadLatestResultsOfExperiments(String experimentType, String matching) {
         MapSqlParameterSource parameters = new MapSqlParameterSource();
         parameters.addValue("experimentType", experimentType);
         parameters.addValue("matching", matching);
@@ -321,45 +497,107 @@ public class ExperimentDAOImpl extends AbstractExperimentDAO {
         // addVersion(e);
         // }
 
+        if (results.isEmpty()) {
+            return results;
+        }
+        IntObjectOpenHashMap<ExperimentTaskResult> tasks = new IntObjectOpenHashMap<ExperimentTaskResult>();
         for (ExperimentTaskResult result : results) {
-            addAdditionalResults(result);
+            tasks.put(result.idInDb, result);
         }
+        this.template.query(GET_LATEST_EXPERIMENT_TASK_ADDITIONAL_RESULTS, parameters,
+                new AdditionalResultsHandler(tasks));
         return results;
     }
 
-    protected void addAdditionalResults(ExperimentTaskResult result) {
-        MapSqlParameterSource parameters = new MapSqlParameterSource();
-        parameters.addValue("taskId", result.idInDb);
-        List<IntDoublePair> addResults = this.template.query(GET_ADDITIONAL_RESULTS, parameters,
-                new IntDoublePairRowMapper());
-        for (IntDoublePair a : addResults) {
-            result.addAdditionalResult(a.first, a.second);
-        }
+    /**
+     * Inserts the given sub task together with its result using a single
+     * statement and adds its version, its relation to the given experiment
+     * task and its own details to the given batch.
+     */
+    protected void insertSubTask(ExperimentTaskResult subTask, int experimentTaskId, ResultBatch batch) {
+        MapSqlParameterSource parameters = createResultParameters(subTask);
+        parameters.addValue("annotatorName", subTask.annotator);
+        parameters.addValue("datasetName", subTask.dataset);
+        parameters.addValue("experimentType", subTask.type.name());
+        parameters.addValue("matching", subTask.matching.name());
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        this.template.update(INSERT_SUB_TASK, parameters, keyHolder);
+        subTask.idInDb = (Integer) keyHolder.getKey();
+        batch.addVersion(subTask.idInDb);
+        batch.addSubTaskRelation(experimentTaskId, subTask.idInDb);
+        addResultDetails(subTask.idInDb, subTask, batch);
     }
 
-    protected void insertSubTask(ExperimentTaskResult subTask, int experimentTaskId) {
-        subTask.idInDb = createTask(subTask.annotator, subTask.dataset, subTask.type.name(), subTask.matching.name(),
-                null);
-        setExperimentTaskResult(subTask.idInDb, subTask);
-        addSubTaskRelation(experimentTaskId, subTask.idInDb);
-    }
+    /**
+     * Adds the additional results of a result set with the columns task id,
+     * result id and value to the tasks with the given ids.
+     */
+    protected static class AdditionalResultsHandler implements RowCallbackHandler {
 
-    protected void addSubTaskRelation(int taskId, int subTaskId) {
-        MapSqlParameterSource parameters = new MapSqlParameterSource();
-        parameters.addValue("taskId", taskId);
-        parameters.addValue("subTaskId", subTaskId);
-        this.template.update(INSERT_SUB_TASK_RELATION, parameters);
+        private IntObjectOpenHashMap<ExperimentTaskResult> tasks;
+
+        public AdditionalResultsHandler(IntObjectOpenHashMap<ExperimentTaskResult> tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        public void processRow(ResultSet resultSet) throws SQLException {
+            int taskId = resultSet.getInt(1);
+            if (tasks.containsKey(taskId)) {
+                tasks.get(taskId).addAdditionalResult(resultSet.getInt(2), resultSet.getDouble(3));
+            }
+        }
     }
 
-    protected void addSubTasks(ExperimentTaskResult expTask) {
-        MapSqlParameterSource parameters = new MapSqlParameterSource();
-        parameters.addValue("taskId", expTask.idInDb);
-        List<ExperimentTaskResult> subTasks = this.template.query(GET_SUB_TASK_RESULTS, parameters,
-                new ExperimentTaskResultRowMapper());
-        expTask.setSubTasks(subTasks);
-        for (ExperimentTaskResult subTask : subTasks) {
-            subTask.gerbilVersion = expTask.gerbilVersion;
-            addAdditionalResults(subTask);
+    /**
+     * Collects the parameters of the statements that can be executed as batch
+     * updates while storing the result of an experiment task.
+     */
+    protected static class ResultBatch {
+
+        private List<SqlParameterSource> additionalResults = new ArrayList<SqlParameterSource>();
+        private List<SqlParameterSource> versions = new ArrayList<SqlParameterSource>();
+        private List<SqlParameterSource> subTaskRelations = new ArrayList<SqlParameterSource>();
+
+        public void addAdditionalResult(int taskId, int resultId, double value) {
+            MapSqlParameterSource parameters = new MapSqlParameterSource();
+            parameters.addValue("taskId", taskId);
+            parameters.addValue("resultId", resultId);
+            parameters.addValue("value", value);
+            additionalResults.add(parameters);
+        }
+
+        public void addVersion(int experimentTaskId) {
+            String version = GerbilConfiguration.getGerbilVersion();
+            if (version == null) {
+                LOGGER.error("Couldn't get the current gerbil version. Can't add it to the experiment task #"
+                        + experimentTaskId + ".");
+                return;
+            }
+            MapSqlParameterSource parameters = new MapSqlParameterSource();
+            parameters.addValue("id", experimentTaskId);
+            parameters.addValue("version", version);
+            versions.add(parameters);
+        }
+
+        public void addSubTaskRelation(int taskId, int subTaskId) {
+            MapSqlParameterSource parameters = new MapSqlParameterSource();
+            parameters.addValue("taskId", taskId);
+            parameters.addValue("subTaskId", subTaskId);
+            subTaskRelations.add(parameters);
+        }
+
+        public void execute(NamedParameterJdbcTemplate template) {
+            execute(template, INSERT_VERSION_OF_EXPERIMENT_TASK, versions);
+            execute(template, INSERT_SUB_TASK_RELATION, subTaskRelations);
+            execute(template, INSERT_ADDITIONAL_RESULT, additionalResults);
+        }
+
+        private static void execute(NamedParameterJdbcTemplate template, String statement,
+                List<SqlParameterSource> parameters) {
+            if (!parameters.isEmpty()) {
+                template.batchUpdate(statement, parameters.toArray(new SqlParameterSource[parameters.size()]));
+            }
         }
     }
 
@@ -0,0 +1,90 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.database;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.aksw.gerbil.datatypes.ExperimentTaskResult;
+
+/**
+ * In-memory materialization of the latest results of all annotator-dataset
+ * combinations for a single experiment type and matching. The leaderboard is
+ * updated with every newly stored result, i.e., the database has to be
+ * queried only once for creating it.
+ * 
+ * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
+ *
+ */
+public class Leaderboard {
+
+    private final long creationTime = System.currentTimeMillis();
+    /**
+     * Mapping of an annotator-dataset combination to its latest result.
+     */
+    private Map<String, ExperimentTaskResult> latestResults = new HashMap<String, ExperimentTaskResult>();
+    /**
+     * The current list of results or null if it has to be recreated.
+     */
+    private List<ExperimentTaskResult> results = null;
+
+    /**
+     * Updates the leaderboard with the given result if there is no result for
+     * its annotator-dataset combination or if the given result is not older
+     * than the known result.
+     * 
+     * @param result
+     *            the result that might be newer than the result in the
+     *            leaderboard
+     * @return true if the leaderboard has been changed
+     */
+    public synchronized boolean update(ExperimentTaskResult result) {
+        String key = result.annotator + '\n' + result.dataset;
+        ExperimentTaskResult currentResult = latestResults.get(key);
+        if ((currentResult == null) || (currentResult.timestamp <= result.timestamp)) {
+            latestResults.put(key, result);
+            results = null;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Returns an unmodifiable list of the latest results. Note that the same
+     * list instance is returned as long as the leaderboard has not been
+     * changed.
+     * 
+     * @return the latest results
+     */
+    public synchronized List<ExperimentTaskResult> getResults() {
+        if (results == null) {
+            results = Collections.unmodifiableList(new ArrayList<ExperimentTaskResult>(latestResults.values()));
+        }
+        return results;
+    }
+
+    /**
+     * @return the age of this leaderboard in ms
+     */
+    public long getAge() {
+        return System.currentTimeMillis() - creationTime;
+    }
+}
@@ -19,6 +19,7 @@ package org.aksw.gerbil.database;
 import java.util.Arrays;
 import java.util.List;
 
+import org.aksw.gerbil.annotator.decorator.ResponseCachingAnnotatorDecorator;
 import org.aksw.gerbil.annotator.decorator.TimeMeasuringAnnotatorDecorator;
 import org.aksw.gerbil.datatypes.ExperimentTaskResult;
 import org.aksw.gerbil.evaluate.impl.InKBClassBasedFMeasureCalculator;
@@ -76,6 +77,17 @@ public class ResultNameToIdMapping {
 
             nameToIdMap.put(ConfidenceScoreEvaluatorDecorator.CONFIDENCE_SCORE_THRESHOLD_RESULT_NAME, 21);
 
+            nameToIdMap.put(ResponseCachingAnnotatorDecorator.CACHED_RESPONSES_RESULT_NAME, 22);
+
+            nameToIdMap.put(TimeMeasuringAnnotatorDecorator.P50_TIME_RESULT_NAME, 23);
+            nameToIdMap.put(TimeMeasuringAnnotatorDecorator.P90_TIME_RESULT_NAME, 24);
+            nameToIdMap.put(TimeMeasuringAnnotatorDecorator.P99_TIME_RESULT_NAME, 25);
+            nameToIdMap.put(TimeMeasuringAnnotatorDecorator.MAX_TIME_RESULT_NAME, 26);
+            nameToIdMap.put(TimeMeasuringAnnotatorDecorator.THROUGHPUT_RESULT_NAME, 27);
+            nameToIdMap.put(TimeMeasuringAnnotatorDecorator.SHORT_DOCS_AVG_TIME_RESULT_NAME, 28);
+            nameToIdMap.put(TimeMeasuringAnnotatorDecorator.MEDIUM_DOCS_AVG_TIME_RESULT_NAME, 29);
+            nameToIdMap.put(TimeMeasuringAnnotatorDecorator.LONG_DOCS_AVG_TIME_RESULT_NAME, 30);
+
             instance = new ResultNameToIdMapping(nameToIdMap, IntObjectOpenHashMap.from(nameToIdMap.values().toArray(),
                     nameToIdMap.keys().toArray(String.class)));
         }
@@ -0,0 +1,120 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.database;
+
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.aksw.gerbil.datatypes.ExperimentTaskResult;
+import org.aksw.gerbil.metrics.MetricsRegistry;
+import org.aksw.gerbil.metrics.Timer;
+
+/**
+ * An {@link ExperimentDAOImpl} that measures the duration of its database
+ * operations and reports them as {@link Timer}s of the
+ * {@link MetricsRegistry} (metric "gerbil_database_operation_millis" with the
+ * label "operation").
+ * 
+ * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
+ *
+ */
+public class TimeMeasuringExperimentDAO extends ExperimentDAOImpl {
+
+    private static final Timer READ_RESULTS_TIMER = createOperationTimer("readExperimentResults");
+    private static final Timer CREATE_TASK_TIMER = createOperationTimer("createTask");
+    private static final Timer STORE_RESULT_TIMER = createOperationTimer("storeTaskResult");
+    private static final Timer SET_STATE_TIMER = createOperationTimer("setTaskState");
+    private static final Timer LOOKUP_TASK_TIMER = createOperationTimer("lookupCachedTask");
+    private static final Timer LOAD_LEADERBOARD_TIMER = createOperationTimer("loadLeaderboard");
+
+    private static Timer createOperationTimer(String operation) {
+        return MetricsRegistry.getInstance().getTimer("gerbil_database_operation_millis",
+                MetricsRegistry.label("operation", operation),
+                "Duration of database operations including all of their statements.");
+    }
+
+    public TimeMeasuringExperimentDAO(DataSource dataSource) {
+        super(dataSource);
+    }
+
+    public TimeMeasuringExperimentDAO(DataSource dataSource, long resultDurability) {
+        super(dataSource, resultDurability);
+    }
+
+    @Override
+    public List<ExperimentTaskResult> getResultsOfExperiment(String experimentId) {
+        long startTime = System.currentTimeMillis();
+        try {
+            return super.getResultsOfExperiment(experimentId);
+        } finally {
+            READ_RESULTS_TIMER.recordSince(startTime);
+        }
+    }
+
+    @Override
+    public int createTask(String annotatorName, String datasetName, String experimentType, String matching,
+            String experimentId) {
+        long startTime = System.currentTimeMillis();
+        try {
+            return super.createTask(annotatorName, datasetName, experimentType, matching, experimentId);
+        } finally {
+            CREATE_TASK_TIMER.recordSince(startTime);
+        }
+    }
+
+    @Override
+    public void setExperimentTaskResult(int experimentTaskId, ExperimentTaskResult result) {
+        long startTime = System.currentTimeMillis();
+        try {
+            super.setExperimentTaskResult(experimentTaskId, result);
+        } finally {
+            STORE_RESULT_TIMER.recordSince(startTime);
+        }
+    }
+
+    @Override
+    public void setExperimentState(int experimentTaskId, int state) {
+        long startTime = System.currentTimeMillis();
+        try {
+            super.setExperimentState(experimentTaskId, state);
+        } finally {
+            SET_STATE_TIMER.recordSince(startTime);
+        }
+    }
+
+    @Override
+    protected int getCachedExperimentTaskId(String annotatorName, String datasetName, String experimentType,
+            String matching) {
+        long startTime = System.currentTimeMillis();
+        try {
+            return super.getCachedExperimentTaskId(annotatorName, datasetName, experimentType, matching);
+        } finally {
+            LOOKUP_TASK_TIMER.recordSince(startTime);
+        }
+    }
+
+    @Override
+    protected List<ExperimentTaskResult> loadLatestResultsOfExperiments(String experimentType, String matching) {
+        long startTime = System.currentTimeMillis();
+        try {
+            return super.loadLatestResultsOfExperiments(experimentType, matching);
+        } finally {
+            LOAD_LEADERBOARD_TIMER.recordSince(startTime);
+        }
+    }
+}
@@ -25,8 +25,10 @@ import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.aksw.gerbil.dataset.InitializableDataset;
@@ -44,9 +46,19 @@ import org.slf4j.LoggerFactory;
 
 import au.com.bytecode.opencsv.CSVReader;
 
+import com.carrotsearch.hppc.LongArrayList;
+
 /**
  * AIDA/CoNLL Dataset.
  * 
+ * <p>
+ * If only a part of the documents is needed (e.g., the training or test
+ * split), the dataset uses an index of the byte positions at which the single
+ * documents start inside the file. The index is created once for every file
+ * and shared by all instances of this class. Thus, a split reads and parses
+ * only its own documents.
+ * </p>
+ * 
  * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
  *
  */
@@ -67,6 +79,13 @@ public class AIDACoNLLDataset extends AbstractDataset implements InitializableDa
     // private static final String ANNOTATION_NEXT_WORD_TAG = "I";
     private static final String ANNOTATION_NOT_IN_WIKI_TAG = "--NME--";
 
+    private static final int INDEXING_BUFFER_SIZE = 65536;
+
+    /**
+     * The start positions of the documents inside the already indexed files.
+     */
+    private static final Map<String, long[]> DOCUMENT_START_POSITIONS = new HashMap<String, long[]>();
+
     private String file;
     private List<Document> documents;
     private int firstDocId;
@@ -98,19 +117,57 @@ public class AIDACoNLLDataset extends AbstractDataset implements InitializableDa
 
     @Override
     public void init() throws GerbilException {
-        this.documents = loadDocuments(new File(file));
         if ((firstDocId > 0) && (lastDocId > 0)) {
-            this.documents = this.documents.subList(firstDocId - 1, lastDocId);
+            this.documents = loadDocuments(new File(file), firstDocId, lastDocId);
+        } else {
+            this.documents = loadDocuments(new File(file));
         }
     }
 
     protected List<Document> loadDocuments(File file) throws GerbilException {
+        return loadDocuments(file, 0, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Loads the documents with the given ids (the first document of the file
+     * has the id 1). Only the part of the file containing these documents is
+     * read.
+     */
+    protected List<Document> loadDocuments(File file, int firstDocId, int lastDocId) throws GerbilException {
+        long startPositions[] = getDocumentStartPositions(file);
+        if ((firstDocId > lastDocId) || (lastDocId > startPositions.length)) {
+            throw new GerbilException("Couldn't load the documents " + firstDocId + " to " + lastDocId
+                    + " since the dataset file contains only " + startPositions.length + " documents.",
+                    ErrorTypes.DATASET_LOADING_ERROR);
+        }
+        return loadDocuments(file, startPositions[firstDocId - 1], firstDocId - 1, lastDocId - firstDocId + 1);
+    }
+
+    /**
+     * Loads the documents starting at the given position of the file.
+     * 
+     * @param file
+     *            the dataset file
+     * @param startPosition
+     *            the byte position at which the reading starts
+     * @param firstDocIndex
+     *            the index of the first read document inside the complete
+     *            file (used to generate the document URIs)
+     * @param maxDocuments
+     *            the maximum number of documents that are read
+     */
+    protected List<Document> loadDocuments(File file, long startPosition, int firstDocIndex, int maxDocuments)
+            throws GerbilException {
         String documentUriPrefix = "http://" + getName() + "/";
         BufferedReader bReader = null;
         CSVReader reader = null;
         List<Document> documents = new ArrayList<Document>();
         try {
-            bReader = new BufferedReader(new InputStreamReader(new FileInputStream(file), Charset.forName("UTF-8")));
+            FileInputStream fin = new FileInputStream(file);
+            bReader = new BufferedReader(new InputStreamReader(fin, Charset.forName("UTF-8")));
+            if (startPosition > 0) {
+                fin.getChannel().position(startPosition);
+            }
             reader = new CSVReader(bReader, SEPARATION_CHAR, QUOTATION_CHAR);
             String line[];
             Document currentDoc = null;
@@ -127,8 +184,14 @@ public class AIDACoNLLDataset extends AbstractDataset implements InitializableDa
                             currentDoc.setText(textBuilder.toString().trim());
                             textBuilder.setLength(0);
                         }
+                        // if all needed documents have been read
+                        if (documents.size() >= maxDocuments) {
+                            currentDoc = null;
+                            break;
+                        }
                         markings = new ArrayList<Marking>();
-                        currentDoc = new DocumentImpl(null, documentUriPrefix + documents.size(), markings);
+                        currentDoc = new DocumentImpl(null, documentUriPrefix + (firstDocIndex + documents.size()),
+                                markings);
                         documents.add(currentDoc);
                     } else {
                         if (!line[TEXT_INDEX].isEmpty()) {
@@ -177,6 +240,66 @@ public class AIDACoNLLDataset extends AbstractDataset implements InitializableDa
         return documents;
     }
 
+    /**
+     * Returns the byte positions at which the single documents start inside
+     * the given file. The positions are determined only once for every file.
+     */
+    protected static long[] getDocumentStartPositions(File file) throws GerbilException {
+        String key = file.getAbsolutePath() + '\t' + file.length() + '\t' + file.lastModified();
+        synchronized (DOCUMENT_START_POSITIONS) {
+            long startPositions[] = DOCUMENT_START_POSITIONS.get(key);
+            if (startPositions == null) {
+                startPositions = indexDocumentStartPositions(file);
+                DOCUMENT_START_POSITIONS.put(key, startPositions);
+            }
+            return startPositions;
+        }
+    }
+
+    /**
+     * Searches the start positions of all lines starting with the
+     * {@link #DOCUMENT_START_TAG}. The file is only scanned and not parsed.
+     */
+    private static long[] indexDocumentStartPositions(File file) throws GerbilException {
+        byte tag[] = DOCUMENT_START_TAG.getBytes(Charset.forName("UTF-8"));
+        LongArrayList startPositions = new LongArrayList();
+        FileInputStream fin = null;
+        try {
+            fin = new FileInputStream(file);
+            byte buffer[] = new byte[INDEXING_BUFFER_SIZE];
+            long position = 0;
+            long lineStart = 0;
+            // the number of tag bytes found at the beginning of the current
+            // line or -1 if the line does not start with the tag
+            int matchedBytes = 0;
+            int length = fin.read(buffer);
+            while (length >= 0) {
+                for (int i = 0; i < length; ++i, ++position) {
+                    if (buffer[i] == '\n') {
+                        lineStart = position + 1;
+                        matchedBytes = 0;
+                    } else if (matchedBytes >= 0) {
+                        if (buffer[i] == tag[matchedBytes]) {
+                            ++matchedBytes;
+                            if (matchedBytes == tag.length) {
+                                startPositions.add(lineStart);
+                                matchedBytes = -1;
+                            }
+                        } else {
+                            matchedBytes = -1;
+                        }
+                    }
+                }
+                length = fin.read(buffer);
+            }
+        } catch (IOException e) {
+            throw new GerbilException("Couldn't index dataset file.", e, ErrorTypes.DATASET_LOADING_ERROR);
+        } finally {
+            IOUtils.closeQuietly(fin);
+        }
+        return startPositions.toArray();
+    }
+
     protected Set<String> generateArtificialUri(String uriPrefix, String surfaceForm) throws GerbilException {
         StringBuilder builder = new StringBuilder();
         builder.append(uriPrefix);
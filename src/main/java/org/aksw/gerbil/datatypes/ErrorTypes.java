@@ -65,7 +65,13 @@ public enum ErrorTypes {
     /**
      * The annotator needed too much time and has been interrupted.
      */
-    ANNOTATOR_NEEDED_TOO_MUCH_TIME(-109, "The annotator needed too much time and has been interrupted.");
+    ANNOTATOR_NEEDED_TOO_MUCH_TIME(-109, "The annotator needed too much time and has been interrupted."),
+    /**
+     * The experiment replays stored annotator responses but there is no
+     * stored response for a document.
+     */
+    NO_STORED_ANNOTATOR_RESPONSE(-110,
+            "The experiment replays stored annotator responses but there is no stored response for a document.");
 
     private ErrorTypes(int errorCode, String description) {
         this.errorCode = errorCode;
@@ -25,11 +25,16 @@ public class ExperimentTaskState {
 		this.maxNumberOfExperimentSteps = maxNumberOfExperimentSteps;
 	}
 
-	public void increaseExperimentStepCount() {
+	/**
+	 * Increases the number of performed experiment steps. This method is
+	 * synchronized since the steps of a single task might be performed by
+	 * several threads at the same time.
+	 */
+	public synchronized void increaseExperimentStepCount() {
 		++numberOfExperimentSteps;
 	}
 
-	public double getExperimentTaskProcess() {
+	public synchronized double getExperimentTaskProcess() {
 		return ((double) numberOfExperimentSteps) / (double) maxNumberOfExperimentSteps;
 	}
 }
@@ -0,0 +1,96 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.evaluate;
+
+import java.util.List;
+
+import org.aksw.gerbil.matching.EvaluationCounts;
+import org.aksw.gerbil.transfer.nif.Marking;
+
+import com.carrotsearch.hppc.BitSet;
+
+/**
+ * An {@link Evaluator} that first counts the matchings of every single document
+ * independently and derives its results from these {@link EvaluationCounts}
+ * afterwards. This separation enables decorators to reuse the counts of
+ * documents that haven't changed between two evaluations.
+ * 
+ * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
+ *
+ * @param <T>
+ *            the type of the evaluated markings
+ */
+public interface MatchingsCountsBasedEvaluator<T extends Marking> extends Evaluator<T> {
+
+    /**
+     * Counts the matchings of a single document.
+     * 
+     * @param annotatorResult
+     *            the markings of the annotator for the document
+     * @param goldStandard
+     *            the expected markings of the document
+     * @return the counts of the document
+     */
+    public EvaluationCounts countMatchings(List<T> annotatorResult, List<T> goldStandard);
+
+    /**
+     * Counts the matchings of a single document and sets the positions of the
+     * annotator results that have been matched to an expected marking in the
+     * given bit set. The counts of a document can be updated using
+     * {@link #removeUnmatchedResult(EvaluationCounts, Marking)} if one of the
+     * annotator results that have not been matched is removed.
+     * 
+     * @param annotatorResult
+     *            the markings of the annotator for the document
+     * @param goldStandard
+     *            the expected markings of the document
+     * @param matchedResults
+     *            the (empty) bit set in which the matched annotator results
+     *            are marked
+     * @return the counts of the document or null if the evaluator can not
+     *         determine the matched annotator results. In the latter case,
+     *         the document has to be counted again after every change of its
+     *         annotator results.
+     */
+    public EvaluationCounts countMatchings(List<T> annotatorResult, List<T> goldStandard, BitSet matchedResults);
+
+    /**
+     * Updates the counts of a document that have been created by
+     * {@link #countMatchings(List, List, BitSet)} after the given annotator
+     * result, which has not been matched, has been removed from the annotator
+     * results of the document.
+     * 
+     * @param counts
+     *            the counts of the document
+     * @param annotatorResult
+     *            the removed annotator result
+     */
+    public void removeUnmatchedResult(EvaluationCounts counts, T annotatorResult);
+
+    /**
+     * Derives the evaluation results from the given counts. The i-th element
+     * of the counts array has to contain the counts of the i-th document.
+     * 
+     * @param counts
+     *            the counts of the single documents
+     * @param goldStandard
+     *            the expected markings of the documents
+     * @param results
+     *            the container to which the results are added
+     */
+    public void evaluate(EvaluationCounts counts[], List<List<T>> goldStandard, EvaluationResultContainer results);
+}
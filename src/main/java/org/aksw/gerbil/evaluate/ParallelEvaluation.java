@@ -0,0 +1,181 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.evaluate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import org.aksw.gerbil.config.GerbilConfiguration;
+import org.aksw.gerbil.transfer.nif.Marking;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Manages the parallel execution of evaluation steps, e.g., the counting of
+ * matchings of the single documents or the evaluation of several sub tasks.
+ * The parallel evaluation is opt-in. It is enabled by setting the parallelism
+ * in the {@link GerbilConfiguration} to a value larger than 1. Otherwise, all
+ * steps are executed sequentially by the calling thread.
+ * 
+ * <p>
+ * The steps are executed by a single {@link ForkJoinPool}. Since the steps can
+ * be nested (e.g., sub task evaluators counting the matchings of single
+ * documents), steps that are started by a thread of this pool are forked
+ * inside the pool instead of blocking a worker thread. The results are always
+ * returned in the order of the given steps, i.e., the merging of the results
+ * is deterministic. Implements the Singleton pattern.
+ * </p>
+ * 
+ * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
+ *
+ */
+public class ParallelEvaluation {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelEvaluation.class);
+
+    public static final String PARALLELISM_KEY = "org.aksw.gerbil.evaluate.ParallelEvaluation.parallelism";
+
+    public static final int DEFAULT_PARALLELISM = 1;
+
+    private static ParallelEvaluation instance;
+
+    public synchronized static ParallelEvaluation getInstance() {
+        if (instance == null) {
+            int parallelism = DEFAULT_PARALLELISM;
+            if (GerbilConfiguration.getInstance().containsKey(PARALLELISM_KEY)) {
+                try {
+                    parallelism = GerbilConfiguration.getInstance().getInt(PARALLELISM_KEY);
+                } catch (Exception e) {
+                    LOGGER.warn("Couldn't load the parallelism of the evaluation from configuration. Using default "
+                            + DEFAULT_PARALLELISM + ".", e);
+                }
+            }
+            instance = new ParallelEvaluation(parallelism);
+        }
+        return instance;
+    }
+
+    protected ForkJoinPool pool;
+
+    protected ParallelEvaluation(int parallelism) {
+        if (parallelism > 1) {
+            pool = new ForkJoinPool(parallelism);
+        }
+    }
+
+    /**
+     * @return true if the evaluation steps are executed in parallel
+     */
+    public boolean isParallel() {
+        return pool != null;
+    }
+
+    /**
+     * Executes the given steps and returns their results in the order of the
+     * given list.
+     * 
+     * @param steps
+     *            the steps that should be executed
+     * @return the results of the single steps
+     * @throws RuntimeException
+     *             if one of the steps throws an exception
+     */
+    public <V> List<V> invokeAll(List<? extends Callable<V>> steps) {
+        List<V> results = new ArrayList<V>(steps.size());
+        if ((pool == null) || (steps.size() < 2)) {
+            for (Callable<V> step : steps) {
+                try {
+                    results.add(step.call());
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            return results;
+        }
+        final List<ForkJoinTask<V>> tasks = new ArrayList<ForkJoinTask<V>>(steps.size());
+        for (Callable<V> step : steps) {
+            tasks.add(ForkJoinTask.adapt(step));
+        }
+        if (ForkJoinTask.getPool() == pool) {
+            // we are already inside of the pool, i.e., we can fork the tasks
+            ForkJoinTask.invokeAll(tasks);
+        } else {
+            pool.invoke(new RecursiveAction() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        }
+        for (ForkJoinTask<V> task : tasks) {
+            results.add(task.join());
+        }
+        return results;
+    }
+
+    /**
+     * Lets all given evaluators evaluate the given results. If the evaluation
+     * is executed in parallel, every evaluator gets its own result container.
+     * These containers are merged into the given result container in the order
+     * of the evaluators afterwards. Thus, the results have the same order as
+     * they would have if the evaluators would have been executed sequentially.
+     * 
+     * @param evaluators
+     *            the evaluators that should be used
+     * @param annotatorResults
+     *            the results of the annotator
+     * @param goldStandard
+     *            the gold standard
+     * @param results
+     *            the container to which the results are added
+     */
+    public <T extends Marking> void evaluate(List<? extends Evaluator<T>> evaluators,
+            final List<List<T>> annotatorResults, final List<List<T>> goldStandard,
+            EvaluationResultContainer results) {
+        if ((pool == null) || (evaluators.size() < 2)) {
+            for (Evaluator<T> evaluator : evaluators) {
+                evaluator.evaluate(annotatorResults, goldStandard, results);
+            }
+            return;
+        }
+        List<Callable<EvaluationResultContainer>> steps = new ArrayList<Callable<EvaluationResultContainer>>(
+                evaluators.size());
+        for (final Evaluator<T> evaluator : evaluators) {
+            steps.add(new Callable<EvaluationResultContainer>() {
+                @Override
+                public EvaluationResultContainer call() throws Exception {
+                    EvaluationResultContainer evaluatorResults = new EvaluationResultContainer();
+                    evaluator.evaluate(annotatorResults, goldStandard, evaluatorResults);
+                    return evaluatorResults;
+                }
+            });
+        }
+        for (EvaluationResultContainer evaluatorResults : invokeAll(steps)) {
+            for (EvaluationResult result : evaluatorResults.getResults()) {
+                results.addResult(result);
+            }
+        }
+    }
+}
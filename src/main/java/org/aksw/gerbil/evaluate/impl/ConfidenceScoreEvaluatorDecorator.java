@@ -16,23 +16,30 @@
  */
 package org.aksw.gerbil.evaluate.impl;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 import org.aksw.gerbil.evaluate.AbstractEvaluatorDecorator;
 import org.aksw.gerbil.evaluate.DoubleEvaluationResult;
 import org.aksw.gerbil.evaluate.EvaluationResult;
 import org.aksw.gerbil.evaluate.EvaluationResultContainer;
 import org.aksw.gerbil.evaluate.Evaluator;
+import org.aksw.gerbil.evaluate.MatchingsCountsBasedEvaluator;
+import org.aksw.gerbil.evaluate.ParallelEvaluation;
+import org.aksw.gerbil.matching.EvaluationCounts;
 import org.aksw.gerbil.transfer.nif.Marking;
 import org.aksw.gerbil.transfer.nif.ScoredMarking;
 import org.aksw.gerbil.utils.filter.ConfidenceScoreBasedMarkingFilter;
 import org.aksw.gerbil.utils.filter.MarkingFilter;
 
+import com.carrotsearch.hppc.BitSet;
 import com.carrotsearch.hppc.DoubleOpenHashSet;
+import com.carrotsearch.hppc.IntArrayList;
 
 public class ConfidenceScoreEvaluatorDecorator<T extends Marking> extends AbstractEvaluatorDecorator<T> {
 
@@ -40,26 +47,48 @@ public class ConfidenceScoreEvaluatorDecorator<T extends Marking> extends Abstra
 
 	private String resultName;
 	private Comparator<EvaluationResult> resultComparator;
+	/**
+	 * Flag indicating whether the incremental sweep should be used if the
+	 * decorated evaluator is a {@link MatchingsCountsBasedEvaluator}.
+	 */
+	private boolean incrementalSweep;
 
 	public ConfidenceScoreEvaluatorDecorator(Evaluator<T> evaluator, String resultName,
 			Comparator<EvaluationResult> resultComparator) {
+		this(evaluator, resultName, resultComparator, true);
+	}
+
+	public ConfidenceScoreEvaluatorDecorator(Evaluator<T> evaluator, String resultName,
+			Comparator<EvaluationResult> resultComparator, boolean incrementalSweep) {
 		super(evaluator);
 		this.resultName = resultName;
 		this.resultComparator = resultComparator;
+		this.incrementalSweep = incrementalSweep;
 	}
 
+	@SuppressWarnings("unchecked")
 	@Override
 	public void evaluate(List<List<T>> annotatorResults, List<List<T>> goldStandard, EvaluationResultContainer results) {
 		// create a list of confidence scores
 		double scores[] = getConfidenceScores(annotatorResults);
 		Arrays.sort(scores);
 
+		IncrementalSweep<T> sweep = null;
+		if (incrementalSweep && (evaluator instanceof MatchingsCountsBasedEvaluator)) {
+			sweep = new IncrementalSweep<T>((MatchingsCountsBasedEvaluator<T>) evaluator, annotatorResults,
+					goldStandard, scores);
+		}
+
 		EvaluationResultContainer currentResult, bestResult = null;
 		int bestScoreId = 0;
 		// go through the confidence scores
 		for (int i = 0; i < scores.length; ++i) {
 			// evaluate the result using the current confidence
-			currentResult = evaluate(annotatorResults, goldStandard, results, scores[i]);
+			if (sweep != null) {
+				currentResult = sweep.evaluate(i, results);
+			} else {
+				currentResult = evaluate(annotatorResults, goldStandard, results, scores[i]);
+			}
 			bestResult = getBetterResult(currentResult, bestResult);
 			if (bestResult == currentResult) {
 				bestScoreId = i;
@@ -159,4 +188,207 @@ public class ConfidenceScoreEvaluatorDecorator<T extends Marking> extends Abstra
 			}
 		}
 	}
+
+	/**
+	 * Walks through the sorted confidence score thresholds and keeps the
+	 * matching counts of every single document. When moving from one threshold
+	 * to the next, the annotator results with the dropped confidence score are
+	 * removed from the counts. If such a result hasn't been matched to an
+	 * expected marking, it has been counted as false positive only and the
+	 * counts of its document are updated directly (see
+	 * {@link MatchingsCountsBasedEvaluator#removeUnmatchedResult(EvaluationCounts, Marking)}
+	 * ). Only the documents that lose a matched result are counted again
+	 * since another result might take its place. All other documents keep
+	 * their counts. Since the counts of a document only depend on the markings
+	 * that pass the filter, the results are the same as the results of
+	 * evaluating the filtered lists from scratch.
+	 * 
+	 * @param <T>
+	 *            the type of the evaluated markings
+	 */
+	protected static class IncrementalSweep<T extends Marking> {
+
+		private MatchingsCountsBasedEvaluator<T> evaluator;
+		private List<List<T>> annotatorResults;
+		private List<List<T>> goldStandard;
+		private double scores[];
+		/**
+		 * The current counts of the single documents.
+		 */
+		private EvaluationCounts counts[];
+		/**
+		 * The positions of the annotator results of the single documents that
+		 * have been matched while counting the document. Is null for a
+		 * document if the evaluator couldn't determine the matched results.
+		 */
+		private BitSet matchedResults[];
+		/**
+		 * The i-th element contains the annotator results that are filtered if
+		 * the threshold is set to the i-th score. Every result is represented
+		 * by the id of its document followed by its position inside the
+		 * annotator results of the document. Is null if there are no such
+		 * results.
+		 */
+		private IntArrayList droppedResults[];
+
+		public IncrementalSweep(MatchingsCountsBasedEvaluator<T> evaluator, List<List<T>> annotatorResults,
+				List<List<T>> goldStandard, double scores[]) {
+			this.evaluator = evaluator;
+			this.annotatorResults = annotatorResults;
+			this.goldStandard = goldStandard;
+			this.scores = scores;
+			counts = new EvaluationCounts[annotatorResults.size()];
+			matchedResults = new BitSet[annotatorResults.size()];
+			droppedResults = new IntArrayList[scores.length];
+			List<T> documentResults;
+			Marking marking;
+			int scoreId;
+			for (int i = 0; i < annotatorResults.size(); ++i) {
+				documentResults = annotatorResults.get(i);
+				for (int j = 0; j < documentResults.size(); ++j) {
+					marking = documentResults.get(j);
+					if (marking instanceof ScoredMarking) {
+						scoreId = Arrays.binarySearch(scores, ((ScoredMarking) marking).getConfidence());
+						// markings with this score are filtered when the
+						// threshold reaches the next higher score
+						if ((scoreId >= 0) && (scoreId + 1 < scores.length)) {
+							addDroppedResult(scoreId + 1, i, j);
+						}
+					}
+				}
+			}
+		}
+
+		private void addDroppedResult(int scoreId, int documentId, int resultId) {
+			IntArrayList results = droppedResults[scoreId];
+			if (results == null) {
+				results = new IntArrayList();
+				droppedResults[scoreId] = results;
+			}
+			// the results are added in the order of their documents
+			results.add(documentId);
+			results.add(resultId);
+		}
+
+		/**
+		 * Evaluates the annotator results using the score with the given id as
+		 * threshold. Note that this method has to be called with ascending
+		 * score ids, starting with 0.
+		 * 
+		 * @param scoreId
+		 *            the id of the score that is used as threshold
+		 * @param results
+		 *            the results that are already known
+		 * @return a container with the given results and the results of the
+		 *         decorated evaluator for the given threshold
+		 */
+		public EvaluationResultContainer evaluate(int scoreId, EvaluationResultContainer results) {
+			MarkingFilter<T> filter = new ConfidenceScoreBasedMarkingFilter<T>(scores[scoreId]);
+			if (scoreId == 0) {
+				IntArrayList documentIds = new IntArrayList(counts.length);
+				for (int i = 0; i < counts.length; ++i) {
+					documentIds.add(i);
+				}
+				countMatchings(documentIds, filter);
+			} else if (droppedResults[scoreId] != null) {
+				removeResults(droppedResults[scoreId], filter);
+				// this list won't be used again
+				droppedResults[scoreId] = null;
+			}
+			EvaluationResultContainer currentResults = new EvaluationResultContainer(results);
+			evaluator.evaluate(counts, goldStandard, currentResults);
+			return currentResults;
+		}
+
+		/**
+		 * Removes the given results from the counts of their documents.
+		 * Documents that lose a matched result are counted again.
+		 */
+		private void removeResults(IntArrayList results, MarkingFilter<T> filter) {
+			IntArrayList changedDocuments = new IntArrayList();
+			int documentId, start = 0, end;
+			while (start < results.elementsCount) {
+				documentId = results.buffer[start];
+				// find the end of the results of this document
+				end = start;
+				while ((end < results.elementsCount) && (results.buffer[end] == documentId)) {
+					end += 2;
+				}
+				if (containsMatchedResult(documentId, results, start, end)) {
+					changedDocuments.add(documentId);
+				} else {
+					for (int i = start; i < end; i += 2) {
+						evaluator.removeUnmatchedResult(counts[documentId],
+								annotatorResults.get(documentId).get(results.buffer[i + 1]));
+					}
+				}
+				start = end;
+			}
+			countMatchings(changedDocuments, filter);
+		}
+
+		private boolean containsMatchedResult(int documentId, IntArrayList results, int start, int end) {
+			if (matchedResults[documentId] == null) {
+				// we don't know which results have been matched
+				return true;
+			}
+			for (int i = start; i < end; i += 2) {
+				if (matchedResults[documentId].get(results.buffer[i + 1])) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private void countMatchings(IntArrayList documentIds, final MarkingFilter<T> filter) {
+			ParallelEvaluation parallelEvaluation = ParallelEvaluation.getInstance();
+			if (parallelEvaluation.isParallel()) {
+				// every step writes only the counts of its own document
+				List<Callable<Object>> steps = new ArrayList<Callable<Object>>(documentIds.elementsCount);
+				for (int i = 0; i < documentIds.elementsCount; ++i) {
+					final int documentId = documentIds.buffer[i];
+					steps.add(new Callable<Object>() {
+						@Override
+						public Object call() throws Exception {
+							countMatchings(documentId, filter);
+							return null;
+						}
+					});
+				}
+				parallelEvaluation.invokeAll(steps);
+			} else {
+				for (int i = 0; i < documentIds.elementsCount; ++i) {
+					countMatchings(documentIds.buffer[i], filter);
+				}
+			}
+		}
+
+		private void countMatchings(int documentId, MarkingFilter<T> filter) {
+			List<T> documentResults = annotatorResults.get(documentId);
+			List<T> filteredResults = new ArrayList<T>(documentResults.size());
+			// the positions of the filtered results inside the document
+			// results
+			int positions[] = new int[documentResults.size()];
+			for (int i = 0; i < documentResults.size(); ++i) {
+				if (filter.isMarkingGood(documentResults.get(i))) {
+					positions[filteredResults.size()] = i;
+					filteredResults.add(documentResults.get(i));
+				}
+			}
+			BitSet matched = new BitSet(filteredResults.size());
+			EvaluationCounts documentCounts = evaluator.countMatchings(filteredResults, goldStandard.get(documentId),
+					matched);
+			if (documentCounts == null) {
+				counts[documentId] = evaluator.countMatchings(filteredResults, goldStandard.get(documentId));
+				matchedResults[documentId] = null;
+			} else {
+				BitSet documentMatchedResults = new BitSet(documentResults.size());
+				for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+					documentMatchedResults.set(positions[i]);
+				}
+				counts[documentId] = documentCounts;
+				matchedResults[documentId] = documentMatchedResults;
+			}
+		}
+	}
 }
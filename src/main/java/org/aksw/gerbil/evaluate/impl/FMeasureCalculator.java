@@ -16,17 +16,23 @@
  */
 package org.aksw.gerbil.evaluate.impl;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import org.aksw.gerbil.evaluate.DoubleEvaluationResult;
 import org.aksw.gerbil.evaluate.EvaluationResult;
 import org.aksw.gerbil.evaluate.EvaluationResultContainer;
-import org.aksw.gerbil.evaluate.Evaluator;
+import org.aksw.gerbil.evaluate.MatchingsCountsBasedEvaluator;
+import org.aksw.gerbil.evaluate.ParallelEvaluation;
 import org.aksw.gerbil.matching.EvaluationCounts;
 import org.aksw.gerbil.matching.MatchingsCounter;
+import org.aksw.gerbil.matching.impl.MatchingsCounterImpl;
 import org.aksw.gerbil.transfer.nif.Marking;
 
-public class FMeasureCalculator<T extends Marking> implements Evaluator<T> {
+import com.carrotsearch.hppc.BitSet;
+
+public class FMeasureCalculator<T extends Marking> implements MatchingsCountsBasedEvaluator<T> {
 
     public static final String MACRO_F1_SCORE_NAME = "Macro F1 score";
     public static final String MACRO_PRECISION_NAME = "Macro Precision";
@@ -46,14 +52,59 @@ public class FMeasureCalculator<T extends Marking> implements Evaluator<T> {
     public void evaluate(List<List<T>> annotatorResults, List<List<T>> goldStandard,
             EvaluationResultContainer results) {
         EvaluationCounts counts[] = generateMatchingCounts(annotatorResults, goldStandard);
+        evaluate(counts, goldStandard, results);
+    }
+
+    @Override
+    public void evaluate(EvaluationCounts counts[], List<List<T>> goldStandard, EvaluationResultContainer results) {
         results.addResults(calculateMicroFMeasure(counts));
         results.addResults(calculateMacroFMeasure(counts));
     }
 
-    protected EvaluationCounts[] generateMatchingCounts(List<List<T>> annotatorResults, List<List<T>> goldStandard) {
+    @Override
+    public EvaluationCounts countMatchings(List<T> annotatorResult, List<T> goldStandard) {
+        return matchingsCounter.countMatchings(annotatorResult, goldStandard);
+    }
+
+    @Override
+    public EvaluationCounts countMatchings(List<T> annotatorResult, List<T> goldStandard, BitSet matchedResults) {
+        if (matchingsCounter instanceof MatchingsCounterImpl) {
+            return ((MatchingsCounterImpl<T>) matchingsCounter).countMatchings(annotatorResult, goldStandard,
+                    matchedResults);
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public void removeUnmatchedResult(EvaluationCounts counts, T annotatorResult) {
+        ((MatchingsCounterImpl<T>) matchingsCounter).removeUnmatchedResult(counts, annotatorResult);
+    }
+
+    protected EvaluationCounts[] generateMatchingCounts(final List<List<T>> annotatorResults,
+            final List<List<T>> goldStandard) {
+        ParallelEvaluation parallelEvaluation = ParallelEvaluation.getInstance();
+        if (parallelEvaluation.isParallel()) {
+            // count the matchings of the single documents in parallel. Since
+            // the counts are returned in the order of the documents, the
+            // results are the same as for the sequential counting.
+            List<Callable<EvaluationCounts>> steps = new ArrayList<Callable<EvaluationCounts>>(
+                    annotatorResults.size());
+            for (int i = 0; i < annotatorResults.size(); ++i) {
+                final int documentId = i;
+                steps.add(new Callable<EvaluationCounts>() {
+                    @Override
+                    public EvaluationCounts call() throws Exception {
+                        return countMatchings(annotatorResults.get(documentId), goldStandard.get(documentId));
+                    }
+                });
+            }
+            List<EvaluationCounts> countsList = parallelEvaluation.invokeAll(steps);
+            return countsList.toArray(new EvaluationCounts[countsList.size()]);
+        }
         EvaluationCounts counts[] = new EvaluationCounts[annotatorResults.size()];
         for (int i = 0; i < counts.length; ++i) {
-            counts[i] = matchingsCounter.countMatchings(annotatorResults.get(i), goldStandard.get(i));
+            counts[i] = countMatchings(annotatorResults.get(i), goldStandard.get(i));
         }
         return counts;
     }
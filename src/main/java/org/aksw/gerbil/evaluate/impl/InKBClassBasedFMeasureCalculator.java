@@ -61,10 +61,8 @@ public class InKBClassBasedFMeasureCalculator<T extends Meaning> extends FMeasur
     }
 
     @Override
-    public void evaluate(List<List<T>> annotatorResults, List<List<T>> goldStandard,
-            EvaluationResultContainer results) {
+    public void evaluate(EvaluationCounts counts[], List<List<T>> goldStandard, EvaluationResultContainer results) {
         // the super class performs the matching counter calls
-        EvaluationCounts counts[] = generateMatchingCounts(annotatorResults, goldStandard);
         results.addResults(calculateMicroFMeasure(counts));
         results.addResults(calculateMacroFMeasure(counts));
         results.addResults(calculateAccuracies(counts, goldStandard));
@@ -24,6 +24,7 @@ import org.aksw.gerbil.evaluate.DoubleEvaluationResult;
 import org.aksw.gerbil.evaluate.EvaluationResult;
 import org.aksw.gerbil.evaluate.EvaluationResultContainer;
 import org.aksw.gerbil.evaluate.Evaluator;
+import org.aksw.gerbil.evaluate.ParallelEvaluation;
 import org.aksw.gerbil.evaluate.SubTaskEvaluator;
 import org.aksw.gerbil.transfer.nif.Marking;
 
@@ -40,9 +41,7 @@ public class SubTaskAverageCalculator<T extends Marking> implements Evaluator<T>
     @Override
     public void evaluate(List<List<T>> annotatorResults, List<List<T>> goldStandard, EvaluationResultContainer results) {
         EvaluationResultContainer subTaskResults = new EvaluationResultContainer();
-        for (SubTaskEvaluator<T> evaluator : evaluators) {
-            evaluator.evaluate(annotatorResults, goldStandard, subTaskResults);
-        }
+        ParallelEvaluation.getInstance().evaluate(evaluators, annotatorResults, goldStandard, subTaskResults);
         addSubTaskResults(subTaskResults, results);
         addAverages(subTaskResults, results);
     }
@@ -71,7 +71,15 @@ public class AnnotatorOutputWriter {
                 || configuration.annotatorConfig.getName().contains(storableAnnotatorNamePart));
     }
 
-    private File generateOutputFile(ExperimentTaskConfiguration configuration) {
+    /**
+     * Generates the file to which the output of the annotator of the given
+     * configuration is (or would be) written.
+     * 
+     * @param configuration
+     *            the configuration of the experiment task
+     * @return the output file of the given experiment task
+     */
+    public File generateOutputFile(ExperimentTaskConfiguration configuration) {
         StringBuilder fileBuilder = new StringBuilder();
         fileBuilder.append(outputDirectory.getAbsolutePath());
         fileBuilder.append(File.separator);
@@ -0,0 +1,423 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.execute;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.aksw.gerbil.config.GerbilConfiguration;
+import org.aksw.gerbil.dataset.Dataset;
+import org.aksw.gerbil.dataset.DatasetConfiguration;
+import org.aksw.gerbil.datatypes.ErrorTypes;
+import org.aksw.gerbil.datatypes.ExperimentType;
+import org.aksw.gerbil.exceptions.GerbilException;
+import org.aksw.gerbil.transfer.nif.Document;
+import org.aksw.gerbil.transfer.nif.Marking;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shares loaded and prepared datasets between the experiment tasks. A dataset
+ * is identified by its name and the experiment type it has been loaded for.
+ * It is loaded and prepared only once, even if several tasks request it at
+ * the same time. The tasks get an unmodifiable view of the dataset, i.e.,
+ * neither the list of documents nor the documents and their lists of markings
+ * can be changed. The markings themselves are shared between the tasks and
+ * must not be changed, e.g., tasks have to copy them before merging them.
+ * 
+ * <p>
+ * The cache counts the references to every dataset. A task has to release a
+ * dataset using {@link #releaseDataset(Dataset)} after it has finished. A
+ * dataset that is not referenced by any task is removed if it hasn't been used
+ * for longer than the maximum idle time or if the cache contains more than the
+ * maximum number of datasets. Datasets with a configuration that returns
+ * false for {@link DatasetConfiguration#couldBeCached()} are loaded for every
+ * task and are not stored in the cache. Implements the Singleton pattern.
+ * </p>
+ * 
+ * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
+ *
+ */
+public class DatasetCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DatasetCache.class);
+
+    public static final String MAX_CACHED_DATASETS_KEY = "org.aksw.gerbil.execute.DatasetCache.maxCachedDatasets";
+    public static final String MAX_IDLE_TIME_KEY = "org.aksw.gerbil.execute.DatasetCache.maxIdleTime";
+
+    public static final int DEFAULT_MAX_CACHED_DATASETS = 10;
+    public static final long DEFAULT_MAX_IDLE_TIME = 600000;
+
+    private static DatasetCache instance;
+
+    public synchronized static DatasetCache getInstance() {
+        if (instance == null) {
+            int maxCachedDatasets = DEFAULT_MAX_CACHED_DATASETS;
+            if (GerbilConfiguration.getInstance().containsKey(MAX_CACHED_DATASETS_KEY)) {
+                try {
+                    maxCachedDatasets = GerbilConfiguration.getInstance().getInt(MAX_CACHED_DATASETS_KEY);
+                } catch (Exception e) {
+                    LOGGER.warn("Couldn't load the maximum number of cached datasets from configuration. Using default "
+                            + DEFAULT_MAX_CACHED_DATASETS + ".", e);
+                }
+            }
+            long maxIdleTime = DEFAULT_MAX_IDLE_TIME;
+            if (GerbilConfiguration.getInstance().containsKey(MAX_IDLE_TIME_KEY)) {
+                try {
+                    maxIdleTime = GerbilConfiguration.getInstance().getLong(MAX_IDLE_TIME_KEY);
+                } catch (Exception e) {
+                    LOGGER.warn("Couldn't load the maximum idle time of cached datasets from configuration. Using default "
+                            + DEFAULT_MAX_IDLE_TIME + ".", e);
+                }
+            }
+            instance = new DatasetCache(maxCachedDatasets, maxIdleTime);
+        }
+        return instance;
+    }
+
+    /**
+     * Prepares a freshly loaded dataset before it is shared, e.g., by adding
+     * sameAs links to its meanings.
+     */
+    public static interface DatasetPreparation {
+        public void prepareDataset(Dataset dataset);
+    }
+
+    /**
+     * The cached datasets in the order of their insertion.
+     */
+    private Map<String, CacheEntry> entries = new LinkedHashMap<String, CacheEntry>();
+    private int maxCachedDatasets;
+    private long maxIdleTime;
+
+    protected DatasetCache(int maxCachedDatasets, long maxIdleTime) {
+        this.maxCachedDatasets = maxCachedDatasets;
+        this.maxIdleTime = maxIdleTime;
+    }
+
+    /**
+     * Returns the dataset of the given configuration for the given experiment
+     * type. If the dataset is not cached, it is loaded and the given
+     * preparation is applied to it before it is returned. Every dataset
+     * returned by this method should be released using
+     * {@link #releaseDataset(Dataset)}.
+     * 
+     * @return the dataset or null if the dataset is not applicable for the
+     *         given experiment type
+     * @throws GerbilException
+     *             if the dataset couldn't be loaded
+     */
+    public Dataset acquireDataset(final DatasetConfiguration config, final ExperimentType type,
+            final DatasetPreparation preparation) throws GerbilException {
+        if (!config.couldBeCached()) {
+            Dataset dataset = config.getDataset(type);
+            if ((dataset != null) && (preparation != null)) {
+                preparation.prepareDataset(dataset);
+            }
+            return dataset;
+        }
+        String key = createKey(config, type);
+        CacheEntry entry;
+        boolean loadDataset = false;
+        synchronized (entries) {
+            removeUnusedEntries();
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new CacheEntry(key, new FutureTask<Dataset>(new Callable<Dataset>() {
+                    @Override
+                    public Dataset call() throws Exception {
+                        Dataset dataset = config.getDataset(type);
+                        if (dataset == null) {
+                            return null;
+                        }
+                        if (preparation != null) {
+                            preparation.prepareDataset(dataset);
+                        }
+                        return new UnmodifiableDataset(dataset);
+                    }
+                }));
+                entries.put(key, entry);
+                loadDataset = true;
+            }
+            ++entry.references;
+        }
+        if (loadDataset) {
+            LOGGER.info("Loading dataset {} for {} into the cache.", config.getName(), type.name());
+            entry.loader.run();
+        }
+        try {
+            Dataset dataset = entry.loader.get();
+            if (dataset == null) {
+                removeEntry(entry);
+            }
+            return dataset;
+        } catch (ExecutionException e) {
+            removeEntry(entry);
+            Throwable cause = e.getCause();
+            if (cause instanceof GerbilException) {
+                throw (GerbilException) cause;
+            } else {
+                throw new GerbilException("Couldn't load dataset \"" + config.getName() + "\".", cause,
+                        ErrorTypes.DATASET_LOADING_ERROR);
+            }
+        } catch (InterruptedException e) {
+            releaseEntry(entry);
+            throw new GerbilException("Interrupted while waiting for dataset \"" + config.getName() + "\".", e,
+                    ErrorTypes.DATASET_LOADING_ERROR);
+        }
+    }
+
+    /**
+     * Releases the given dataset that has been returned by
+     * {@link #acquireDataset(DatasetConfiguration, ExperimentType, DatasetPreparation)}
+     * . Datasets that are not part of the cache are ignored.
+     */
+    public void releaseDataset(Dataset dataset) {
+        if (dataset == null) {
+            return;
+        }
+        synchronized (entries) {
+            for (CacheEntry entry : entries.values()) {
+                if (entry.loader.isDone() && (getLoadedDataset(entry) == dataset)) {
+                    releaseEntry(entry);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns true if the dataset of the given configuration for the given
+     * experiment type is cached or is currently loaded into the cache, i.e.,
+     * if acquiring it won't cause an additional loading of the dataset.
+     */
+    public boolean isCached(DatasetConfiguration config, ExperimentType type) {
+        if (!config.couldBeCached()) {
+            return false;
+        }
+        String key = createKey(config, type);
+        synchronized (entries) {
+            return entries.containsKey(key);
+        }
+    }
+
+    /**
+     * @return the number of datasets that are currently cached
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private void releaseEntry(CacheEntry entry) {
+        synchronized (entries) {
+            --entry.references;
+            entry.lastUsage = currentTime();
+            removeUnusedEntries();
+        }
+    }
+
+    private void removeEntry(CacheEntry entry) {
+        synchronized (entries) {
+            --entry.references;
+            if (entries.get(entry.key) == entry) {
+                entries.remove(entry.key);
+            }
+        }
+    }
+
+    /**
+     * Removes datasets that are not referenced by a task and have been idle
+     * for too long. If the cache still contains too many datasets, the oldest
+     * unreferenced datasets are removed. Has to be called while holding the
+     * lock on {@link #entries}.
+     */
+    private void removeUnusedEntries() {
+        long now = currentTime();
+        List<CacheEntry> unusedEntries = new ArrayList<CacheEntry>();
+        Iterator<CacheEntry> iterator = entries.values().iterator();
+        CacheEntry entry;
+        while (iterator.hasNext()) {
+            entry = iterator.next();
+            if (entry.references <= 0) {
+                if ((now - entry.lastUsage) > maxIdleTime) {
+                    LOGGER.debug("Removing idle dataset {} from the cache.", entry.key);
+                    iterator.remove();
+                } else {
+                    unusedEntries.add(entry);
+                }
+            }
+        }
+        int surplus = entries.size() - maxCachedDatasets;
+        for (int i = 0; (surplus > 0) && (i < unusedEntries.size()); ++i) {
+            entries.remove(unusedEntries.get(i).key);
+            --surplus;
+        }
+    }
+
+    private static Dataset getLoadedDataset(CacheEntry entry) {
+        try {
+            return entry.loader.get();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    protected long currentTime() {
+        return System.currentTimeMillis();
+    }
+
+    private static String createKey(DatasetConfiguration config, ExperimentType type) {
+        return config.getName() + '\t' + type.name();
+    }
+
+    private static class CacheEntry {
+        private final String key;
+        private final FutureTask<Dataset> loader;
+        private int references = 0;
+        private long lastUsage;
+
+        public CacheEntry(String key, FutureTask<Dataset> loader) {
+            this.key = key;
+            this.loader = loader;
+        }
+    }
+
+    /**
+     * A read-only view of a shared dataset.
+     * 
+     * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
+     *
+     */
+    protected static class UnmodifiableDataset implements Dataset {
+
+        private final String name;
+        private final List<Document> instances;
+
+        public UnmodifiableDataset(Dataset dataset) {
+            this.name = dataset.getName();
+            List<Document> documents = new ArrayList<Document>(dataset.getInstances().size());
+            for (Document document : dataset.getInstances()) {
+                documents.add(new UnmodifiableDocument(document));
+            }
+            this.instances = Collections.unmodifiableList(documents);
+        }
+
+        @Override
+        public int size() {
+            return instances.size();
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public void setName(String name) {
+            throw new UnsupportedOperationException("A shared dataset can not be renamed.");
+        }
+
+        @Override
+        public List<Document> getInstances() {
+            return instances;
+        }
+    }
+
+    /**
+     * A read-only view of a document of a shared dataset.
+     * 
+     * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
+     *
+     */
+    protected static class UnmodifiableDocument implements Document {
+
+        private final Document document;
+        private final List<Marking> markings;
+
+        public UnmodifiableDocument(Document document) {
+            this.document = document;
+            this.markings = Collections.unmodifiableList(document.getMarkings());
+        }
+
+        @Override
+        public String getDocumentURI() {
+            return document.getDocumentURI();
+        }
+
+        @Override
+        public void setDocumentURI(String uri) {
+            throw new UnsupportedOperationException("A document of a shared dataset can not be changed.");
+        }
+
+        @Override
+        public String getText() {
+            return document.getText();
+        }
+
+        @Override
+        public void setText(String text) {
+            throw new UnsupportedOperationException("A document of a shared dataset can not be changed.");
+        }
+
+        @Override
+        public List<Marking> getMarkings() {
+            return markings;
+        }
+
+        @Override
+        public void setMarkings(List<Marking> markings) {
+            throw new UnsupportedOperationException("A document of a shared dataset can not be changed.");
+        }
+
+        @Override
+        public void addMarking(Marking marking) {
+            throw new UnsupportedOperationException("A document of a shared dataset can not be changed.");
+        }
+
+        @Override
+        public <T extends Marking> List<T> getMarkings(Class<T> clazz) {
+            return Collections.unmodifiableList(document.getMarkings(clazz));
+        }
+
+        @Override
+        public int hashCode() {
+            return document.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof UnmodifiableDocument) {
+                return document.equals(((UnmodifiableDocument) obj).document);
+            }
+            return document.equals(obj);
+        }
+
+        @Override
+        public String toString() {
+            return document.toString();
+        }
+    }
+}
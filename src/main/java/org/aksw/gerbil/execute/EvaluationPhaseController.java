@@ -0,0 +1,48 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.execute;
+
+/**
+ * Controls the CPU heavy evaluation phase of {@link ExperimentTask}s, e.g.,
+ * to limit the number of tasks that are evaluated at the same time and to
+ * free the resources a task doesn't need while it is evaluated.
+ * 
+ * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
+ *
+ */
+public interface EvaluationPhaseController {
+
+    /**
+     * Has to be called by the given task before it evaluates its results.
+     * Blocks until the task is allowed to start the evaluation.
+     * 
+     * @param task
+     *            the task that wants to evaluate its results
+     * @throws InterruptedException
+     *             if the thread has been interrupted while waiting
+     */
+    public void startEvaluation(ExperimentTask task) throws InterruptedException;
+
+    /**
+     * Has to be called by the given task after its evaluation has ended,
+     * regardless whether it has been successful or not.
+     * 
+     * @param task
+     *            the task that has ended its evaluation
+     */
+    public void endEvaluation(ExperimentTask task);
+}
@@ -18,6 +18,14 @@ package org.aksw.gerbil.execute;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.aksw.gerbil.annotator.A2KBAnnotator;
 import org.aksw.gerbil.annotator.Annotator;
@@ -28,7 +36,9 @@ import org.aksw.gerbil.annotator.EntityTyper;
 import org.aksw.gerbil.annotator.OKETask1Annotator;
 import org.aksw.gerbil.annotator.OKETask2Annotator;
 import org.aksw.gerbil.annotator.decorator.ErrorCountingAnnotatorDecorator;
+import org.aksw.gerbil.annotator.decorator.ResponseCachingAnnotatorDecorator;
 import org.aksw.gerbil.annotator.decorator.TimeMeasuringAnnotatorDecorator;
+import org.aksw.gerbil.config.GerbilConfiguration;
 import org.aksw.gerbil.database.ExperimentDAO;
 import org.aksw.gerbil.database.ResultNameToIdMapping;
 import org.aksw.gerbil.dataset.Dataset;
@@ -42,12 +52,18 @@ import org.aksw.gerbil.evaluate.EvaluationResultContainer;
 import org.aksw.gerbil.evaluate.Evaluator;
 import org.aksw.gerbil.evaluate.EvaluatorFactory;
 import org.aksw.gerbil.evaluate.IntEvaluationResult;
+import org.aksw.gerbil.evaluate.ParallelEvaluation;
 import org.aksw.gerbil.evaluate.SubTaskResult;
 import org.aksw.gerbil.evaluate.impl.FMeasureCalculator;
 import org.aksw.gerbil.exceptions.GerbilException;
+import org.aksw.gerbil.execute.DatasetCache.DatasetPreparation;
+import org.aksw.gerbil.metrics.Counter;
+import org.aksw.gerbil.metrics.MetricsRegistry;
+import org.aksw.gerbil.metrics.Timer;
 import org.aksw.gerbil.semantic.sameas.DatasetBasedSameAsRetriever;
 import org.aksw.gerbil.semantic.sameas.MultipleSameAsRetriever;
 import org.aksw.gerbil.semantic.sameas.SameAsRetriever;
+import org.aksw.gerbil.semantic.sameas.SameAsRetrieverUtils;
 import org.aksw.gerbil.transfer.nif.Document;
 import org.aksw.gerbil.transfer.nif.Marking;
 import org.aksw.gerbil.transfer.nif.Meaning;
@@ -71,6 +87,23 @@ public class ExperimentTask implements Task {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ExperimentTask.class);
 
+    public static final String DOCUMENT_CONCURRENCY_KEY = "org.aksw.gerbil.execute.ExperimentTask.documentConcurrency";
+    public static final int DEFAULT_DOCUMENT_CONCURRENCY = 1;
+
+    private static final Counter STARTED_TASKS = MetricsRegistry.getInstance()
+            .getCounter("gerbil_experiment_tasks_started_total", "Number of experiment tasks that have been started.");
+    private static final Counter FINISHED_TASKS = MetricsRegistry.getInstance().getCounter(
+            "gerbil_experiment_tasks_finished_total", "Number of experiment tasks that have been finished.");
+    private static final Counter FAILED_TASKS = MetricsRegistry.getInstance().getCounter(
+            "gerbil_experiment_tasks_failed_total", "Number of experiment tasks that ended with an error.");
+    private static final Counter ANNOTATED_DOCUMENTS = MetricsRegistry.getInstance().getCounter(
+            "gerbil_annotated_documents_total", "Number of documents of successfully finished experiment tasks.");
+    private static final Timer TASK_DURATION = MetricsRegistry.getInstance()
+            .getTimer("gerbil_experiment_task_duration_millis", "Runtime of the experiment tasks.");
+    private static final Timer DATASET_ACQUISITION = MetricsRegistry.getInstance().getTimer(
+            "gerbil_dataset_acquisition_millis",
+            "Time needed to get the dataset of an experiment task including its loading and preparation.");
+
     private ExperimentDAO experimentDAO;
     private ExperimentTaskConfiguration configuration;
     private int experimentTaskId;
@@ -78,6 +111,10 @@ public class ExperimentTask implements Task {
     private ExperimentTaskState taskState = null;
     private AnnotatorOutputWriter annotatorOutputWriter = null;
     private SameAsRetriever globalRetriever = null;
+    private int documentConcurrency = DEFAULT_DOCUMENT_CONCURRENCY;
+    private ExecutorService annotationExecutor = null;
+    private EvaluationPhaseController evaluationController = null;
+    private String experimentId = null;
 
     public ExperimentTask(int experimentTaskId, ExperimentDAO experimentDAO, SameAsRetriever globalRetriever,
             org.aksw.gerbil.evaluate.EvaluatorFactory evFactory, ExperimentTaskConfiguration configuration) {
@@ -86,15 +123,26 @@ public class ExperimentTask implements Task {
         this.experimentTaskId = experimentTaskId;
         this.evFactory = evFactory;
         this.globalRetriever = globalRetriever;
+        setDocumentConcurrency(loadDefaultDocumentConcurrency());
     }
 
     @Override
     public void run() {
         LOGGER.info("Task started " + configuration.toString());
+        STARTED_TASKS.increment();
+        long startTime = System.currentTimeMillis();
         Annotator annotator = null;
+        Dataset dataset = null;
         try {
-            // Create dataset
-            Dataset dataset = configuration.datasetConfig.getDataset(configuration.type);
+            // Get the dataset and prepare it for the experiment
+            dataset = DatasetCache.getInstance().acquireDataset(configuration.datasetConfig, configuration.type,
+                    new DatasetPreparation() {
+                        @Override
+                        public void prepareDataset(Dataset dataset) {
+                            ExperimentTask.this.prepareDataset(dataset);
+                        }
+                    });
+            DATASET_ACQUISITION.record(System.currentTimeMillis() - startTime);
             if (dataset == null) {
                 throw new GerbilException("dataset=\"" + configuration.datasetConfig.getName() + "\" experimentType=\""
                         + configuration.type.name() + "\".", ErrorTypes.DATASET_DOES_NOT_SUPPORT_EXPERIMENT);
@@ -112,6 +160,12 @@ public class ExperimentTask implements Task {
             TimeMeasuringAnnotatorDecorator timeMeasurer = TimeMeasuringAnnotatorDecorator
                     .createDecorator(configuration.type, decoratedAnnotator);
             decoratedAnnotator = timeMeasurer;
+            // answers of the response cache are not part of the measured
+            // runtime
+            ResponseCachingAnnotatorDecorator responseCache = createResponseCache(decoratedAnnotator);
+            if (responseCache != null) {
+                decoratedAnnotator = responseCache;
+            }
             ErrorCountingAnnotatorDecorator errorCounter = ErrorCountingAnnotatorDecorator
                     .createDecorator(configuration.type, decoratedAnnotator, dataset.size());
             decoratedAnnotator = errorCounter;
@@ -119,11 +173,11 @@ public class ExperimentTask implements Task {
             List<Evaluator<?>> evaluators = new ArrayList<Evaluator<?>>();
             evFactory.addEvaluators(evaluators, configuration, dataset);
             evaluators.add(timeMeasurer);
+            if (responseCache != null) {
+                evaluators.add(responseCache);
+            }
             evaluators.add(errorCounter);
 
-            // Prepare dataset for the experiment
-            prepareDataset(dataset);
-
             taskState = new ExperimentTaskState(dataset.size());
             // perform experiment
             EvaluationResult result = runExperiment(dataset, decoratedAnnotator, evaluators, taskState);
@@ -137,17 +191,36 @@ public class ExperimentTask implements Task {
             // store result
             experimentDAO.setExperimentTaskResult(experimentTaskId, expResult);
             LOGGER.info("Task Finished " + configuration.toString());
+            FINISHED_TASKS.increment();
+            ANNOTATED_DOCUMENTS.add(dataset.size());
         } catch (GerbilException e) {
             LOGGER.error("Got an error while running the task. Storing the error code in the db...", e);
+            FAILED_TASKS.increment();
             // store error
             experimentDAO.setExperimentState(experimentTaskId, e.getErrorType().getErrorCode());
         } catch (Exception e) {
             LOGGER.error("Error while trying to execute experiment.", e);
+            FAILED_TASKS.increment();
         } finally {
+            TASK_DURATION.record(System.currentTimeMillis() - startTime);
             IOUtils.closeQuietly(annotator);
+            DatasetCache.getInstance().releaseDataset(dataset);
         }
     }
 
+    /**
+     * Creates the decorator that caches the responses of the given annotator
+     * or returns null if no response cache should be used.
+     * 
+     * @param annotator
+     *            the annotator that should be decorated
+     * @return the response caching decorator or null
+     */
+    protected ResponseCachingAnnotatorDecorator createResponseCache(Annotator annotator) {
+        return ResponseCachingAnnotatorDecorator.createDecorator(configuration.type, configuration.annotatorConfig,
+                annotator);
+    }
+
     /**
      * Prepares the given dataset for the experiment, i.e., performs a sameAs
      * retrieval if it is needed for the experiment type.
@@ -175,11 +248,15 @@ public class ExperimentTask implements Task {
                 retriever = globalRetriever;
             }
             if (retriever != null) {
+                // collect the URIs of the complete dataset to retrieve them at
+                // once
+                List<Set<String>> uriSets = new ArrayList<Set<String>>();
                 for (Document document : dataset.getInstances()) {
                     for (Meaning meaning : document.getMarkings(Meaning.class)) {
-                        retriever.addSameURIs(meaning.getUris());
+                        uriSets.add(meaning.getUris());
                     }
                 }
+                SameAsRetrieverUtils.addSameURIs(retriever, uriSets);
             }
             return;
         }
@@ -210,11 +287,14 @@ public class ExperimentTask implements Task {
         case OKE_Task2:
         case ETyping: {
             if (annotatorSameAsRetriever != null) {
+                // collect the URIs of all results to retrieve them at once
+                List<Set<String>> uriSets = new ArrayList<Set<String>>();
                 for (List<? extends Meaning> result : results) {
                     for (Meaning meaning : result) {
-                        annotatorSameAsRetriever.addSameURIs(meaning.getUris());
+                        uriSets.add(meaning.getUris());
                     }
                 }
+                SameAsRetrieverUtils.addSameURIs(annotatorSameAsRetriever, uriSets);
             }
             return;
         }
@@ -305,13 +385,17 @@ public class ExperimentTask implements Task {
             try {
                 List<List<MeaningSpan>> results = new ArrayList<List<MeaningSpan>>(dataset.size());
                 List<List<MeaningSpan>> goldStandard = new ArrayList<List<MeaningSpan>>(dataset.size());
-                D2KBAnnotator linker = ((D2KBAnnotator) annotator);
+                final D2KBAnnotator linker = ((D2KBAnnotator) annotator);
 
+                results.addAll(annotateDocuments(dataset.getInstances(), new DocumentAnnotation<MeaningSpan>() {
+                    @Override
+                    public List<MeaningSpan> annotate(Document document) throws GerbilException {
+                        // reduce the document to a text and a list of Spans
+                        return linker.performD2KBTask(DocumentInformationReducer.reduceToTextAndSpans(document));
+                    }
+                }));
                 for (Document document : dataset.getInstances()) {
-                    // reduce the document to a text and a list of Spans
-                    results.add(linker.performD2KBTask(DocumentInformationReducer.reduceToTextAndSpans(document)));
                     goldStandard.add(document.getMarkings(MeaningSpan.class));
-                    taskState.increaseExperimentStepCount();
                 }
                 if (annotatorOutputWriter != null) {
                     annotatorOutputWriter.storeAnnotatorOutput(configuration, results, dataset.getInstances());
@@ -330,12 +414,16 @@ public class ExperimentTask implements Task {
             try {
                 List<List<MeaningSpan>> results = new ArrayList<List<MeaningSpan>>(dataset.size());
                 List<List<MeaningSpan>> goldStandard = new ArrayList<List<MeaningSpan>>(dataset.size());
-                A2KBAnnotator extractor = ((A2KBAnnotator) annotator);
+                final A2KBAnnotator extractor = ((A2KBAnnotator) annotator);
+                results.addAll(annotateDocuments(dataset.getInstances(), new DocumentAnnotation<MeaningSpan>() {
+                    @Override
+                    public List<MeaningSpan> annotate(Document document) throws GerbilException {
+                        // reduce the document to a single text
+                        return extractor.performA2KBTask(DocumentInformationReducer.reduceToPlainText(document));
+                    }
+                }));
                 for (Document document : dataset.getInstances()) {
-                    // reduce the document to a single text
-                    results.add(extractor.performA2KBTask(DocumentInformationReducer.reduceToPlainText(document)));
                     goldStandard.add(document.getMarkings(MeaningSpan.class));
-                    taskState.increaseExperimentStepCount();
                 }
                 if (annotatorOutputWriter != null) {
                     annotatorOutputWriter.storeAnnotatorOutput(configuration, results, dataset.getInstances());
@@ -353,13 +441,17 @@ public class ExperimentTask implements Task {
             try {
                 List<List<Meaning>> results = new ArrayList<List<Meaning>>(dataset.size());
                 List<List<Meaning>> goldStandard = new ArrayList<List<Meaning>>(dataset.size());
-                C2KBAnnotator c2KBAnnotator = ((C2KBAnnotator) annotator);
+                final C2KBAnnotator c2KBAnnotator = ((C2KBAnnotator) annotator);
 
+                results.addAll(annotateDocuments(dataset.getInstances(), new DocumentAnnotation<Meaning>() {
+                    @Override
+                    public List<Meaning> annotate(Document document) throws GerbilException {
+                        // reduce the document to a text and a list of Spans
+                        return c2KBAnnotator.performC2KB(DocumentInformationReducer.reduceToPlainText(document));
+                    }
+                }));
                 for (Document document : dataset.getInstances()) {
-                    // reduce the document to a text and a list of Spans
-                    results.add(c2KBAnnotator.performC2KB(DocumentInformationReducer.reduceToPlainText(document)));
                     goldStandard.add(document.getMarkings(Meaning.class));
-                    taskState.increaseExperimentStepCount();
                 }
                 if (annotatorOutputWriter != null) {
                     annotatorOutputWriter.storeAnnotatorOutput(configuration, results, dataset.getInstances());
@@ -381,12 +473,16 @@ public class ExperimentTask implements Task {
             try {
                 List<List<Span>> results = new ArrayList<List<Span>>(dataset.size());
                 List<List<Span>> goldStandard = new ArrayList<List<Span>>(dataset.size());
-                EntityRecognizer recognizer = ((EntityRecognizer) annotator);
+                final EntityRecognizer recognizer = ((EntityRecognizer) annotator);
+                results.addAll(annotateDocuments(dataset.getInstances(), new DocumentAnnotation<Span>() {
+                    @Override
+                    public List<Span> annotate(Document document) throws GerbilException {
+                        // reduce the document to a single text
+                        return recognizer.performRecognition(DocumentInformationReducer.reduceToPlainText(document));
+                    }
+                }));
                 for (Document document : dataset.getInstances()) {
-                    // reduce the document to a single text
-                    results.add(recognizer.performRecognition(DocumentInformationReducer.reduceToPlainText(document)));
                     goldStandard.add(document.getMarkings(Span.class));
-                    taskState.increaseExperimentStepCount();
                 }
                 if (annotatorOutputWriter != null) {
                     annotatorOutputWriter.storeAnnotatorOutput(configuration, results, dataset.getInstances());
@@ -403,13 +499,17 @@ public class ExperimentTask implements Task {
             try {
                 List<List<TypedSpan>> results = new ArrayList<List<TypedSpan>>(dataset.size());
                 List<List<TypedSpan>> goldStandard = new ArrayList<List<TypedSpan>>(dataset.size());
-                EntityTyper typer = ((EntityTyper) annotator);
+                final EntityTyper typer = ((EntityTyper) annotator);
 
+                results.addAll(annotateDocuments(dataset.getInstances(), new DocumentAnnotation<TypedSpan>() {
+                    @Override
+                    public List<TypedSpan> annotate(Document document) throws GerbilException {
+                        // reduce the document to a text and a list of Spans
+                        return typer.performTyping(DocumentInformationReducer.reduceToTextAndSpans(document));
+                    }
+                }));
                 for (Document document : dataset.getInstances()) {
-                    // reduce the document to a text and a list of Spans
-                    results.add(typer.performTyping(DocumentInformationReducer.reduceToTextAndSpans(document)));
                     goldStandard.add(document.getMarkings(TypedSpan.class));
-                    taskState.increaseExperimentStepCount();
                 }
                 if (annotatorOutputWriter != null) {
                     annotatorOutputWriter.storeAnnotatorOutput(configuration, results, dataset.getInstances());
@@ -426,14 +526,18 @@ public class ExperimentTask implements Task {
             try {
                 List<List<TypedNamedEntity>> results = new ArrayList<List<TypedNamedEntity>>(dataset.size());
                 List<List<TypedNamedEntity>> goldStandard = new ArrayList<List<TypedNamedEntity>>(dataset.size());
-                OKETask1Annotator okeTask1Annotator = ((OKETask1Annotator) annotator);
+                final OKETask1Annotator okeTask1Annotator = ((OKETask1Annotator) annotator);
 
+                results.addAll(annotateDocuments(dataset.getInstances(), new DocumentAnnotation<TypedNamedEntity>() {
+                    @Override
+                    public List<TypedNamedEntity> annotate(Document document) throws GerbilException {
+                        // reduce the document to a text and a list of Spans
+                        return okeTask1Annotator
+                                .performTask1(DocumentInformationReducer.reduceToTextAndSpans(document));
+                    }
+                }));
                 for (Document document : dataset.getInstances()) {
-                    // reduce the document to a text and a list of Spans
-                    results.add(
-                            okeTask1Annotator.performTask1(DocumentInformationReducer.reduceToTextAndSpans(document)));
                     goldStandard.add(document.getMarkings(TypedNamedEntity.class));
-                    taskState.increaseExperimentStepCount();
                 }
                 if (annotatorOutputWriter != null) {
                     annotatorOutputWriter.storeAnnotatorOutput(configuration, results, dataset.getInstances());
@@ -451,14 +555,18 @@ public class ExperimentTask implements Task {
             try {
                 List<List<TypedNamedEntity>> results = new ArrayList<List<TypedNamedEntity>>(dataset.size());
                 List<List<TypedNamedEntity>> goldStandard = new ArrayList<List<TypedNamedEntity>>(dataset.size());
-                OKETask2Annotator okeTask2Annotator = ((OKETask2Annotator) annotator);
+                final OKETask2Annotator okeTask2Annotator = ((OKETask2Annotator) annotator);
 
+                results.addAll(annotateDocuments(dataset.getInstances(), new DocumentAnnotation<TypedNamedEntity>() {
+                    @Override
+                    public List<TypedNamedEntity> annotate(Document document) throws GerbilException {
+                        // reduce the document to a text and a list of Spans
+                        return okeTask2Annotator
+                                .performTask2(DocumentInformationReducer.reduceToTextAndEntities(document));
+                    }
+                }));
                 for (Document document : dataset.getInstances()) {
-                    // reduce the document to a text and a list of Spans
-                    results.add(okeTask2Annotator
-                            .performTask2(DocumentInformationReducer.reduceToTextAndEntities(document)));
                     goldStandard.add(document.getMarkings(TypedNamedEntity.class));
-                    taskState.increaseExperimentStepCount();
                 }
                 if (annotatorOutputWriter != null) {
                     annotatorOutputWriter.storeAnnotatorOutput(configuration, results, dataset.getInstances());
@@ -480,14 +588,125 @@ public class ExperimentTask implements Task {
 
     }
 
+    /**
+     * Sends the given documents to the annotator using the given
+     * {@link DocumentAnnotation}. If the document concurrency of this task is
+     * larger than 1 and an annotation executor has been set, up to document
+     * concurrency many documents are sent at once using the shared executor.
+     * In both cases, the i-th element of the returned list contains the result
+     * for the i-th document, i.e., the order of the dataset is kept.
+     * 
+     * @param documents
+     *            the documents that should be annotated
+     * @param annotation
+     *            the call of the annotator that should be performed for every
+     *            single document
+     * @return the annotator results in the order of the given documents
+     * @throws GerbilException
+     *             if the annotation of a document failed, e.g., because the
+     *             annotator produced too many errors.
+     */
+    protected <T extends Marking> List<List<T>> annotateDocuments(List<Document> documents,
+            final DocumentAnnotation<T> annotation) throws GerbilException {
+        List<List<T>> results = new ArrayList<List<T>>(documents.size());
+        int numberOfWorkers = Math.min(documentConcurrency, documents.size());
+        if ((numberOfWorkers <= 1) || (annotationExecutor == null)) {
+            for (Document document : documents) {
+                results.add(annotation.annotate(document));
+                taskState.increaseExperimentStepCount();
+            }
+            return results;
+        }
+        // the executor is shared with other tasks, i.e., the number of
+        // documents this task is working on is limited by the semaphore
+        final Semaphore permits = new Semaphore(numberOfWorkers);
+        final AtomicBoolean failed = new AtomicBoolean(false);
+        List<Future<List<T>>> futures = new ArrayList<Future<List<T>>>(documents.size());
+        try {
+            for (final Document document : documents) {
+                permits.acquire();
+                if (failed.get()) {
+                    permits.release();
+                    break;
+                }
+                try {
+                    futures.add(annotationExecutor.submit(new Callable<List<T>>() {
+                        @Override
+                        public List<T> call() throws Exception {
+                            try {
+                                List<T> result = annotation.annotate(document);
+                                taskState.increaseExperimentStepCount();
+                                return result;
+                            } catch (Exception e) {
+                                failed.set(true);
+                                throw e;
+                            } finally {
+                                permits.release();
+                            }
+                        }
+                    }));
+                } catch (RejectedExecutionException e) {
+                    permits.release();
+                    throw new GerbilException("The annotation executor didn't accept the document.", e,
+                            ErrorTypes.UNEXPECTED_EXCEPTION);
+                }
+            }
+            for (Future<List<T>> future : futures) {
+                results.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof GerbilException) {
+                throw (GerbilException) cause;
+            } else {
+                throw new GerbilException("Got an exception while annotating a document.", cause,
+                        ErrorTypes.UNEXPECTED_EXCEPTION);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GerbilException("Interrupted while waiting for the annotator results.", e,
+                    ErrorTypes.UNEXPECTED_EXCEPTION);
+        } finally {
+            // makes sure that no further documents are sent to the annotator
+            // if the annotation has been aborted
+            for (Future<List<T>> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Evaluates the given annotator results. If an
+     * {@link EvaluationPhaseController} has been set, the evaluation waits
+     * for its permission and reports its end to the controller.
+     * 
+     * @throws GerbilException
+     *             if the thread has been interrupted while waiting for the
+     *             permission to evaluate the results
+     */
     @SuppressWarnings("unchecked")
     protected <T extends Marking> EvaluationResult evaluate(List<Evaluator<? extends Marking>> evaluators,
-            List<List<T>> annotatorResults, List<List<T>> goldStandard) {
-        EvaluationResultContainer evalResults = new EvaluationResultContainer();
-        for (Evaluator<? extends Marking> e : evaluators) {
-            ((Evaluator<T>) e).evaluate(annotatorResults, goldStandard, evalResults);
+            List<List<T>> annotatorResults, List<List<T>> goldStandard) throws GerbilException {
+        if (evaluationController != null) {
+            try {
+                evaluationController.startEvaluation(this);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GerbilException("Interrupted while waiting for the permission to evaluate the results.", e,
+                        ErrorTypes.UNEXPECTED_EXCEPTION);
+            }
+        }
+        try {
+            EvaluationResultContainer evalResults = new EvaluationResultContainer();
+            ParallelEvaluation.getInstance().evaluate((List<Evaluator<T>>) (List<?>) evaluators, annotatorResults,
+                    goldStandard, evalResults);
+            return evalResults;
+        } finally {
+            if (evaluationController != null) {
+                evaluationController.endEvaluation(this);
+            }
         }
-        return evalResults;
     }
 
     @Override
@@ -507,4 +726,94 @@ public class ExperimentTask implements Task {
     public void setAnnotatorOutputWriter(AnnotatorOutputWriter annotatorOutputWriter) {
         this.annotatorOutputWriter = annotatorOutputWriter;
     }
+
+    public ExperimentTaskConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * @return the id of the experiment this task belongs to or null if it is
+     *         not known
+     */
+    public String getExperimentId() {
+        return experimentId;
+    }
+
+    public void setExperimentId(String experimentId) {
+        this.experimentId = experimentId;
+    }
+
+    public int getDocumentConcurrency() {
+        return documentConcurrency;
+    }
+
+    /**
+     * Sets the number of documents that are sent to the annotator at the same
+     * time. Note that a value larger than 1 should only be used if the
+     * annotator can handle parallel requests.
+     * 
+     * @param documentConcurrency
+     *            the maximum number of documents the annotator is working on
+     *            at the same time
+     */
+    public void setDocumentConcurrency(int documentConcurrency) {
+        if (documentConcurrency < 1) {
+            documentConcurrency = 1;
+        }
+        this.documentConcurrency = documentConcurrency;
+    }
+
+    /**
+     * Sets the executor that is used to send several documents to the
+     * annotator at the same time. The executor is owned by the overseer
+     * executing this task and is shared with other tasks. If no executor is
+     * set, the documents are annotated sequentially.
+     * 
+     * @param annotationExecutor
+     *            the shared executor used for annotating documents
+     */
+    public void setAnnotationExecutor(ExecutorService annotationExecutor) {
+        this.annotationExecutor = annotationExecutor;
+    }
+
+    /**
+     * Sets the controller of the evaluation phase of this task. The
+     * controller is typically the overseer executing this task. If no
+     * controller is set, the results are evaluated without restrictions.
+     * 
+     * @param evaluationController
+     *            the controller of the evaluation phase
+     */
+    public void setEvaluationPhaseController(EvaluationPhaseController evaluationController) {
+        this.evaluationController = evaluationController;
+    }
+
+    /**
+     * Loads the default number of documents that are sent to an annotator at
+     * the same time from the {@link GerbilConfiguration}.
+     * 
+     * @return the default document concurrency
+     */
+    protected static int loadDefaultDocumentConcurrency() {
+        if (GerbilConfiguration.getInstance().containsKey(DOCUMENT_CONCURRENCY_KEY)) {
+            try {
+                return GerbilConfiguration.getInstance().getInt(DOCUMENT_CONCURRENCY_KEY);
+            } catch (Exception e) {
+                LOGGER.warn("Couldn't load the document concurrency from the configuration. Using default "
+                        + DEFAULT_DOCUMENT_CONCURRENCY + ".", e);
+            }
+        }
+        return DEFAULT_DOCUMENT_CONCURRENCY;
+    }
+
+    /**
+     * A single call of an annotator for a given document.
+     * 
+     * @param <T>
+     *            the type of markings returned by the annotator
+     */
+    protected static interface DocumentAnnotation<T extends Marking> {
+
+        public List<T> annotate(Document document) throws GerbilException;
+    }
 }
@@ -0,0 +1,516 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.execute;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import org.aksw.gerbil.config.GerbilConfiguration;
+import org.aksw.gerbil.dataset.DatasetConfiguration;
+import org.aksw.gerbil.datatypes.ExperimentTaskConfiguration;
+import org.aksw.gerbil.datatypes.ExperimentType;
+import org.aksw.gerbil.metrics.Gauge;
+import org.aksw.gerbil.metrics.MetricsRegistry;
+import org.aksw.simba.topicmodeling.concurrent.overseers.AbstractOverseer;
+import org.aksw.simba.topicmodeling.concurrent.overseers.pool.DefeatableOverseer;
+import org.aksw.simba.topicmodeling.concurrent.tasks.Task;
+import org.aksw.simba.topicmodeling.concurrent.workers.Worker;
+import org.aksw.simba.topicmodeling.concurrent.workers.WorkerImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.carrotsearch.hppc.ObjectIntOpenHashMap;
+
+/**
+ * An {@link DefeatableOverseer} that schedules {@link ExperimentTask}s instead
+ * of simply executing them in the order in which they have been submitted.
+ * The scheduler
+ * <ul>
+ * <li>executes the tasks with a limited number of task workers. A task that
+ * evaluates its results frees its task worker, i.e., another task can send its
+ * documents to an annotator in the meantime. Instead, the number of tasks that
+ * are evaluated at the same time is limited by the number of evaluation
+ * workers, which is based on the number of available processors (see
+ * {@link EvaluationPhaseController}),</li>
+ * <li>limits the number of tasks that are running against a single annotator
+ * at the same time,</li>
+ * <li>owns a single bounded executor that is shared by all tasks for sending
+ * documents to the annotators in parallel (see
+ * {@link ExperimentTask#setAnnotationExecutor(ExecutorService)}),</li>
+ * <li>shares the workers fairly between the experiments, i.e., an experiment
+ * with a single task does not have to wait until all tasks of a large
+ * experiment submitted earlier have been finished, and</li>
+ * <li>prefers tasks whose dataset is already present in the
+ * {@link DatasetCache}.</li>
+ * </ul>
+ * Tasks that are not {@link ExperimentTask}s are executed by the task workers
+ * without further restrictions.
+ * 
+ * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
+ *
+ */
+public class ExperimentTaskScheduler extends AbstractOverseer implements DefeatableOverseer,
+        EvaluationPhaseController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExperimentTaskScheduler.class);
+
+    public static final String TASK_WORKERS_KEY = "org.aksw.gerbil.execute.ExperimentTaskScheduler.taskWorkers";
+    public static final String EVALUATION_WORKERS_KEY = "org.aksw.gerbil.execute.ExperimentTaskScheduler.evaluationWorkers";
+    public static final String MAX_TASKS_PER_ANNOTATOR_KEY = "org.aksw.gerbil.execute.ExperimentTaskScheduler.maxTasksPerAnnotator";
+    public static final String ANNOTATION_WORKERS_KEY = "org.aksw.gerbil.execute.ExperimentTaskScheduler.annotationWorkers";
+
+    public static final int DEFAULT_TASK_WORKERS = 20;
+    public static final int DEFAULT_EVALUATION_WORKERS = Runtime.getRuntime().availableProcessors();
+    public static final int DEFAULT_MAX_TASKS_PER_ANNOTATOR = 5;
+    public static final int DEFAULT_ANNOTATION_WORKERS = 50;
+
+    /**
+     * Key used for tasks that do not belong to a known experiment.
+     */
+    private static final String UNKNOWN_EXPERIMENT = "";
+
+    private ExecutorService taskExecutor;
+    private ExecutorService annotationExecutor;
+    private Semaphore evaluationPermits;
+    private int taskWorkers;
+    private int maxTasksPerAnnotator;
+    private int numberOfRunningTasks = 0;
+    private int numberOfEvaluatedTasks = 0;
+    /**
+     * Queues of the single experiments in the order of their arrival.
+     */
+    private Map<String, ExperimentQueue> experimentQueues = new LinkedHashMap<String, ExperimentQueue>();
+    private Map<Worker, QueuedTask> runningTasks = new HashMap<Worker, QueuedTask>();
+    private ObjectIntOpenHashMap<String> runningTasksPerAnnotator = new ObjectIntOpenHashMap<String>();
+    private int numberOfQueuedTasks = 0;
+    private long numberOfStartedTasks = 0;
+    private long sumOfWaitingTimes = 0;
+    private long maxWaitingTime = 0;
+
+    /**
+     * Creates a scheduler using the values of the {@link GerbilConfiguration}
+     * or the default values if they are not defined.
+     */
+    public ExperimentTaskScheduler() {
+        this(loadInt(TASK_WORKERS_KEY, DEFAULT_TASK_WORKERS),
+                loadInt(EVALUATION_WORKERS_KEY, DEFAULT_EVALUATION_WORKERS),
+                loadInt(MAX_TASKS_PER_ANNOTATOR_KEY, DEFAULT_MAX_TASKS_PER_ANNOTATOR),
+                loadInt(ANNOTATION_WORKERS_KEY, DEFAULT_ANNOTATION_WORKERS));
+    }
+
+    /**
+     * Constructor using the default number of annotation workers.
+     * 
+     * @param taskWorkers
+     *            number of workers executing tasks
+     * @param evaluationWorkers
+     *            maximum number of tasks that are evaluating their results
+     *            at the same time
+     * @param maxTasksPerAnnotator
+     *            maximum number of tasks that are running against a single
+     *            annotator at the same time or a value &lt;= 0 if the number
+     *            is not limited
+     */
+    public ExperimentTaskScheduler(int taskWorkers, int evaluationWorkers, int maxTasksPerAnnotator) {
+        this(taskWorkers, evaluationWorkers, maxTasksPerAnnotator, DEFAULT_ANNOTATION_WORKERS);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param taskWorkers
+     *            number of workers executing tasks
+     * @param evaluationWorkers
+     *            maximum number of tasks that are evaluating their results
+     *            at the same time
+     * @param maxTasksPerAnnotator
+     *            maximum number of tasks that are running against a single
+     *            annotator at the same time or a value &lt;= 0 if the number
+     *            is not limited
+     * @param annotationWorkers
+     *            number of threads that are shared by all tasks for sending
+     *            documents to the annotators in parallel
+     */
+    public ExperimentTaskScheduler(int taskWorkers, int evaluationWorkers, int maxTasksPerAnnotator,
+            int annotationWorkers) {
+        if (taskWorkers < 1) {
+            throw new IllegalArgumentException("The number of task workers has to be positive.");
+        }
+        if (evaluationWorkers < 1) {
+            throw new IllegalArgumentException("The number of evaluation workers has to be positive.");
+        }
+        if (annotationWorkers < 1) {
+            throw new IllegalArgumentException("The number of annotation workers has to be positive.");
+        }
+        this.taskWorkers = taskWorkers;
+        this.maxTasksPerAnnotator = maxTasksPerAnnotator;
+        // the number of threads is limited by the scheduler, i.e., there are
+        // at most taskWorkers + evaluationWorkers threads
+        taskExecutor = Executors.newCachedThreadPool();
+        evaluationPermits = new Semaphore(evaluationWorkers);
+        annotationExecutor = Executors.newFixedThreadPool(annotationWorkers);
+    }
+
+    private static int loadInt(String key, int defaultValue) {
+        if (GerbilConfiguration.getInstance().containsKey(key)) {
+            try {
+                return GerbilConfiguration.getInstance().getInt(key);
+            } catch (Exception e) {
+                LOGGER.warn("Couldn't load \"" + key + "\". Using the default value " + defaultValue + ".", e);
+            }
+        }
+        return defaultValue;
+    }
+
+    @Override
+    protected Worker createWorker(Task task) {
+        return new WorkerImpl(task, this);
+    }
+
+    @Override
+    protected void startWorker(Worker worker) {
+        QueuedTask queuedTask = new QueuedTask(worker);
+        Task task = worker.getTask();
+        if (task instanceof ExperimentTask) {
+            ExperimentTask experimentTask = (ExperimentTask) task;
+            experimentTask.setAnnotationExecutor(annotationExecutor);
+            experimentTask.setEvaluationPhaseController(this);
+            if (experimentTask.getExperimentId() != null) {
+                queuedTask.experimentId = experimentTask.getExperimentId();
+            }
+            ExperimentTaskConfiguration configuration = experimentTask.getConfiguration();
+            if (configuration != null) {
+                if (configuration.annotatorConfig != null) {
+                    queuedTask.annotatorName = configuration.annotatorConfig.getName();
+                }
+                queuedTask.datasetConfig = configuration.datasetConfig;
+                queuedTask.type = configuration.type;
+            }
+        }
+        synchronized (this) {
+            ExperimentQueue queue = experimentQueues.get(queuedTask.experimentId);
+            if (queue == null) {
+                queue = new ExperimentQueue();
+                experimentQueues.put(queuedTask.experimentId, queue);
+            }
+            queue.tasks.add(queuedTask);
+            ++numberOfQueuedTasks;
+        }
+        dispatch();
+    }
+
+    /**
+     * Returns true if the given dataset is already present in the
+     * {@link DatasetCache}.
+     */
+    protected boolean isDatasetCached(DatasetConfiguration datasetConfig, ExperimentType type) {
+        return DatasetCache.getInstance().isCached(datasetConfig, type);
+    }
+
+    /**
+     * Starts queued tasks as long as there are free workers and tasks that are
+     * allowed to run.
+     */
+    protected synchronized void dispatch() {
+        QueuedTask next = selectNextTask();
+        while (next != null) {
+            long waitingTime = System.currentTimeMillis() - next.enqueueTime;
+            ++numberOfStartedTasks;
+            sumOfWaitingTimes += waitingTime;
+            if (waitingTime > maxWaitingTime) {
+                maxWaitingTime = waitingTime;
+            }
+            --numberOfQueuedTasks;
+            runningTasks.put(next.worker, next);
+            if (next.annotatorName != null) {
+                runningTasksPerAnnotator.putOrAdd(next.annotatorName, 1, 1);
+            }
+            ExperimentQueue queue = experimentQueues.get(next.experimentId);
+            ++queue.runningTasks;
+            ++queue.startedTasks;
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Starting task {} of experiment \"{}\" after waiting {}ms ({} tasks queued).",
+                        new Object[] { next.worker.getTask().getId(), next.experimentId, waitingTime,
+                                numberOfQueuedTasks });
+            }
+            ++numberOfRunningTasks;
+            taskExecutor.execute(next.worker);
+            next = selectNextTask();
+        }
+    }
+
+    /**
+     * Selects the next task that should be started and removes it from its
+     * queue. The experiment with the lowest number of running tasks is
+     * preferred. Ties are broken by the number of tasks that have been started
+     * for the experiment and by the order of arrival. Inside the queue of an
+     * experiment, the first task whose dataset is already cached is preferred.
+     * 
+     * @return the next task or null if no task can be started
+     */
+    private QueuedTask selectNextTask() {
+        if ((numberOfRunningTasks >= taskWorkers) || (numberOfQueuedTasks == 0)) {
+            return null;
+        }
+        List<ExperimentQueue> candidates = new ArrayList<ExperimentQueue>();
+        for (ExperimentQueue queue : experimentQueues.values()) {
+            if (!queue.tasks.isEmpty()) {
+                candidates.add(queue);
+            }
+        }
+        while (!candidates.isEmpty()) {
+            ExperimentQueue best = null;
+            for (ExperimentQueue queue : candidates) {
+                if ((best == null) || (queue.runningTasks < best.runningTasks)
+                        || ((queue.runningTasks == best.runningTasks) && (queue.startedTasks < best.startedTasks))) {
+                    best = queue;
+                }
+            }
+            QueuedTask task = selectTask(best);
+            if (task != null) {
+                return task;
+            }
+            candidates.remove(best);
+        }
+        return null;
+    }
+
+    private QueuedTask selectTask(ExperimentQueue queue) {
+        QueuedTask firstEligible = null;
+        Iterator<QueuedTask> iterator = queue.tasks.iterator();
+        QueuedTask task;
+        while (iterator.hasNext()) {
+            task = iterator.next();
+            if (isAnnotatorAvailable(task.annotatorName)) {
+                if ((task.datasetConfig != null) && isDatasetCached(task.datasetConfig, task.type)) {
+                    iterator.remove();
+                    return task;
+                }
+                if (firstEligible == null) {
+                    firstEligible = task;
+                }
+            }
+        }
+        if (firstEligible != null) {
+            queue.tasks.remove(firstEligible);
+        }
+        return firstEligible;
+    }
+
+    private boolean isAnnotatorAvailable(String annotatorName) {
+        return (maxTasksPerAnnotator <= 0) || (annotatorName == null)
+                || (runningTasksPerAnnotator.get(annotatorName) < maxTasksPerAnnotator);
+    }
+
+    /**
+     * Waits for an evaluation permit and frees the task worker of the given
+     * task while it is evaluated.
+     */
+    @Override
+    public void startEvaluation(ExperimentTask task) throws InterruptedException {
+        evaluationPermits.acquire();
+        synchronized (this) {
+            QueuedTask queuedTask = getRunningTask(task);
+            if (queuedTask != null) {
+                queuedTask.evaluating = true;
+                --numberOfRunningTasks;
+                ++numberOfEvaluatedTasks;
+            }
+        }
+        dispatch();
+    }
+
+    @Override
+    public void endEvaluation(ExperimentTask task) {
+        synchronized (this) {
+            QueuedTask queuedTask = getRunningTask(task);
+            if ((queuedTask != null) && queuedTask.evaluating) {
+                // the task continues as running task even if all task workers
+                // are busy since it shouldn't wait for a second time
+                queuedTask.evaluating = false;
+                ++numberOfRunningTasks;
+                --numberOfEvaluatedTasks;
+            }
+        }
+        evaluationPermits.release();
+    }
+
+    private QueuedTask getRunningTask(ExperimentTask task) {
+        for (QueuedTask queuedTask : runningTasks.values()) {
+            if (queuedTask.worker.getTask() == task) {
+                return queuedTask;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void reportTaskFinished(Worker worker) {
+        releaseWorker(worker);
+        super.reportTaskFinished(worker);
+        dispatch();
+    }
+
+    @Override
+    public void reportTaskThrowedException(Worker worker, Throwable t) {
+        releaseWorker(worker);
+        super.reportTaskThrowedException(worker, t);
+        dispatch();
+    }
+
+    private synchronized void releaseWorker(Worker worker) {
+        QueuedTask task = runningTasks.remove(worker);
+        if (task == null) {
+            return;
+        }
+        if (task.evaluating) {
+            --numberOfEvaluatedTasks;
+        } else {
+            --numberOfRunningTasks;
+        }
+        if (task.annotatorName != null) {
+            int count = runningTasksPerAnnotator.get(task.annotatorName) - 1;
+            if (count > 0) {
+                runningTasksPerAnnotator.put(task.annotatorName, count);
+            } else {
+                runningTasksPerAnnotator.remove(task.annotatorName);
+            }
+        }
+        ExperimentQueue queue = experimentQueues.get(task.experimentId);
+        --queue.runningTasks;
+        if ((queue.runningTasks == 0) && queue.tasks.isEmpty()) {
+            experimentQueues.remove(task.experimentId);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        synchronized (this) {
+            if (numberOfQueuedTasks > 0) {
+                LOGGER.warn("Shutting down while {} tasks are still waiting. They won't be executed.",
+                        numberOfQueuedTasks);
+            }
+        }
+        taskExecutor.shutdown();
+        annotationExecutor.shutdown();
+    }
+
+    /**
+     * @return the number of tasks that are waiting for a worker
+     */
+    public synchronized int getNumberOfQueuedTasks() {
+        return numberOfQueuedTasks;
+    }
+
+    /**
+     * @return the number of tasks that are currently executed
+     */
+    public synchronized int getNumberOfRunningTasks() {
+        return numberOfRunningTasks + numberOfEvaluatedTasks;
+    }
+
+    /**
+     * @return the number of running tasks that are currently evaluating their
+     *         results
+     */
+    public synchronized int getNumberOfEvaluatedTasks() {
+        return numberOfEvaluatedTasks;
+    }
+
+    /**
+     * @return the average time (in ms) the started tasks had to wait in the
+     *         queue
+     */
+    public synchronized double getAverageWaitingTime() {
+        return numberOfStartedTasks > 0 ? (sumOfWaitingTimes / (double) numberOfStartedTasks) : 0;
+    }
+
+    /**
+     * @return the maximum time (in ms) a started task had to wait in the queue
+     */
+    public synchronized long getMaxWaitingTime() {
+        return maxWaitingTime;
+    }
+
+    /**
+     * Registers gauges for the queue depth, the number of running tasks and
+     * the waiting times of this scheduler at the given registry.
+     */
+    public void registerMetrics(MetricsRegistry registry) {
+        registry.register(new Gauge("gerbil_scheduler_queued_tasks", "Number of tasks that are waiting for a worker.") {
+            @Override
+            public double getValue() {
+                return getNumberOfQueuedTasks();
+            }
+        });
+        registry.register(new Gauge("gerbil_scheduler_running_tasks", "Number of tasks that are currently executed.") {
+            @Override
+            public double getValue() {
+                return getNumberOfRunningTasks();
+            }
+        });
+        registry.register(new Gauge("gerbil_scheduler_evaluated_tasks",
+                "Number of running tasks that are evaluating their results.") {
+            @Override
+            public double getValue() {
+                return getNumberOfEvaluatedTasks();
+            }
+        });
+        registry.register(new Gauge("gerbil_scheduler_avg_waiting_time_millis",
+                "Average time the started tasks had to wait in the queue.") {
+            @Override
+            public double getValue() {
+                return getAverageWaitingTime();
+            }
+        });
+        registry.register(new Gauge("gerbil_scheduler_max_waiting_time_millis",
+                "Maximum time a started task had to wait in the queue.") {
+            @Override
+            public double getValue() {
+                return getMaxWaitingTime();
+            }
+        });
+    }
+
+    private static class ExperimentQueue {
+        private LinkedList<QueuedTask> tasks = new LinkedList<QueuedTask>();
+        private int runningTasks = 0;
+        private int startedTasks = 0;
+    }
+
+    private static class QueuedTask {
+        private Worker worker;
+        private String experimentId = UNKNOWN_EXPERIMENT;
+        private String annotatorName;
+        private DatasetConfiguration datasetConfig;
+        private ExperimentType type;
+        private boolean evaluating = false;
+        private long enqueueTime = System.currentTimeMillis();
+
+        public QueuedTask(Worker worker) {
+            this.worker = worker;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.execute;
+
+import org.aksw.gerbil.annotator.Annotator;
+import org.aksw.gerbil.annotator.decorator.ResponseCachingAnnotatorDecorator;
+import org.aksw.gerbil.annotator.decorator.TimeMeasuringAnnotatorDecorator;
+import org.aksw.gerbil.database.ExperimentDAO;
+import org.aksw.gerbil.datatypes.ExperimentTaskConfiguration;
+import org.aksw.gerbil.datatypes.ExperimentTaskResult;
+import org.aksw.gerbil.evaluate.EvaluationResult;
+import org.aksw.gerbil.evaluate.EvaluatorFactory;
+import org.aksw.gerbil.semantic.sameas.SameAsRetriever;
+
+/**
+ * An {@link ExperimentTask} that re-scores the stored output of an annotator
+ * (see {@link org.aksw.gerbil.annotator.StoredOutputAnnotatorConfiguration}).
+ * Since the annotator is not contacted, its responses are not cached and the
+ * measured runtime is not part of the result.
+ * 
+ * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
+ *
+ */
+public class RescoringExperimentTask extends ExperimentTask {
+
+    public RescoringExperimentTask(int experimentTaskId, ExperimentDAO experimentDAO,
+            SameAsRetriever globalRetriever, EvaluatorFactory evFactory, ExperimentTaskConfiguration configuration) {
+        super(experimentTaskId, experimentDAO, globalRetriever, evFactory, configuration);
+    }
+
+    @Override
+    protected ResponseCachingAnnotatorDecorator createResponseCache(Annotator annotator) {
+        return null;
+    }
+
+    @Override
+    protected void transformResults(EvaluationResult result, ExperimentTaskResult expResult) {
+        // the runtime of reading the stored output is meaningless
+        if (TimeMeasuringAnnotatorDecorator.isTimeResultName(result.getName())) {
+            return;
+        }
+        super.transformResults(result, expResult);
+    }
+}
@@ -17,9 +17,11 @@
 package org.aksw.gerbil.http;
 
 import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.aksw.gerbil.datatypes.ErrorTypes;
 import org.aksw.gerbil.exceptions.GerbilException;
+import org.apache.http.Header;
 import org.apache.http.StatusLine;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
@@ -35,11 +37,17 @@ public class AbstractHttpRequestEmitter implements HttpRequestEmitter {
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractHttpRequestEmitter.class);
 
     public static final String CONNECTION_ABORT_INDICATING_EXCPETION_MSG = "Software caused connection abort";
+    public static final String RETRY_AFTER_HEADER = "Retry-After";
 
     protected CloseableHttpClient client;
     @Deprecated
     protected boolean closeClient = false;
     protected String name;
+    /**
+     * Requests that got the permission of their {@link HttpRequestGovernor}
+     * and whose responses have not been closed, yet.
+     */
+    private final ConcurrentHashMap<HttpUriRequest, GovernedRequest> governedRequests = new ConcurrentHashMap<HttpUriRequest, GovernedRequest>();
 
     public AbstractHttpRequestEmitter() {
         // this(null, HttpClientBuilder.create().build());
@@ -82,10 +90,23 @@ public class AbstractHttpRequestEmitter implements HttpRequestEmitter {
         return request;
     }
 
+    /**
+     * Has to be called after the response of the given request has been
+     * closed. Releases the permission of the {@link HttpRequestGovernor} and
+     * ends the observation of the request.
+     */
     protected void closeRequest(HttpUriRequest request) {
+        releaseRequest(request);
         HttpManagement.getInstance().reportEnd(this, request);
     }
 
+    private void releaseRequest(HttpUriRequest request) {
+        GovernedRequest governedRequest = governedRequests.remove(request);
+        if (governedRequest != null) {
+            governedRequest.governor.release(governedRequest.statusCode, governedRequest.retryAfter);
+        }
+    }
+
     protected CloseableHttpClient getClient() {
         return client;
     }
@@ -103,39 +124,92 @@ public class AbstractHttpRequestEmitter implements HttpRequestEmitter {
         this.closeClient = closeClient;
     }
 
+    /**
+     * Sends the given request after getting the permission of the
+     * {@link HttpRequestGovernor} of this emitter. The permission is released
+     * when {@link #closeRequest(HttpUriRequest)} is called, i.e., after the
+     * response has been consumed and closed, or directly if this method
+     * throws an exception.
+     */
     protected CloseableHttpResponse sendRequest(HttpUriRequest request) throws GerbilException {
         CloseableHttpResponse response = null;
+        // make sure that the annotator is not overloaded
+        HttpRequestGovernor governor = HttpManagement.getInstance().getRequestGovernor(name);
         try {
-            response = client.execute(request);
-        } catch (RequestAbortedException e) {
-            LOGGER.error("It seems like the annotator has needed too much time and has been interrupted.");
-            throw new GerbilException("It seems like the annotator has needed too much time and has been interrupted.",
-                    e, ErrorTypes.ANNOTATOR_NEEDED_TOO_MUCH_TIME);
-        } catch (java.net.SocketException e) {
-            if (e.getMessage().contains(CONNECTION_ABORT_INDICATING_EXCPETION_MSG)) {
+            governor.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("Interrupted while waiting for the permission to send a request.");
+            throw new GerbilException("Interrupted while waiting for the permission to send a request.", e,
+                    ErrorTypes.UNEXPECTED_EXCEPTION);
+        }
+        GovernedRequest governedRequest = new GovernedRequest(governor);
+        governedRequests.put(request, governedRequest);
+        // the time the request waited for the governor is not part of its
+        // deadline
+        HttpManagement.getInstance().resetDeadline(this, request);
+        boolean responseReturned = false;
+        try {
+            try {
+                response = client.execute(request);
+                governedRequest.statusCode = response.getStatusLine().getStatusCode();
+                governedRequest.retryAfter = getRetryAfter(response);
+            } catch (RequestAbortedException e) {
                 LOGGER.error("It seems like the annotator has needed too much time and has been interrupted.");
                 throw new GerbilException(
                         "It seems like the annotator has needed too much time and has been interrupted.", e,
                         ErrorTypes.ANNOTATOR_NEEDED_TOO_MUCH_TIME);
-            } else {
+            } catch (java.net.SocketException e) {
+                if (e.getMessage().contains(CONNECTION_ABORT_INDICATING_EXCPETION_MSG)) {
+                    LOGGER.error("It seems like the annotator has needed too much time and has been interrupted.");
+                    throw new GerbilException(
+                            "It seems like the annotator has needed too much time and has been interrupted.", e,
+                            ErrorTypes.ANNOTATOR_NEEDED_TOO_MUCH_TIME);
+                } else {
+                    LOGGER.error("Exception while sending request.", e);
+                    throw new GerbilException("Exception while sending request.", e,
+                            ErrorTypes.UNEXPECTED_EXCEPTION);
+                }
+            } catch (Exception e) {
                 LOGGER.error("Exception while sending request.", e);
                 throw new GerbilException("Exception while sending request.", e, ErrorTypes.UNEXPECTED_EXCEPTION);
             }
-        } catch (Exception e) {
-            LOGGER.error("Exception while sending request.", e);
-            throw new GerbilException("Exception while sending request.", e, ErrorTypes.UNEXPECTED_EXCEPTION);
+            StatusLine status = response.getStatusLine();
+            if ((status.getStatusCode() < 200) || (status.getStatusCode() >= 300)) {
+                LOGGER.error("Response has the wrong status: " + status.toString());
+                try {
+                    response.close();
+                } catch (IOException e) {
+                }
+                throw new GerbilException("Response has the wrong status: " + status.toString(),
+                        ErrorTypes.UNEXPECTED_EXCEPTION);
+            }
+            responseReturned = true;
+        } finally {
+            // if there is no response to close, the permission can be released
+            // directly
+            if (!responseReturned) {
+                releaseRequest(request);
+            }
         }
-        StatusLine status = response.getStatusLine();
-        if ((status.getStatusCode() < 200) || (status.getStatusCode() >= 300)) {
-            LOGGER.error("Response has the wrong status: " + status.toString());
+        return response;
+    }
+
+    /**
+     * Returns the time (in ms) the server asked to wait before sending the
+     * next request or -1 if the response does not contain a Retry-After header
+     * with a number of seconds.
+     */
+    protected static long getRetryAfter(CloseableHttpResponse response) {
+        Header header = response.getFirstHeader(RETRY_AFTER_HEADER);
+        if (header != null) {
             try {
-                response.close();
-            } catch (IOException e) {
+                return Long.parseLong(header.getValue().trim()) * 1000;
+            } catch (NumberFormatException e) {
+                // the header contains a date which is not supported
             }
-            throw new GerbilException("Response has the wrong status: " + status.toString(),
-                    ErrorTypes.UNEXPECTED_EXCEPTION);
         }
-        return response;
+        return -1;
     }
 
     @Override
@@ -154,4 +228,18 @@ public class AbstractHttpRequestEmitter implements HttpRequestEmitter {
     public void setName(String name) {
         this.name = name;
     }
+
+    /**
+     * The permission of a governor for a request and the status of the
+     * response that is reported when the permission is released.
+     */
+    private static class GovernedRequest {
+        private HttpRequestGovernor governor;
+        private volatile int statusCode = -1;
+        private volatile long retryAfter = -1;
+
+        public GovernedRequest(HttpRequestGovernor governor) {
+            this.governor = governor;
+        }
+    }
 }
@@ -16,11 +16,24 @@
  */
 package org.aksw.gerbil.http;
 
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.aksw.gerbil.config.GerbilConfiguration;
+import org.aksw.gerbil.metrics.Gauge;
+import org.aksw.gerbil.metrics.MetricsRegistry;
+import org.apache.commons.configuration.Configuration;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,9 +42,34 @@ public class HttpManagement {
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpManagement.class);
 
     public static final String MAXIMUM_TIME_TO_WAIT_KEY = "org.aksw.gerbil.annotator.http.HttpManagement.maxWaitingTime";
+    /**
+     * @deprecated The {@link InterruptingObserver} interrupts requests as soon
+     *             as their deadlines are reached. Thus, there is no check
+     *             interval anymore.
+     */
+    @Deprecated
     public static final String CHECK_INTERVAL_KEY = "org.aksw.gerbil.annotator.http.HttpManagement.checkInterval";
 
+    public static final String MAXIMUM_CONNECTIONS_KEY = "org.aksw.gerbil.annotator.http.HttpManagement.maxConnections";
+    public static final String MAXIMUM_CONNECTIONS_PER_ROUTE_KEY = "org.aksw.gerbil.annotator.http.HttpManagement.maxConnectionsPerRoute";
+    public static final String KEEP_ALIVE_TIME_KEY = "org.aksw.gerbil.annotator.http.HttpManagement.keepAliveTime";
+    public static final String VALIDATE_AFTER_INACTIVITY_KEY = "org.aksw.gerbil.annotator.http.HttpManagement.validateAfterInactivity";
+    public static final String MAXIMUM_CONCURRENT_REQUESTS_KEY = "org.aksw.gerbil.annotator.http.HttpManagement.maxConcurrentRequests";
+    public static final String MAXIMUM_REQUESTS_PER_SECOND_KEY = "org.aksw.gerbil.annotator.http.HttpManagement.maxRequestsPerSecond";
+    public static final String INITIAL_BACKOFF_TIME_KEY = "org.aksw.gerbil.annotator.http.HttpManagement.initialBackoffTime";
+    public static final String MAXIMUM_BACKOFF_TIME_KEY = "org.aksw.gerbil.annotator.http.HttpManagement.maxBackoffTime";
+
     public static final long DEFAULT_WAITING_TIME = 60000;
+    public static final int DEFAULT_MAXIMUM_CONNECTIONS = 100;
+    public static final int DEFAULT_MAXIMUM_CONNECTIONS_PER_ROUTE = 20;
+    public static final long DEFAULT_KEEP_ALIVE_TIME = 30000;
+    public static final int DEFAULT_VALIDATE_AFTER_INACTIVITY = 2000;
+    public static final long DEFAULT_INITIAL_BACKOFF_TIME = 1000;
+    public static final long DEFAULT_MAXIMUM_BACKOFF_TIME = 60000;
+    /**
+     * @deprecated There is no check interval anymore.
+     */
+    @Deprecated
     public static final long DEFAULT_CHECK_INTERVAL = 10000;
 
     private static final String INTERRUPTER_THREAD_NAME = "HttpInterrupter";
@@ -47,30 +85,256 @@ public class HttpManagement {
                 LOGGER.warn("Couldn't load maximum time to wait from configuration. Using default "
                         + DEFAULT_WAITING_TIME + "ms.", e);
             }
-            long checkInterval = DEFAULT_CHECK_INTERVAL;
-            try {
-                checkInterval = GerbilConfiguration.getInstance().getLong(CHECK_INTERVAL_KEY);
-            } catch (Exception e) {
-                LOGGER.warn("Couldn't load check interval from configuration. Using default " + DEFAULT_CHECK_INTERVAL
-                        + "ms.", e);
-            }
-            InterruptingObserver interruptingObserver = new InterruptingObserver(maxWaitingTime, checkInterval);
+            InterruptingObserver interruptingObserver = new InterruptingObserver(maxWaitingTime);
+            loadEmitterMaxWaitingTimes(interruptingObserver);
             Thread t = new Thread(interruptingObserver);
             t.setDaemon(true);
             t.setName(INTERRUPTER_THREAD_NAME);
             t.start();
 
-            instance = new HttpManagement(interruptingObserver);
+            instance = new HttpManagement(interruptingObserver, createConnectionManager(), loadKeepAliveTime());
+            instance.registerMetrics(MetricsRegistry.getInstance());
         }
         return instance;
     }
 
+    /**
+     * Loads the maximum waiting times of single emitters, e.g., annotators,
+     * that are defined with a key that consists of the
+     * {@link #MAXIMUM_TIME_TO_WAIT_KEY}, a dot and the name of the emitter.
+     */
+    protected static void loadEmitterMaxWaitingTimes(InterruptingObserver interruptingObserver) {
+        Configuration config = GerbilConfiguration.getInstance();
+        Iterator<?> keys = config.getKeys(MAXIMUM_TIME_TO_WAIT_KEY);
+        String key;
+        while (keys.hasNext()) {
+            key = (String) keys.next();
+            if (key.length() > MAXIMUM_TIME_TO_WAIT_KEY.length()) {
+                try {
+                    interruptingObserver.setMaxWaitingTime(key.substring(MAXIMUM_TIME_TO_WAIT_KEY.length() + 1),
+                            config.getLong(key));
+                } catch (Exception e) {
+                    LOGGER.warn("Couldn't load maximum time to wait from configuration key \"" + key
+                            + "\". Ignoring it.", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the connection manager of the default client. The maximum
+     * number of connections of single hosts can be defined with a key that
+     * consists of the {@link #MAXIMUM_CONNECTIONS_PER_ROUTE_KEY}, a dot and
+     * the name of the host. These limits are used for the HTTP and HTTPS
+     * routes to the default ports of the host.
+     */
+    protected static PoolingHttpClientConnectionManager createConnectionManager() {
+        Configuration config = GerbilConfiguration.getInstance();
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        int maxConnections = DEFAULT_MAXIMUM_CONNECTIONS;
+        try {
+            maxConnections = config.getInt(MAXIMUM_CONNECTIONS_KEY);
+        } catch (Exception e) {
+            LOGGER.warn("Couldn't load maximum number of connections from configuration. Using default "
+                    + DEFAULT_MAXIMUM_CONNECTIONS + ".", e);
+        }
+        connectionManager.setMaxTotal(maxConnections);
+        int maxConnectionsPerRoute = DEFAULT_MAXIMUM_CONNECTIONS_PER_ROUTE;
+        try {
+            maxConnectionsPerRoute = config.getInt(MAXIMUM_CONNECTIONS_PER_ROUTE_KEY);
+        } catch (Exception e) {
+            LOGGER.warn("Couldn't load maximum number of connections per route from configuration. Using default "
+                    + DEFAULT_MAXIMUM_CONNECTIONS_PER_ROUTE + ".", e);
+        }
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        Iterator<?> keys = config.getKeys(MAXIMUM_CONNECTIONS_PER_ROUTE_KEY);
+        String key;
+        while (keys.hasNext()) {
+            key = (String) keys.next();
+            if (key.length() > MAXIMUM_CONNECTIONS_PER_ROUTE_KEY.length()) {
+                try {
+                    maxConnectionsPerRoute = config.getInt(key);
+                    for (HttpRoute route : getRoutes(key.substring(MAXIMUM_CONNECTIONS_PER_ROUTE_KEY.length() + 1))) {
+                        connectionManager.setMaxPerRoute(route, maxConnectionsPerRoute);
+                    }
+                } catch (Exception e) {
+                    LOGGER.warn("Couldn't load maximum number of connections from configuration key \"" + key
+                            + "\". Ignoring it.", e);
+                }
+            }
+        }
+        int validateAfterInactivity = DEFAULT_VALIDATE_AFTER_INACTIVITY;
+        try {
+            validateAfterInactivity = config.getInt(VALIDATE_AFTER_INACTIVITY_KEY);
+        } catch (Exception e) {
+            LOGGER.warn("Couldn't load inactivity time after which connections are validated from configuration. Using default "
+                    + DEFAULT_VALIDATE_AFTER_INACTIVITY + "ms.", e);
+        }
+        connectionManager.setValidateAfterInactivity(validateAfterInactivity);
+        return connectionManager;
+    }
+
+    protected static long loadKeepAliveTime() {
+        long keepAliveTime = DEFAULT_KEEP_ALIVE_TIME;
+        try {
+            keepAliveTime = GerbilConfiguration.getInstance().getLong(KEEP_ALIVE_TIME_KEY);
+        } catch (Exception e) {
+            LOGGER.warn("Couldn't load keep alive time from configuration. Using default " + DEFAULT_KEEP_ALIVE_TIME
+                    + "ms.", e);
+        }
+        return keepAliveTime;
+    }
+
+    /**
+     * Returns the HTTP and HTTPS routes to the default ports of the given
+     * host.
+     */
+    protected static HttpRoute[] getRoutes(String host) {
+        return new HttpRoute[] { new HttpRoute(new HttpHost(host, 80, "http")),
+                new HttpRoute(new HttpHost(host, 443, "https"), null, true) };
+    }
+
+    /**
+     * Creates the {@link HttpRequestGovernor} for the emitter with the given
+     * name. Every limit can be defined for single emitters, e.g., annotators,
+     * with a key that consists of the general key, a dot and the name of the
+     * emitter. The requests of emitters without any limit are not limited.
+     */
+    protected static HttpRequestGovernor createRequestGovernor(String emitterName) {
+        Configuration config = GerbilConfiguration.getInstance();
+        int maxConcurrentRequests = 0;
+        String key = getEmitterSpecificKey(config, MAXIMUM_CONCURRENT_REQUESTS_KEY, emitterName);
+        if (key != null) {
+            try {
+                maxConcurrentRequests = config.getInt(key);
+            } catch (Exception e) {
+                LOGGER.warn("Couldn't load maximum number of concurrent requests from configuration key \"" + key
+                        + "\". The number won't be limited.", e);
+            }
+        }
+        double maxRequestsPerSecond = 0;
+        key = getEmitterSpecificKey(config, MAXIMUM_REQUESTS_PER_SECOND_KEY, emitterName);
+        if (key != null) {
+            try {
+                maxRequestsPerSecond = config.getDouble(key);
+            } catch (Exception e) {
+                LOGGER.warn("Couldn't load maximum number of requests per second from configuration key \"" + key
+                        + "\". The number won't be limited.", e);
+            }
+        }
+        long initialBackoffTime = DEFAULT_INITIAL_BACKOFF_TIME;
+        key = getEmitterSpecificKey(config, INITIAL_BACKOFF_TIME_KEY, emitterName);
+        if (key != null) {
+            try {
+                initialBackoffTime = config.getLong(key);
+            } catch (Exception e) {
+                LOGGER.warn("Couldn't load initial backoff time from configuration key \"" + key
+                        + "\". Using default " + DEFAULT_INITIAL_BACKOFF_TIME + "ms.", e);
+            }
+        }
+        long maxBackoffTime = DEFAULT_MAXIMUM_BACKOFF_TIME;
+        key = getEmitterSpecificKey(config, MAXIMUM_BACKOFF_TIME_KEY, emitterName);
+        if (key != null) {
+            try {
+                maxBackoffTime = config.getLong(key);
+            } catch (Exception e) {
+                LOGGER.warn("Couldn't load maximum backoff time from configuration key \"" + key
+                        + "\". Using default " + DEFAULT_MAXIMUM_BACKOFF_TIME + "ms.", e);
+            }
+        }
+        return new HttpRequestGovernor(emitterName, maxConcurrentRequests, maxRequestsPerSecond, initialBackoffTime,
+                maxBackoffTime);
+    }
+
+    /**
+     * Returns the emitter specific version of the given key if it is defined,
+     * the given key if only this general key is defined or null if none of
+     * them is defined.
+     */
+    private static String getEmitterSpecificKey(Configuration config, String key, String emitterName) {
+        String emitterKey = key + "." + emitterName;
+        if (config.containsKey(emitterKey)) {
+            return emitterKey;
+        } else if (config.containsKey(key)) {
+            return key;
+        } else {
+            return null;
+        }
+    }
+
     protected InterruptingObserver interruptingObserver;
+    protected ConcurrentHashMap<String, HttpRequestGovernor> requestGovernors = new ConcurrentHashMap<String, HttpRequestGovernor>();
+    protected PoolingHttpClientConnectionManager connectionManager;
     protected CloseableHttpClient client;
+    protected MetricsRegistry metricsRegistry;
 
     protected HttpManagement(InterruptingObserver interruptingObserver) {
+        this(interruptingObserver, new PoolingHttpClientConnectionManager(), DEFAULT_KEEP_ALIVE_TIME);
+    }
+
+    protected HttpManagement(InterruptingObserver interruptingObserver,
+            PoolingHttpClientConnectionManager connectionManager, long keepAliveTime) {
         this.interruptingObserver = interruptingObserver;
-        this.client = HttpClientBuilder.create().setConnectionManager(new PoolingHttpClientConnectionManager()).build();
+        this.connectionManager = connectionManager;
+        this.client = HttpClientBuilder.create().setConnectionManager(connectionManager)
+                .setKeepAliveStrategy(new DefaultKeepAliveStrategy(keepAliveTime)).build();
+    }
+
+    /**
+     * Registers gauges for the running requests and the connection pool of
+     * the default client at the given registry. The gauges of the request
+     * governors are registered as soon as the governors are created.
+     */
+    protected void registerMetrics(MetricsRegistry registry) {
+        this.metricsRegistry = registry;
+        registry.register(new Gauge("gerbil_http_requests_in_flight", "Number of running HTTP requests.") {
+            @Override
+            public double getValue() {
+                return interruptingObserver.getNumberOfRunningRequests();
+            }
+        });
+        registry.register(new Gauge("gerbil_http_pool_leased_connections",
+                "Number of connections of the default client that are in use.") {
+            @Override
+            public double getValue() {
+                return getPoolStats().getLeased();
+            }
+        });
+        registry.register(new Gauge("gerbil_http_pool_pending_connections",
+                "Number of requests that are waiting for a connection of the default client.") {
+            @Override
+            public double getValue() {
+                return getPoolStats().getPending();
+            }
+        });
+        registry.register(new Gauge("gerbil_http_pool_available_connections",
+                "Number of idle connections of the default client.") {
+            @Override
+            public double getValue() {
+                return getPoolStats().getAvailable();
+            }
+        });
+    }
+
+    protected void registerMetrics(final HttpRequestGovernor governor) {
+        if (metricsRegistry == null) {
+            return;
+        }
+        String labels = MetricsRegistry.label("emitter", governor.getName());
+        metricsRegistry.register(new Gauge("gerbil_http_governor_requests_in_flight", labels,
+                "Number of requests in flight per annotator or other HTTP based service.") {
+            @Override
+            public double getValue() {
+                return governor.getRequestsInFlight();
+            }
+        });
+        metricsRegistry.register(new Gauge("gerbil_http_governor_backoff_millis", labels,
+                "Current backoff time per annotator or other HTTP based service.") {
+            @Override
+            public double getValue() {
+                return governor.getBackoffTime();
+            }
+        });
     }
 
     public void reportStart(HttpRequestEmitter emitter, HttpUriRequest request) {
@@ -81,15 +345,104 @@ public class HttpManagement {
         interruptingObserver.reportEnd(emitter, request);
     }
 
+    /**
+     * Restarts the deadline of the given request, e.g., after the request had
+     * to wait for the permission of its {@link HttpRequestGovernor}.
+     */
+    public void resetDeadline(HttpRequestEmitter emitter, HttpUriRequest request) {
+        interruptingObserver.resetDeadline(emitter, request);
+    }
+
     public void setMaxWaitingTime(long maxWaitingTime) {
         interruptingObserver.setMaxWaitingTime(maxWaitingTime);
     }
 
+    /**
+     * Sets the maximum waiting time for requests of the emitter, e.g., the
+     * annotator, with the given name.
+     */
+    public void setMaxWaitingTime(String emitterName, long maxWaitingTime) {
+        interruptingObserver.setMaxWaitingTime(emitterName, maxWaitingTime);
+    }
+
+    /**
+     * @deprecated The requests are interrupted as soon as their deadlines are
+     *             reached. Thus, the check interval has no effect.
+     */
+    @Deprecated
     public void setCheckInterval(long checkInterval) {
-        interruptingObserver.setCheckInterval(checkInterval);
+        // nothing to do
+    }
+
+    /**
+     * Returns the {@link HttpRequestGovernor} that governs all requests of the
+     * emitters, e.g., the annotators, with the given name.
+     */
+    public HttpRequestGovernor getRequestGovernor(String emitterName) {
+        HttpRequestGovernor governor = requestGovernors.get(emitterName);
+        if (governor == null) {
+            governor = createRequestGovernor(emitterName);
+            HttpRequestGovernor existingGovernor = requestGovernors.putIfAbsent(emitterName, governor);
+            if (existingGovernor != null) {
+                governor = existingGovernor;
+            } else {
+                registerMetrics(governor);
+            }
+        }
+        return governor;
     }
 
     public CloseableHttpClient getDefaultClient() {
         return client;
     }
+
+    /**
+     * Returns the statistics of the connection pool of the default client,
+     * i.e., the numbers of leased, available and pending connections.
+     */
+    public PoolStats getPoolStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    /**
+     * Returns the statistics of the connections of the default client to the
+     * given host (summing up the HTTP and HTTPS routes to its default ports).
+     * A high number of pending connections shows that the requests to this
+     * host are waiting for the pool instead of the remote service.
+     */
+    public PoolStats getPoolStats(String host) {
+        int leased = 0, pending = 0, available = 0, max = 0;
+        PoolStats stats;
+        for (HttpRoute route : getRoutes(host)) {
+            stats = connectionManager.getStats(route);
+            leased += stats.getLeased();
+            pending += stats.getPending();
+            available += stats.getAvailable();
+            max += stats.getMax();
+        }
+        return new PoolStats(leased, pending, available, max);
+    }
+
+    /**
+     * Keep alive strategy that uses the keep alive time sent by the server
+     * and falls back to the given time if the server does not define it.
+     */
+    protected static class DefaultKeepAliveStrategy implements ConnectionKeepAliveStrategy {
+
+        private long keepAliveTime;
+
+        public DefaultKeepAliveStrategy(long keepAliveTime) {
+            this.keepAliveTime = keepAliveTime;
+        }
+
+        @Override
+        public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+            long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            if (duration > 0) {
+                return duration;
+            } else {
+                return keepAliveTime;
+            }
+        }
+    }
 }
@@ -0,0 +1,187 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.http;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.RateLimiter;
+
+/**
+ * Governs the requests that are sent to a single annotator (or other HTTP
+ * based service) by all threads of this process. Before a request is sent,
+ * {@link #acquire()} has to be called, after the response has been consumed
+ * and closed, {@link #release(int, long)} has to be called. The governor
+ * <ul>
+ * <li>limits the number of requests that are in flight at the same time,</li>
+ * <li>limits the number of requests per second using a token bucket and</li>
+ * <li>delays all requests for a backoff time if the service answered with
+ * 429 (Too Many Requests) or 503 (Service Unavailable). The backoff time is
+ * doubled with every further rejection and halved with every successful
+ * request.</li>
+ * </ul>
+ * 
+ * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
+ *
+ */
+public class HttpRequestGovernor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpRequestGovernor.class);
+
+    public static final int TOO_MANY_REQUESTS_STATUS_CODE = 429;
+    public static final int SERVICE_UNAVAILABLE_STATUS_CODE = 503;
+
+    private String name;
+    /**
+     * Permits for requests in flight or null if the number is not limited.
+     */
+    private Semaphore inFlightPermits;
+    /**
+     * Token bucket of the requests per second or null if the rate is not
+     * limited.
+     */
+    private RateLimiter rateLimiter;
+    private long initialBackoffTime;
+    private long maxBackoffTime;
+    private long backoffTime = 0;
+    private volatile long backoffEnd = 0;
+    private final AtomicInteger requestsInFlight = new AtomicInteger();
+
+    /**
+     * Constructor.
+     * 
+     * @param name
+     *            the name of the governed service (used for logging)
+     * @param maxConcurrentRequests
+     *            the maximum number of requests in flight or a value &lt;= 0
+     *            if the number is not limited
+     * @param maxRequestsPerSecond
+     *            the maximum number of requests per second or a value &lt;= 0
+     *            if the rate is not limited
+     * @param initialBackoffTime
+     *            the backoff time after the first rejection (in ms)
+     * @param maxBackoffTime
+     *            the maximum backoff time (in ms)
+     */
+    public HttpRequestGovernor(String name, int maxConcurrentRequests, double maxRequestsPerSecond,
+            long initialBackoffTime, long maxBackoffTime) {
+        this.name = name;
+        if (maxConcurrentRequests > 0) {
+            inFlightPermits = new Semaphore(maxConcurrentRequests, true);
+        }
+        if (maxRequestsPerSecond > 0) {
+            rateLimiter = RateLimiter.create(maxRequestsPerSecond);
+        }
+        this.initialBackoffTime = initialBackoffTime;
+        this.maxBackoffTime = maxBackoffTime;
+    }
+
+    /**
+     * Blocks until a request can be sent to the governed service.
+     * 
+     * @throws InterruptedException
+     *             if the thread is interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        long waitingTime = backoffEnd - System.currentTimeMillis();
+        while (waitingTime > 0) {
+            Thread.sleep(waitingTime);
+            // the backoff might have been extended in the meantime
+            waitingTime = backoffEnd - System.currentTimeMillis();
+        }
+        if (inFlightPermits != null) {
+            inFlightPermits.acquire();
+        }
+        if (rateLimiter != null) {
+            rateLimiter.acquire();
+        }
+        requestsInFlight.incrementAndGet();
+    }
+
+    /**
+     * Releases a request that has been sent after calling {@link #acquire()}
+     * and adapts the backoff time based on the status code of the response.
+     * 
+     * @param statusCode
+     *            the status code of the response or a value &lt;= 0 if no
+     *            response has been received
+     * @param retryAfter
+     *            the time (in ms) the service asked to wait before sending
+     *            the next request or a value &lt;= 0 if it is not known
+     */
+    public void release(int statusCode, long retryAfter) {
+        requestsInFlight.decrementAndGet();
+        if (inFlightPermits != null) {
+            inFlightPermits.release();
+        }
+        if ((statusCode == TOO_MANY_REQUESTS_STATUS_CODE) || (statusCode == SERVICE_UNAVAILABLE_STATUS_CODE)) {
+            increaseBackoff(retryAfter);
+        } else if (statusCode > 0) {
+            decreaseBackoff();
+        }
+    }
+
+    protected synchronized void increaseBackoff(long retryAfter) {
+        if (backoffTime < initialBackoffTime) {
+            backoffTime = initialBackoffTime;
+        } else {
+            backoffTime = Math.min(2 * backoffTime, maxBackoffTime);
+        }
+        long time = Math.max(backoffTime, Math.min(retryAfter, maxBackoffTime));
+        backoffEnd = Math.max(backoffEnd, System.currentTimeMillis() + time);
+        LOGGER.warn("\"{}\" rejected a request. Delaying the next requests for {} ms.", name, time);
+    }
+
+    protected synchronized void decreaseBackoff() {
+        if (backoffTime > 0) {
+            backoffTime /= 2;
+            if (backoffTime < initialBackoffTime) {
+                backoffTime = 0;
+            }
+        }
+    }
+
+    public synchronized long getBackoffTime() {
+        return backoffTime;
+    }
+
+    /**
+     * Returns the number of requests that could additionally be in flight or
+     * {@link Integer#MAX_VALUE} if the number of requests is not limited.
+     */
+    public int getAvailablePermits() {
+        if (inFlightPermits != null) {
+            return inFlightPermits.availablePermits();
+        } else {
+            return Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * @return the number of requests that have been acquired but not released
+     */
+    public int getRequestsInFlight() {
+        return requestsInFlight.get();
+    }
+
+    public String getName() {
+        return name;
+    }
+}
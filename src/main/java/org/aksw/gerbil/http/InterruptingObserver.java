@@ -16,99 +16,235 @@
  */
 package org.aksw.gerbil.http;
 
-import java.util.concurrent.Semaphore;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.aksw.gerbil.metrics.Counter;
+import org.aksw.gerbil.metrics.MetricsRegistry;
+import org.aksw.gerbil.metrics.Timer;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.carrotsearch.hppc.ObjectLongOpenHashMap;
-
+/**
+ * Observes running HTTP requests and interrupts them if they exceed their
+ * deadline. Every request gets its deadline when it is started, i.e., the
+ * start time plus the maximum waiting time of its emitter (see
+ * {@link #setMaxWaitingTime(String, long)}) or the default maximum waiting
+ * time. The deadlines are kept in a hashed timing wheel, i.e., a ring of
+ * {@value #WHEEL_SIZE} buckets of which every bucket covers
+ * {@value #TICK_DURATION} ms. The observing thread checks only the bucket of
+ * the tick that just passed. Thus, a request is interrupted at most one tick
+ * after its deadline. Deadlines that are more than one round of the wheel
+ * ahead simply stay in their bucket until they are reached.
+ * 
+ * <p>
+ * The buckets are concurrent sets. Hence, starting and ending a request adds
+ * it to or removes it from its bucket in constant time without acquiring a
+ * global lock.
+ * </p>
+ * 
+ * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
+ *
+ */
 public class InterruptingObserver implements Runnable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(InterruptingObserver.class);
 
-    private long maxWaitingTime;
-    private long checkInterval;
-    private final ObjectLongOpenHashMap<ObservedHttpRequest> observedRequests = new ObjectLongOpenHashMap<ObservedHttpRequest>();
-    private final Semaphore observedMappingMutex = new Semaphore(1);
+    private static final Counter STARTED_REQUESTS = MetricsRegistry.getInstance()
+            .getCounter("gerbil_http_requests_total", "Number of HTTP requests that have been started.");
+    private static final Counter INTERRUPTED_REQUESTS = MetricsRegistry.getInstance().getCounter(
+            "gerbil_http_requests_interrupted_total", "Number of HTTP requests that exceeded their deadline.");
+    private static final Timer REQUEST_DURATION = MetricsRegistry.getInstance().getTimer(
+            "gerbil_http_request_duration_millis", "Duration of HTTP requests until they ended or got interrupted.");
 
-    public InterruptingObserver(long maxWaitingTime, long checkInterval) {
+    /**
+     * Duration of a single tick of the timing wheel in milliseconds.
+     */
+    public static final long TICK_DURATION = 10;
+    /**
+     * Number of buckets of the timing wheel. Has to be a power of 2.
+     */
+    public static final int WHEEL_SIZE = 512;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    private volatile long maxWaitingTime;
+    private final ConcurrentHashMap<String, Long> emitterMaxWaitingTimes = new ConcurrentHashMap<String, Long>();
+    private final ConcurrentHashMap<ObservedHttpRequest, ObservedHttpRequest> observedRequests = new ConcurrentHashMap<ObservedHttpRequest, ObservedHttpRequest>();
+    private final Set<ObservedHttpRequest> wheel[];
+    /**
+     * The next tick whose bucket has to be checked. The buckets of all earlier
+     * ticks have been checked already or are checked at the moment. Before the
+     * first check, all buckets are checked.
+     */
+    private volatile long nextTick = Long.MIN_VALUE;
+
+    @SuppressWarnings("unchecked")
+    public InterruptingObserver(long maxWaitingTime) {
         this.maxWaitingTime = maxWaitingTime;
-        this.checkInterval = checkInterval;
+        wheel = new Set[WHEEL_SIZE];
+        for (int i = 0; i < wheel.length; ++i) {
+            wheel[i] = Collections.newSetFromMap(new ConcurrentHashMap<ObservedHttpRequest, Boolean>());
+        }
+    }
+
+    /**
+     * @deprecated The requests are interrupted as soon as their deadlines are
+     *             reached. Thus, the check interval is not needed anymore.
+     *             Please use {@link #InterruptingObserver(long)}.
+     */
+    @Deprecated
+    public InterruptingObserver(long maxWaitingTime, long checkInterval) {
+        this(maxWaitingTime);
     }
 
     @Override
     public void run() {
         while (true) {
-            checkAnnotators();
             try {
-                Thread.sleep(checkInterval);
+                Thread.sleep(TICK_DURATION);
             } catch (InterruptedException e) {
-                LOGGER.error("Interrupted while sleeping.");
+                LOGGER.error("Interrupted while waiting for the next tick.");
+                continue;
             }
+            checkDeadlines(currentTimeMillis());
         }
     }
 
-    private void checkAnnotators() {
-        try {
-            observedMappingMutex.acquire();
-        } catch (InterruptedException e) {
-            LOGGER.error("Interrupted while waiting for mutex. Aborting.");
-        }
-
-        long waitingTime;
-        long currentTime = System.currentTimeMillis();
-        ObservedHttpRequest observedRequest;
-        for (int i = 0; i < observedRequests.allocated.length; ++i) {
-            if (observedRequests.allocated[i]) {
-                waitingTime = currentTime - observedRequests.values[i];
-                if (waitingTime > maxWaitingTime) {
-                    observedRequest = ((ObservedHttpRequest) ((Object[]) observedRequests.keys)[i]);
-                    LOGGER.info("The HTTP request emitter \"{}\" already runs for {} ms. Trying to interrupt it.",
-                            observedRequest.emitter.getName(), waitingTime);
-                    try {
-                        observedRequest.emitter.interrupt(observedRequest.request);
-                    } catch (UnsupportedOperationException e) {
-                        LOGGER.error("Couldn't interrupt request of HTTP request emitter \""
-                                + observedRequest.emitter.getName() + "\" that is already running for " + waitingTime
-                                + " ms.");
+    /**
+     * Interrupts all requests whose deadlines are in a tick that has passed
+     * before the given time.
+     */
+    protected void checkDeadlines(long now) {
+        long currentTick = now / TICK_DURATION;
+        long tick = Math.max(nextTick, currentTick - WHEEL_SIZE);
+        while (tick < currentTick) {
+            // announce the check of the bucket before reading it. A request
+            // that is added to this bucket concurrently is either seen by
+            // the iteration or sees the new value and moves to a later bucket
+            nextTick = tick + 1;
+            for (ObservedHttpRequest observedRequest : wheel[(int) (tick & WHEEL_MASK)]) {
+                // deadlines of later rounds stay in the bucket
+                if (observedRequest.deadline <= now) {
+                    wheel[(int) (tick & WHEEL_MASK)].remove(observedRequest);
+                    // make sure that the request has not been finished in the
+                    // meantime
+                    if (observedRequest.finish()) {
+                        observedRequests.remove(observedRequest, observedRequest);
+                        interrupt(observedRequest, now);
                     }
                 }
             }
+            ++tick;
         }
-        observedMappingMutex.release();
     }
 
-    public void reportStart(HttpRequestEmitter emitter, HttpUriRequest request) {
-        ObservedHttpRequest observedRequest = new ObservedHttpRequest(request, emitter);
+    /**
+     * Adds the given request to the bucket of the tick of its deadline. If
+     * this bucket has been checked already or is checked at the moment (e.g.,
+     * because the deadline has passed), the request is added to the bucket of
+     * the next tick that has not been checked yet. Thus, it is interrupted at
+     * the next check instead of one round of the wheel later.
+     */
+    private void schedule(ObservedHttpRequest observedRequest) {
+        long tick = Math.max(observedRequest.deadline / TICK_DURATION, nextTick);
+        observedRequest.tick = tick;
+        wheel[(int) (tick & WHEEL_MASK)].add(observedRequest);
+        // if the observing thread started to check the bucket in the
+        // meantime, the request has to be moved to a bucket that has not been
+        // checked
+        long next = nextTick;
+        while (tick < next) {
+            wheel[(int) (tick & WHEEL_MASK)].remove(observedRequest);
+            tick = next;
+            observedRequest.tick = tick;
+            wheel[(int) (tick & WHEEL_MASK)].add(observedRequest);
+            next = nextTick;
+        }
+    }
+
+    /**
+     * @return the current time in milliseconds. Can be overridden to control
+     *         the clock of the observer.
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private void interrupt(ObservedHttpRequest observedRequest, long now) {
+        long waitingTime = now - observedRequest.startTime;
+        INTERRUPTED_REQUESTS.increment();
+        REQUEST_DURATION.record(waitingTime);
+        LOGGER.info("The HTTP request emitter \"{}\" already runs for {} ms. Trying to interrupt it.",
+                observedRequest.emitter.getName(), waitingTime);
         try {
-            observedMappingMutex.acquire();
-        } catch (InterruptedException e) {
-            LOGGER.error("Interrupted while waiting for mutex. Aborting.");
+            observedRequest.emitter.interrupt(observedRequest.request);
+        } catch (UnsupportedOperationException e) {
+            LOGGER.error("Couldn't interrupt request of HTTP request emitter \"" + observedRequest.emitter.getName()
+                    + "\" that is already running for " + waitingTime + " ms.");
         }
-        if (observedRequests.containsKey(observedRequest)) {
+    }
+
+    public void reportStart(HttpRequestEmitter emitter, HttpUriRequest request) {
+        long startTime = currentTimeMillis();
+        ObservedHttpRequest observedRequest = new ObservedHttpRequest(request, emitter, startTime,
+                startTime + getMaxWaitingTime(emitter.getName()));
+        ObservedHttpRequest oldRequest = observedRequests.put(observedRequest, observedRequest);
+        if (oldRequest != null) {
             LOGGER.error("There already is an observed request equal to this new one (" + observedRequest.toString()
                     + "). Note that this is a fatal error and the old request will be overwritten.");
+            oldRequest.finish();
+            wheel[(int) (oldRequest.tick & WHEEL_MASK)].remove(oldRequest);
         }
-        observedRequests.put(observedRequest, System.currentTimeMillis());
-        observedMappingMutex.release();
+        schedule(observedRequest);
+        STARTED_REQUESTS.increment();
     }
 
     public void reportEnd(HttpRequestEmitter emitter, HttpUriRequest request) {
-        ObservedHttpRequest observedRequest = new ObservedHttpRequest(request, emitter);
-        try {
-            observedMappingMutex.acquire();
-        } catch (InterruptedException e) {
-            LOGGER.error("Interrupted while waiting for mutex. Aborting.");
-        }
-        if (observedRequests.containsKey(observedRequest)) {
-            observedRequests.remove(observedRequest);
+        ObservedHttpRequest observedRequest = observedRequests.remove(new ObservedHttpRequest(request, emitter));
+        if (observedRequest != null) {
+            observedRequest.finish();
+            wheel[(int) (observedRequest.tick & WHEEL_MASK)].remove(observedRequest);
+            REQUEST_DURATION.record(currentTimeMillis() - observedRequest.startTime);
         } else {
-            LOGGER.error("Tried to remove an observed request that is not existing (" + observedRequest.toString()
-                    + "). This is a fatal error.");
+            // the request might have been interrupted before
+            LOGGER.debug("Tried to remove an observed request that is not existing (request={}, emitter={}).",
+                    request, emitter);
+        }
+    }
+
+    /**
+     * Restarts the deadline of the given request at the current time. Nothing
+     * happens if the request is not observed (anymore).
+     */
+    public void resetDeadline(HttpRequestEmitter emitter, HttpUriRequest request) {
+        ObservedHttpRequest observedRequest = observedRequests.get(new ObservedHttpRequest(request, emitter));
+        if ((observedRequest == null) || observedRequest.isFinished()) {
+            return;
+        }
+        wheel[(int) (observedRequest.tick & WHEEL_MASK)].remove(observedRequest);
+        observedRequest.startTime = currentTimeMillis();
+        observedRequest.deadline = observedRequest.startTime + getMaxWaitingTime(emitter.getName());
+        schedule(observedRequest);
+    }
+
+    /**
+     * @return the number of observed requests that are currently running
+     */
+    public int getNumberOfRunningRequests() {
+        return observedRequests.size();
+    }
+
+    /**
+     * @return the number of deadlines in the timing wheel
+     */
+    protected int getNumberOfScheduledDeadlines() {
+        int count = 0;
+        for (int i = 0; i < wheel.length; ++i) {
+            count += wheel[i].size();
         }
-        observedMappingMutex.release();
+        return count;
     }
 
     public long getMaxWaitingTime() {
@@ -119,11 +255,45 @@ public class InterruptingObserver implements Runnable {
         this.maxWaitingTime = maxWaitingTime;
     }
 
+    /**
+     * Returns the maximum waiting time for requests of the emitter with the
+     * given name. If there is no special waiting time defined for this
+     * emitter, the default maximum waiting time is returned.
+     */
+    public long getMaxWaitingTime(String emitterName) {
+        if (emitterName != null) {
+            Long emitterMaxWaitingTime = emitterMaxWaitingTimes.get(emitterName);
+            if (emitterMaxWaitingTime != null) {
+                return emitterMaxWaitingTime;
+            }
+        }
+        return maxWaitingTime;
+    }
+
+    /**
+     * Sets the maximum waiting time for requests of the emitter with the
+     * given name. Note that this does not change the deadlines of requests
+     * that are already running.
+     */
+    public void setMaxWaitingTime(String emitterName, long maxWaitingTime) {
+        emitterMaxWaitingTimes.put(emitterName, maxWaitingTime);
+    }
+
+    /**
+     * @deprecated The requests are interrupted as soon as their deadlines are
+     *             reached. Thus, there is no check interval anymore.
+     */
+    @Deprecated
     public long getCheckInterval() {
-        return checkInterval;
+        return 0;
     }
 
+    /**
+     * @deprecated The requests are interrupted as soon as their deadlines are
+     *             reached. Thus, the check interval has no effect.
+     */
+    @Deprecated
     public void setCheckInterval(long checkInterval) {
-        this.checkInterval = checkInterval;
+        // nothing to do
     }
 }
@@ -16,18 +16,55 @@
  */
 package org.aksw.gerbil.http;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.apache.http.client.methods.HttpUriRequest;
 
+/**
+ * An HTTP request that is observed by the {@link InterruptingObserver}. Note
+ * that {@link #equals(Object)} and {@link #hashCode()} are based on the
+ * request and the emitter only.
+ */
 public class ObservedHttpRequest {
 
     public HttpUriRequest request;
     public HttpRequestEmitter emitter;
+    public volatile long startTime;
+    public volatile long deadline;
+    /**
+     * The tick of the {@link InterruptingObserver} in which the deadline of
+     * this request is checked.
+     */
+    volatile long tick;
+    private final AtomicBoolean finished = new AtomicBoolean(false);
 
     public ObservedHttpRequest(HttpUriRequest request, HttpRequestEmitter emitter) {
         this.request = request;
         this.emitter = emitter;
     }
 
+    public ObservedHttpRequest(HttpUriRequest request, HttpRequestEmitter emitter, long startTime, long deadline) {
+        this.request = request;
+        this.emitter = emitter;
+        this.startTime = startTime;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Marks the request as finished. Only the first call of this method
+     * returns true, i.e., either the end of the request or its interruption
+     * is handled, but never both.
+     * 
+     * @return true if the request has not been finished before
+     */
+    public boolean finish() {
+        return finished.compareAndSet(false, true);
+    }
+
+    public boolean isFinished() {
+        return finished.get();
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
@@ -16,8 +16,11 @@
  */
 package org.aksw.gerbil.matching;
 
+import java.util.List;
+
 import org.aksw.gerbil.matching.impl.StrongSpanMatchingsCounter;
 import org.aksw.gerbil.matching.impl.WeakSpanMatchingsCounter;
+import org.aksw.gerbil.transfer.nif.Marking;
 import org.aksw.gerbil.transfer.nif.Span;
 
 public class MatchingsSearcherFactory {
@@ -36,4 +39,20 @@ public class MatchingsSearcherFactory {
         }
         }
     }
+
+    /**
+     * Returns the searcher that should be used for the expected markings of a
+     * single document with the given annotator results. If the given searcher
+     * is a {@link PreparableMatchingsSearcher}, it prepares the annotator
+     * results. Otherwise, the given searcher is returned.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Marking> MatchingsSearcher<T> prepareSearcher(MatchingsSearcher<T> searcher,
+            List<T> annotatorResult) {
+        if (searcher instanceof PreparableMatchingsSearcher) {
+            return ((PreparableMatchingsSearcher<T>) searcher).prepare(annotatorResult);
+        } else {
+            return searcher;
+        }
+    }
 }
@@ -0,0 +1,49 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.matching;
+
+import java.util.List;
+
+import org.aksw.gerbil.transfer.nif.Marking;
+
+/**
+ * A {@link MatchingsSearcher} that can prepare the annotator results of a
+ * single document before it is searched, e.g., by creating an index of the
+ * results. A matchings counter should use
+ * {@link MatchingsSearcherFactory#prepareSearcher(MatchingsSearcher, List)} to
+ * get the searcher for the expected markings of a document. Since the prepared
+ * searcher belongs to the counting of a single document, there is no state
+ * that is kept between the evaluations of different documents.
+ * 
+ * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
+ *
+ * @param <T>
+ *            the type of the searched markings
+ */
+public interface PreparableMatchingsSearcher<T extends Marking> extends MatchingsSearcher<T> {
+
+    /**
+     * Creates a searcher for the given annotator results of a single
+     * document. The returned searcher must only be called with the given list
+     * and the list must not be changed while the searcher is used.
+     * 
+     * @param annotatorResult
+     *            the markings of the annotator for the document
+     * @return a searcher for the given annotator results
+     */
+    public MatchingsSearcher<T> prepare(List<T> annotatorResult);
+}
@@ -0,0 +1,79 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.matching.impl;
+
+import java.util.List;
+
+import org.aksw.gerbil.matching.MatchingsSearcher;
+import org.aksw.gerbil.matching.PreparableMatchingsSearcher;
+import org.aksw.gerbil.transfer.nif.Span;
+
+import com.carrotsearch.hppc.BitSet;
+
+/**
+ * Abstract class of a {@link MatchingsSearcher} that searches for matching
+ * spans using a {@link SortedSpanIndex}. Since the searcher is called for every
+ * expected element of a document with the same annotator result list, the
+ * matchings counters prepare the searcher for every document (see
+ * {@link #prepare(List)}). The prepared searcher creates the index of the list
+ * only once and is discarded together with the index after the document has
+ * been counted. Thus, several documents can be evaluated in parallel using
+ * the same searcher.
+ * 
+ * <p>
+ * Note that the annotator result list must not be changed while the prepared
+ * searcher is used. If the searcher is called without preparing it, the index
+ * is created for every single call.
+ * </p>
+ * 
+ * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
+ *
+ * @param <T>
+ *            the {@link Span} class or one of its extensions
+ */
+public abstract class AbstractSpanMatchingsSearcher<T extends Span> implements PreparableMatchingsSearcher<T> {
+
+    @Override
+    public BitSet findMatchings(T expectedElement, List<T> annotatorResult, BitSet alreadyUsedResults) {
+        return findMatchings(expectedElement, new SortedSpanIndex(annotatorResult), alreadyUsedResults);
+    }
+
+    @Override
+    public MatchingsSearcher<T> prepare(List<T> annotatorResult) {
+        final SortedSpanIndex index = new SortedSpanIndex(annotatorResult);
+        return new MatchingsSearcher<T>() {
+            @Override
+            public BitSet findMatchings(T expectedElement, List<T> annotatorResult, BitSet alreadyUsedResults) {
+                return AbstractSpanMatchingsSearcher.this.findMatchings(expectedElement, index, alreadyUsedResults);
+            }
+        };
+    }
+
+    /**
+     * Searches the given index of the annotator results for results matching
+     * the given expected element.
+     * 
+     * @param expectedElement
+     *            the expected span
+     * @param index
+     *            the index of the annotator results
+     * @param alreadyUsedResults
+     *            ids of annotator results that shouldn't be returned
+     * @return the ids of the matching annotator results
+     */
+    protected abstract BitSet findMatchings(T expectedElement, SortedSpanIndex index, BitSet alreadyUsedResults);
+}
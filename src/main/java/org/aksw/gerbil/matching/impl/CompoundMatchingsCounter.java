@@ -19,11 +19,13 @@ package org.aksw.gerbil.matching.impl;
 import java.util.List;
 
 import org.aksw.gerbil.matching.MatchingsSearcher;
+import org.aksw.gerbil.matching.MatchingsSearcherFactory;
+import org.aksw.gerbil.matching.PreparableMatchingsSearcher;
 import org.aksw.gerbil.transfer.nif.Marking;
 
 import com.carrotsearch.hppc.BitSet;
 
-public class CompoundMatchingsCounter<T extends Marking> implements MatchingsSearcher<T> {
+public class CompoundMatchingsCounter<T extends Marking> implements PreparableMatchingsSearcher<T> {
 
     public MatchingsSearcher<T> matchingsCounter[];
 
@@ -41,4 +43,14 @@ public class CompoundMatchingsCounter<T extends Marking> implements MatchingsSea
         }
         return matchings;
     }
+
+    @Override
+    public MatchingsSearcher<T> prepare(List<T> annotatorResult) {
+        @SuppressWarnings("unchecked")
+        MatchingsSearcher<T> preparedSearchers[] = new MatchingsSearcher[matchingsCounter.length];
+        for (int i = 0; i < matchingsCounter.length; i++) {
+            preparedSearchers[i] = MatchingsSearcherFactory.prepareSearcher(matchingsCounter[i], annotatorResult);
+        }
+        return new CompoundMatchingsCounter<T>(preparedSearchers);
+    }
 }
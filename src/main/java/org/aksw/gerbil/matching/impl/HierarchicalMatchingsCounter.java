@@ -23,6 +23,7 @@ import java.util.Set;
 
 import org.aksw.gerbil.matching.EvaluationCounts;
 import org.aksw.gerbil.matching.MatchingsSearcher;
+import org.aksw.gerbil.matching.MatchingsSearcherFactory;
 import org.aksw.gerbil.semantic.kb.UriKBClassifier;
 import org.aksw.gerbil.semantic.subclass.ClassNode;
 import org.aksw.gerbil.semantic.subclass.ClassSet;
@@ -72,8 +73,10 @@ public class HierarchicalMatchingsCounter<T extends TypedMarking> {
         ClassifyingClassNodeFactory annotatorClassesFactory = new ClassifyingClassNodeFactory(
                 ANNOTATOR_CLASSES_CLASS_ID);
         Set<String> types;
+        MatchingsSearcher<T> documentSearcher = MatchingsSearcherFactory.prepareSearcher(matchingsSearcher,
+                annotatorResult);
         for (T expectedElement : goldStandard) {
-            matchingElements = matchingsSearcher.findMatchings(expectedElement, annotatorResult, alreadyUsedResults);
+            matchingElements = documentSearcher.findMatchings(expectedElement, annotatorResult, alreadyUsedResults);
             if (!matchingElements.isEmpty()) {
                 // We use the first matching as solution for the typing task
                 matchedResultId = matchingElements.nextSetBit(0);
@@ -21,6 +21,7 @@ import java.util.List;
 import org.aksw.gerbil.matching.EvaluationCounts;
 import org.aksw.gerbil.matching.MatchingsCounter;
 import org.aksw.gerbil.matching.MatchingsSearcher;
+import org.aksw.gerbil.matching.MatchingsSearcherFactory;
 import org.aksw.gerbil.transfer.nif.Marking;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,11 +40,29 @@ public class MatchingsCounterImpl<T extends Marking> implements MatchingsCounter
 
     @Override
     public EvaluationCounts countMatchings(List<T> annotatorResult, List<T> goldStandard) {
+        return countMatchings(annotatorResult, goldStandard, new BitSet(annotatorResult.size()));
+    }
+
+    /**
+     * Counts the matchings like {@link #countMatchings(List, List)} and sets
+     * the positions of the annotator results that have been matched to a
+     * marking of the gold standard in the given (empty) bit set.
+     * 
+     * @param annotatorResult
+     *            the markings of the annotator for the document
+     * @param goldStandard
+     *            the expected markings of the document
+     * @param alreadyUsedResults
+     *            the bit set in which the matched annotator results are
+     *            marked
+     * @return the counts of the document
+     */
+    public EvaluationCounts countMatchings(List<T> annotatorResult, List<T> goldStandard, BitSet alreadyUsedResults) {
         EvaluationCounts documentCounts = new EvaluationCounts();
         BitSet matchingElements;
-        BitSet alreadyUsedResults = new BitSet(annotatorResult.size());
+        MatchingsSearcher<T> documentSearcher = MatchingsSearcherFactory.prepareSearcher(searcher, annotatorResult);
         for (T expectedElement : goldStandard) {
-            matchingElements = searcher.findMatchings(expectedElement, annotatorResult, alreadyUsedResults);
+            matchingElements = documentSearcher.findMatchings(expectedElement, annotatorResult, alreadyUsedResults);
             if (!matchingElements.isEmpty()) {
                 ++documentCounts.truePositives;
                 alreadyUsedResults.set(matchingElements.nextSetBit(0));
@@ -59,4 +78,23 @@ public class MatchingsCounterImpl<T extends Marking> implements MatchingsCounter
         return documentCounts;
     }
 
+    /**
+     * Updates the counts of a document after an annotator result that has not
+     * been matched has been removed from the annotator results. Every expected
+     * marking is matched to the first annotator result that has not been used
+     * before. The {@link MatchingsSearcher} decides for every single pair of
+     * expected marking and annotator result whether they match. Thus, removing
+     * a result that hasn't been matched does not change the other matchings
+     * and the result only has to be removed from the false positives.
+     * 
+     * @param documentCounts
+     *            the counts of the document that have been created by this
+     *            counter
+     * @param annotatorResult
+     *            the removed annotator result
+     */
+    public void removeUnmatchedResult(EvaluationCounts documentCounts, T annotatorResult) {
+        --documentCounts.falsePositives;
+    }
+
 }
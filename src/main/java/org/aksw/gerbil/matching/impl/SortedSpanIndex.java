@@ -0,0 +1,199 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.matching.impl;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.aksw.gerbil.transfer.nif.Span;
+
+import com.carrotsearch.hppc.BitSet;
+
+/**
+ * An index of the spans of a single annotator result. The spans are sorted by
+ * their start positions and are augmented with the maximum end position of
+ * their implicit sub trees. This enables the search for exactly matching spans
+ * and overlapping spans in logarithmic time (plus the number of found spans)
+ * instead of scanning the complete list of spans for every expected span.
+ * 
+ * <p>
+ * Note that the ids returned by the search methods are the positions of the
+ * spans inside the indexed list.
+ * </p>
+ * 
+ * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
+ *
+ */
+public class SortedSpanIndex {
+
+    private int size;
+    /**
+     * Ids of the spans sorted by their start positions.
+     */
+    private int ids[];
+    private int starts[];
+    private int ends[];
+    private int lengths[];
+    /**
+     * The maximum end position of the implicit sub tree that has the element
+     * with the same position as root.
+     */
+    private int maxEnds[];
+
+    public SortedSpanIndex(final List<? extends Span> spans) {
+        size = spans.size();
+        Integer sortedIds[] = new Integer[size];
+        for (int i = 0; i < size; ++i) {
+            sortedIds[i] = i;
+        }
+        final int unsortedStarts[] = new int[size];
+        final int unsortedLengths[] = new int[size];
+        Span span;
+        for (int i = 0; i < size; ++i) {
+            span = spans.get(i);
+            unsortedStarts[i] = span.getStartPosition();
+            unsortedLengths[i] = span.getLength();
+        }
+        Arrays.sort(sortedIds, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer id1, Integer id2) {
+                int diff = Integer.compare(unsortedStarts[id1], unsortedStarts[id2]);
+                if (diff == 0) {
+                    diff = Integer.compare(unsortedLengths[id1], unsortedLengths[id2]);
+                    if (diff == 0) {
+                        diff = Integer.compare(id1, id2);
+                    }
+                }
+                return diff;
+            }
+        });
+        ids = new int[size];
+        starts = new int[size];
+        ends = new int[size];
+        lengths = new int[size];
+        for (int i = 0; i < size; ++i) {
+            ids[i] = sortedIds[i];
+            starts[i] = unsortedStarts[ids[i]];
+            lengths[i] = unsortedLengths[ids[i]];
+            ends[i] = starts[i] + lengths[i];
+        }
+        maxEnds = new int[size];
+        createMaxEnds(0, size);
+    }
+
+    private int createMaxEnds(int from, int to) {
+        if (from >= to) {
+            return Integer.MIN_VALUE;
+        }
+        int mid = (from + to) >>> 1;
+        int maxEnd = Math.max(ends[mid], Math.max(createMaxEnds(from, mid), createMaxEnds(mid + 1, to)));
+        maxEnds[mid] = maxEnd;
+        return maxEnd;
+    }
+
+    /**
+     * Sets the ids of all spans that have the given start position and length
+     * and are not already used.
+     * 
+     * @param start
+     *            the start position of the expected span
+     * @param length
+     *            the length of the expected span
+     * @param alreadyUsed
+     *            ids of spans that shouldn't be returned
+     * @param matching
+     *            the set to which the ids of the found spans are added
+     */
+    public void searchExactMatches(int start, int length, BitSet alreadyUsed, BitSet matching) {
+        int pos = lowerBound(start, length);
+        while ((pos < size) && (starts[pos] == start) && (lengths[pos] == length)) {
+            if (!alreadyUsed.get(ids[pos])) {
+                matching.set(ids[pos]);
+            }
+            ++pos;
+        }
+    }
+
+    /**
+     * Sets the ids of all spans that are overlapping with the given span and
+     * are not already used. A span is overlapping if it starts inside the
+     * given span or if it starts before the given span and ends after the
+     * start of the given span.
+     * 
+     * @param start
+     *            the start position of the expected span
+     * @param end
+     *            the end position of the expected span
+     * @param alreadyUsed
+     *            ids of spans that shouldn't be returned
+     * @param matching
+     *            the set to which the ids of the found spans are added
+     */
+    public void searchOverlaps(int start, int end, BitSet alreadyUsed, BitSet matching) {
+        int startsInside = lowerBound(start, Integer.MIN_VALUE);
+        // spans starting before the given span have to end after its start
+        searchEndingAfter(0, size, startsInside, start, alreadyUsed, matching);
+        // spans starting inside the given span are always overlapping
+        for (int pos = startsInside; (pos < size) && (starts[pos] < end); ++pos) {
+            if (!alreadyUsed.get(ids[pos])) {
+                matching.set(ids[pos]);
+            }
+        }
+    }
+
+    /**
+     * Searches the implicit sub tree covering the sorted positions [from, to)
+     * for spans that end after the given position. Only spans with a sorted
+     * position lower than the given limit are taken into account. Note that
+     * the sub trees have to be the same that have been used to create the
+     * {@link #maxEnds} array.
+     */
+    private void searchEndingAfter(int from, int to, int limit, int position, BitSet alreadyUsed,
+            BitSet matching) {
+        if ((from >= to) || (from >= limit)) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        // if there is no span in this sub tree that ends after the position
+        if (maxEnds[mid] <= position) {
+            return;
+        }
+        searchEndingAfter(from, mid, limit, position, alreadyUsed, matching);
+        if ((mid < limit) && (ends[mid] > position) && (!alreadyUsed.get(ids[mid]))) {
+            matching.set(ids[mid]);
+        }
+        searchEndingAfter(mid + 1, to, limit, position, alreadyUsed, matching);
+    }
+
+    /**
+     * Returns the first position in the sorted arrays that has a start (and
+     * length) larger or equal to the given values.
+     */
+    private int lowerBound(int start, int length) {
+        int from = 0, to = size, mid;
+        while (from < to) {
+            mid = (from + to) >>> 1;
+            if ((starts[mid] < start) || ((starts[mid] == start) && (lengths[mid] < length))) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+}
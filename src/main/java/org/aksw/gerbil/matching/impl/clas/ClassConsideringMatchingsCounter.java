@@ -21,6 +21,7 @@ import java.util.List;
 import org.aksw.gerbil.matching.ClassifiedEvaluationCounts;
 import org.aksw.gerbil.matching.EvaluationCounts;
 import org.aksw.gerbil.matching.MatchingsSearcher;
+import org.aksw.gerbil.matching.MatchingsSearcherFactory;
 import org.aksw.gerbil.matching.impl.MatchingsCounterImpl;
 import org.aksw.gerbil.transfer.nif.Marking;
 import org.slf4j.Logger;
@@ -40,13 +41,13 @@ public class ClassConsideringMatchingsCounter<T extends Marking> extends Matchin
     }
 
     @Override
-    public EvaluationCounts countMatchings(List<T> annotatorResult, List<T> goldStandard) {
+    public EvaluationCounts countMatchings(List<T> annotatorResult, List<T> goldStandard, BitSet alreadyUsedResults) {
         ClassifiedEvaluationCounts documentCounts = new ClassifiedEvaluationCounts(classifier.getNumberOfClasses());
         BitSet matchingElements;
-        BitSet alreadyUsedResults = new BitSet(annotatorResult.size());
         int classId;
+        MatchingsSearcher<T> documentSearcher = MatchingsSearcherFactory.prepareSearcher(searcher, annotatorResult);
         for (T expectedElement : goldStandard) {
-            matchingElements = searcher.findMatchings(expectedElement, annotatorResult, alreadyUsedResults);
+            matchingElements = documentSearcher.findMatchings(expectedElement, annotatorResult, alreadyUsedResults);
             classId = classifier.getClass(expectedElement);
             if (!matchingElements.isEmpty()) {
                 ++documentCounts.truePositives;
@@ -71,4 +72,11 @@ public class ClassConsideringMatchingsCounter<T extends Marking> extends Matchin
         return documentCounts;
     }
 
+    @Override
+    public void removeUnmatchedResult(EvaluationCounts documentCounts, T annotatorResult) {
+        super.removeUnmatchedResult(documentCounts, annotatorResult);
+        int classId = classifier.getClass(annotatorResult);
+        --((ClassifiedEvaluationCounts) documentCounts).classifiedCounts[classId].falsePositives;
+    }
+
 }
@@ -0,0 +1,81 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.metrics;
+
+/**
+ * Counts the requests and misses of a cache and registers a {@link Gauge} for
+ * its hit ratio. The metrics of all caches of the same kind share their names
+ * and are distinguished by the <code>cache</code> label.
+ * 
+ * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
+ *
+ */
+public class CacheMetrics {
+
+    private final Counter requests;
+    private final Counter misses;
+
+    /**
+     * Constructor.
+     * 
+     * @param registry
+     *            the registry the metrics are added to
+     * @param namePrefix
+     *            the prefix of the metric names, e.g.,
+     *            <code>gerbil_sameas_cache</code>
+     * @param cacheName
+     *            the value of the <code>cache</code> label
+     */
+    public CacheMetrics(MetricsRegistry registry, String namePrefix, String cacheName) {
+        String labels = MetricsRegistry.label("cache", cacheName);
+        requests = registry.getCounter(namePrefix + "_requests_total", labels, "Number of requests of the cache.");
+        misses = registry.getCounter(namePrefix + "_misses_total", labels,
+                "Number of requests that couldn't be answered by the cache.");
+        registry.register(new Gauge(namePrefix + "_hit_ratio", labels,
+                "Ratio of requests that have been answered by the cache.") {
+            @Override
+            public double getValue() {
+                return getHitRatio();
+            }
+        });
+    }
+
+    /**
+     * Counts a request of the cache. Note that a miss has to be counted
+     * additionally using {@link #countMiss()}.
+     */
+    public void countRequest() {
+        requests.increment();
+    }
+
+    public void countMiss() {
+        misses.increment();
+    }
+
+    /**
+     * @return the ratio of requests that have been answered by the cache or 0
+     *         if there haven't been any requests
+     */
+    public double getHitRatio() {
+        long requestCount = requests.getCount();
+        if (requestCount > 0) {
+            return (requestCount - misses.getCount()) / (double) requestCount;
+        } else {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.metrics;
+
+import java.util.Map;
+
+/**
+ * A value that is read at the moment the metrics are requested, e.g., the
+ * number of queued tasks. Implementations have to make sure that
+ * {@link #getValue()} is cheap and does not block for a long time.
+ * 
+ * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
+ *
+ */
+public abstract class Gauge extends Metric {
+
+    public Gauge(String name, String help) {
+        this(name, null, help);
+    }
+
+    public Gauge(String name, String labels, String help) {
+        super(name, labels, help);
+    }
+
+    public abstract double getValue();
+
+    @Override
+    public String getType() {
+        return "gauge";
+    }
+
+    @Override
+    public void addValues(Map<String, Double> values) {
+        values.put(getKey(), getValue());
+    }
+
+    @Override
+    public void appendSamples(StringBuilder builder) {
+        appendSample(builder, name, labels, getValue());
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.metrics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanException;
+import javax.management.MBeanInfo;
+import javax.management.ReflectionException;
+
+/**
+ * Exposes the values of a {@link MetricsRegistry} as read-only attributes of
+ * a JMX MBean. The attributes are created dynamically, i.e., metrics that are
+ * registered later on are visible as soon as the MBean info is requested
+ * again. Since the keys of the metrics contain the labels in the Prometheus
+ * format, they are transformed into valid attribute names (see
+ * {@link #toAttributeName(String)}).
+ * 
+ * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
+ *
+ */
+public class JmxMetricsExporter implements DynamicMBean {
+
+    private MetricsRegistry registry;
+
+    public JmxMetricsExporter(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException, MBeanException,
+            ReflectionException {
+        Double value = getAttributeValues().get(attribute);
+        if (value == null) {
+            throw new AttributeNotFoundException("There is no metric with the name \"" + attribute + "\".");
+        }
+        return value;
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        Map<String, Double> values = getAttributeValues();
+        AttributeList list = new AttributeList();
+        for (int i = 0; i < attributes.length; ++i) {
+            if (values.containsKey(attributes[i])) {
+                list.add(new Attribute(attributes[i], values.get(attributes[i])));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("The metrics are read-only.");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        // the metrics are read-only
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws MBeanException,
+            ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName), "The metrics do not offer operations.");
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+        for (String key : registry.getValues().keySet()) {
+            // the original key is used as description
+            attributes.add(new MBeanAttributeInfo(toAttributeName(key), Double.class.getName(), key, true, false,
+                    false));
+        }
+        return new MBeanInfo(getClass().getName(), "Metrics of the GERBIL execution engine.",
+                attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null, null, null);
+    }
+
+    /**
+     * @return the current values of the metrics mapped to their attribute
+     *         names
+     */
+    protected Map<String, Double> getAttributeValues() {
+        Map<String, Double> values = registry.getValues();
+        Map<String, Double> attributeValues = new HashMap<String, Double>(2 * values.size());
+        for (Entry<String, Double> entry : values.entrySet()) {
+            attributeValues.put(toAttributeName(entry.getKey()), entry.getValue());
+        }
+        return attributeValues;
+    }
+
+    /**
+     * Transforms the given key of a metric into a valid attribute name by
+     * replacing every sequence of characters that are neither letters, digits
+     * nor underscores with a single underscore, e.g.,
+     * <code>requests_total{host="a"}</code> becomes
+     * <code>requests_total_host_a</code>.
+     */
+    public static String toAttributeName(String key) {
+        StringBuilder builder = new StringBuilder(key.length());
+        boolean replaced = false;
+        char c;
+        for (int i = 0; i < key.length(); ++i) {
+            c = key.charAt(i);
+            if (((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z')) || ((c >= '0') && (c <= '9')) || (c == '_')) {
+                builder.append(c);
+                replaced = false;
+            } else if (!replaced) {
+                builder.append('_');
+                replaced = true;
+            }
+        }
+        // remove a trailing underscore created by the end of the labels
+        if (replaced) {
+            builder.setLength(builder.length() - 1);
+        }
+        return builder.toString();
+    }
+}
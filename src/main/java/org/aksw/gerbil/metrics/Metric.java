@@ -0,0 +1,110 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.metrics;
+
+import java.util.Map;
+
+/**
+ * A single time series of the {@link MetricsRegistry}. A metric is identified
+ * by its name and its (optional) labels. Several metrics can share the same
+ * name if they have different labels, e.g., the number of requests per
+ * annotator.
+ * 
+ * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
+ *
+ */
+public abstract class Metric {
+
+    protected final String name;
+    protected final String labels;
+    protected final String help;
+
+    /**
+     * Constructor.
+     * 
+     * @param name
+     *            the name of the metric, e.g.,
+     *            <code>gerbil_http_requests_total</code>
+     * @param labels
+     *            the labels of the metric in the Prometheus format (see
+     *            {@link MetricsRegistry#label(String, String)}) or null
+     * @param help
+     *            a short description of the metric
+     */
+    public Metric(String name, String labels, String help) {
+        this.name = name;
+        this.labels = labels;
+        this.help = help;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getLabels() {
+        return labels;
+    }
+
+    public String getHelp() {
+        return help;
+    }
+
+    /**
+     * @return the name and the labels that identify this metric
+     */
+    public String getKey() {
+        return createKey(name, labels);
+    }
+
+    /**
+     * @return the Prometheus type of this metric
+     */
+    public abstract String getType();
+
+    /**
+     * Adds the current values of this metric to the given map using the keys
+     * created by {@link #createKey(String, String)}.
+     */
+    public abstract void addValues(Map<String, Double> values);
+
+    /**
+     * Appends the samples of this metric in the Prometheus text format to the
+     * given builder.
+     */
+    public abstract void appendSamples(StringBuilder builder);
+
+    protected static String createKey(String name, String labels) {
+        if (labels == null) {
+            return name;
+        } else {
+            return name + '{' + labels + '}';
+        }
+    }
+
+    protected static void appendSample(StringBuilder builder, String name, String labels, double value) {
+        builder.append(createKey(name, labels));
+        builder.append(' ');
+        if (Double.isNaN(value)) {
+            builder.append("NaN");
+        } else if ((value == Math.rint(value)) && !Double.isInfinite(value) && (Math.abs(value) < 1E15)) {
+            builder.append((long) value);
+        } else {
+            builder.append(value);
+        }
+        builder.append('\n');
+    }
+}
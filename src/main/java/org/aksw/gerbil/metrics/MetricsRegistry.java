@@ -0,0 +1,227 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of all metrics of this process. The single components of the
+ * execution engine get their {@link Counter}s and {@link Timer}s from this
+ * registry (typically once as static fields) and register {@link Gauge}s for
+ * values that can be read on demand. The metrics can be exported in the
+ * Prometheus text format ({@link #toPrometheusText()}), as a flat map of
+ * values ({@link #getValues()}) and are available as the JMX MBean
+ * {@value #JMX_OBJECT_NAME}.
+ * 
+ * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
+ *
+ */
+public class MetricsRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetricsRegistry.class);
+
+    public static final String JMX_OBJECT_NAME = "org.aksw.gerbil:type=Metrics";
+
+    private static MetricsRegistry instance;
+
+    public synchronized static MetricsRegistry getInstance() {
+        if (instance == null) {
+            instance = new MetricsRegistry();
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new JmxMetricsExporter(instance),
+                        new ObjectName(JMX_OBJECT_NAME));
+            } catch (Exception e) {
+                LOGGER.warn("Couldn't register the metrics as JMX MBean. They won't be available via JMX.", e);
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Creates a label in the Prometheus format, i.e., <code>key="value"</code>
+     * with an escaped value. Several labels can be concatenated using a comma.
+     */
+    public static String label(String key, String value) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(key);
+        builder.append("=\"");
+        char c;
+        for (int i = 0; i < value.length(); ++i) {
+            c = value.charAt(i);
+            switch (c) {
+            case '\\':
+                builder.append("\\\\");
+                break;
+            case '"':
+                builder.append("\\\"");
+                break;
+            case '\n':
+                builder.append("\\n");
+                break;
+            default:
+                builder.append(c);
+            }
+        }
+        builder.append('"');
+        return builder.toString();
+    }
+
+    private static final Comparator<Metric> METRIC_COMPARATOR = new Comparator<Metric>() {
+        @Override
+        public int compare(Metric m1, Metric m2) {
+            int diff = m1.getName().compareTo(m2.getName());
+            if (diff == 0) {
+                String labels1 = (m1.getLabels() == null) ? "" : m1.getLabels();
+                String labels2 = (m2.getLabels() == null) ? "" : m2.getLabels();
+                diff = labels1.compareTo(labels2);
+            }
+            return diff;
+        }
+    };
+
+    private ConcurrentHashMap<String, Metric> metrics = new ConcurrentHashMap<String, Metric>();
+
+    protected MetricsRegistry() {
+    }
+
+    public Counter getCounter(String name, String help) {
+        return getCounter(name, null, help);
+    }
+
+    /**
+     * Returns the counter with the given name and labels. If there is no such
+     * counter, it is created.
+     * 
+     * @throws IllegalArgumentException
+     *             if there already is a metric with the given name and labels
+     *             that is not a counter
+     */
+    public Counter getCounter(String name, String labels, String help) {
+        Metric metric = metrics.get(Metric.createKey(name, labels));
+        if (metric == null) {
+            metric = putIfAbsent(new Counter(name, labels, help));
+        }
+        if (metric instanceof Counter) {
+            return (Counter) metric;
+        } else {
+            throw new IllegalArgumentException("The metric \"" + metric.getKey() + "\" is not a counter.");
+        }
+    }
+
+    public Timer getTimer(String name, String help) {
+        return getTimer(name, null, help);
+    }
+
+    /**
+     * Returns the timer with the given name and labels. If there is no such
+     * timer, it is created.
+     * 
+     * @throws IllegalArgumentException
+     *             if there already is a metric with the given name and labels
+     *             that is not a timer
+     */
+    public Timer getTimer(String name, String labels, String help) {
+        Metric metric = metrics.get(Metric.createKey(name, labels));
+        if (metric == null) {
+            metric = putIfAbsent(new Timer(name, labels, help));
+        }
+        if (metric instanceof Timer) {
+            return (Timer) metric;
+        } else {
+            throw new IllegalArgumentException("The metric \"" + metric.getKey() + "\" is not a timer.");
+        }
+    }
+
+    /**
+     * Registers the given gauge. A metric with the same name and labels that
+     * has been registered before is replaced. Thus, a component that is
+     * created again replaces the gauges of its predecessor.
+     */
+    public void register(Gauge gauge) {
+        metrics.put(gauge.getKey(), gauge);
+    }
+
+    /**
+     * Removes the metric with the given name and labels.
+     */
+    public void remove(String name, String labels) {
+        metrics.remove(Metric.createKey(name, labels));
+    }
+
+    private Metric putIfAbsent(Metric metric) {
+        Metric existingMetric = metrics.putIfAbsent(metric.getKey(), metric);
+        return (existingMetric != null) ? existingMetric : metric;
+    }
+
+    /**
+     * @return all registered metrics sorted by their names and labels
+     */
+    public List<Metric> getMetrics() {
+        List<Metric> list = new ArrayList<Metric>(metrics.values());
+        Collections.sort(list, METRIC_COMPARATOR);
+        return list;
+    }
+
+    /**
+     * Returns the current values of all metrics. Timers are flattened into
+     * several values, e.g., <code>name_p99</code> and <code>name_count</code>.
+     */
+    public Map<String, Double> getValues() {
+        Map<String, Double> values = new TreeMap<String, Double>();
+        for (Metric metric : metrics.values()) {
+            metric.addValues(values);
+        }
+        return values;
+    }
+
+    /**
+     * Returns the current values of all metrics in the Prometheus text
+     * exposition format (version 0.0.4).
+     */
+    public String toPrometheusText() {
+        StringBuilder builder = new StringBuilder();
+        String lastName = null;
+        for (Metric metric : getMetrics()) {
+            if (!metric.getName().equals(lastName)) {
+                lastName = metric.getName();
+                builder.append("# HELP ");
+                builder.append(lastName);
+                builder.append(' ');
+                builder.append(metric.getHelp().replace("\\", "\\\\").replace("\n", "\\n"));
+                builder.append("\n# TYPE ");
+                builder.append(lastName);
+                builder.append(' ');
+                builder.append(metric.getType());
+                builder.append('\n');
+            }
+            metric.appendSamples(builder);
+        }
+        return builder.toString();
+    }
+}
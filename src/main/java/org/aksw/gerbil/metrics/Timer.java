@@ -0,0 +1,163 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.metrics;
+
+import java.util.Map;
+
+import org.aksw.gerbil.utils.LatencyHistogram;
+
+/**
+ * Measures the duration of operations, e.g., the latency of database queries.
+ * The number and the sum of all durations are counted since the start of the
+ * process. The quantiles are calculated over a sliding window (the durations
+ * recorded during the current and the previous window of
+ * {@link #DEFAULT_WINDOW_LENGTH} ms) to make regressions visible fast. The
+ * quantile 1 is the maximum duration inside this window. The metric is
+ * reported as Prometheus summary.
+ * 
+ * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
+ *
+ */
+public class Timer extends Metric {
+
+    public static final long DEFAULT_WINDOW_LENGTH = 300000;
+    private static final double QUANTILES[] = new double[] { 0.5, 0.9, 0.99, 1 };
+    private static final String QUANTILE_SUFFIXES[] = new String[] { "_p50", "_p90", "_p99", "_max" };
+
+    private long windowLength;
+    private long count = 0;
+    private long sum = 0;
+    private LatencyHistogram currentWindow = new LatencyHistogram();
+    private LatencyHistogram previousWindow = new LatencyHistogram();
+    private long currentWindowStart;
+    /**
+     * Buffer into which both windows are merged for calculating the
+     * quantiles. It is reused to avoid the allocation of a new histogram for
+     * every request of the quantiles.
+     */
+    private LatencyHistogram mergedWindows = new LatencyHistogram();
+
+    public Timer(String name, String labels, String help) {
+        this(name, labels, help, DEFAULT_WINDOW_LENGTH);
+    }
+
+    public Timer(String name, String labels, String help, long windowLength) {
+        super(name, labels, help);
+        this.windowLength = windowLength;
+        currentWindowStart = currentTime();
+    }
+
+    /**
+     * Records the duration of a single operation.
+     * 
+     * @param duration
+     *            the duration in milliseconds
+     */
+    public synchronized void record(long duration) {
+        rotateWindows();
+        ++count;
+        sum += duration;
+        currentWindow.record(duration);
+    }
+
+    /**
+     * Records the duration of an operation that has been started at the given
+     * point in time and ends now.
+     * 
+     * @param startTime
+     *            the start of the operation as returned by
+     *            {@link System#currentTimeMillis()}
+     */
+    public void recordSince(long startTime) {
+        record(System.currentTimeMillis() - startTime);
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized long getSum() {
+        return sum;
+    }
+
+    /**
+     * Returns the values at the quantiles 0.5, 0.9, 0.99 and 1 of the
+     * durations recorded during the current and the previous window.
+     */
+    public synchronized long[] getQuantiles() {
+        rotateWindows();
+        mergedWindows.reset();
+        mergedWindows.add(previousWindow);
+        mergedWindows.add(currentWindow);
+        long values[] = new long[QUANTILES.length];
+        for (int i = 0; i < values.length; ++i) {
+            values[i] = mergedWindows.getValueAtPercentile(QUANTILES[i] * 100);
+        }
+        return values;
+    }
+
+    /**
+     * Moves the current window to the previous window if it is older than
+     * the window length.
+     */
+    private void rotateWindows() {
+        long now = currentTime();
+        if ((now - currentWindowStart) >= windowLength) {
+            LatencyHistogram temp = previousWindow;
+            if ((now - currentWindowStart) >= (2 * windowLength)) {
+                // the current window is too old to be used
+                currentWindow.reset();
+            }
+            previousWindow = currentWindow;
+            temp.reset();
+            currentWindow = temp;
+            currentWindowStart = now;
+        }
+    }
+
+    protected long currentTime() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public String getType() {
+        return "summary";
+    }
+
+    @Override
+    public synchronized void addValues(Map<String, Double> values) {
+        long quantiles[] = getQuantiles();
+        for (int i = 0; i < quantiles.length; ++i) {
+            values.put(createKey(name + QUANTILE_SUFFIXES[i], labels), (double) quantiles[i]);
+        }
+        values.put(createKey(name + "_sum", labels), (double) sum);
+        values.put(createKey(name + "_count", labels), (double) count);
+    }
+
+    @Override
+    public synchronized void appendSamples(StringBuilder builder) {
+        long quantiles[] = getQuantiles();
+        String quantileLabels;
+        for (int i = 0; i < quantiles.length; ++i) {
+            quantileLabels = MetricsRegistry.label("quantile", Double.toString(QUANTILES[i]));
+            appendSample(builder, name, (labels == null) ? quantileLabels : (labels + ',' + quantileLabels),
+                    quantiles[i]);
+        }
+        appendSample(builder, name + "_sum", labels, sum);
+        appendSample(builder, name + "_count", labels, count);
+    }
+}
@@ -16,10 +16,14 @@
  */
 package org.aksw.gerbil.semantic.sameas;
 
-import java.util.HashSet;
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 
-public abstract class AbstractSameAsRetrieverDecorator implements SameAsRetrieverDecorator {
+import org.apache.commons.io.IOUtils;
+
+public abstract class AbstractSameAsRetrieverDecorator implements SameAsRetrieverDecorator, Closeable {
 
     protected SameAsRetriever decoratedRetriever;
 
@@ -32,16 +36,23 @@ public abstract class AbstractSameAsRetrieverDecorator implements SameAsRetrieve
         return decoratedRetriever;
     }
 
+    @Override
+    public Map<String, Set<String>> retrieveSameURIs(Collection<String> uris) {
+        return SameAsRetrieverUtils.retrieveSameURIsConcurrently(this, uris);
+    }
+
     @Override
     public void addSameURIs(Set<String> uris) {
-        Set<String> temp = new HashSet<String>();
-        Set<String> result;
-        for (String uri : uris) {
-            result = retrieveSameURIs(uri);
-            if (result != null) {
-                temp.addAll(retrieveSameURIs(uri));
-            }
+        SameAsRetrieverUtils.addSameURIs(this, uris);
+    }
+
+    /**
+     * Closes the decorated retriever if it is {@link Closeable}.
+     */
+    @Override
+    public void close() {
+        if (decoratedRetriever instanceof Closeable) {
+            IOUtils.closeQuietly((Closeable) decoratedRetriever);
         }
-        uris.addAll(temp);
     }
 }
@@ -16,7 +16,9 @@
  */
 package org.aksw.gerbil.semantic.sameas;
 
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -43,17 +45,14 @@ public class ErrorFixingSameAsRetriever implements SameAsRetriever {
         return uris;
     }
 
+    @Override
+    public Map<String, Set<String>> retrieveSameURIs(Collection<String> uris) {
+        return SameAsRetrieverUtils.retrieveSameURIs(this, uris);
+    }
+
     @Override
     public void addSameURIs(Set<String> uris) {
-        Set<String> temp = new HashSet<String>();
-        Set<String> result;
-        for (String uri : uris) {
-            result = retrieveSameURIs(uri);
-            if (result != null) {
-                temp.addAll(retrieveSameURIs(uri));
-            }
-        }
-        uris.addAll(temp);
+        SameAsRetrieverUtils.addSameURIs(this, uris);
     }
 
 }
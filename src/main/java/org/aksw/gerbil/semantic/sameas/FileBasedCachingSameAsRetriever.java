@@ -26,23 +26,54 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
+import org.aksw.gerbil.metrics.CacheMetrics;
+import org.aksw.gerbil.metrics.MetricsRegistry;
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.carrotsearch.hppc.IntArrayList;
-import com.carrotsearch.hppc.IntOpenHashSet;
 import com.carrotsearch.hppc.ObjectIntOpenHashMap;
 
+/**
+ * A caching decorator that keeps the cached sameAs sets in memory and writes
+ * them to a file.
+ * 
+ * <p>
+ * The cache is a {@link SameAsClusterStore}. A cache hit takes the read lock
+ * of the store while it copies the cluster of the URI, i.e., cache hits do
+ * not block each other. The merging of new sets into the cache and the
+ * storing of the cache file are serialized by a mutex of this retriever.
+ * Merging takes the write lock of the store, i.e., it blocks cache hits for
+ * the short time of a single union, while writing the cache file only takes
+ * the read lock. If several threads request the same uncached URI at the same
+ * time, only one of them requests the decorated retriever while the others
+ * wait for its result (single-flight).
+ * </p>
+ * 
+ * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
+ *
+ */
 public class FileBasedCachingSameAsRetriever extends AbstractSameAsRetrieverDecorator {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(FileBasedCachingSameAsRetriever.class);
 
-    private static final int MAX_CONCURRENT_READERS = 1000;
+    private static final CacheMetrics CACHE_METRICS = new CacheMetrics(MetricsRegistry.getInstance(),
+            SameAsRetrieverUtils.CACHE_METRICS_PREFIX, "file");
+
+    /**
+     * Set id of URIs without sameAs links inside the cache file.
+     */
+    protected static final int ENTITY_NOT_FOUND = SameAsClusterStore.ENTITY_NOT_FOUND_ID;
 
-    protected static final int ENTITY_NOT_FOUND = -1;
+    /**
+     * Marks URIs without sameAs links inside the cache.
+     */
+    protected static final Set<String> NULL_SENTINEL = SameAsClusterStore.ENTITY_NOT_FOUND;
 
     @SuppressWarnings("unchecked")
     public static FileBasedCachingSameAsRetriever create(SameAsRetriever decoratedRetriever,
@@ -67,37 +98,36 @@ public class FileBasedCachingSameAsRetriever extends AbstractSameAsRetrieverDeco
                 }
             }
         }
-        ObjectIntOpenHashMap<String> uriSetIdMapping;
-        List<Set<String>> sets;
+        SameAsClusterStore cache;
         // if the reading didn't worked, create new cache objects
         if (objects == null) {
             LOGGER.warn("Couldn't read cache from files. Creating new empty cache.");
-            uriSetIdMapping = new ObjectIntOpenHashMap<String>();
-            sets = new ArrayList<Set<String>>();
+            cache = new SameAsClusterStore();
         } else {
-            uriSetIdMapping = (ObjectIntOpenHashMap<String>) objects[0];
-            sets = (List<Set<String>>) objects[1];
+            cache = SameAsClusterStore.create((ObjectIntOpenHashMap<String>) objects[0],
+                    (List<Set<String>>) objects[1]);
         }
-        return new FileBasedCachingSameAsRetriever(decoratedRetriever, uriSetIdMapping, sets, requestEntitiesNotFound,
-                cacheFile, tempCacheFile);
+        return new FileBasedCachingSameAsRetriever(decoratedRetriever, cache, requestEntitiesNotFound, cacheFile,
+                tempCacheFile);
     }
 
-    protected ObjectIntOpenHashMap<String> uriSetIdMapping;
-    protected List<Set<String>> sets;
+    protected SameAsClusterStore cache;
+    /**
+     * Requests of the decorated retriever that are currently running.
+     */
+    private ConcurrentHashMap<String, FutureTask<Set<String>>> runningRequests = new ConcurrentHashMap<String, FutureTask<Set<String>>>();
+    private final Object cacheWriteMutex = new Object();
     private int cacheChanges = 0;
     private int forceStorageAfterChanges = 1000;
-    private Semaphore cacheReadMutex = new Semaphore(MAX_CONCURRENT_READERS);
-    private Semaphore cacheWriteMutex = new Semaphore(1);
     private boolean requestEntitiesNotFound;
     protected File cacheFile;
     protected File tempCacheFile;
 
     protected FileBasedCachingSameAsRetriever(SameAsRetriever decoratedRetriever,
-            ObjectIntOpenHashMap<String> uriSetIdMapping, List<Set<String>> sets, boolean requestEntitiesNotFound,
-            File cacheFile, File tempCacheFile) {
+            SameAsClusterStore cache, boolean requestEntitiesNotFound, File cacheFile,
+            File tempCacheFile) {
         super(decoratedRetriever);
-        this.uriSetIdMapping = uriSetIdMapping;
-        this.sets = sets;
+        this.cache = cache;
         this.requestEntitiesNotFound = requestEntitiesNotFound;
         this.cacheFile = cacheFile;
         this.tempCacheFile = tempCacheFile;
@@ -105,139 +135,97 @@ public class FileBasedCachingSameAsRetriever extends AbstractSameAsRetrieverDeco
 
     @Override
     public Set<String> retrieveSameURIs(String uri) {
-        // if the cache contains the uri, return the set or a set
-        // containing only the uri (use the read mutex!!!)
-        Set<String> result = null;
-        try {
-            cacheReadMutex.acquire();
-        } catch (InterruptedException e) {
-            LOGGER.error("Exception while waiting for read mutex. Returning null.", e);
-            return null;
-        }
-        boolean uriIsCached = uriSetIdMapping.containsKey(uri);
-        if (uriIsCached) {
-            int setId = uriSetIdMapping.get(uri);
-            if (setId != ENTITY_NOT_FOUND) {
-                result = sets.get(setId);
+        Set<String> result = cache.getCluster(uri);
+        CACHE_METRICS.countRequest();
+        if (isRequestNeeded(result)) {
+            CACHE_METRICS.countMiss();
+            FutureTask<Set<String>> request = new FutureTask<Set<String>>(new SameAsRequest(uri));
+            FutureTask<Set<String>> runningRequest = runningRequests.putIfAbsent(uri, request);
+            // if there is no other request for this URI, we have to run our
+            // own request
+            if (runningRequest == null) {
+                try {
+                    request.run();
+                } finally {
+                    runningRequests.remove(uri, request);
+                }
+                runningRequest = request;
             }
-        }
-        // If the URI is not in the cache, or it has been cached but the result
-        // is null and the request should be retried
-        if (!uriIsCached || (uriIsCached && (result == null) && requestEntitiesNotFound)) {
-            cacheReadMutex.release();
-            result = decoratedRetriever.retrieveSameURIs(uri);
             try {
-                cacheWriteMutex.acquire();
-                // now we need all others
-                cacheReadMutex.acquire(MAX_CONCURRENT_READERS);
+                result = runningRequest.get();
             } catch (InterruptedException e) {
-                LOGGER.error("Exception while waiting for read mutex. Returning null.", e);
+                LOGGER.error("Interrupted while waiting for the sameAs links of \"" + uri + "\". Returning null.", e);
+                // keep the interrupt flag for the caller
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException e) {
+                LOGGER.error("Exception while retrieving the sameAs links of \"" + uri + "\". Returning null.", e);
                 return null;
             }
-            // Check again that nobody already added the uri
-            if (uriSetIdMapping.containsKey(uri)) {
-                // use the cached result
-                int setId = uriSetIdMapping.get(uri);
-                if (setId != ENTITY_NOT_FOUND) {
-                    result = sets.get(setId);
-                } else {
-                    result = null;
-                }
-            } else {
-                if (result != null) {
-                    mergeSetIntoCache(result);
-                } else {
-                    uriSetIdMapping.put(uri, ENTITY_NOT_FOUND);
-                }
-                ++cacheChanges;
-                if ((forceStorageAfterChanges > 0) && (cacheChanges >= forceStorageAfterChanges)) {
-                    LOGGER.info("Storing the cache has been forced...");
-                    try {
-                        performCacheStorage();
-                    } catch (IOException e) {
-                        LOGGER.error("Exception while writing cache to file. Aborting.", e);
-                    }
-                }
-            }
-            // The last one will be released at the end
-            cacheReadMutex.release(MAX_CONCURRENT_READERS - 1);
-            cacheWriteMutex.release();
         }
-        cacheReadMutex.release();
-        return result;
+        return (result == NULL_SENTINEL) ? null : result;
     }
 
-    protected void mergeSetIntoCache(Set<String> result) {
-        // In most cases we shouldn't need this objects
-        IntOpenHashSet alreadyExistingSets = null;
-        int setId;
-        for (String uri : result) {
-            if (uriSetIdMapping.containsKey(uri)) {
-                setId = uriSetIdMapping.get(uri);
-                if (setId != ENTITY_NOT_FOUND) {
-                    if (alreadyExistingSets == null) {
-                        alreadyExistingSets = new IntOpenHashSet();
-                    }
-                    alreadyExistingSets.add(setId);
+    private boolean isRequestNeeded(Set<String> cachedResult) {
+        return (cachedResult == null) || ((cachedResult == NULL_SENTINEL) && requestEntitiesNotFound);
+    }
+
+    /**
+     * Adds the given result of the decorated retriever to the cache.
+     * 
+     * @return the result as it is stored inside the cache
+     */
+    protected Set<String> addToCache(String uri, Set<String> result) {
+        synchronized (cacheWriteMutex) {
+            Set<String> cachedResult = cache.getCluster(uri);
+            if (result == null) {
+                // if somebody already added the URI, use the cached result
+                if (cachedResult != null) {
+                    return cachedResult;
                 }
+                result = cache.addNotFound(uri);
+            } else {
+                // if the result does not contain new information, use the
+                // cached result
+                if ((cachedResult != null) && (cachedResult != NULL_SENTINEL) && cachedResult.containsAll(result)) {
+                    return cachedResult;
+                }
+                result = cache.addCluster(result);
             }
-        }
-        // if a joining is needed
-        if (alreadyExistingSets != null) {
-            for (int i = 0; i < alreadyExistingSets.allocated.length; i++) {
-                if (alreadyExistingSets.allocated[i] && (alreadyExistingSets.keys[i] != ENTITY_NOT_FOUND)) {
-                    result.addAll(sets.get(alreadyExistingSets.keys[i]));
-                    sets.set(alreadyExistingSets.keys[i], null);
+            ++cacheChanges;
+            if ((forceStorageAfterChanges > 0) && (cacheChanges >= forceStorageAfterChanges)) {
+                LOGGER.info("Storing the cache has been forced...");
+                try {
+                    performCacheStorage();
+                } catch (IOException e) {
+                    LOGGER.error("Exception while writing cache to file. Aborting.", e);
                 }
             }
         }
-        setId = sets.size();
-        sets.add(result);
-        for (String uri : result) {
-            uriSetIdMapping.put(uri, setId);
-        }
+        return result;
     }
 
     public void storeCache() {
-        try {
-            cacheWriteMutex.acquire();
-        } catch (InterruptedException e) {
-            LOGGER.error("Exception while waiting for write mutex for storing the cache. Aborting.", e);
-            return;
-        }
-        try {
-            performCacheStorage();
-        } catch (IOException e) {
-            LOGGER.error("Exception while writing cache to file. Aborting.", e);
+        synchronized (cacheWriteMutex) {
+            try {
+                performCacheStorage();
+            } catch (IOException e) {
+                LOGGER.error("Exception while writing cache to file. Aborting.", e);
+            }
         }
-        cacheWriteMutex.release();
     }
 
+    /**
+     * Writes the cache to the cache file. Has to be called while holding the
+     * {@link #cacheWriteMutex}.
+     */
     private void performCacheStorage() throws IOException {
-        checkSetMapping();
         FileOutputStream fout = null;
         ObjectOutputStream oout = null;
         try {
             fout = new FileOutputStream(tempCacheFile);
             oout = new ObjectOutputStream(fout);
-            // first, serialize the number of URIs
-            oout.writeInt(uriSetIdMapping.assigned);
-            // go over the mapping and serialize all existing pairs
-            for (int i = 0; i < uriSetIdMapping.allocated.length; ++i) {
-                if (uriSetIdMapping.allocated[i]) {
-                    oout.writeObject(((Object[]) uriSetIdMapping.keys)[i]);
-                    oout.writeInt(uriSetIdMapping.values[i]);
-                }
-            }
-            // write the number of sets
-            oout.writeInt(sets.size());
-            // write the single sets
-            for (Set<String> set : sets) {
-                oout.writeInt(set.size());
-                for (String uri : set) {
-                    oout.writeObject(uri);
-                }
-            }
+            cache.write(oout);
         } finally {
             IOUtils.closeQuietly(oout);
             IOUtils.closeQuietly(fout);
@@ -253,40 +241,6 @@ public class FileBasedCachingSameAsRetriever extends AbstractSameAsRetrieverDeco
         cacheChanges = 0;
     }
 
-    private void checkSetMapping() {
-        IntArrayList missingSets = null;
-        for (int i = 0; i < sets.size(); ++i) {
-            if (sets.get(i) == null) {
-                if (missingSets == null) {
-                    missingSets = new IntArrayList();
-                }
-                missingSets.add(i);
-            }
-        }
-        if (missingSets != null) {
-            LOGGER.info("The cache contains sets that have been merged. Renumbering the existing sets.");
-            // very simple approach: go through the missing sets starting with
-            // the highest id, remove the null from the list of sets and reduce
-            // the ids of all uris referencing a set with a higher id than the
-            // deleted one
-            int setId;
-            for (int i = (missingSets.elementsCount - 1); i >= 0; --i) {
-                setId = missingSets.buffer[i];
-                sets.remove(setId);
-                for (int j = 0; j < uriSetIdMapping.allocated.length; ++j) {
-                    if (uriSetIdMapping.allocated[j]) {
-                        if (uriSetIdMapping.values[j] == setId) {
-                            LOGGER.error("Found a uri pointing to a non existing set!");
-                        }
-                        if (uriSetIdMapping.values[j] > setId) {
-                            --uriSetIdMapping.values[j];
-                        }
-                    }
-                }
-            }
-        }
-    }
-
     public static Object[] readCacheFile(File cacheFile) {
         if (!cacheFile.exists() || cacheFile.isDirectory()) {
             return null;
@@ -325,4 +279,28 @@ public class FileBasedCachingSameAsRetriever extends AbstractSameAsRetrieverDeco
         }
         return null;
     }
+
+    /**
+     * Requests the sameAs links of a single URI from the decorated retriever
+     * and adds them to the cache.
+     */
+    protected class SameAsRequest implements Callable<Set<String>> {
+
+        private String uri;
+
+        public SameAsRequest(String uri) {
+            this.uri = uri;
+        }
+
+        @Override
+        public Set<String> call() throws Exception {
+            // another request for this URI might have been finished since the
+            // cache has been checked
+            Set<String> result = cache.getCluster(uri);
+            if (!isRequestNeeded(result)) {
+                return result;
+            }
+            return addToCache(uri, decoratedRetriever.retrieveSameURIs(uri));
+        }
+    }
 }
@@ -18,7 +18,12 @@ package org.aksw.gerbil.semantic.sameas;
 
 import java.io.IOException;
 import java.net.UnknownHostException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import org.aksw.gerbil.http.AbstractHttpRequestEmitter;
@@ -33,14 +38,12 @@ import org.apache.jena.atlas.web.ContentType;
 import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.RDFDataMgr;
 import org.apache.jena.riot.RDFLanguages;
+import org.apache.jena.riot.system.StreamRDFBase;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.hp.hpl.jena.rdf.model.Model;
-import com.hp.hpl.jena.rdf.model.ModelFactory;
-import com.hp.hpl.jena.rdf.model.NodeIterator;
-import com.hp.hpl.jena.rdf.model.ResIterator;
-import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
 import com.hp.hpl.jena.vocabulary.OWL;
 
 public class HTTPBasedSameAsRetriever extends AbstractHttpRequestEmitter implements SameAsRetriever {
@@ -54,9 +57,9 @@ public class HTTPBasedSameAsRetriever extends AbstractHttpRequestEmitter impleme
         if ((uri == null) || (uri.isEmpty())) {
             return null;
         }
-        Model model = null;
+        SameAsLinksCollector links = null;
         try {
-            model = requestModel(uri);
+            links = requestLinks(uri);
         } catch (org.apache.jena.atlas.web.HttpException e) {
             LOGGER.debug("HTTP Exception while requesting uri \"{}\". Returning null. Exception: {}", uri,
                     e.getMessage());
@@ -71,12 +74,12 @@ public class HTTPBasedSameAsRetriever extends AbstractHttpRequestEmitter impleme
             }
             return null;
         }
-        if (model == null) {
+        if (links == null) {
             return null;
         }
         Set<String> result = new HashSet<String>();
         result.add(uri);
-        findLinks(uri, result, model);
+        links.findLinks(uri, result);
         if (result.size() > 1) {
             return result;
         } else {
@@ -84,39 +87,25 @@ public class HTTPBasedSameAsRetriever extends AbstractHttpRequestEmitter impleme
         }
     }
 
-    protected void findLinks(String uri, Set<String> uris, Model model) {
-        Resource resource = model.getResource(uri);
-        String foundUri;
-        if (model.contains(resource, OWL.sameAs)) {
-            NodeIterator iterator = model.listObjectsOfProperty(resource, OWL.sameAs);
-            while (iterator.hasNext()) {
-                foundUri = iterator.next().asResource().getURI();
-                if (!uris.contains(foundUri)) {
-                    uris.add(foundUri);
-                    findLinks(foundUri, uris, model);
-                }
-            }
-        }
-        if (model.contains(null, OWL.sameAs, resource)) {
-            ResIterator iterator = model.listSubjectsWithProperty(OWL.sameAs, resource);
-            while (iterator.hasNext()) {
-                foundUri = iterator.next().getURI();
-                if (!uris.contains(foundUri)) {
-                    uris.add(foundUri);
-                    findLinks(foundUri, uris, model);
-                }
-            }
-        }
+    @Override
+    public Map<String, Set<String>> retrieveSameURIs(Collection<String> uris) {
+        return SameAsRetrieverUtils.retrieveSameURIsConcurrently(this, uris);
     }
 
-    protected Model requestModel(String uri) {
+    /**
+     * Requests the description of the given URI and returns the sameAs links
+     * it contains. The response is parsed as a stream and only the owl:sameAs
+     * triples are kept, i.e., the complete description is never materialized
+     * in memory.
+     */
+    protected SameAsLinksCollector requestLinks(String uri) {
         HttpGet request = createGetRequest(uri);
         request.addHeader(HttpHeaders.ACCEPT, REQUEST_ACCEPT_HEADER_VALUE);
         request.addHeader(HttpHeaders.ACCEPT_CHARSET, "UTF-8");
 
         HttpEntity entity = null;
         CloseableHttpResponse response = null;
-        Model model = null;
+        SameAsLinksCollector links = null;
         try {
 
             try {
@@ -156,10 +145,10 @@ public class HTTPBasedSameAsRetriever extends AbstractHttpRequestEmitter impleme
                         contentTypeHeader.getValue());
                 return null;
             }
-            // read response and parse NIF
+            // read response and collect the sameAs links
             try {
-                model = ModelFactory.createDefaultModel();
-                RDFDataMgr.read(model, entity.getContent(), language);
+                links = new SameAsLinksCollector();
+                RDFDataMgr.parse(links, entity.getContent(), language);
             } catch (Exception e) {
                 LOGGER.error("Couldn't parse the response for the URI \"" + uri + "\". Returning null", e);
             }
@@ -178,20 +167,65 @@ public class HTTPBasedSameAsRetriever extends AbstractHttpRequestEmitter impleme
             }
             closeRequest(request);
         }
-        return model;
+        return links;
     }
 
     @Override
     public void addSameURIs(Set<String> uris) {
-        Set<String> temp = new HashSet<String>();
-        Set<String> result;
-        for (String uri : uris) {
-            result = retrieveSameURIs(uri);
-            if (result != null) {
-                temp.addAll(retrieveSameURIs(uri));
+        SameAsRetrieverUtils.addSameURIs(this, uris);
+    }
+
+    /**
+     * A stream sink that keeps only the owl:sameAs triples between two URIs.
+     * The links are stored in both directions.
+     * 
+     * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
+     *
+     */
+    protected static class SameAsLinksCollector extends StreamRDFBase {
+
+        private static final Node SAME_AS = OWL.sameAs.asNode();
+
+        private Map<String, Set<String>> links = new HashMap<String, Set<String>>();
+
+        @Override
+        public void triple(Triple triple) {
+            if (SAME_AS.equals(triple.getPredicate()) && triple.getSubject().isURI() && triple.getObject().isURI()) {
+                String subject = triple.getSubject().getURI();
+                String object = triple.getObject().getURI();
+                addLink(subject, object);
+                addLink(object, subject);
+            }
+        }
+
+        private void addLink(String from, String to) {
+            Set<String> targets = links.get(from);
+            if (targets == null) {
+                targets = new HashSet<String>();
+                links.put(from, targets);
+            }
+            targets.add(to);
+        }
+
+        /**
+         * Adds all URIs that are directly or transitively linked to the given
+         * URI to the given set.
+         */
+        public void findLinks(String uri, Set<String> uris) {
+            Deque<String> queue = new ArrayDeque<String>();
+            queue.add(uri);
+            Set<String> targets;
+            while (!queue.isEmpty()) {
+                targets = links.get(queue.poll());
+                if (targets != null) {
+                    for (String target : targets) {
+                        if (uris.add(target)) {
+                            queue.add(target);
+                        }
+                    }
+                }
             }
         }
-        uris.addAll(temp);
     }
 
 }
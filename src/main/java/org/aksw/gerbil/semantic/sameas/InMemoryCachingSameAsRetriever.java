@@ -16,10 +16,14 @@
  */
 package org.aksw.gerbil.semantic.sameas;
 
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 
+import org.aksw.gerbil.metrics.CacheMetrics;
+import org.aksw.gerbil.metrics.MetricsRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,6 +36,9 @@ public class InMemoryCachingSameAsRetriever extends CacheLoader<String, Set<Stri
 
     private static final Logger LOGGER = LoggerFactory.getLogger(InMemoryCachingSameAsRetriever.class);
 
+    private static final CacheMetrics CACHE_METRICS = new CacheMetrics(MetricsRegistry.getInstance(),
+            SameAsRetrieverUtils.CACHE_METRICS_PREFIX, "memory");
+
     private static final int DEFAULT_CACHE_SIZE = 10000;
     private static final Set<String> NULL_SENTINEL = new HashSet<String>(0);
 
@@ -49,6 +56,7 @@ public class InMemoryCachingSameAsRetriever extends CacheLoader<String, Set<Stri
 
     @Override
     public Set<String> retrieveSameURIs(String uri) {
+        CACHE_METRICS.countRequest();
         try {
             Set<String> result = cache.get(uri);
             if(result == NULL_SENTINEL) {
@@ -62,6 +70,11 @@ public class InMemoryCachingSameAsRetriever extends CacheLoader<String, Set<Stri
         }
     }
 
+    @Override
+    public Map<String, Set<String>> retrieveSameURIs(Collection<String> uris) {
+        return SameAsRetrieverUtils.retrieveSameURIsConcurrently(this, uris);
+    }
+
     @Override
     public SameAsRetriever getDecorated() {
         return decoratedRetriever;
@@ -69,19 +82,12 @@ public class InMemoryCachingSameAsRetriever extends CacheLoader<String, Set<Stri
 
     @Override
     public void addSameURIs(Set<String> uris) {
-        Set<String> temp = new HashSet<String>();
-        Set<String> result;
-        for (String uri : uris) {
-            result = retrieveSameURIs(uri);
-            if (result != null) {
-                temp.addAll(retrieveSameURIs(uri));
-            }
-        }
-        uris.addAll(temp);
+        SameAsRetrieverUtils.addSameURIs(this, uris);
     }
 
     @Override
     public Set<String> load(String key) throws Exception {
+        CACHE_METRICS.countMiss();
         Set<String> result = decoratedRetriever.retrieveSameURIs(key);
         if (result == null) {
             return NULL_SENTINEL;
@@ -0,0 +1,187 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.semantic.sameas;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+import org.aksw.gerbil.metrics.CacheMetrics;
+import org.aksw.gerbil.metrics.MetricsRegistry;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.carrotsearch.hppc.ObjectIntOpenHashMap;
+
+/**
+ * A caching decorator that stores the retrieved sameAs links in a
+ * {@link MappedFileSameAsStore}. In contrast to the
+ * {@link FileBasedCachingSameAsRetriever}, the cache doesn't have to be loaded
+ * into the memory at startup and new entries are appended to the cache
+ * instead of rewriting the complete cache file.
+ * 
+ * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
+ *
+ */
+public class MappedFileCachingSameAsRetriever extends AbstractSameAsRetrieverDecorator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedFileCachingSameAsRetriever.class);
+
+    private static final CacheMetrics CACHE_METRICS = new CacheMetrics(MetricsRegistry.getInstance(),
+            SameAsRetrieverUtils.CACHE_METRICS_PREFIX, "mappedFile");
+
+    private static final String MIGRATION_FILE_SUFFIX = "_migration";
+
+    public static MappedFileCachingSameAsRetriever create(SameAsRetriever decoratedRetriever,
+            boolean requestEntitiesNotFound, File storeFile) {
+        try {
+            return new MappedFileCachingSameAsRetriever(decoratedRetriever, MappedFileSameAsStore.open(storeFile),
+                    requestEntitiesNotFound);
+        } catch (IOException e) {
+            LOGGER.error("Couldn't open the sameAs store \"" + storeFile + "\". Returning null.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Migrates the content of a cache file written by the
+     * {@link FileBasedCachingSameAsRetriever} into a new
+     * {@link MappedFileSameAsStore}. The store is created using temporary
+     * files that are renamed after the migration succeeded.
+     * 
+     * @param cacheFile
+     *            the cache file of a {@link FileBasedCachingSameAsRetriever}
+     * @param storeFile
+     *            the file of the new store
+     * @return true if the migration succeeded, else false
+     */
+    @SuppressWarnings("unchecked")
+    public static boolean migrateCacheFile(File cacheFile, File storeFile) {
+        Object objects[] = FileBasedCachingSameAsRetriever.readCacheFile(cacheFile);
+        if (objects == null) {
+            LOGGER.error("Couldn't read the cache file \"" + cacheFile + "\". Aborting migration.");
+            return false;
+        }
+        ObjectIntOpenHashMap<String> uriSetIdMapping = (ObjectIntOpenHashMap<String>) objects[0];
+        List<Set<String>> sets = (List<Set<String>>) objects[1];
+        File tempStoreFile = new File(storeFile.getAbsolutePath() + MIGRATION_FILE_SUFFIX);
+        File tempIndexFile = new File(tempStoreFile.getAbsolutePath() + MappedFileSameAsStore.INDEX_FILE_SUFFIX);
+        // remove the remains of a former migration
+        if ((tempStoreFile.exists() && !tempStoreFile.delete())
+                || (tempIndexFile.exists() && !tempIndexFile.delete())) {
+            LOGGER.error("Couldn't delete the files of a former migration. Aborting migration.");
+            return false;
+        }
+        MappedFileSameAsStore store = null;
+        try {
+            store = MappedFileSameAsStore.open(tempStoreFile,
+                    Math.max(MappedFileSameAsStore.DEFAULT_INITIAL_CAPACITY, 2 * uriSetIdMapping.assigned));
+            for (Set<String> set : sets) {
+                if (set != null) {
+                    store.mergeSet(set);
+                }
+            }
+            for (int i = 0; i < uriSetIdMapping.allocated.length; ++i) {
+                if (uriSetIdMapping.allocated[i]
+                        && (uriSetIdMapping.values[i] == FileBasedCachingSameAsRetriever.ENTITY_NOT_FOUND)) {
+                    store.putNotFound((String) ((Object[]) uriSetIdMapping.keys)[i]);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Exception while migrating the cache file \"" + cacheFile + "\". Aborting migration.", e);
+            return false;
+        } finally {
+            IOUtils.closeQuietly(store);
+        }
+        // move the index first. If the log is not moved, the index will be
+        // rebuilt anyway.
+        File indexFile = new File(storeFile.getAbsolutePath() + MappedFileSameAsStore.INDEX_FILE_SUFFIX);
+        if ((indexFile.exists() && !indexFile.delete()) || (storeFile.exists() && !storeFile.delete())) {
+            LOGGER.error("Couldn't replace the existing store \"" + storeFile + "\". Aborting migration.");
+            return false;
+        }
+        if (!tempIndexFile.renameTo(indexFile) || !tempStoreFile.renameTo(storeFile)) {
+            LOGGER.error("Couldn't rename the migrated store \"" + tempStoreFile + "\". Aborting migration.");
+            return false;
+        }
+        LOGGER.info("Migrated {} URIs from \"{}\" to \"{}\".", uriSetIdMapping.assigned, cacheFile, storeFile);
+        return true;
+    }
+
+    protected MappedFileSameAsStore store;
+    private boolean requestEntitiesNotFound;
+
+    protected MappedFileCachingSameAsRetriever(SameAsRetriever decoratedRetriever, MappedFileSameAsStore store,
+            boolean requestEntitiesNotFound) {
+        super(decoratedRetriever);
+        this.store = store;
+        this.requestEntitiesNotFound = requestEntitiesNotFound;
+    }
+
+    @Override
+    public Set<String> retrieveSameURIs(String uri) {
+        CACHE_METRICS.countRequest();
+        Set<String> result = null;
+        try {
+            result = store.get(uri);
+        } catch (IOException e) {
+            LOGGER.error("Exception while reading from the sameAs store. Requesting the decorated retriever.", e);
+        }
+        if (result == MappedFileSameAsStore.ENTITY_NOT_FOUND) {
+            if (!requestEntitiesNotFound) {
+                return null;
+            }
+        } else if (result != null) {
+            return result;
+        }
+        CACHE_METRICS.countMiss();
+        result = decoratedRetriever.retrieveSameURIs(uri);
+        try {
+            if (result != null) {
+                result = store.mergeSet(result);
+            } else {
+                store.putNotFound(uri);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Exception while writing to the sameAs store. The result won't be cached.", e);
+        }
+        return result;
+    }
+
+    /**
+     * Forces the cache to be written to the storage device.
+     */
+    public void storeCache() {
+        try {
+            store.flush();
+        } catch (IOException e) {
+            LOGGER.error("Exception while writing cache to file.", e);
+        }
+    }
+
+    /**
+     * Flushes and closes the store. Afterwards, the decorated retriever is
+     * closed.
+     */
+    @Override
+    public void close() {
+        IOUtils.closeQuietly(store);
+        super.close();
+    }
+}
@@ -0,0 +1,915 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.semantic.sameas;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.carrotsearch.hppc.LongOpenHashSet;
+
+/**
+ * A persistent store for sameAs sets that consists of two files.
+ * 
+ * <ul>
+ * <li>An append-only log containing the sets of URIs and the URIs for which no
+ * sameAs links could be found. If a set has to be merged with already existing
+ * sets, only a delta record is appended. It contains the URIs that are new and
+ * references the records of the existing sets. If the chain of records of a
+ * set becomes too long compared to the size of the set, the complete set is
+ * appended instead.</li>
+ * <li>A memory-mapped index (an open addressing hash table) mapping the hashes
+ * of the URIs to the position of the latest record of the set containing the
+ * URI. Thus, only the records that are needed for answering a request are read
+ * from the log.</li>
+ * </ul>
+ * 
+ * <p>
+ * The index counts the bytes of the log that belong to records which are not
+ * used anymore. If they make up more than half of the log, the log is
+ * compacted while opening the store, i.e., it is rewritten with a single
+ * record per set.
+ * </p>
+ * 
+ * <p>
+ * The header of the index contains the length of the log that has already
+ * been indexed. If the log is longer (e.g., because the program has been
+ * stopped before the index has been written), the missing records are added
+ * to the index while opening the store. If the index is missing or broken, it
+ * is rebuilt from the log.
+ * </p>
+ * 
+ * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
+ *
+ */
+public class MappedFileSameAsStore implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedFileSameAsStore.class);
+
+    /**
+     * Set returned for URIs that are known to have no sameAs links.
+     */
+    public static final Set<String> ENTITY_NOT_FOUND = Collections.unmodifiableSet(new HashSet<String>(0));
+
+    public static final String INDEX_FILE_SUFFIX = ".index";
+    public static final String COMPACTION_FILE_SUFFIX = ".compaction";
+    public static final int DEFAULT_INITIAL_CAPACITY = 1 << 16;
+
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    private static final byte RECORD_TYPE_NOT_FOUND = 0;
+    private static final byte RECORD_TYPE_SET = 1;
+    /**
+     * A record containing only the URIs that are new to the set, followed by
+     * the number of referenced records (int) and their positions (long).
+     */
+    private static final byte RECORD_TYPE_DELTA = 2;
+    /**
+     * length (int), type (byte), number of URIs (int)
+     */
+    private static final int RECORD_HEADER_SIZE = 9;
+    /**
+     * A set whose chain of records is longer than this value and longer than a
+     * quarter of its size is written as a complete set.
+     */
+    private static final int MIN_CHAIN_LENGTH = 16;
+    private static final long NO_PARENTS[] = new long[0];
+
+    private static final int INDEX_MAGIC = 0x47534131;
+    private static final int CAPACITY_POSITION = 4;
+    private static final int SIZE_POSITION = 8;
+    private static final int LOG_LENGTH_POSITION = 16;
+    private static final int GARBAGE_POSITION = 24;
+    private static final int INDEX_HEADER_SIZE = 32;
+    /**
+     * hash (long), position of the record + 1 (long). A slot with a position
+     * of 0 is empty.
+     */
+    private static final int SLOT_SIZE = 16;
+    /**
+     * The maximum capacity ensures that the index can be mapped into a single
+     * buffer.
+     */
+    private static final int MAX_CAPACITY = 1 << 26;
+
+    public static MappedFileSameAsStore open(File storeFile) throws IOException {
+        return open(storeFile, DEFAULT_INITIAL_CAPACITY);
+    }
+
+    public static MappedFileSameAsStore open(File storeFile, int initialCapacity) throws IOException {
+        File parent = storeFile.getAbsoluteFile().getParentFile();
+        if ((parent != null) && (!parent.exists())) {
+            parent.mkdirs();
+        }
+        // make sure that the capacity is a power of two
+        int capacity = 16;
+        while ((capacity < initialCapacity) && (capacity < MAX_CAPACITY)) {
+            capacity <<= 1;
+        }
+        MappedFileSameAsStore store = new MappedFileSameAsStore(storeFile,
+                new File(storeFile.getAbsolutePath() + INDEX_FILE_SUFFIX));
+        try {
+            store.init(capacity);
+        } catch (IOException e) {
+            store.close();
+            throw e;
+        }
+        return store;
+    }
+
+    protected File logFile;
+    protected File indexFile;
+    private RandomAccessFile logRaf;
+    private RandomAccessFile indexRaf;
+    private FileChannel logChannel;
+    private FileChannel indexChannel;
+    private MappedByteBuffer index;
+    private int capacity;
+    private int size;
+    private long logLength;
+    private long indexedLogLength;
+    /**
+     * Number of bytes of the log that belong to records which are not used
+     * anymore.
+     */
+    private long garbage;
+    /**
+     * Set while closing the store. Every access checks it while holding the
+     * lock since the index is unmapped when the store is closed.
+     */
+    private boolean closed = false;
+    private ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    protected MappedFileSameAsStore(File logFile, File indexFile) {
+        this.logFile = logFile;
+        this.indexFile = indexFile;
+    }
+
+    private void init(int initialCapacity) throws IOException {
+        logRaf = new RandomAccessFile(logFile, "rw");
+        logChannel = logRaf.getChannel();
+        indexRaf = new RandomAccessFile(indexFile, "rw");
+        indexChannel = indexRaf.getChannel();
+        logLength = logChannel.size();
+
+        if (!readIndex()) {
+            LOGGER.info("Creating a new index for the sameAs store {}.", logFile);
+            indexChannel.truncate(0);
+            createIndex(initialCapacity);
+        }
+        if (indexedLogLength < logLength) {
+            LOGGER.info("Adding {} bytes of the log of the sameAs store {} to its index.",
+                    logLength - indexedLogLength, logFile);
+            replay(indexedLogLength);
+        }
+        if ((garbage * 2) > logLength) {
+            compactLog();
+        }
+    }
+
+    /**
+     * Maps the existing index file if it is valid.
+     * 
+     * @return true if the index could be mapped, else false
+     */
+    private boolean readIndex() throws IOException {
+        if (indexChannel.size() < INDEX_HEADER_SIZE) {
+            return false;
+        }
+        ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER_SIZE);
+        readFully(indexChannel, header, 0);
+        int capacity = header.getInt(CAPACITY_POSITION);
+        long indexedLogLength = header.getLong(LOG_LENGTH_POSITION);
+        long garbage = header.getLong(GARBAGE_POSITION);
+        if ((header.getInt(0) != INDEX_MAGIC) || (capacity <= 0) || (capacity > MAX_CAPACITY)
+                || (Integer.bitCount(capacity) != 1)
+                || (indexChannel.size() != (INDEX_HEADER_SIZE + ((long) capacity * SLOT_SIZE)))
+                || (indexedLogLength > logLength) || (garbage < 0) || (garbage > indexedLogLength)) {
+            LOGGER.warn("The index of the sameAs store {} is not valid. It will be rebuilt.", logFile);
+            return false;
+        }
+        this.capacity = capacity;
+        this.size = header.getInt(SIZE_POSITION);
+        this.indexedLogLength = indexedLogLength;
+        this.garbage = garbage;
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexChannel.size());
+        return true;
+    }
+
+    private void createIndex(int capacity) throws IOException {
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER_SIZE + ((long) capacity * SLOT_SIZE));
+        this.capacity = capacity;
+        this.size = 0;
+        index.putInt(0, INDEX_MAGIC);
+        index.putInt(CAPACITY_POSITION, capacity);
+        index.putInt(SIZE_POSITION, 0);
+        setGarbage(0);
+        setIndexedLogLength(0);
+    }
+
+    /**
+     * Adds all records of the log starting at the given position to the index.
+     * An incomplete record at the end of the log (e.g., caused by a crash
+     * while writing it) is removed.
+     */
+    private void replay(long position) throws IOException {
+        Record record;
+        Map<Long, Record> records = new HashMap<Long, Record>();
+        while (position < logLength) {
+            record = readRecord(position);
+            if (record == null) {
+                LOGGER.warn("The log of the sameAs store {} ends with an incomplete record. It will be removed.",
+                        logFile);
+                logChannel.truncate(position);
+                logLength = position;
+                break;
+            }
+            indexRecord(position, record, records);
+            records.clear();
+            position += record.length;
+        }
+        setIndexedLogLength(position);
+    }
+
+    /**
+     * Returns the set of URIs that are known to be the same as the given URI,
+     * {@link #ENTITY_NOT_FOUND} if the URI is known to have no sameAs links or
+     * null if the URI is not known or the store has been closed.
+     */
+    public Set<String> get(String uri) throws IOException {
+        lock.readLock().lock();
+        try {
+            if (closed) {
+                return null;
+            }
+            Map<Long, Record> records = new HashMap<Long, Record>(4);
+            int slot = findSlot(uri, hash(uri), records);
+            if (slot < 0) {
+                return null;
+            }
+            Record record = records.get(getRecordPosition(slot));
+            if (record.type == RECORD_TYPE_NOT_FOUND) {
+                return ENTITY_NOT_FOUND;
+            } else {
+                return new HashSet<String>(Arrays.asList(record.uris));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the given set to the store. If some of the URIs are already part of
+     * other sets, these sets are merged with the given set.
+     * 
+     * @return the merged set
+     * @throws IOException
+     *             if the set couldn't be written or the store has been closed
+     */
+    public Set<String> mergeSet(Set<String> uris) throws IOException {
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            Set<String> mergedSet = new HashSet<String>(uris);
+            // the records that have been read during this operation
+            Map<Long, Record> records = new HashMap<Long, Record>();
+            // the URIs that are not part of an existing set
+            Set<String> newUris = new HashSet<String>();
+            List<Long> parents = new ArrayList<Long>();
+            int chainLength = 1;
+            int slot;
+            long recordPosition;
+            Record record;
+            for (String uri : uris) {
+                slot = findSlot(uri, hash(uri), records);
+                if (slot >= 0) {
+                    recordPosition = getRecordPosition(slot);
+                    record = records.get(recordPosition);
+                    if (record.type == RECORD_TYPE_SET) {
+                        if (!parents.contains(recordPosition)) {
+                            parents.add(recordPosition);
+                            chainLength += record.chainLength;
+                            mergedSet.addAll(Arrays.asList(record.uris));
+                        }
+                        continue;
+                    }
+                }
+                newUris.add(uri);
+            }
+            if ((parents.size() == 1) && newUris.isEmpty()) {
+                // the set is already known
+                return mergedSet;
+            }
+            long position;
+            if (parents.isEmpty() || (chainLength > Math.max(MIN_CHAIN_LENGTH, mergedSet.size() / 4))) {
+                position = appendRecord(RECORD_TYPE_SET, mergedSet, NO_PARENTS);
+            } else {
+                long parentPositions[] = new long[parents.size()];
+                for (int i = 0; i < parentPositions.length; ++i) {
+                    parentPositions[i] = parents.get(i);
+                }
+                position = appendRecord(RECORD_TYPE_DELTA, newUris, parentPositions);
+            }
+            indexRecord(position, readRecord(position), records);
+            setIndexedLogLength(logLength);
+            return mergedSet;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Marks the given URI as having no sameAs links if it is not already
+     * known.
+     * 
+     * @throws IOException
+     *             if the URI couldn't be written or the store has been closed
+     */
+    public void putNotFound(String uri) throws IOException {
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            if (findSlot(uri, hash(uri), null) < 0) {
+                long position = appendRecord(RECORD_TYPE_NOT_FOUND, Collections.singleton(uri), NO_PARENTS);
+                putSlot(uri, position, null);
+                setIndexedLogLength(logLength);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of URIs in this store
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Forces the log and the index to be written to the storage device.
+     */
+    public void flush() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            if (logChannel != null) {
+                logChannel.force(false);
+            }
+            if (index != null) {
+                index.force();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the log using a single record for every set and every URI
+     * without sameAs links. Afterwards, the index is rebuilt.
+     */
+    public void compact() throws IOException {
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            compactLog();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void compactLog() throws IOException {
+        LOGGER.info("Compacting the log of the sameAs store {} ({} of {} bytes are not used anymore).",
+                new Object[] { logFile, garbage, logLength });
+        File compactedLogFile = new File(logFile.getAbsolutePath() + COMPACTION_FILE_SUFFIX);
+        RandomAccessFile compactedLogRaf = new RandomAccessFile(compactedLogFile, "rw");
+        try {
+            FileChannel compactedLogChannel = compactedLogRaf.getChannel();
+            compactedLogChannel.truncate(0);
+            long compactedLogLength = 0;
+            LongOpenHashSet writtenRecords = new LongOpenHashSet();
+            long recordPosition;
+            Record record;
+            for (int i = 0; i < capacity; ++i) {
+                recordPosition = getRecordPosition(i);
+                if ((recordPosition >= 0) && writtenRecords.add(recordPosition)) {
+                    record = readResolvedRecord(recordPosition);
+                    compactedLogLength += writeRecord(compactedLogChannel, compactedLogLength, record.type,
+                            Arrays.asList(record.uris), NO_PARENTS);
+                }
+            }
+            compactedLogChannel.force(false);
+        } finally {
+            IOUtils.closeQuietly(compactedLogRaf);
+        }
+        // replace the log and rebuild the index
+        IOUtils.closeQuietly(logRaf);
+        if (!compactedLogFile.renameTo(logFile) && (!logFile.delete() || !compactedLogFile.renameTo(logFile))) {
+            throw new IOException("Couldn't replace the log of the sameAs store " + logFile
+                    + " with its compacted version " + compactedLogFile + ".");
+        }
+        logRaf = new RandomAccessFile(logFile, "rw");
+        logChannel = logRaf.getChannel();
+        logLength = logChannel.size();
+        for (int i = 0; i < capacity; ++i) {
+            index.putLong(INDEX_HEADER_SIZE + (i * SLOT_SIZE), 0);
+            index.putLong(INDEX_HEADER_SIZE + (i * SLOT_SIZE) + 8, 0);
+        }
+        size = 0;
+        index.putInt(SIZE_POSITION, 0);
+        setGarbage(0);
+        setIndexedLogLength(0);
+        replay(0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if ((logChannel != null) && logChannel.isOpen()) {
+                    logChannel.force(false);
+                }
+                if (index != null) {
+                    index.force();
+                }
+            } finally {
+                if (index != null) {
+                    unmap(index);
+                    index = null;
+                }
+                IOUtils.closeQuietly(logRaf);
+                IOUtils.closeQuietly(indexRaf);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Has to be called while holding the lock.
+     * 
+     * @throws IOException
+     *             if the store has been closed
+     */
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("The sameAs store " + logFile + " has been closed.");
+        }
+    }
+
+    /**
+     * Searches the slot of the given URI.
+     * 
+     * @param records
+     *            records that have already been read. Read records are added to
+     *            this map. Can be null.
+     * @return the id of the slot or -1 if the URI is not known
+     */
+    private int findSlot(String uri, long hash, Map<Long, Record> records) throws IOException {
+        int mask = capacity - 1;
+        int slot = (int) hash & mask;
+        int slotPosition;
+        long recordPosition;
+        Record record;
+        while (true) {
+            slotPosition = INDEX_HEADER_SIZE + (slot * SLOT_SIZE);
+            recordPosition = index.getLong(slotPosition + 8) - 1;
+            if (recordPosition < 0) {
+                return -1;
+            }
+            if (index.getLong(slotPosition) == hash) {
+                record = (records != null) ? records.get(recordPosition) : null;
+                if (record == null) {
+                    record = readResolvedRecord(recordPosition);
+                    if (records != null) {
+                        records.put(recordPosition, record);
+                    }
+                }
+                if (record.contains(uri)) {
+                    return slot;
+                }
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private long getRecordPosition(int slot) {
+        return index.getLong(INDEX_HEADER_SIZE + (slot * SLOT_SIZE) + 8) - 1;
+    }
+
+    /**
+     * Lets the slots of all URIs of the set of the given record point to this
+     * record. Records that are not used anymore are counted as garbage.
+     * 
+     * @param position
+     *            the position of the record
+     * @param record
+     *            the record as it has been read from the log
+     * @param records
+     *            records that have already been read
+     */
+    private void indexRecord(long position, Record record, Map<Long, Record> records) throws IOException {
+        record = resolve(position, record);
+        records.put(position, record);
+        LongOpenHashSet replacedRecords = new LongOpenHashSet();
+        long replacedPosition;
+        for (int i = 0; i < record.uris.length; ++i) {
+            replacedPosition = putSlot(record.uris[i], position, records);
+            // records that are referenced by the new record are still in use
+            if ((replacedPosition >= 0) && (replacedPosition != position)
+                    && ((record.chain == null) || !record.chain.contains(replacedPosition))
+                    && replacedRecords.add(replacedPosition)) {
+                setGarbage(garbage + records.get(replacedPosition).chainBytes);
+            }
+        }
+    }
+
+    /**
+     * Lets the slot of the given URI point to the record at the given position.
+     * 
+     * @return the position of the record the slot pointed to before or -1 if
+     *         the URI was not known
+     */
+    private long putSlot(String uri, long recordPosition, Map<Long, Record> records) throws IOException {
+        long hash = hash(uri);
+        int slot = findSlot(uri, hash, records);
+        long replacedPosition = -1;
+        if (slot < 0) {
+            if (((size + 1) * 5L) > (capacity * 3L)) {
+                resize();
+            }
+            slot = findEmptySlot(hash);
+            index.putLong(INDEX_HEADER_SIZE + (slot * SLOT_SIZE), hash);
+            ++size;
+            index.putInt(SIZE_POSITION, size);
+        } else {
+            replacedPosition = getRecordPosition(slot);
+        }
+        index.putLong(INDEX_HEADER_SIZE + (slot * SLOT_SIZE) + 8, recordPosition + 1);
+        return replacedPosition;
+    }
+
+    private int findEmptySlot(long hash) {
+        int mask = capacity - 1;
+        int slot = (int) hash & mask;
+        while (index.getLong(INDEX_HEADER_SIZE + (slot * SLOT_SIZE) + 8) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Doubles the capacity of the index. Since the hashes are part of the
+     * index, the log doesn't have to be read.
+     */
+    private void resize() throws IOException {
+        if (capacity >= MAX_CAPACITY) {
+            throw new IOException("The index of the sameAs store " + logFile + " reached its maximum capacity.");
+        }
+        long hashes[] = new long[size];
+        long positions[] = new long[size];
+        int count = 0;
+        int slotPosition;
+        for (int i = 0; i < capacity; ++i) {
+            slotPosition = INDEX_HEADER_SIZE + (i * SLOT_SIZE);
+            if (index.getLong(slotPosition + 8) != 0) {
+                hashes[count] = index.getLong(slotPosition);
+                positions[count] = index.getLong(slotPosition + 8);
+                ++count;
+            }
+        }
+        // If the program stops while resizing, the index will be rebuilt
+        long currentIndexedLogLength = indexedLogLength;
+        setIndexedLogLength(0);
+        int oldCapacity = capacity;
+        capacity = capacity << 1;
+        MappedByteBuffer oldIndex = index;
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER_SIZE + ((long) capacity * SLOT_SIZE));
+        unmap(oldIndex);
+        // the new part of the file is empty, only the old slots have to be
+        // cleared
+        for (int i = 0; i < oldCapacity; ++i) {
+            slotPosition = INDEX_HEADER_SIZE + (i * SLOT_SIZE);
+            index.putLong(slotPosition, 0);
+            index.putLong(slotPosition + 8, 0);
+        }
+        index.putInt(CAPACITY_POSITION, capacity);
+        int slot;
+        for (int i = 0; i < count; ++i) {
+            slot = findEmptySlot(hashes[i]);
+            slotPosition = INDEX_HEADER_SIZE + (slot * SLOT_SIZE);
+            index.putLong(slotPosition, hashes[i]);
+            index.putLong(slotPosition + 8, positions[i]);
+        }
+        setIndexedLogLength(currentIndexedLogLength);
+    }
+
+    private void setIndexedLogLength(long indexedLogLength) {
+        this.indexedLogLength = indexedLogLength;
+        index.putLong(LOG_LENGTH_POSITION, indexedLogLength);
+    }
+
+    private void setGarbage(long garbage) {
+        this.garbage = garbage;
+        index.putLong(GARBAGE_POSITION, garbage);
+    }
+
+    private long appendRecord(byte type, Collection<String> uris, long parents[]) throws IOException {
+        long position = logLength;
+        logLength += writeRecord(logChannel, position, type, uris, parents);
+        return position;
+    }
+
+    /**
+     * Writes the given record at the given position of the given channel.
+     * 
+     * @return the length of the written record
+     */
+    private static int writeRecord(FileChannel channel, long position, byte type, Collection<String> uris,
+            long parents[]) throws IOException {
+        byte encodedUris[][] = new byte[uris.size()][];
+        int length = RECORD_HEADER_SIZE;
+        int id = 0;
+        for (String uri : uris) {
+            encodedUris[id] = uri.getBytes(CHARSET);
+            length += 4 + encodedUris[id].length;
+            ++id;
+        }
+        if (type == RECORD_TYPE_DELTA) {
+            length += 4 + (8 * parents.length);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.putInt(length - 4);
+        buffer.put(type);
+        buffer.putInt(encodedUris.length);
+        for (int i = 0; i < encodedUris.length; ++i) {
+            buffer.putInt(encodedUris[i].length);
+            buffer.put(encodedUris[i]);
+        }
+        if (type == RECORD_TYPE_DELTA) {
+            buffer.putInt(parents.length);
+            for (int i = 0; i < parents.length; ++i) {
+                buffer.putLong(parents[i]);
+            }
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+        return length;
+    }
+
+    /**
+     * Reads the record at the given position of the log and all records it
+     * references.
+     * 
+     * @throws IOException
+     *             if one of the records is broken
+     */
+    private Record readResolvedRecord(long position) throws IOException {
+        return resolve(position, readRecord(position));
+    }
+
+    /**
+     * Merges the given record with all records it references (directly or
+     * indirectly) into a single record containing the complete set.
+     * 
+     * @param position
+     *            the position of the given record
+     * @param record
+     *            the record as it has been read from the log
+     * @throws IOException
+     *             if one of the records is broken
+     */
+    private Record resolve(long position, Record record) throws IOException {
+        if (record == null) {
+            throw new IOException("The sameAs store " + logFile + " contains a broken record at position "
+                    + position + ".");
+        }
+        if (record.type != RECORD_TYPE_DELTA) {
+            return record;
+        }
+        Set<String> uris = new LinkedHashSet<String>(Arrays.asList(record.uris));
+        LongOpenHashSet chain = new LongOpenHashSet();
+        chain.add(position);
+        long chainBytes = record.length;
+        Deque<Long> pendingRecords = new ArrayDeque<Long>();
+        for (int i = 0; i < record.parents.length; ++i) {
+            pendingRecords.push(record.parents[i]);
+        }
+        long parentPosition;
+        Record parent;
+        while (!pendingRecords.isEmpty()) {
+            parentPosition = pendingRecords.pop();
+            if (chain.add(parentPosition)) {
+                parent = readRecord(parentPosition);
+                if ((parent == null) || (parent.type == RECORD_TYPE_NOT_FOUND)) {
+                    throw new IOException("The sameAs store " + logFile + " contains a broken record at position "
+                            + parentPosition + ".");
+                }
+                chainBytes += parent.length;
+                uris.addAll(Arrays.asList(parent.uris));
+                for (int i = 0; i < parent.parents.length; ++i) {
+                    pendingRecords.push(parent.parents[i]);
+                }
+            }
+        }
+        Record resolved = new Record(RECORD_TYPE_SET, uris.toArray(new String[uris.size()]), record.length,
+                NO_PARENTS);
+        resolved.chain = chain;
+        resolved.chainLength = chain.size();
+        resolved.chainBytes = chainBytes;
+        return resolved;
+    }
+
+    /**
+     * Reads the record at the given position of the log.
+     * 
+     * @return the record or null if the record is incomplete
+     */
+    private Record readRecord(long position) throws IOException {
+        if ((position + 4) > logLength) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(4);
+        readFully(logChannel, buffer, position);
+        int length = buffer.getInt(0);
+        if ((length < (RECORD_HEADER_SIZE - 4)) || ((position + 4 + length) > logLength)) {
+            return null;
+        }
+        buffer = ByteBuffer.allocate(length);
+        readFully(logChannel, buffer, position + 4);
+        buffer.flip();
+        byte type = buffer.get();
+        int count = buffer.getInt();
+        if (count < 0) {
+            return null;
+        }
+        String uris[] = new String[count];
+        int uriLength;
+        for (int i = 0; i < count; ++i) {
+            if (buffer.remaining() < 4) {
+                return null;
+            }
+            uriLength = buffer.getInt();
+            if ((uriLength < 0) || (uriLength > buffer.remaining())) {
+                return null;
+            }
+            uris[i] = new String(buffer.array(), buffer.position(), uriLength, CHARSET);
+            buffer.position(buffer.position() + uriLength);
+        }
+        long parents[] = NO_PARENTS;
+        if (type == RECORD_TYPE_DELTA) {
+            if (buffer.remaining() < 4) {
+                return null;
+            }
+            count = buffer.getInt();
+            if ((count < 0) || ((count * 8L) > buffer.remaining())) {
+                return null;
+            }
+            parents = new long[count];
+            for (int i = 0; i < count; ++i) {
+                parents[i] = buffer.getLong();
+                // a record can only reference records that have been written
+                // before it
+                if ((parents[i] < 0) || (parents[i] >= position)) {
+                    return null;
+                }
+            }
+        }
+        return new Record(type, uris, length + 4, parents);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    /**
+     * 64 bit FNV-1a hash with the finalization step of MurmurHash3 to spread
+     * the bits over the lower part that is used for determining the slot.
+     */
+    protected static long hash(String uri) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < uri.length(); ++i) {
+            hash ^= uri.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * Releases the mapping of the given buffer instead of waiting for the
+     * garbage collector to do it. Since there is no public API for it, the
+     * cleaner of the buffer is used if it is available.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (Exception e) {
+            LOGGER.debug("Couldn't unmap the index buffer. It will be released by the garbage collector.", e);
+        }
+    }
+
+    private static class Record {
+        private byte type;
+        private String uris[];
+        private int length;
+        private long parents[];
+        /**
+         * Positions of the records this set has been read from. Only set for
+         * resolved delta records.
+         */
+        private LongOpenHashSet chain;
+        private int chainLength = 1;
+        private long chainBytes;
+        private Set<String> uriSet;
+
+        public Record(byte type, String[] uris, int length, long parents[]) {
+            this.type = type;
+            this.uris = uris;
+            this.length = length;
+            this.parents = parents;
+            this.chainBytes = length;
+        }
+
+        public boolean contains(String uri) {
+            if (uris.length > 8) {
+                if (uriSet == null) {
+                    uriSet = new HashSet<String>(Arrays.asList(uris));
+                }
+                return uriSet.contains(uri);
+            }
+            for (int i = 0; i < uris.length; ++i) {
+                if (uris[i].equals(uri)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
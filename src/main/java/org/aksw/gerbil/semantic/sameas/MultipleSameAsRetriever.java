@@ -16,7 +16,11 @@
  */
 package org.aksw.gerbil.semantic.sameas;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
 public class MultipleSameAsRetriever implements SameAsRetriever {
@@ -36,7 +40,8 @@ public class MultipleSameAsRetriever implements SameAsRetriever {
                 if (result != null) {
                     result.addAll(newResult);
                 } else {
-                    result = newResult;
+                    // copy the set since it might be shared, e.g., by a cache
+                    result = new HashSet<String>(newResult);
                 }
             }
         }
@@ -44,16 +49,26 @@ public class MultipleSameAsRetriever implements SameAsRetriever {
     }
 
     @Override
-    public void addSameURIs(Set<String> uris) {
-        Set<String> temp = new HashSet<String>();
+    public Map<String, Set<String>> retrieveSameURIs(Collection<String> uris) {
+        Map<String, Set<String>> results = new HashMap<String, Set<String>>();
         Set<String> result;
-        for (String uri : uris) {
-            result = retrieveSameURIs(uri);
-            if (result != null) {
-                temp.addAll(retrieveSameURIs(uri));
+        for (int i = 0; i < retriever.length; ++i) {
+            for (Entry<String, Set<String>> newResult : retriever[i].retrieveSameURIs(uris).entrySet()) {
+                result = results.get(newResult.getKey());
+                if (result != null) {
+                    result.addAll(newResult.getValue());
+                } else {
+                    // copy the set since it might be shared, e.g., by a cache
+                    results.put(newResult.getKey(), new HashSet<String>(newResult.getValue()));
+                }
             }
         }
-        uris.addAll(temp);
+        return results;
+    }
+
+    @Override
+    public void addSameURIs(Set<String> uris) {
+        SameAsRetrieverUtils.addSameURIs(this, uris);
     }
 
 }
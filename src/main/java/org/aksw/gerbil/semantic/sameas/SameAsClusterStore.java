@@ -0,0 +1,345 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.semantic.sameas;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.carrotsearch.hppc.ObjectIntOpenHashMap;
+
+/**
+ * Stores clusters of URIs that are connected via sameAs links. Every URI gets
+ * an id and the clusters are represented by a disjoint-set forest (union-find
+ * with union by size and path compression) on primitive arrays. Additionally,
+ * the members of a cluster are connected via a circular linked list, i.e., a
+ * cluster can be enumerated without searching through all URIs.
+ * 
+ * <p>
+ * Merging two clusters is nearly constant time. The path compression is only
+ * done while holding the write lock. Reading threads share the read lock and
+ * search the root of a cluster without changing the forest. Apart from the
+ * arrays, no further data is stored per URI. The sets returned by this store
+ * are immutable copies of the clusters.
+ * </p>
+ * 
+ * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
+ *
+ */
+public class SameAsClusterStore {
+
+    /**
+     * Set returned for URIs that are known to have no sameAs links.
+     */
+    public static final Set<String> ENTITY_NOT_FOUND = Collections.unmodifiableSet(new HashSet<String>(0));
+
+    /**
+     * Set id of URIs without sameAs links inside the serialized store.
+     */
+    public static final int ENTITY_NOT_FOUND_ID = -1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Creates a store containing the given sets.
+     * 
+     * @param uriSetIdMapping
+     *            mapping of URIs to the ids of their sets or
+     *            {@link #ENTITY_NOT_FOUND_ID}
+     * @param sets
+     *            the sets
+     */
+    public static SameAsClusterStore create(ObjectIntOpenHashMap<String> uriSetIdMapping, List<Set<String>> sets) {
+        SameAsClusterStore store = new SameAsClusterStore(Math.max(INITIAL_CAPACITY, uriSetIdMapping.assigned));
+        for (Set<String> set : sets) {
+            if ((set != null) && (set.size() > 0)) {
+                store.addCluster(set);
+            }
+        }
+        for (int i = 0; i < uriSetIdMapping.allocated.length; ++i) {
+            if (uriSetIdMapping.allocated[i] && (uriSetIdMapping.values[i] == ENTITY_NOT_FOUND_ID)) {
+                store.addNotFound((String) ((Object[]) uriSetIdMapping.keys)[i]);
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Mapping of URIs to their id + 1 (0 is the default value for unknown
+     * URIs).
+     */
+    private ObjectIntOpenHashMap<String> uriIds;
+    private String uris[];
+    private int parents[];
+    /**
+     * Size of the cluster (only valid for roots).
+     */
+    private int clusterSizes[];
+    /**
+     * The next member of the cluster. The members form a circular list.
+     */
+    private int nextMembers[];
+    /**
+     * URIs that are known to have no sameAs links.
+     */
+    private BitSet notFound = new BitSet();
+    private int size = 0;
+    private ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public SameAsClusterStore() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public SameAsClusterStore(int capacity) {
+        uriIds = new ObjectIntOpenHashMap<String>(capacity);
+        uris = new String[capacity];
+        parents = new int[capacity];
+        clusterSizes = new int[capacity];
+        nextMembers = new int[capacity];
+    }
+
+    /**
+     * Returns the cluster of the given URI, {@link #ENTITY_NOT_FOUND} if the
+     * URI is known to have no sameAs links or null if the URI is not known.
+     * The returned cluster is immutable.
+     */
+    public Set<String> getCluster(String uri) {
+        lock.readLock().lock();
+        try {
+            int id = uriIds.get(uri) - 1;
+            if (id < 0) {
+                return null;
+            }
+            return getCluster(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Merges the given URIs and their clusters into a single cluster.
+     * 
+     * @return the merged (immutable) cluster
+     */
+    public Set<String> addCluster(Set<String> clusterUris) {
+        if (clusterUris.isEmpty()) {
+            return new HashSet<String>();
+        }
+        lock.writeLock().lock();
+        try {
+            int root = -1;
+            int id;
+            for (String uri : clusterUris) {
+                id = getOrCreateId(uri);
+                notFound.clear(id);
+                if (root < 0) {
+                    root = findRootAndCompress(id);
+                } else {
+                    root = union(root, id);
+                }
+            }
+            return createCluster(root);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Marks the given URI as having no sameAs links if it is not already
+     * known.
+     * 
+     * @return the cluster of the URI or {@link #ENTITY_NOT_FOUND}
+     */
+    public Set<String> addNotFound(String uri) {
+        lock.writeLock().lock();
+        try {
+            int id = uriIds.get(uri) - 1;
+            if (id < 0) {
+                id = getOrCreateId(uri);
+                notFound.set(id);
+            }
+            return getCluster(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of URIs in this store
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the store to the given stream. The format comprises the number
+     * of URIs, the URIs with the ids of their sets (or
+     * {@link #ENTITY_NOT_FOUND_ID}), the number of sets and the single sets
+     * (their sizes followed by their URIs). The set ids are generated in a
+     * single pass over the URIs.
+     */
+    public void write(ObjectOutputStream oout) throws IOException {
+        lock.readLock().lock();
+        try {
+            int setIds[] = new int[size];
+            Arrays.fill(setIds, ENTITY_NOT_FOUND_ID);
+            int setRoots[] = new int[size];
+            int setCount = 0;
+            int root;
+            oout.writeInt(size);
+            for (int id = 0; id < size; ++id) {
+                oout.writeObject(uris[id]);
+                if (notFound.get(id)) {
+                    oout.writeInt(ENTITY_NOT_FOUND_ID);
+                } else {
+                    root = findRoot(id);
+                    if (setIds[root] == ENTITY_NOT_FOUND_ID) {
+                        setIds[root] = setCount;
+                        setRoots[setCount] = root;
+                        ++setCount;
+                    }
+                    oout.writeInt(setIds[root]);
+                }
+            }
+            oout.writeInt(setCount);
+            int id;
+            for (int i = 0; i < setCount; ++i) {
+                root = setRoots[i];
+                oout.writeInt(clusterSizes[root]);
+                id = root;
+                do {
+                    oout.writeObject(uris[id]);
+                    id = nextMembers[id];
+                } while (id != root);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int getOrCreateId(String uri) {
+        int id = uriIds.get(uri) - 1;
+        if (id < 0) {
+            if (size == uris.length) {
+                int capacity = uris.length << 1;
+                uris = Arrays.copyOf(uris, capacity);
+                parents = Arrays.copyOf(parents, capacity);
+                clusterSizes = Arrays.copyOf(clusterSizes, capacity);
+                nextMembers = Arrays.copyOf(nextMembers, capacity);
+            }
+            id = size;
+            ++size;
+            uriIds.put(uri, id + 1);
+            uris[id] = uri;
+            parents[id] = id;
+            clusterSizes[id] = 1;
+            nextMembers[id] = id;
+        }
+        return id;
+    }
+
+    /**
+     * Searches the root without changing the forest.
+     */
+    private int findRoot(int id) {
+        while (parents[id] != id) {
+            id = parents[id];
+        }
+        return id;
+    }
+
+    /**
+     * Searches the root and lets all nodes on the path point to it. Has to be
+     * called while holding the write lock.
+     */
+    private int findRootAndCompress(int id) {
+        int root = findRoot(id);
+        int parent;
+        while (parents[id] != root) {
+            parent = parents[id];
+            parents[id] = root;
+            id = parent;
+        }
+        return root;
+    }
+
+    /**
+     * Merges the clusters of the two given ids. Has to be called while holding
+     * the write lock.
+     * 
+     * @return the root of the merged cluster
+     */
+    private int union(int id1, int id2) {
+        int root1 = findRootAndCompress(id1);
+        int root2 = findRootAndCompress(id2);
+        if (root1 == root2) {
+            return root1;
+        }
+        // the smaller cluster is added to the larger one
+        if (clusterSizes[root1] < clusterSizes[root2]) {
+            int temp = root1;
+            root1 = root2;
+            root2 = temp;
+        }
+        parents[root2] = root1;
+        clusterSizes[root1] += clusterSizes[root2];
+        // join the two circular lists
+        int temp = nextMembers[root1];
+        nextMembers[root1] = nextMembers[root2];
+        nextMembers[root2] = temp;
+        return root1;
+    }
+
+    /**
+     * Returns the cluster of the given id or {@link #ENTITY_NOT_FOUND}. Has to
+     * be called while holding one of the locks.
+     */
+    private Set<String> getCluster(int id) {
+        if (notFound.get(id)) {
+            return ENTITY_NOT_FOUND;
+        }
+        return createCluster(findRoot(id));
+    }
+
+    /**
+     * Creates an immutable set of the cluster with the given root. Has to be
+     * called while holding one of the locks.
+     * 
+     * @return the created set
+     */
+    private Set<String> createCluster(int root) {
+        Set<String> cluster = new HashSet<String>(2 * clusterSizes[root]);
+        int id = root;
+        do {
+            cluster.add(uris[id]);
+            id = nextMembers[id];
+        } while (id != root);
+        return Collections.unmodifiableSet(cluster);
+    }
+}
@@ -16,6 +16,8 @@
  */
 package org.aksw.gerbil.semantic.sameas;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 
 public interface SameAsRetriever {
@@ -29,5 +31,26 @@ public interface SameAsRetriever {
      */
     public Set<String> retrieveSameURIs(String uri);
 
+    /**
+     * Retrieves the sameAs links of all given URIs. Every URI is retrieved
+     * only once. Implementations that have to send requests to remote
+     * services may retrieve the URIs concurrently (see
+     * {@link SameAsRetrieverUtils#retrieveSameURIsConcurrently(SameAsRetriever, Collection)}).
+     * 
+     * @param uris
+     * @return a mapping of the URIs to the Sets containing the URIs having a
+     *         sameAs link to them. URIs without sameAs links are not part of
+     *         the mapping.
+     */
+    public Map<String, Set<String>> retrieveSameURIs(Collection<String> uris);
+
+    /**
+     * Adds the URIs having a sameAs link to one of the given URIs to the given
+     * Set. Implementations should use
+     * {@link SameAsRetrieverUtils#addSameURIs(SameAsRetriever, Set)} which
+     * retrieves every URI only once.
+     * 
+     * @param uris
+     */
     public void addSameURIs(Set<String> uris);
 }
@@ -0,0 +1,368 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.semantic.sameas;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.aksw.gerbil.config.GerbilConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Methods that are shared by the different {@link SameAsRetriever}
+ * implementations for retrieving the sameAs links of several URIs at once.
+ * 
+ * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
+ *
+ */
+public class SameAsRetrieverUtils {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SameAsRetrieverUtils.class);
+
+    public static final String MAX_CONCURRENT_REQUESTS_KEY = "org.aksw.gerbil.semantic.sameas.SameAsRetrieverUtils.maxConcurrentRequests";
+
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 10;
+
+    /**
+     * Prefix of the metrics of the caching sameAs retrievers.
+     */
+    public static final String CACHE_METRICS_PREFIX = "gerbil_sameas_cache";
+
+    /**
+     * Time (in ms) after which an idle thread of the shared executor is
+     * stopped.
+     */
+    private static final long EXECUTOR_KEEP_ALIVE_TIME = 60000;
+
+    private static int maxConcurrentRequests = -1;
+    /**
+     * The executor that is shared by all concurrent retrievals of this
+     * process.
+     */
+    private static ThreadPoolExecutor executor = null;
+
+    private static final AtomicLong requestedUris = new AtomicLong();
+    private static final AtomicLong foundUris = new AtomicLong();
+    private static final AtomicLong notFoundUris = new AtomicLong();
+    private static final AtomicLong skippedUris = new AtomicLong();
+
+    /**
+     * @return the maximum number of URIs that are retrieved at the same time
+     *         by {@link #retrieveSameURIsConcurrently(SameAsRetriever, Collection)}
+     */
+    public synchronized static int getMaxConcurrentRequests() {
+        if (maxConcurrentRequests < 0) {
+            maxConcurrentRequests = DEFAULT_MAX_CONCURRENT_REQUESTS;
+            if (GerbilConfiguration.getInstance().containsKey(MAX_CONCURRENT_REQUESTS_KEY)) {
+                try {
+                    maxConcurrentRequests = GerbilConfiguration.getInstance().getInt(MAX_CONCURRENT_REQUESTS_KEY);
+                } catch (Exception e) {
+                    LOGGER.warn("Couldn't load the maximum number of concurrent sameAs requests from configuration. Using default "
+                            + DEFAULT_MAX_CONCURRENT_REQUESTS + ".", e);
+                }
+            }
+        }
+        return maxConcurrentRequests;
+    }
+
+    /**
+     * Returns the executor that is shared by all calls of
+     * {@link #retrieveSameURIsConcurrently(SameAsRetriever, Collection, int)}.
+     * It has at most {@link #getMaxConcurrentRequests()} threads, i.e., this
+     * is the maximum number of URIs that are retrieved concurrently by the
+     * complete process. Idle threads are stopped after a while.
+     */
+    protected synchronized static ExecutorService getExecutor() {
+        if (executor == null) {
+            int threads = Math.max(1, getMaxConcurrentRequests());
+            executor = new ThreadPoolExecutor(threads, threads, EXECUTOR_KEEP_ALIVE_TIME, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new RetrievalThreadFactory());
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    /**
+     * Shuts down the shared executor. Should be called when the application
+     * is stopped. If URIs are retrieved concurrently afterwards, a new
+     * executor is created.
+     */
+    public synchronized static void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Retrieves the sameAs links of the given URIs one after the other. Every
+     * URI is retrieved only once.
+     * 
+     * @return a mapping of the URIs to their sameAs sets. URIs without sameAs
+     *         links are not part of the mapping.
+     */
+    public static Map<String, Set<String>> retrieveSameURIs(SameAsRetriever retriever, Collection<String> uris) {
+        Map<String, Set<String>> results = new HashMap<String, Set<String>>();
+        Set<String> result;
+        for (String uri : createUniqueUris(uris)) {
+            result = retriever.retrieveSameURIs(uri);
+            if (result != null) {
+                results.put(uri, result);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Retrieves the sameAs links of the given URIs using at most
+     * {@link #getMaxConcurrentRequests()} threads. Every URI is retrieved only
+     * once.
+     * 
+     * @return a mapping of the URIs to their sameAs sets. URIs without sameAs
+     *         links are not part of the mapping.
+     */
+    public static Map<String, Set<String>> retrieveSameURIsConcurrently(SameAsRetriever retriever,
+            Collection<String> uris) {
+        return retrieveSameURIsConcurrently(retriever, uris, getMaxConcurrentRequests());
+    }
+
+    /**
+     * Retrieves the sameAs links of the given URIs using at most the given
+     * number of threads of the shared executor (see {@link #getExecutor()}).
+     * Every URI is retrieved only once. If this method is called by a thread
+     * of the shared executor, the URIs are retrieved sequentially.
+     * 
+     * @return a mapping of the URIs to their sameAs sets. URIs without sameAs
+     *         links are not part of the mapping.
+     */
+    public static Map<String, Set<String>> retrieveSameURIsConcurrently(final SameAsRetriever retriever,
+            Collection<String> uris, int maxConcurrentRequests) {
+        Set<String> uniqueUris = createUniqueUris(uris);
+        // a thread of the shared executor must not wait for other threads of
+        // the executor
+        if ((maxConcurrentRequests <= 1) || (uniqueUris.size() <= 1)
+                || (Thread.currentThread() instanceof RetrievalThread)) {
+            return retrieveSameURIs(retriever, uniqueUris);
+        }
+        Map<String, Set<String>> results = new HashMap<String, Set<String>>();
+        ExecutorService executor = getExecutor();
+        final Semaphore permits = new Semaphore(maxConcurrentRequests);
+        Map<String, Future<Set<String>>> futures = new LinkedHashMap<String, Future<Set<String>>>();
+        try {
+            for (final String uri : uniqueUris) {
+                permits.acquire();
+                try {
+                    futures.put(uri, executor.submit(new Callable<Set<String>>() {
+                        @Override
+                        public Set<String> call() throws Exception {
+                            try {
+                                return retriever.retrieveSameURIs(uri);
+                            } finally {
+                                permits.release();
+                            }
+                        }
+                    }));
+                } catch (RejectedExecutionException e) {
+                    LOGGER.error("The shared executor has been shut down. "
+                            + "Returning the links of the URIs that have been submitted so far.");
+                    break;
+                }
+            }
+            Set<String> result;
+            for (Entry<String, Future<Set<String>>> future : futures.entrySet()) {
+                try {
+                    result = future.getValue().get();
+                    if (result != null) {
+                        results.put(future.getKey(), result);
+                    }
+                } catch (ExecutionException e) {
+                    LOGGER.error("Exception while retrieving the sameAs links of \"" + future.getKey()
+                            + "\". Ignoring this URI.", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            LOGGER.error("Interrupted while waiting for the sameAs links. Returning the links retrieved so far.", e);
+            Thread.currentThread().interrupt();
+        } finally {
+            for (Future<Set<String>> future : futures.values()) {
+                future.cancel(true);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Adds the sameAs links of the URIs of every given set to this set. The
+     * URIs are retrieved in rounds. In every round, the next URI of every set
+     * that is neither retrieved nor covered is determined and all these URIs
+     * are retrieved together using
+     * {@link SameAsRetriever#retrieveSameURIs(Collection)}. Thus, a URI that
+     * occurs in several sets is retrieved only once and URIs that are already
+     * part of a set returned for another URI are skipped since their sameAs
+     * links are already known.
+     */
+    public static void addSameURIs(SameAsRetriever retriever, Collection<? extends Set<String>> uriSets) {
+        // mapping of the retrieved and the covered URIs to their sameAs links
+        Map<String, Set<String>> knownLinks = new HashMap<String, Set<String>>();
+        Set<String> retrievedUris = new HashSet<String>();
+        Set<String> allUris = new HashSet<String>();
+        Set<String> requests = new LinkedHashSet<String>();
+        int requested = 0, found = 0;
+        do {
+            requests.clear();
+            for (Set<String> uris : uriSets) {
+                for (String uri : uris) {
+                    if (!knownLinks.containsKey(uri) && !retrievedUris.contains(uri)) {
+                        requests.add(uri);
+                        break;
+                    }
+                }
+            }
+            if (!requests.isEmpty()) {
+                Map<String, Set<String>> results = retriever.retrieveSameURIs(requests);
+                requested += requests.size();
+                found += results.size();
+                retrievedUris.addAll(requests);
+                for (Entry<String, Set<String>> result : results.entrySet()) {
+                    for (String uri : result.getValue()) {
+                        if (!knownLinks.containsKey(uri)) {
+                            knownLinks.put(uri, result.getValue());
+                        }
+                    }
+                    knownLinks.put(result.getKey(), result.getValue());
+                }
+            }
+        } while (!requests.isEmpty());
+        Set<String> temp = new HashSet<String>();
+        Set<String> links;
+        for (Set<String> uris : uriSets) {
+            allUris.addAll(uris);
+            for (String uri : uris) {
+                links = knownLinks.get(uri);
+                if (links != null) {
+                    temp.addAll(links);
+                }
+            }
+            uris.addAll(temp);
+            temp.clear();
+        }
+        int skipped = allUris.size() - requested;
+        requestedUris.addAndGet(requested);
+        foundUris.addAndGet(found);
+        notFoundUris.addAndGet(requested - found);
+        skippedUris.addAndGet(skipped);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Retrieved {} URIs ({} found, {} not found, {} skipped).",
+                    new Object[] { requested, found, requested - found, skipped });
+        }
+    }
+
+    /**
+     * Adds the sameAs links of the given URIs to the given set. Every URI is
+     * retrieved only once. URIs that are already part of a set returned for a
+     * previous URI are skipped since their sameAs links are already known.
+     * 
+     * @see #addSameURIs(SameAsRetriever, Collection)
+     */
+    public static void addSameURIs(SameAsRetriever retriever, Set<String> uris) {
+        if (uris.isEmpty()) {
+            return;
+        }
+        addSameURIs(retriever, Collections.singletonList(uris));
+    }
+
+    /**
+     * @return the number of URIs that have been retrieved by
+     *         {@link #addSameURIs(SameAsRetriever, Collection)}
+     */
+    public static long getNumberOfRequestedUris() {
+        return requestedUris.get();
+    }
+
+    /**
+     * @return the number of retrieved URIs for which sameAs links have been
+     *         found
+     */
+    public static long getNumberOfFoundUris() {
+        return foundUris.get();
+    }
+
+    /**
+     * @return the number of retrieved URIs for which no sameAs links have been
+     *         found
+     */
+    public static long getNumberOfNotFoundUris() {
+        return notFoundUris.get();
+    }
+
+    /**
+     * @return the number of URIs that haven't been retrieved since they were
+     *         already part of the sameAs links of another URI
+     */
+    public static long getNumberOfSkippedUris() {
+        return skippedUris.get();
+    }
+
+    private static Set<String> createUniqueUris(Collection<String> uris) {
+        if (uris instanceof Set) {
+            return (Set<String>) uris;
+        }
+        return new LinkedHashSet<String>(uris);
+    }
+
+    /**
+     * Marks the threads of the shared executor.
+     */
+    private static class RetrievalThread extends Thread {
+
+        public RetrievalThread(Runnable runnable, String name) {
+            super(runnable, name);
+        }
+    }
+
+    private static class RetrievalThreadFactory implements ThreadFactory {
+
+        private AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new RetrievalThread(runnable, "sameAs-retrieval-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
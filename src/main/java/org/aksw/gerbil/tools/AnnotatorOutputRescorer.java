@@ -0,0 +1,232 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.tools;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.aksw.gerbil.annotator.AnnotatorConfiguration;
+import org.aksw.gerbil.annotator.StoredOutputAnnotatorConfiguration;
+import org.aksw.gerbil.database.ExperimentDAO;
+import org.aksw.gerbil.dataset.DatasetConfiguration;
+import org.aksw.gerbil.datatypes.ExperimentTaskConfiguration;
+import org.aksw.gerbil.datatypes.ExperimentType;
+import org.aksw.gerbil.evaluate.EvaluatorFactory;
+import org.aksw.gerbil.execute.AnnotatorOutputWriter;
+import org.aksw.gerbil.execute.ExperimentTaskScheduler;
+import org.aksw.gerbil.execute.RescoringExperimentTask;
+import org.aksw.gerbil.matching.Matching;
+import org.aksw.gerbil.semantic.sameas.SameAsRetriever;
+import org.aksw.gerbil.semantic.sameas.SameAsRetrieverUtils;
+import org.aksw.gerbil.utils.IDCreator;
+import org.aksw.gerbil.web.config.AnnotatorsConfig;
+import org.aksw.gerbil.web.config.DatabaseConfig;
+import org.aksw.gerbil.web.config.DatasetsConfig;
+import org.aksw.gerbil.web.config.RootConfig;
+import org.aksw.simba.topicmodeling.concurrent.join.SimpleTaskJoin;
+import org.aksw.simba.topicmodeling.concurrent.overseers.Overseer;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Re-scores the annotator outputs that have been stored by the
+ * {@link AnnotatorOutputWriter} without contacting any annotator. For every
+ * combination of a known annotator, dataset, experiment type and matching,
+ * the tool checks whether an output file exists. The found files are evaluated
+ * against the (cached) gold standard by an {@link ExperimentTaskScheduler} and
+ * the results are stored as tasks of a new experiment. Usage:
+ * 
+ * <pre>
+ * AnnotatorOutputRescorer &lt;output directory&gt; [&lt;number of threads&gt;]
+ * </pre>
+ * 
+ * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
+ *
+ */
+public class AnnotatorOutputRescorer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AnnotatorOutputRescorer.class);
+
+    private static final int DEFAULT_NUMBER_OF_THREADS = 4;
+
+    public static void main(String[] args) {
+        if ((args.length < 1) || (args.length > 2)) {
+            LOGGER.error(
+                    "Wrong number of arguments. Usage: AnnotatorOutputRescorer <output directory> [<number of threads>]");
+            return;
+        }
+        File outputDirectory = new File(args[0]);
+        if (!outputDirectory.isDirectory()) {
+            LOGGER.error("The output directory \"" + outputDirectory.getAbsolutePath() + "\" does not exist.");
+            return;
+        }
+        int numberOfThreads = DEFAULT_NUMBER_OF_THREADS;
+        if (args.length > 1) {
+            try {
+                numberOfThreads = Integer.parseInt(args[1]);
+            } catch (NumberFormatException e) {
+                LOGGER.error("Couldn't parse the number of threads \"" + args[1] + "\".");
+                return;
+            }
+        }
+
+        DatabaseConfig databaseConfig = new DatabaseConfig();
+        ExperimentDAO experimentDAO = databaseConfig.experimentDAO();
+        ExperimentTaskScheduler overseer = null;
+        SameAsRetriever sameAsRetriever = null;
+        try {
+            String id = experimentDAO.getHighestExperimentId();
+            if (id != null) {
+                IDCreator.getInstance().setLastCreatedID(id);
+            }
+            sameAsRetriever = RootConfig.createSameAsRetriever();
+            AnnotatorOutputRescorer rescorer = new AnnotatorOutputRescorer(experimentDAO, sameAsRetriever,
+                    RootConfig.createEvaluatorFactory(RootConfig.createSubClassInferencer()),
+                    new AnnotatorOutputWriter(outputDirectory.getAbsolutePath()));
+            List<ExperimentTaskConfiguration> configs = rescorer.searchStoredOutputs(
+                    AnnotatorsConfig.annotators().getConfigurations(), DatasetsConfig.datasets().getConfigurations());
+            if (configs.isEmpty()) {
+                LOGGER.warn("Couldn't find any stored annotator output in \"" + outputDirectory.getAbsolutePath()
+                        + "\".");
+                return;
+            }
+            String experimentId = IDCreator.getInstance().createID();
+            LOGGER.info("Re-scoring " + configs.size() + " stored annotator outputs as experiment \"" + experimentId
+                    + "\"...");
+            overseer = new ExperimentTaskScheduler(numberOfThreads, numberOfThreads, 0);
+            rescorer.rescore(configs, experimentId, overseer);
+            LOGGER.info("Finished re-scoring of experiment \"" + experimentId + "\".");
+        } catch (InterruptedException e) {
+            LOGGER.error("Interrupted while waiting for the re-scoring tasks.", e);
+        } finally {
+            if (overseer != null) {
+                overseer.shutdown();
+            }
+            // flushes and closes the stores used for caching the sameAs links
+            if (sameAsRetriever instanceof Closeable) {
+                IOUtils.closeQuietly((Closeable) sameAsRetriever);
+            }
+            SameAsRetrieverUtils.shutdown();
+            // closes the DAO and the connection pool
+            databaseConfig.destroy();
+        }
+    }
+
+    private ExperimentDAO experimentDAO;
+    private SameAsRetriever globalRetriever;
+    private EvaluatorFactory evFactory;
+    private AnnotatorOutputWriter outputWriter;
+
+    public AnnotatorOutputRescorer(ExperimentDAO experimentDAO, SameAsRetriever globalRetriever,
+            EvaluatorFactory evFactory, AnnotatorOutputWriter outputWriter) {
+        this.experimentDAO = experimentDAO;
+        this.globalRetriever = globalRetriever;
+        this.evFactory = evFactory;
+        this.outputWriter = outputWriter;
+    }
+
+    /**
+     * Searches the stored outputs of the given annotators for the given
+     * datasets. For every existing output file, a task configuration is
+     * returned in which the annotator is replaced by a
+     * {@link StoredOutputAnnotatorConfiguration} having the name of the
+     * original annotator.
+     * 
+     * @param annotators
+     *            the annotators whose outputs should be searched
+     * @param datasets
+     *            the datasets for which the outputs should be searched
+     * @return the configurations of the experiment tasks that can be
+     *         re-scored
+     */
+    public List<ExperimentTaskConfiguration> searchStoredOutputs(List<AnnotatorConfiguration> annotators,
+            List<DatasetConfiguration> datasets) {
+        List<ExperimentTaskConfiguration> configs = new ArrayList<ExperimentTaskConfiguration>();
+        // an annotator or dataset might be listed several times
+        Set<File> foundFiles = new HashSet<File>();
+        ExperimentTaskConfiguration config;
+        File outputFile;
+        for (AnnotatorConfiguration annotator : annotators) {
+            for (DatasetConfiguration dataset : datasets) {
+                for (ExperimentType type : ExperimentType.values()) {
+                    if (annotator.isApplicableForExperiment(type) && dataset.isApplicableForExperiment(type)) {
+                        for (Matching matching : new Matching[] { Matching.WEAK_ANNOTATION_MATCH,
+                                getStrongMatching(type) }) {
+                            config = new ExperimentTaskConfiguration(annotator, dataset, type, matching);
+                            outputFile = outputWriter.generateOutputFile(config);
+                            if (outputFile.exists() && foundFiles.add(outputFile)) {
+                                configs.add(new ExperimentTaskConfiguration(
+                                        new StoredOutputAnnotatorConfiguration(annotator.getName(), outputFile, type),
+                                        dataset, type, matching));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return configs;
+    }
+
+    /**
+     * The output files of the {@link AnnotatorOutputWriter} only distinguish
+     * between weak and strong matchings. This method returns the strong
+     * matching that is used for the given experiment type.
+     */
+    protected static Matching getStrongMatching(ExperimentType type) {
+        if (type == ExperimentType.C2KB) {
+            return Matching.STRONG_ENTITY_MATCH;
+        } else {
+            return Matching.STRONG_ANNOTATION_MATCH;
+        }
+    }
+
+    /**
+     * Creates a task of the experiment with the given id for every given
+     * configuration and lets the given overseer evaluate the stored annotator
+     * outputs. The method returns after all tasks of the overseer are
+     * finished.
+     * 
+     * @param configs
+     *            configurations created by
+     *            {@link #searchStoredOutputs(List, List)}
+     * @param experimentId
+     *            the id of the experiment the results should be stored for
+     * @param overseer
+     *            the overseer executing the tasks, e.g., an
+     *            {@link ExperimentTaskScheduler}
+     * @throws InterruptedException
+     *             if the thread is interrupted while waiting for the tasks
+     */
+    public void rescore(List<ExperimentTaskConfiguration> configs, String experimentId, Overseer overseer)
+            throws InterruptedException {
+        int taskId;
+        RescoringExperimentTask task;
+        for (ExperimentTaskConfiguration config : configs) {
+            taskId = experimentDAO.createTask(config.annotatorConfig.getName(), config.datasetConfig.getName(),
+                    config.type.name(), config.matching.name(), experimentId);
+            task = new RescoringExperimentTask(taskId, experimentDAO, globalRetriever, evFactory, config);
+            task.setExperimentId(experimentId);
+            overseer.startTask(task);
+        }
+        new SimpleTaskJoin().joinWithTasks(overseer);
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.tools;
+
+import java.io.File;
+
+import org.aksw.gerbil.semantic.sameas.FileBasedCachingSameAsRetriever;
+import org.aksw.gerbil.semantic.sameas.MappedFileCachingSameAsRetriever;
+import org.aksw.gerbil.semantic.sameas.MappedFileSameAsStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Migrates a sameAs cache file of the {@link FileBasedCachingSameAsRetriever}
+ * into a {@link MappedFileSameAsStore}. Usage:
+ * 
+ * <pre>
+ * SameAsCacheMigrator &lt;old cache file&gt; &lt;new store file&gt;
+ * </pre>
+ * 
+ * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
+ *
+ */
+public class SameAsCacheMigrator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SameAsCacheMigrator.class);
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            LOGGER.error("Wrong number of arguments. Usage: SameAsCacheMigrator <old cache file> <new store file>");
+            return;
+        }
+        File cacheFile = new File(args[0]);
+        File storeFile = new File(args[1]);
+        if (storeFile.exists()) {
+            LOGGER.error("The store file \"" + storeFile + "\" already exists. Aborting.");
+            return;
+        }
+        if (MappedFileCachingSameAsRetriever.migrateCacheFile(cacheFile, storeFile)) {
+            LOGGER.info("Finished migration.");
+        } else {
+            LOGGER.error("Migration failed.");
+        }
+    }
+}
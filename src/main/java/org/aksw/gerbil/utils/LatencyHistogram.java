@@ -0,0 +1,156 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.utils;
+
+import java.util.Arrays;
+
+/**
+ * A simple histogram for latencies (or other non-negative long values) with a
+ * fixed memory footprint. Similar to the HDR histogram, the values are sorted
+ * into logarithmic buckets each of which is split into
+ * {@value #SUB_BUCKET_COUNT} linear sub buckets. Values smaller than
+ * {@value #SUB_BUCKET_COUNT} are counted exactly while larger values are
+ * counted with a relative error that is smaller than
+ * 1/{@value #SUB_BUCKET_COUNT}. Recording a value is O(1) and does not create
+ * any objects.
+ * 
+ * <p>
+ * Note that this class is not thread safe. If it is shared among several
+ * threads, the access has to be synchronized.
+ * </p>
+ * 
+ * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
+ * 
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    public static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    /**
+     * Values larger than 2^62 are counted in the last bucket.
+     */
+    private static final int MAX_VALUE_BITS = 62;
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT
+            + ((MAX_VALUE_BITS - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT);
+
+    protected long counts[] = new long[BUCKET_COUNT];
+    protected long totalCount = 0;
+    protected long maxValue = 0;
+
+    /**
+     * Records the given value. Negative values are counted as 0.
+     * 
+     * @param value
+     *            the value that should be recorded
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        ++counts[getBucketIndex(value)];
+        ++totalCount;
+        if (value > maxValue) {
+            maxValue = value;
+        }
+    }
+
+    /**
+     * Returns the value below or equal to which the given percentage of all
+     * recorded values can be found. The returned value is the highest value
+     * that is counted in the same bucket or the maximum of all recorded values
+     * if the percentile falls into the bucket of the maximum.
+     * 
+     * @param percentile
+     *            the percentile in the range [0, 100]
+     * @return the value at the given percentile or 0 if no values have been
+     *         recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        if (percentile > 100) {
+            percentile = 100;
+        }
+        long countAtPercentile = (long) Math.ceil((percentile / 100.0) * totalCount);
+        if (countAtPercentile < 1) {
+            countAtPercentile = 1;
+        }
+        long count = 0;
+        for (int i = 0; i < counts.length; ++i) {
+            count += counts[i];
+            if (count >= countAtPercentile) {
+                // the bucket containing the maximum can be answered exactly
+                return (count == totalCount) ? maxValue : getHighestValueOfBucket(i);
+            }
+        }
+        return maxValue;
+    }
+
+    /**
+     * Adds all values recorded by the given histogram to this histogram.
+     * 
+     * @param other
+     *            the histogram whose values should be added
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; ++i) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        if (other.maxValue > maxValue) {
+            maxValue = other.maxValue;
+        }
+    }
+
+    public long getMaxValue() {
+        return maxValue;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        maxValue = 0;
+    }
+
+    protected static int getBucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent >= MAX_VALUE_BITS) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        // the sub bucket is in [SUB_BUCKET_COUNT, 2*SUB_BUCKET_COUNT)
+        int subBucket = (int) (value >>> shift);
+        return (shift * SUB_BUCKET_COUNT) + subBucket;
+    }
+
+    protected static long getHighestValueOfBucket(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+        long subBucket = SUB_BUCKET_COUNT + ((index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT);
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -24,6 +24,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.aksw.gerbil.annotator.AnnotatorConfiguration;
 import org.aksw.gerbil.database.ExperimentDAO;
@@ -70,6 +71,12 @@ public class ExperimentOverviewController {
 	@Qualifier("datasets")
 	private AdapterList<DatasetConfiguration> datasets;
 
+	/**
+	 * The last generated overviews. An overview is reused as long as the DAO
+	 * returns the same list of latest results.
+	 */
+	private Map<String, Overview> overviews = new ConcurrentHashMap<String, Overview>();
+
 	@RequestMapping("/experimentoverview")
 	public @ResponseBody String experimentoverview(@RequestParam(value = "experimentType") String experimentType,
 			@RequestParam(value = "matching") String matchingString) {
@@ -78,16 +85,24 @@ public class ExperimentOverviewController {
 		Matching matching = MainController.getMatching(matchingString);
 		ExperimentType eType = ExperimentType.valueOf(experimentType);
 
+		List<ExperimentTaskResult> expResults = dao.getLatestResultsOfExperiments(eType.name(), matching.name());
+		String key = eType.name() + '\n' + matching.name();
+		Overview overview = overviews.get(key);
+		if ((overview != null) && (overview.expResults == expResults)) {
+			return overview.json;
+		}
+
 		String annotatorNames[] = loadAnnotators(eType);
 		String datasetNames[] = loadDatasets(eType);
 
-		double results[][] = loadLatestResults(eType, matching, annotatorNames, datasetNames);
+		double results[][] = loadLatestResults(expResults, annotatorNames, datasetNames);
 		double correlations[][] = calculateCorrelations(results, datasetNames);
-		return generateJson(results, correlations, annotatorNames, datasetNames);
-
+		String json = generateJson(results, correlations, annotatorNames, datasetNames);
+		overviews.put(key, new Overview(expResults, json));
+		return json;
 	}
 
-	private double[][] loadLatestResults(ExperimentType experimentType, Matching matching, String[] annotatorNames,
+	private double[][] loadLatestResults(List<ExperimentTaskResult> expResults, String[] annotatorNames,
 			String[] datasetNames) {
 		Map<String, Integer> annotator2Index = new HashMap<String, Integer>();
 		for (int i = 0; i < annotatorNames.length; ++i) {
@@ -98,8 +113,6 @@ public class ExperimentOverviewController {
 			dataset2Index.put(datasetNames[i], i);
 		}
 
-		List<ExperimentTaskResult> expResults = dao.getLatestResultsOfExperiments(experimentType.name(),
-				matching.name());
 		double results[][] = new double[annotatorNames.length][datasetNames.length];
 		for (int i = 0; i < results.length; ++i) {
 			Arrays.fill(results[i], NOT_AVAILABLE_SENTINAL);
@@ -255,4 +268,18 @@ public class ExperimentOverviewController {
 		dataBuilder.append("\"]]");
 		return dataBuilder.toString();
 	}
+
+	/**
+	 * The JSON representation of an overview together with the list of results
+	 * it has been generated from.
+	 */
+	private static class Overview {
+		private List<ExperimentTaskResult> expResults;
+		private String json;
+
+		public Overview(List<ExperimentTaskResult> expResults, String json) {
+			this.expResults = expResults;
+			this.json = json;
+		}
+	}
 }
@@ -17,12 +17,16 @@
 package org.aksw.gerbil.web;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 
+import org.aksw.gerbil.metrics.MetricsRegistry;
 import org.aksw.simba.topicmodeling.concurrent.overseers.Overseer;
 import org.aksw.simba.topicmodeling.concurrent.tasks.TaskState;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.ResponseBody;
 
 @Controller
@@ -65,4 +69,31 @@ public class StateReportingController {
         }
         return resultBuilder.toString();
     }
+
+    /**
+     * Returns the metrics of the execution engine in the Prometheus text
+     * format.
+     */
+    @RequestMapping(value = "/metrics", method = RequestMethod.GET,
+            produces = "text/plain; version=0.0.4; charset=utf-8")
+    public @ResponseBody
+    String metrics() {
+        return MetricsRegistry.getInstance().toPrometheusText();
+    }
+
+    /**
+     * Returns the metrics of the execution engine as flat JSON object. Values
+     * that are not available are returned as null.
+     */
+    @RequestMapping(value = "/metrics/json", method = RequestMethod.GET)
+    public @ResponseBody
+    Map<String, Double> metricsAsJson() {
+        Map<String, Double> values = MetricsRegistry.getInstance().getValues();
+        for (Entry<String, Double> entry : values.entrySet()) {
+            if (entry.getValue().isNaN()) {
+                entry.setValue(null);
+            }
+        }
+        return values;
+    }
 }
@@ -16,40 +16,126 @@
  */
 package org.aksw.gerbil.web.config;
 
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
 import org.aksw.gerbil.database.ExperimentDAO;
+import org.aksw.gerbil.metrics.Gauge;
+import org.aksw.gerbil.metrics.MetricsRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
 
+import com.mchange.v2.c3p0.PooledDataSource;
+
 /**
  * This {@link Configuration} creates the {@link ExperimentDAO} bean by loading the XML config from the class path.
+ * The context of the XML config is kept open until this configuration is destroyed since it contains the pool of
+ * database connections used by the {@link ExperimentDAO}.
  * 
  * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
  * @author Bernd Eickmann
  * 
  */
 @Configuration
-public class DatabaseConfig extends WebMvcConfigurerAdapter {
+public class DatabaseConfig extends WebMvcConfigurerAdapter implements DisposableBean {
 
     private static final transient Logger LOGGER = LoggerFactory.getLogger(DatabaseConfig.class);
 
+    private ClassPathXmlApplicationContext databaseContext;
+
     /**
      * This {@link Configuration} creates the {@link ExperimentDAO} bean by loading the XML config from the class path.
-     * After that, the bean is initialized using the {@link ExperimentDAO#initialize()} method.
+     * After that, the bean is initialized using the {@link ExperimentDAO#initialize()} method. Note that the bean is
+     * closed together with the context of the XML config.
      * 
      * @return the database bean
      */
-    @Bean
+    @Bean(destroyMethod = "")
     public ExperimentDAO experimentDAO() {
         LOGGER.debug("Setting up database.");
-        ClassPathXmlApplicationContext context = new ClassPathXmlApplicationContext(
-                "/spring/database/database-context.xml");
-        ExperimentDAO database = context.getBean(ExperimentDAO.class);
+        ExperimentDAO database = getDatabaseContext().getBean(ExperimentDAO.class);
         database.initialize();
-        context.close();
         return database;
     }
+
+    /**
+     * Returns the data source used by the {@link ExperimentDAO}, e.g., to get the statistics of its connection pool.
+     * 
+     * @return the data source of the database
+     */
+    @Bean(destroyMethod = "")
+    public DataSource databaseDataSource() {
+        DataSource dataSource = getDatabaseContext().getBean("databaseDataSource", DataSource.class);
+        if (dataSource instanceof PooledDataSource) {
+            registerPoolMetrics((PooledDataSource) dataSource, MetricsRegistry.getInstance());
+        }
+        return dataSource;
+    }
+
+    /**
+     * Registers gauges for the usage of the given connection pool. Note that c3p0 additionally registers its own JMX
+     * MBeans for the pool.
+     */
+    protected static void registerPoolMetrics(final PooledDataSource dataSource, MetricsRegistry registry) {
+        registry.register(new Gauge("gerbil_database_pool_busy_connections",
+                "Number of database connections that are in use.") {
+            @Override
+            public double getValue() {
+                try {
+                    return dataSource.getNumBusyConnectionsDefaultUser();
+                } catch (SQLException e) {
+                    LOGGER.warn("Couldn't get the number of busy connections from the pool.", e);
+                    return Double.NaN;
+                }
+            }
+        });
+        registry.register(new Gauge("gerbil_database_pool_idle_connections",
+                "Number of idle database connections.") {
+            @Override
+            public double getValue() {
+                try {
+                    return dataSource.getNumIdleConnectionsDefaultUser();
+                } catch (SQLException e) {
+                    LOGGER.warn("Couldn't get the number of idle connections from the pool.", e);
+                    return Double.NaN;
+                }
+            }
+        });
+        registry.register(new Gauge("gerbil_database_pool_waiting_threads",
+                "Number of threads that are waiting for a database connection.") {
+            @Override
+            public double getValue() {
+                try {
+                    return dataSource.getNumThreadsAwaitingCheckoutDefaultUser();
+                } catch (SQLException e) {
+                    LOGGER.warn("Couldn't get the number of threads waiting for a connection from the pool.", e);
+                    return Double.NaN;
+                }
+            }
+        });
+    }
+
+    private synchronized ClassPathXmlApplicationContext getDatabaseContext() {
+        if (databaseContext == null) {
+            databaseContext = new ClassPathXmlApplicationContext("/spring/database/database-context.xml");
+        }
+        return databaseContext;
+    }
+
+    /**
+     * Closes the context of the XML config, i.e., shuts the database down and closes the connection pool.
+     */
+    @Override
+    public synchronized void destroy() {
+        if (databaseContext != null) {
+            databaseContext.close();
+            databaseContext = null;
+        }
+    }
 }
@@ -19,26 +19,31 @@ package org.aksw.gerbil.web.config;
 import java.io.File;
 import java.io.IOException;
 
+import org.aksw.gerbil.annotator.decorator.ResponseCachingAnnotatorDecorator;
 import org.aksw.gerbil.config.GerbilConfiguration;
 import org.aksw.gerbil.evaluate.EvaluatorFactory;
 import org.aksw.gerbil.execute.AnnotatorOutputWriter;
+import org.aksw.gerbil.execute.ExperimentTaskScheduler;
+import org.aksw.gerbil.metrics.MetricsRegistry;
 import org.aksw.gerbil.semantic.sameas.ErrorFixingSameAsRetriever;
 import org.aksw.gerbil.semantic.sameas.FileBasedCachingSameAsRetriever;
 import org.aksw.gerbil.semantic.sameas.HTTPBasedSameAsRetriever;
 import org.aksw.gerbil.semantic.sameas.InMemoryCachingSameAsRetriever;
+import org.aksw.gerbil.semantic.sameas.MappedFileCachingSameAsRetriever;
 import org.aksw.gerbil.semantic.sameas.MultipleSameAsRetriever;
 import org.aksw.gerbil.semantic.sameas.SameAsRetriever;
+import org.aksw.gerbil.semantic.sameas.SameAsRetrieverUtils;
 import org.aksw.gerbil.semantic.subclass.ClassHierarchyLoader;
 import org.aksw.gerbil.semantic.subclass.SimpleSubClassInferencer;
 import org.aksw.gerbil.semantic.subclass.SubClassInferencer;
 import org.aksw.gerbil.utils.ConsoleLogger;
 import org.aksw.simba.topicmodeling.concurrent.overseers.pool.DefeatableOverseer;
-import org.aksw.simba.topicmodeling.concurrent.overseers.pool.ExecutorBasedOverseer;
 import org.aksw.simba.topicmodeling.concurrent.reporter.LogReporter;
 import org.aksw.simba.topicmodeling.concurrent.reporter.Reporter;
 import org.apache.commons.configuration.ConversionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
@@ -61,6 +66,8 @@ import com.hp.hpl.jena.rdf.model.ModelFactory;
  * <li>Replaces the streams used by <code>System.out</code> and
  * <code>System.err</code> by two {@link ConsoleLogger} objects. (This is a very
  * ugly workaround that should be fixed in the near future)</li>
+ * <li>Stops the threads that are shared by the sameAs retrievers when the
+ * context is closed</li>
  * </ul>
  * 
  * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
@@ -72,13 +79,12 @@ import com.hp.hpl.jena.rdf.model.ModelFactory;
 @Configuration
 @ComponentScan(basePackages = "org.aksw.gerbil.web.config")
 @PropertySource("gerbil.properties")
-public class RootConfig {
+public class RootConfig implements DisposableBean {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RootConfig.class);
 
-    private static final int DEFAULT_NUMBER_OF_WORKERS = 20;
-
     private static final String SAME_AS_CACHE_FILE_KEY = "org.aksw.gerbil.semantic.sameas.CachingSameAsRetriever.cacheFile";
+    private static final String SAME_AS_STORE_FILE_KEY = "org.aksw.gerbil.semantic.sameas.MappedFileCachingSameAsRetriever.storeFile";
     private static final String SAME_AS_IN_MEMORY_CACHE_SIZE_KEY = "org.aksw.gerbil.semantic.sameas.InMemoryCachingSameAsRetriever.cacheSize";
 
     private static final String ANNOTATOR_OUTPUT_WRITER_USAGE_KEY = "org.aksw.gerbil.execute.AnnotatorOutputWriter.printAnnotatorResults";
@@ -103,7 +109,8 @@ public class RootConfig {
     }
 
     public static @Bean DefeatableOverseer createOverseer() {
-        DefeatableOverseer overseer = new ExecutorBasedOverseer(DEFAULT_NUMBER_OF_WORKERS);
+        ExperimentTaskScheduler overseer = new ExperimentTaskScheduler();
+        overseer.registerMetrics(MetricsRegistry.getInstance());
         @SuppressWarnings("unused")
         Reporter reporter = new LogReporter(overseer);
         return overseer;
@@ -127,11 +134,29 @@ public class RootConfig {
         return new SimpleSubClassInferencer(classModel);
     }
 
+    /**
+     * Creates the sameAs retriever. Note that Spring calls the close() method
+     * of the created retriever (if it has one) while the context is shut
+     * down, i.e., stores used for caching the sameAs links are flushed and
+     * closed.
+     */
     public static @Bean SameAsRetriever createSameAsRetriever() {
         SameAsRetriever sameAsRetriever = new MultipleSameAsRetriever(new ErrorFixingSameAsRetriever(),
                 new HTTPBasedSameAsRetriever());
         SameAsRetriever decoratedRetriever = null;
-        if (GerbilConfiguration.getInstance().containsKey(SAME_AS_CACHE_FILE_KEY)) {
+        if (GerbilConfiguration.getInstance().containsKey(SAME_AS_STORE_FILE_KEY)) {
+            File storeFile = new File(GerbilConfiguration.getInstance().getString(SAME_AS_STORE_FILE_KEY));
+            // if there is no store, yet, try to migrate the old cache file
+            if (!storeFile.exists() && GerbilConfiguration.getInstance().containsKey(SAME_AS_CACHE_FILE_KEY)) {
+                File cacheFile = new File(GerbilConfiguration.getInstance().getString(SAME_AS_CACHE_FILE_KEY));
+                if (cacheFile.exists()) {
+                    LOGGER.info("Migrating the sameAs cache file to the new sameAs store...");
+                    MappedFileCachingSameAsRetriever.migrateCacheFile(cacheFile, storeFile);
+                }
+            }
+            decoratedRetriever = MappedFileCachingSameAsRetriever.create(sameAsRetriever, false, storeFile);
+        }
+        if ((decoratedRetriever == null) && GerbilConfiguration.getInstance().containsKey(SAME_AS_CACHE_FILE_KEY)) {
             decoratedRetriever = FileBasedCachingSameAsRetriever.create(sameAsRetriever, false,
                     new File(GerbilConfiguration.getInstance().getString(SAME_AS_CACHE_FILE_KEY)));
         }
@@ -166,6 +191,12 @@ public class RootConfig {
         return new EvaluatorFactory(inferencer);
     }
 
+    @Override
+    public void destroy() {
+        SameAsRetrieverUtils.shutdown();
+        ResponseCachingAnnotatorDecorator.closeStore();
+    }
+
     public static AnnotatorOutputWriter getAnnotatorOutputWriter() {
         if (GerbilConfiguration.getInstance().containsKey(ANNOTATOR_OUTPUT_WRITER_USAGE_KEY)
                 && GerbilConfiguration.getInstance().getBoolean(ANNOTATOR_OUTPUT_WRITER_USAGE_KEY)
@@ -0,0 +1,156 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.annotator.decorator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.aksw.gerbil.annotator.decorator.AnnotatorResponseStore.ScoredTypedAnnotation;
+import org.aksw.gerbil.annotator.decorator.AnnotatorResponseStore.ScoredTypedSpanImpl;
+import org.aksw.gerbil.annotator.decorator.AnnotatorResponseStore.TypedAnnotation;
+import org.aksw.gerbil.transfer.nif.Marking;
+import org.aksw.gerbil.transfer.nif.ScoredMarking;
+import org.aksw.gerbil.transfer.nif.TypedMarking;
+import org.aksw.gerbil.transfer.nif.data.Annotation;
+import org.aksw.gerbil.transfer.nif.data.NamedEntity;
+import org.aksw.gerbil.transfer.nif.data.ScoredAnnotation;
+import org.aksw.gerbil.transfer.nif.data.ScoredNamedEntity;
+import org.aksw.gerbil.transfer.nif.data.ScoredSpanImpl;
+import org.aksw.gerbil.transfer.nif.data.ScoredTypedNamedEntity;
+import org.aksw.gerbil.transfer.nif.data.SpanImpl;
+import org.aksw.gerbil.transfer.nif.data.TypedNamedEntity;
+import org.aksw.gerbil.transfer.nif.data.TypedSpanImpl;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Stores a single marking of every combination of span, meaning, types and
+ * confidence that the {@link AnnotatorResponseStore} supports and checks
+ * that it is restored with the same class and the same values.
+ * 
+ * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
+ *
+ */
+@RunWith(Parameterized.class)
+public class AnnotatorResponseStoreTest {
+
+    private static final Set<String> URIS = new HashSet<String>(
+            Arrays.asList("http://example.org/1", "http://example.org/2"));
+    private static final Set<String> TYPES = new HashSet<String>(
+            Arrays.asList("http://example.org/A", "http://example.org/B"));
+
+    @Parameters
+    public static Collection<Object[]> data() {
+        List<Object[]> testConfigs = new ArrayList<Object[]>();
+        // span
+        testConfigs.add(new Object[] { new SpanImpl(1, 2) });
+        testConfigs.add(new Object[] { new ScoredSpanImpl(1, 2, 0.1) });
+        // typed span
+        testConfigs.add(new Object[] { new TypedSpanImpl(1, 2, TYPES) });
+        testConfigs.add(new Object[] { new ScoredTypedSpanImpl(1, 2, TYPES, 0.2) });
+        // meaning
+        testConfigs.add(new Object[] { new Annotation(URIS) });
+        testConfigs.add(new Object[] { new ScoredAnnotation(URIS, 0.3) });
+        // typed meaning
+        testConfigs.add(new Object[] { new TypedAnnotation(URIS, TYPES) });
+        testConfigs.add(new Object[] { new ScoredTypedAnnotation(URIS, TYPES, 0.4) });
+        // meaning span
+        testConfigs.add(new Object[] { new NamedEntity(1, 2, URIS) });
+        testConfigs.add(new Object[] { new ScoredNamedEntity(1, 2, URIS, 0.5) });
+        // typed meaning span
+        testConfigs.add(new Object[] { new TypedNamedEntity(1, 2, URIS, TYPES) });
+        testConfigs.add(new Object[] { new ScoredTypedNamedEntity(1, 2, URIS, TYPES, 0.6) });
+        return testConfigs;
+    }
+
+    private Marking marking;
+
+    public AnnotatorResponseStoreTest(Marking marking) {
+        this.marking = marking;
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        File storeFile = File.createTempFile("response_test_", ".store");
+        storeFile.deleteOnExit();
+        AnnotatorResponseStore store = AnnotatorResponseStore.open(storeFile);
+        store.put("marking", Arrays.asList(marking));
+        store.close();
+
+        store = AnnotatorResponseStore.open(storeFile);
+        List<Marking> response = store.get("marking");
+        store.close();
+        Assert.assertEquals(1, response.size());
+        Marking restored = response.get(0);
+        Assert.assertEquals(marking.getClass(), restored.getClass());
+        Assert.assertEquals(marking, restored);
+        if (marking instanceof TypedMarking) {
+            Assert.assertEquals(TYPES, ((TypedMarking) restored).getTypes());
+        }
+        if (marking instanceof ScoredMarking) {
+            Assert.assertEquals(((ScoredMarking) marking).getConfidence(),
+                    ((ScoredMarking) restored).getConfidence(), 0);
+        }
+    }
+
+    @Test
+    public void testCorruptedRecord() throws IOException {
+        File storeFile = File.createTempFile("response_test_", ".store");
+        storeFile.deleteOnExit();
+        AnnotatorResponseStore store = AnnotatorResponseStore.open(storeFile);
+        store.put("first", Arrays.asList(marking));
+        store.close();
+        long validLength = storeFile.length();
+
+        // append a complete record containing a marking with unknown flags,
+        // followed by a valid record
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        AnnotatorResponseStore.writeMarkings(Arrays.asList(marking), new DataOutputStream(response));
+        RandomAccessFile file = new RandomAccessFile(storeFile, "rw");
+        file.seek(validLength);
+        file.writeUTF("corrupted");
+        file.writeInt(5);
+        file.writeInt(1);
+        file.writeByte(0x40);
+        file.writeUTF("second");
+        file.writeInt(response.size());
+        file.write(response.toByteArray());
+        file.close();
+
+        store = AnnotatorResponseStore.open(storeFile);
+        Assert.assertEquals(1, store.size());
+        Assert.assertEquals(Arrays.asList(marking), store.get("first"));
+        Assert.assertNull(store.get("second"));
+        Assert.assertEquals(validLength, storeFile.length());
+        // the store can be used after removing the corrupted record
+        store.put("second", Arrays.asList(marking));
+        Assert.assertEquals(Arrays.asList(marking), store.get("second"));
+        store.close();
+    }
+}
@@ -0,0 +1,179 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.annotator.decorator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.aksw.gerbil.annotator.A2KBAnnotator;
+import org.aksw.gerbil.annotator.TestA2KBAnnotator;
+import org.aksw.gerbil.datatypes.ErrorTypes;
+import org.aksw.gerbil.datatypes.ExperimentType;
+import org.aksw.gerbil.exceptions.GerbilException;
+import org.aksw.gerbil.transfer.nif.Document;
+import org.aksw.gerbil.transfer.nif.Marking;
+import org.aksw.gerbil.transfer.nif.MeaningSpan;
+import org.aksw.gerbil.transfer.nif.data.Annotation;
+import org.aksw.gerbil.transfer.nif.data.DocumentImpl;
+import org.aksw.gerbil.transfer.nif.data.NamedEntity;
+import org.aksw.gerbil.transfer.nif.data.ScoredAnnotation;
+import org.aksw.gerbil.transfer.nif.data.ScoredNamedEntity;
+import org.aksw.gerbil.transfer.nif.data.ScoredSpanImpl;
+import org.aksw.gerbil.transfer.nif.data.ScoredTypedNamedEntity;
+import org.aksw.gerbil.transfer.nif.data.SpanImpl;
+import org.aksw.gerbil.transfer.nif.data.TypedNamedEntity;
+import org.aksw.gerbil.transfer.nif.data.TypedSpanImpl;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ResponseCachingAnnotatorDecoratorTest {
+
+    private static final Document DOCUMENT = new DocumentImpl("Berlin is the capital of Germany.",
+            "http://example.org/doc1",
+            Arrays.asList((Marking) new NamedEntity(0, 6, "http://dbpedia.org/resource/Berlin"),
+                    (Marking) new ScoredNamedEntity(25, 7, "http://dbpedia.org/resource/Germany", 0.5),
+                    (Marking) new ScoredTypedNamedEntity(14, 7, "http://dbpedia.org/resource/Capital",
+                            new HashSet<String>(Arrays.asList("http://example.org/A", "http://example.org/B")),
+                            0.25)));
+
+    @Test
+    public void testStore() throws IOException {
+        List<Marking> markings = Arrays.asList((Marking) new SpanImpl(0, 6), (Marking) new ScoredSpanImpl(1, 2, 0.1),
+                (Marking) new TypedSpanImpl(2, 3, new HashSet<String>(Arrays.asList("http://example.org/A"))),
+                (Marking) new Annotation("http://example.org/1"),
+                (Marking) new ScoredAnnotation("http://example.org/2", 0.2),
+                (Marking) new NamedEntity(3, 4, "http://example.org/3"),
+                (Marking) new ScoredNamedEntity(4, 5, "http://example.org/4", 0.4),
+                (Marking) new TypedNamedEntity(5, 6, "http://example.org/5",
+                        new HashSet<String>(Arrays.asList("http://example.org/B", "http://example.org/C"))),
+                (Marking) new ScoredTypedNamedEntity(6, 7, "http://example.org/6",
+                        new HashSet<String>(Arrays.asList("http://example.org/D")), 0.6));
+        File storeFile = File.createTempFile("response_test_", ".store");
+        storeFile.deleteOnExit();
+        AnnotatorResponseStore store = AnnotatorResponseStore.open(storeFile);
+        store.put("all", markings);
+        store.put("empty", new ArrayList<Marking>(0));
+        Assert.assertEquals(markings, store.get("all"));
+        Assert.assertEquals(new ArrayList<Marking>(0), store.get("empty"));
+        Assert.assertNull(store.get("unknown"));
+        // storing a response for a known key neither changes the response nor
+        // the file
+        long length = storeFile.length();
+        store.put("all", new ArrayList<Marking>(0));
+        Assert.assertEquals(markings, store.get("all"));
+        Assert.assertEquals(2, store.size());
+        Assert.assertEquals(length, storeFile.length());
+        store.close();
+
+        // append an incomplete record
+        RandomAccessFile file = new RandomAccessFile(storeFile, "rw");
+        file.seek(length);
+        file.writeUTF("incomplete");
+        file.writeInt(100);
+        file.close();
+
+        store = AnnotatorResponseStore.open(storeFile);
+        Assert.assertEquals(2, store.size());
+        Assert.assertEquals(markings, store.get("all"));
+        Assert.assertEquals(length, storeFile.length());
+        store.close();
+    }
+
+    @Test
+    public void testDecorator() throws IOException, GerbilException {
+        File storeFile = File.createTempFile("response_test_", ".store");
+        storeFile.deleteOnExit();
+        AnnotatorResponseStore store = AnnotatorResponseStore.open(storeFile);
+        CountingA2KBAnnotator annotator = new CountingA2KBAnnotator(Arrays.asList(DOCUMENT));
+        Document request = new DocumentImpl(DOCUMENT.getText(), DOCUMENT.getDocumentURI());
+
+        ResponseCachingAnnotatorDecorator decorator = ResponseCachingAnnotatorDecorator
+                .createDecorator(ExperimentType.A2KB, annotator, "v1", store, false);
+        List<MeaningSpan> expected = DOCUMENT.getMarkings(MeaningSpan.class);
+        Assert.assertEquals(expected, performA2KB(decorator, request));
+        Assert.assertEquals(expected, performA2KB(decorator, request));
+        // only the first call has to be sent to the annotator
+        Assert.assertEquals(1, annotator.calls);
+        Assert.assertEquals(1, decorator.getStoredResponsesCount());
+        store.close();
+
+        // replay the stored response
+        store = AnnotatorResponseStore.open(storeFile);
+        decorator = ResponseCachingAnnotatorDecorator.createDecorator(ExperimentType.A2KB, annotator, "v1", store,
+                true);
+        Assert.assertEquals(expected, performA2KB(decorator, request));
+        Assert.assertEquals(1, annotator.calls);
+        Assert.assertEquals(1, decorator.getStoredResponsesCount());
+        // a different document has no stored response
+        try {
+            performA2KB(decorator, new DocumentImpl("Another text.", DOCUMENT.getDocumentURI()));
+            Assert.fail("Expected an exception for a document without stored response.");
+        } catch (GerbilException e) {
+            Assert.assertEquals(ErrorTypes.NO_STORED_ANNOTATOR_RESPONSE, e.getErrorType());
+        }
+        Assert.assertEquals(1, annotator.calls);
+        store.close();
+    }
+
+    @Test
+    public void testAnnotatorVersion() throws IOException, GerbilException {
+        File storeFile = File.createTempFile("response_test_", ".store");
+        storeFile.deleteOnExit();
+        AnnotatorResponseStore store = AnnotatorResponseStore.open(storeFile);
+        CountingA2KBAnnotator annotator = new CountingA2KBAnnotator(Arrays.asList(DOCUMENT));
+        Document request = new DocumentImpl(DOCUMENT.getText(), DOCUMENT.getDocumentURI());
+
+        ResponseCachingAnnotatorDecorator decorator = ResponseCachingAnnotatorDecorator
+                .createDecorator(ExperimentType.A2KB, annotator, "v1", store, false);
+        performA2KB(decorator, request);
+        Assert.assertEquals(1, annotator.calls);
+        // a different version of the annotator with the same name has to be
+        // called
+        decorator = ResponseCachingAnnotatorDecorator.createDecorator(ExperimentType.A2KB, annotator, "v2", store,
+                false);
+        performA2KB(decorator, request);
+        Assert.assertEquals(2, annotator.calls);
+        Assert.assertEquals(0, decorator.getStoredResponsesCount());
+        Assert.assertEquals(2, store.size());
+        store.close();
+    }
+
+    private List<MeaningSpan> performA2KB(ResponseCachingAnnotatorDecorator decorator, Document document)
+            throws GerbilException {
+        return ((A2KBAnnotator) decorator).performA2KBTask(document);
+    }
+
+    private static class CountingA2KBAnnotator extends TestA2KBAnnotator {
+
+        private int calls = 0;
+
+        public CountingA2KBAnnotator(List<Document> instances) {
+            super(instances);
+        }
+
+        @Override
+        public List<MeaningSpan> performA2KBTask(Document document) {
+            ++calls;
+            return super.performA2KBTask(document);
+        }
+    }
+}
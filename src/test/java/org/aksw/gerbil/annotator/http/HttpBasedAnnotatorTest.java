@@ -107,7 +107,6 @@ public class HttpBasedAnnotatorTest implements TaskObserver {
                             "http://www.ontologydesignpatterns.org/data/oke-challenge/task-1/Columbia_University"))) };
 
     private static final long MAX_WAITING_TIME = 2000;
-    private static final long CHECK_INERVAL = 1000;
     private static final long SLOW_SERVER_WAITING_TIME = 10000;
     private static final long TEST_WAITING_TIME = 3 * DOCUMENTS.length * MAX_WAITING_TIME;
     private static final String EXPERIMENT_ID = "HttpBasedAnnotatorTest";
@@ -127,7 +126,6 @@ public class HttpBasedAnnotatorTest implements TaskObserver {
     @Before
     public void startServer() throws IOException {
         HttpManagement.getInstance().setMaxWaitingTime(MAX_WAITING_TIME);
-        HttpManagement.getInstance().setCheckInterval(CHECK_INERVAL);
         fastServerContainer = new WaitingDocumentReturningServerMock(DOCUMENTS, 0);
         fastServer = new ContainerServer(fastServerContainer);
         fastConnection = new SocketConnection(fastServer);
@@ -0,0 +1,158 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.database;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AbstractExperimentDAOTest {
+
+    private static final int NUMBER_OF_THREADS = 4;
+
+    @Test
+    public void testSameConfigurationIsConnectedToRunningTask() throws Exception {
+        final InMemoryDAO dao = new InMemoryDAO();
+        List<Callable<Integer>> submissions = new ArrayList<Callable<Integer>>();
+        for (int i = 0; i < NUMBER_OF_THREADS; ++i) {
+            final String experimentId = "id-" + i;
+            submissions.add(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    return dao.connectCachedResultOrCreateTask("annotator1", "dataset1", "type1", "matching1",
+                            experimentId);
+                }
+            });
+        }
+        List<Integer> taskIds = submit(submissions);
+        int createdTasks = 0;
+        for (Integer taskId : taskIds) {
+            if (taskId != ExperimentDAO.CACHED_EXPERIMENT_TASK_CAN_BE_USED) {
+                ++createdTasks;
+            }
+        }
+        // only one task should have been created, all other experiments
+        // should have been connected to this (still running) task
+        Assert.assertEquals(1, createdTasks);
+        Assert.assertEquals(1, dao.taskStates.size());
+        Assert.assertEquals(NUMBER_OF_THREADS - 1, dao.connectedExperiments.get());
+        Assert.assertEquals(1, dao.maxParallelLookups.get());
+    }
+
+    @Test
+    public void testDifferentConfigurationsAreNotBlocked() throws Exception {
+        final InMemoryDAO dao = new InMemoryDAO();
+        List<Callable<Integer>> submissions = new ArrayList<Callable<Integer>>();
+        for (int i = 0; i < NUMBER_OF_THREADS; ++i) {
+            final String annotatorName = "annotator" + i;
+            final String experimentId = "id-" + i;
+            submissions.add(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    return dao.connectCachedResultOrCreateTask(annotatorName, "dataset1", "type1", "matching1",
+                            experimentId);
+                }
+            });
+        }
+        submit(submissions);
+        Assert.assertEquals(NUMBER_OF_THREADS, dao.taskStates.size());
+        Assert.assertEquals(0, dao.connectedExperiments.get());
+        Assert.assertTrue("Lookups of different configurations have been serialized.",
+                dao.maxParallelLookups.get() > 1);
+    }
+
+    private static List<Integer> submit(List<Callable<Integer>> submissions) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(submissions.size());
+        try {
+            List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+            for (Callable<Integer> submission : submissions) {
+                futures.add(executor.submit(submission));
+            }
+            List<Integer> results = new ArrayList<Integer>();
+            for (Future<Integer> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Simple DAO keeping the tasks in memory. The lookup of cached tasks takes
+     * some time to simulate the round-trip to the database.
+     */
+    private static class InMemoryDAO extends SimpleLoggingDAO4Debugging {
+
+        private Map<String, Integer> taskIds = new HashMap<String, Integer>();
+        private Map<Integer, Integer> taskStates = new HashMap<Integer, Integer>();
+        private AtomicInteger parallelLookups = new AtomicInteger();
+        private AtomicInteger maxParallelLookups = new AtomicInteger();
+        private AtomicInteger connectedExperiments = new AtomicInteger();
+        private AtomicInteger nextTaskId = new AtomicInteger(1);
+
+        public InMemoryDAO() {
+            setResultDurability(Long.MAX_VALUE);
+        }
+
+        @Override
+        public int createTask(String annotatorName, String datasetName, String experimentType, String matching,
+                String experimentId) {
+            int taskId = nextTaskId.getAndIncrement();
+            synchronized (taskIds) {
+                taskIds.put(annotatorName + datasetName + experimentType + matching, taskId);
+                taskStates.put(taskId, TASK_STARTED_BUT_NOT_FINISHED_YET);
+            }
+            return taskId;
+        }
+
+        @Override
+        protected int getCachedExperimentTaskId(String annotatorName, String datasetName, String experimentType,
+                String matching) {
+            int current = parallelLookups.incrementAndGet();
+            int max = maxParallelLookups.get();
+            while ((current > max) && !maxParallelLookups.compareAndSet(max, current)) {
+                max = maxParallelLookups.get();
+            }
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            } finally {
+                parallelLookups.decrementAndGet();
+            }
+            synchronized (taskIds) {
+                Integer taskId = taskIds.get(annotatorName + datasetName + experimentType + matching);
+                return (taskId == null) ? EXPERIMENT_TASK_NOT_CACHED : taskId;
+            }
+        }
+
+        @Override
+        protected void connectExistingTaskWithExperiment(int experimentTaskId, String experimentId) {
+            connectedExperiments.incrementAndGet();
+        }
+    }
+}
@@ -153,6 +153,113 @@ public class ExperimentDAOImplJUnitTest {
                 results.size());
     }
 
+    @Test
+    public void testStoringResultWithSubTasks() {
+        final String EXPERIMENT_ID = "id-1000";
+        Random random = new Random();
+        ExperimentTaskResult result = new ExperimentTaskResult("annotator1", "dataset1", ExperimentType.A2KB,
+                Matching.WEAK_ANNOTATION_MATCH, new double[] { random.nextFloat(), random.nextFloat(),
+                        random.nextFloat(), random.nextFloat(), random.nextFloat(), random.nextFloat() },
+                ExperimentDAO.TASK_FINISHED, 0);
+        result.addAdditionalResult(6, 0.5);
+        result.addAdditionalResult(7, 42);
+        ExperimentTaskResult subTask = new ExperimentTaskResult("annotator1", "dataset1", ExperimentType.ERec,
+                Matching.WEAK_ANNOTATION_MATCH, new double[] { random.nextFloat(), random.nextFloat(),
+                        random.nextFloat(), random.nextFloat(), random.nextFloat(), random.nextFloat() },
+                ExperimentDAO.TASK_FINISHED, 0);
+        subTask.addAdditionalResult(6, 0.25);
+        result.addSubTask(subTask);
+
+        int taskId = this.dao.createTask(result.getAnnotator(), result.getDataset(), result.getType().name(),
+                result.getMatching().name(), EXPERIMENT_ID);
+        this.dao.setExperimentTaskResult(taskId, result);
+
+        List<ExperimentTaskResult> retrievedResults = dao.getResultsOfExperiment(EXPERIMENT_ID);
+        Assert.assertEquals(1, retrievedResults.size());
+        ExperimentTaskResult retrievedResult = retrievedResults.get(0);
+        Assert.assertEquals(result, retrievedResult);
+        Assert.assertEquals(0.5, retrievedResult.getAdditionalResult(6), 0.000001);
+        Assert.assertEquals(42, retrievedResult.getAdditionalResult(7), 0.000001);
+        Assert.assertEquals(1, retrievedResult.getNumberOfSubTasks());
+        ExperimentTaskResult retrievedSubTask = retrievedResult.getSubTasks().get(0);
+        Assert.assertEquals(subTask, retrievedSubTask);
+        // the sub task must not get the additional results of its parent
+        Assert.assertEquals(0.25, retrievedSubTask.getAdditionalResult(6), 0.000001);
+        Assert.assertFalse(retrievedSubTask.hasAdditionalResult(7));
+    }
+
+    @Test
+    public void testLeaderboardUpdates() {
+        String type = ExperimentType.OKE_Task2.name();
+        String matching = Matching.STRONG_ENTITY_MATCH.name();
+        int taskId = this.dao.createTask("annotator3", "dataset3", type, matching, "id-2000");
+        this.dao.setExperimentState(taskId, ErrorTypes.UNEXPECTED_EXCEPTION.getErrorCode());
+        // load the leaderboard
+        List<ExperimentTaskResult> results = this.dao.getLatestResultsOfExperiments(type, matching);
+        Assert.assertEquals(1, results.size());
+        Assert.assertEquals(ErrorTypes.UNEXPECTED_EXCEPTION.getErrorCode(), results.get(0).state);
+        // the list should be reused as long as nothing changes
+        Assert.assertSame(results, this.dao.getLatestResultsOfExperiments(type, matching));
+
+        // a newer result has to replace the error
+        ExperimentTaskResult result = new ExperimentTaskResult("annotator3", "dataset3", ExperimentType.OKE_Task2,
+                Matching.STRONG_ENTITY_MATCH, new double[] { 0.1, 0.2, 0.3, 0.4, 0.5, 0.6 },
+                ExperimentDAO.TASK_FINISHED, 0, System.currentTimeMillis() + 1000);
+        taskId = this.dao.createTask("annotator3", "dataset3", type, matching, "id-2001");
+        this.dao.setExperimentTaskResult(taskId, result);
+        results = this.dao.getLatestResultsOfExperiments(type, matching);
+        Assert.assertEquals(1, results.size());
+        Assert.assertEquals(result, results.get(0));
+
+        // a second combination has to be added
+        taskId = this.dao.createTask("annotator4", "dataset3", type, matching, "id-2002");
+        this.dao.setExperimentState(taskId, ExperimentDAO.TASK_FINISHED);
+        results = this.dao.getLatestResultsOfExperiments(type, matching);
+        Assert.assertEquals(2, results.size());
+    }
+
+    @Test
+    public void testLeaderboardWithAdditionalResults() {
+        String type = ExperimentType.ETyping.name();
+        String matching = Matching.STRONG_ENTITY_MATCH.name();
+        long lastChanged = System.currentTimeMillis();
+        ExperimentTaskResult oldResult = new ExperimentTaskResult("annotator5", "dataset5", ExperimentType.ETyping,
+                Matching.STRONG_ENTITY_MATCH, new double[] { 0.1, 0.2, 0.3, 0.4, 0.5, 0.6 },
+                ExperimentDAO.TASK_FINISHED, 0, lastChanged);
+        oldResult.addAdditionalResult(6, 0.5);
+        oldResult.addAdditionalResult(7, 42);
+        int taskId = this.dao.createTask("annotator5", "dataset5", type, matching, "id-3000");
+        this.dao.setExperimentTaskResult(taskId, oldResult);
+        ExperimentTaskResult newResult = new ExperimentTaskResult("annotator5", "dataset5", ExperimentType.ETyping,
+                Matching.STRONG_ENTITY_MATCH, new double[] { 0.6, 0.5, 0.4, 0.3, 0.2, 0.1 },
+                ExperimentDAO.TASK_FINISHED, 0, lastChanged + 1000);
+        newResult.addAdditionalResult(6, 0.25);
+        taskId = this.dao.createTask("annotator5", "dataset5", type, matching, "id-3001");
+        this.dao.setExperimentTaskResult(taskId, newResult);
+        ExperimentTaskResult otherResult = new ExperimentTaskResult("annotator6", "dataset5", ExperimentType.ETyping,
+                Matching.STRONG_ENTITY_MATCH, new double[] { 0.1, 0.2, 0.3, 0.4, 0.5, 0.6 },
+                ExperimentDAO.TASK_FINISHED, 0, lastChanged);
+        otherResult.addAdditionalResult(7, 21);
+        taskId = this.dao.createTask("annotator6", "dataset5", type, matching, "id-3002");
+        this.dao.setExperimentTaskResult(taskId, otherResult);
+
+        // load the leaderboard from the database
+        List<ExperimentTaskResult> results = this.dao.getLatestResultsOfExperiments(type, matching);
+        Assert.assertEquals(2, results.size());
+        for (ExperimentTaskResult result : results) {
+            if ("annotator5".equals(result.annotator)) {
+                Assert.assertEquals(newResult, result);
+                // the additional results of the older task must not be added
+                Assert.assertEquals(0.25, result.getAdditionalResult(6), 0.000001);
+                Assert.assertFalse(result.hasAdditionalResult(7));
+            } else {
+                Assert.assertEquals(otherResult, result);
+                Assert.assertFalse(result.hasAdditionalResult(6));
+                Assert.assertEquals(21, result.getAdditionalResult(7), 0.000001);
+            }
+        }
+    }
+
     @Test
     public void testSetRunningExperimentsToError() {
         int firstTaskId = this.dao.createTask("annotator1", "dataset1", "type1", "matching1", "id-23456");
@@ -0,0 +1,61 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.database;
+
+import java.util.List;
+
+import org.aksw.gerbil.datatypes.ExperimentTaskResult;
+import org.aksw.gerbil.datatypes.ExperimentType;
+import org.aksw.gerbil.matching.Matching;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LeaderboardTest {
+
+    @Test
+    public void testUpdate() {
+        Leaderboard leaderboard = new Leaderboard();
+        ExperimentTaskResult result1 = createResult("annotator1", "dataset1", 1000);
+        ExperimentTaskResult result2 = createResult("annotator1", "dataset2", 1000);
+        Assert.assertTrue(leaderboard.update(result1));
+        Assert.assertTrue(leaderboard.update(result2));
+        List<ExperimentTaskResult> results = leaderboard.getResults();
+        Assert.assertEquals(2, results.size());
+        Assert.assertTrue(results.contains(result1));
+        Assert.assertTrue(results.contains(result2));
+        // the list should be reused as long as nothing changes
+        Assert.assertSame(results, leaderboard.getResults());
+
+        // an older result must not replace the current one
+        Assert.assertFalse(leaderboard.update(createResult("annotator1", "dataset1", 500)));
+        Assert.assertSame(results, leaderboard.getResults());
+
+        // a newer result replaces the current one
+        ExperimentTaskResult result3 = createResult("annotator1", "dataset1", 2000);
+        Assert.assertTrue(leaderboard.update(result3));
+        results = leaderboard.getResults();
+        Assert.assertEquals(2, results.size());
+        Assert.assertTrue(results.contains(result2));
+        Assert.assertTrue(results.contains(result3));
+        Assert.assertFalse(results.contains(result1));
+    }
+
+    private static ExperimentTaskResult createResult(String annotator, String dataset, long timestamp) {
+        return new ExperimentTaskResult(annotator, dataset, ExperimentType.A2KB, Matching.WEAK_ANNOTATION_MATCH,
+                new double[6], ExperimentDAO.TASK_FINISHED, 0, timestamp);
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.dataset.impl.aida;
+
+import java.util.List;
+
+import org.aksw.gerbil.exceptions.GerbilException;
+import org.aksw.gerbil.transfer.nif.Document;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks that the splits of the AIDA/CoNLL dataset that are read using the
+ * document index contain the same documents as the complete dataset.
+ */
+public class AIDACoNLLDatasetTest {
+
+    private static final String TEST_FILE = "src/test/resources/datasets/aida/test.tsv";
+    private static final String DATASET_NAME = "testDataset";
+    private static final int NUMBER_OF_DOCUMENTS = 4;
+
+    @Test
+    public void testSplits() throws GerbilException {
+        List<Document> completeDocuments = loadDataset(new AIDACoNLLDataset(TEST_FILE));
+        Assert.assertEquals(NUMBER_OF_DOCUMENTS, completeDocuments.size());
+        Assert.assertEquals("EU rejects German call.", completeDocuments.get(0).getText());
+        Assert.assertEquals("The European Commission said.", completeDocuments.get(3).getText());
+
+        for (int first = 1; first <= NUMBER_OF_DOCUMENTS; ++first) {
+            for (int last = first; last <= NUMBER_OF_DOCUMENTS; ++last) {
+                List<Document> documents = loadDataset(new AIDACoNLLDataset(TEST_FILE, first, last));
+                Assert.assertEquals(completeDocuments.subList(first - 1, last), documents);
+            }
+        }
+    }
+
+    @Test
+    public void testSplitOutOfRange() {
+        try {
+            loadDataset(new AIDACoNLLDataset(TEST_FILE, 2, NUMBER_OF_DOCUMENTS + 1));
+            Assert.fail("Expected an exception for a split that is larger than the dataset.");
+        } catch (GerbilException e) {
+            // expected
+        }
+    }
+
+    private List<Document> loadDataset(AIDACoNLLDataset dataset) throws GerbilException {
+        dataset.setName(DATASET_NAME);
+        dataset.init();
+        return dataset.getInstances();
+    }
+}
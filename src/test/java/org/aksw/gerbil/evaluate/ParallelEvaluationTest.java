@@ -0,0 +1,97 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.evaluate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.aksw.gerbil.transfer.nif.Marking;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks that the {@link ParallelEvaluation} returns the results of parallel
+ * (and nested) steps in the same order as the sequential execution.
+ */
+public class ParallelEvaluationTest {
+
+    private static final int NUMBER_OF_STEPS = 100;
+
+    @Test
+    public void testInvokeAll() {
+        checkInvokeAll(new ParallelEvaluation(1));
+        checkInvokeAll(new ParallelEvaluation(4));
+    }
+
+    private void checkInvokeAll(final ParallelEvaluation parallelEvaluation) {
+        List<Callable<List<Integer>>> steps = new ArrayList<Callable<List<Integer>>>();
+        for (int i = 0; i < NUMBER_OF_STEPS; ++i) {
+            final int stepId = i;
+            steps.add(new Callable<List<Integer>>() {
+                @Override
+                public List<Integer> call() throws Exception {
+                    // nested steps
+                    List<Callable<Integer>> nestedSteps = new ArrayList<Callable<Integer>>();
+                    for (int j = 0; j < 10; ++j) {
+                        final int nestedStepId = j;
+                        nestedSteps.add(new Callable<Integer>() {
+                            @Override
+                            public Integer call() throws Exception {
+                                return (stepId * 10) + nestedStepId;
+                            }
+                        });
+                    }
+                    return parallelEvaluation.invokeAll(nestedSteps);
+                }
+            });
+        }
+        List<List<Integer>> results = parallelEvaluation.invokeAll(steps);
+        Assert.assertEquals(NUMBER_OF_STEPS, results.size());
+        int expected = 0;
+        for (List<Integer> nestedResults : results) {
+            for (Integer result : nestedResults) {
+                Assert.assertEquals(expected, result.intValue());
+                ++expected;
+            }
+        }
+    }
+
+    @Test
+    public void testEvaluate() {
+        List<Evaluator<Marking>> evaluators = new ArrayList<Evaluator<Marking>>();
+        for (int i = 0; i < NUMBER_OF_STEPS; ++i) {
+            final int evaluatorId = i;
+            evaluators.add(new Evaluator<Marking>() {
+                @Override
+                public void evaluate(List<List<Marking>> annotatorResults, List<List<Marking>> goldStandard,
+                        EvaluationResultContainer results) {
+                    results.addResults(new IntEvaluationResult("a" + evaluatorId, evaluatorId),
+                            new IntEvaluationResult("b" + evaluatorId, evaluatorId));
+                }
+            });
+        }
+        EvaluationResultContainer expected = new EvaluationResultContainer();
+        new ParallelEvaluation(1).evaluate(evaluators, null, null, expected);
+        EvaluationResultContainer results = new EvaluationResultContainer();
+        new ParallelEvaluation(4).evaluate(evaluators, null, null, results);
+        Assert.assertEquals(2 * NUMBER_OF_STEPS, results.getResults().size());
+        for (int i = 0; i < expected.getResults().size(); ++i) {
+            Assert.assertEquals(expected.getResults().get(i).getName(), results.getResults().get(i).getName());
+        }
+    }
+}
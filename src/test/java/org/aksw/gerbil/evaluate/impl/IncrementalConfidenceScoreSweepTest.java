@@ -0,0 +1,156 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.evaluate.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import org.aksw.gerbil.evaluate.DoubleEvaluationResult;
+import org.aksw.gerbil.evaluate.EvaluationResult;
+import org.aksw.gerbil.evaluate.EvaluationResultContainer;
+import org.aksw.gerbil.evaluate.Evaluator;
+import org.aksw.gerbil.evaluate.MatchingsCountsBasedEvaluator;
+import org.aksw.gerbil.matching.impl.CompoundMatchingsCounter;
+import org.aksw.gerbil.matching.impl.MatchingsCounterImpl;
+import org.aksw.gerbil.matching.impl.MeaningMatchingsSearcher;
+import org.aksw.gerbil.matching.impl.WeakSpanMatchingsCounter;
+import org.aksw.gerbil.semantic.kb.SimpleWhiteListBasedUriKBClassifier;
+import org.aksw.gerbil.semantic.kb.UriKBClassifier;
+import org.aksw.gerbil.transfer.nif.data.NamedEntity;
+import org.aksw.gerbil.transfer.nif.data.ScoredNamedEntity;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Checks that the incremental sweep of the
+ * {@link ConfidenceScoreEvaluatorDecorator} leads to the same results as the
+ * evaluation of every single threshold from scratch.
+ */
+@RunWith(Parameterized.class)
+public class IncrementalConfidenceScoreSweepTest {
+
+    private static final UriKBClassifier CLASSIFIER = new SimpleWhiteListBasedUriKBClassifier("http://kb.org/");
+    private static final String URIS[] = new String[] { "http://kb.org/A", "http://kb.org/B", "http://kb.org/C",
+            "http://other.org/D" };
+
+    @Parameters
+    public static Collection<Object[]> data() {
+        List<Object[]> testConfigs = new ArrayList<Object[]>();
+        // seed, number of documents, markings per document, number of
+        // different scores
+        testConfigs.add(new Object[] { 1, 1, 5, 3 });
+        testConfigs.add(new Object[] { 2, 10, 10, 5 });
+        testConfigs.add(new Object[] { 3, 20, 30, 1000 });
+        testConfigs.add(new Object[] { 4, 5, 0, 10 });
+        return testConfigs;
+    }
+
+    private List<List<NamedEntity>> annotatorResults = new ArrayList<List<NamedEntity>>();
+    private List<List<NamedEntity>> goldStandard = new ArrayList<List<NamedEntity>>();
+
+    public IncrementalConfidenceScoreSweepTest(int seed, int numberOfDocuments, int markingsPerDocument,
+            int numberOfScores) {
+        Random random = new Random(seed);
+        List<NamedEntity> markings;
+        for (int i = 0; i < numberOfDocuments; ++i) {
+            markings = new ArrayList<NamedEntity>();
+            for (int j = 0; j < markingsPerDocument; ++j) {
+                markings.add(new NamedEntity(random.nextInt(200), 1 + random.nextInt(10),
+                        URIS[random.nextInt(URIS.length)]));
+            }
+            goldStandard.add(markings);
+            markings = new ArrayList<NamedEntity>();
+            for (int j = 0; j < markingsPerDocument; ++j) {
+                if (random.nextInt(10) == 0) {
+                    markings.add(new NamedEntity(random.nextInt(200), 1 + random.nextInt(10),
+                            URIS[random.nextInt(URIS.length)]));
+                } else {
+                    markings.add(new ScoredNamedEntity(random.nextInt(200), 1 + random.nextInt(10),
+                            URIS[random.nextInt(URIS.length)], random.nextInt(numberOfScores) / (double) numberOfScores));
+                }
+            }
+            annotatorResults.add(markings);
+        }
+    }
+
+    @Test
+    public void testFMeasureCalculator() {
+        compareResults(new FMeasureCalculator<NamedEntity>(new MatchingsCounterImpl<NamedEntity>(
+                new CompoundMatchingsCounter<NamedEntity>(new WeakSpanMatchingsCounter<NamedEntity>(),
+                        new MeaningMatchingsSearcher<NamedEntity>(CLASSIFIER)))));
+    }
+
+    @Test
+    public void testInKBClassBasedFMeasureCalculator() {
+        compareResults(new InKBClassBasedFMeasureCalculator<NamedEntity>(
+                new MeaningMatchingsSearcher<NamedEntity>(CLASSIFIER), CLASSIFIER));
+    }
+
+    @Test
+    public void testEveryThreshold() {
+        compareThresholds(new FMeasureCalculator<NamedEntity>(new MatchingsCounterImpl<NamedEntity>(
+                new CompoundMatchingsCounter<NamedEntity>(new WeakSpanMatchingsCounter<NamedEntity>(),
+                        new MeaningMatchingsSearcher<NamedEntity>(CLASSIFIER)))));
+        compareThresholds(new InKBClassBasedFMeasureCalculator<NamedEntity>(
+                new MeaningMatchingsSearcher<NamedEntity>(CLASSIFIER), CLASSIFIER));
+    }
+
+    /**
+     * Compares the results of the incremental sweep with the results of the
+     * evaluation from scratch for every single threshold.
+     */
+    private void compareThresholds(MatchingsCountsBasedEvaluator<NamedEntity> evaluator) {
+        ConfidenceScoreEvaluatorDecorator<NamedEntity> decorator = new ConfidenceScoreEvaluatorDecorator<NamedEntity>(
+                evaluator, FMeasureCalculator.MICRO_F1_SCORE_NAME, new DoubleResultComparator(), false);
+        double scores[] = decorator.getConfidenceScores(annotatorResults);
+        Arrays.sort(scores);
+        ConfidenceScoreEvaluatorDecorator.IncrementalSweep<NamedEntity> sweep = new ConfidenceScoreEvaluatorDecorator.IncrementalSweep<NamedEntity>(
+                evaluator, annotatorResults, goldStandard, scores);
+        for (int i = 0; i < scores.length; ++i) {
+            compareResults(decorator.evaluate(annotatorResults, goldStandard, new EvaluationResultContainer(),
+                    scores[i]), sweep.evaluate(i, new EvaluationResultContainer()));
+        }
+    }
+
+    private void compareResults(Evaluator<NamedEntity> evaluator) {
+        EvaluationResultContainer expectedResults = new EvaluationResultContainer();
+        new ConfidenceScoreEvaluatorDecorator<NamedEntity>(evaluator, FMeasureCalculator.MICRO_F1_SCORE_NAME,
+                new DoubleResultComparator(), false).evaluate(annotatorResults, goldStandard, expectedResults);
+        EvaluationResultContainer results = new EvaluationResultContainer();
+        new ConfidenceScoreEvaluatorDecorator<NamedEntity>(evaluator, FMeasureCalculator.MICRO_F1_SCORE_NAME,
+                new DoubleResultComparator(), true).evaluate(annotatorResults, goldStandard, results);
+        compareResults(expectedResults, results);
+    }
+
+    private void compareResults(EvaluationResultContainer expectedResults, EvaluationResultContainer results) {
+        Assert.assertEquals(expectedResults.getResults().size(), results.getResults().size());
+        EvaluationResult expected, result;
+        for (int i = 0; i < expectedResults.getResults().size(); ++i) {
+            expected = expectedResults.getResults().get(i);
+            result = results.getResults().get(i);
+            Assert.assertEquals(expected.getName(), result.getName());
+            Assert.assertEquals(((DoubleEvaluationResult) expected).getValueAsDouble(),
+                    ((DoubleEvaluationResult) result).getValueAsDouble(), 0);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.execute;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.aksw.gerbil.annotator.decorator.ErrorCountingAnnotatorDecoratorTest.SimpleTestDataset;
+import org.aksw.gerbil.dataset.AbstractDatasetConfiguration;
+import org.aksw.gerbil.dataset.Dataset;
+import org.aksw.gerbil.datatypes.ExperimentType;
+import org.aksw.gerbil.execute.DatasetCache.DatasetPreparation;
+import org.aksw.gerbil.transfer.nif.Document;
+import org.aksw.gerbil.transfer.nif.Marking;
+import org.aksw.gerbil.transfer.nif.data.NamedEntity;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DatasetCacheTest {
+
+    private static final int NUMBER_OF_TASKS = 10;
+    private static final long MAX_IDLE_TIME = 1000;
+
+    @Test
+    public void testSharedLoading() throws Exception {
+        final TestDatasetCache cache = new TestDatasetCache(10, MAX_IDLE_TIME);
+        final CountingDatasetConfig config = new CountingDatasetConfig("shared", true);
+        final CountingPreparation preparation = new CountingPreparation();
+        ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_TASKS);
+        List<Future<Dataset>> futures = new ArrayList<Future<Dataset>>();
+        for (int i = 0; i < NUMBER_OF_TASKS; ++i) {
+            futures.add(executor.submit(new Callable<Dataset>() {
+                @Override
+                public Dataset call() throws Exception {
+                    return cache.acquireDataset(config, ExperimentType.D2KB, preparation);
+                }
+            }));
+        }
+        List<Dataset> datasets = new ArrayList<Dataset>();
+        for (Future<Dataset> future : futures) {
+            datasets.add(future.get());
+        }
+        executor.shutdown();
+        Assert.assertEquals(1, config.loads.get());
+        Assert.assertEquals(1, preparation.preparations.get());
+        for (Dataset dataset : datasets) {
+            Assert.assertSame(datasets.get(0), dataset);
+        }
+        // the dataset has to be read-only
+        try {
+            datasets.get(0).getInstances().clear();
+            Assert.fail("The shared dataset could be modified.");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+
+        // a different experiment type leads to a different dataset
+        Dataset other = cache.acquireDataset(config, ExperimentType.A2KB, preparation);
+        Assert.assertNotSame(datasets.get(0), other);
+        Assert.assertEquals(2, config.loads.get());
+        cache.releaseDataset(other);
+
+        // the dataset is kept while it is referenced
+        cache.time += 10 * MAX_IDLE_TIME;
+        for (Dataset dataset : datasets) {
+            cache.releaseDataset(dataset);
+        }
+        Assert.assertEquals(1, cache.size());
+        // the unreferenced dataset is kept until the idle time is over
+        Assert.assertSame(datasets.get(0), cache.acquireDataset(config, ExperimentType.D2KB, preparation));
+        cache.releaseDataset(datasets.get(0));
+        Assert.assertEquals(2, config.loads.get());
+        cache.time += 2 * MAX_IDLE_TIME;
+        Assert.assertNotSame(datasets.get(0), cache.acquireDataset(config, ExperimentType.D2KB, preparation));
+        Assert.assertEquals(3, config.loads.get());
+    }
+
+    @Test
+    public void testReadOnlyDocuments() throws Exception {
+        TestDatasetCache cache = new TestDatasetCache(10, MAX_IDLE_TIME);
+        Dataset dataset = cache.acquireDataset(new CountingDatasetConfig("readOnly", true), ExperimentType.D2KB,
+                null);
+        Document document = dataset.getInstances().get(0);
+        Marking marking = new NamedEntity(0, 1, "http://example.org/entity");
+        try {
+            document.getMarkings().add(marking);
+            Assert.fail("The markings of a shared document could be modified.");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            document.getMarkings(Marking.class).add(marking);
+            Assert.fail("The markings of a shared document could be modified.");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            document.addMarking(marking);
+            Assert.fail("A marking could be added to a shared document.");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            document.setText("changed");
+            Assert.fail("The text of a shared document could be changed.");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        Assert.assertEquals(0, document.getMarkings().size());
+        cache.releaseDataset(dataset);
+    }
+
+    @Test
+    public void testMaxCachedDatasets() throws Exception {
+        TestDatasetCache cache = new TestDatasetCache(2, MAX_IDLE_TIME);
+        for (int i = 0; i < 5; ++i) {
+            cache.releaseDataset(cache.acquireDataset(new CountingDatasetConfig("dataset" + i, true),
+                    ExperimentType.D2KB, null));
+        }
+        Assert.assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testNotCachedDataset() throws Exception {
+        TestDatasetCache cache = new TestDatasetCache(10, MAX_IDLE_TIME);
+        CountingDatasetConfig config = new CountingDatasetConfig("notShared", false);
+        CountingPreparation preparation = new CountingPreparation();
+        Dataset dataset1 = cache.acquireDataset(config, ExperimentType.D2KB, preparation);
+        Dataset dataset2 = cache.acquireDataset(config, ExperimentType.D2KB, preparation);
+        Assert.assertNotSame(dataset1, dataset2);
+        Assert.assertEquals(2, config.loads.get());
+        Assert.assertEquals(2, preparation.preparations.get());
+        Assert.assertEquals(0, cache.size());
+        cache.releaseDataset(dataset1);
+        cache.releaseDataset(dataset2);
+    }
+
+    private static class TestDatasetCache extends DatasetCache {
+
+        private long time = 0;
+
+        public TestDatasetCache(int maxCachedDatasets, long maxIdleTime) {
+            super(maxCachedDatasets, maxIdleTime);
+        }
+
+        @Override
+        protected long currentTime() {
+            return time;
+        }
+    }
+
+    private static class CountingDatasetConfig extends AbstractDatasetConfiguration {
+
+        private AtomicInteger loads = new AtomicInteger();
+
+        public CountingDatasetConfig(String name, boolean couldBeCached) {
+            super(name, couldBeCached, ExperimentType.Sa2KB);
+        }
+
+        @Override
+        protected Dataset loadDataset() throws Exception {
+            loads.incrementAndGet();
+            // give the other threads the chance to request the same dataset
+            Thread.sleep(100);
+            return new SimpleTestDataset(10);
+        }
+    }
+
+    private static class CountingPreparation implements DatasetPreparation {
+
+        private AtomicInteger preparations = new AtomicInteger();
+
+        @Override
+        public void prepareDataset(Dataset dataset) {
+            preparations.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,298 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.execute;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.aksw.gerbil.annotator.AnnotatorConfiguration;
+import org.aksw.gerbil.annotator.AnnotatorConfigurationImpl;
+import org.aksw.gerbil.dataset.AbstractDatasetConfiguration;
+import org.aksw.gerbil.dataset.Dataset;
+import org.aksw.gerbil.dataset.DatasetConfiguration;
+import org.aksw.gerbil.datatypes.ExperimentTaskConfiguration;
+import org.aksw.gerbil.datatypes.ExperimentType;
+import org.aksw.gerbil.evaluate.EvaluationResultContainer;
+import org.aksw.gerbil.evaluate.Evaluator;
+import org.aksw.gerbil.exceptions.GerbilException;
+import org.aksw.gerbil.matching.Matching;
+import org.aksw.gerbil.transfer.nif.Marking;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ExperimentTaskSchedulerTest {
+
+    private static final long MAX_WAITING_TIME = 10000;
+
+    private static final AnnotatorConfiguration ANNOTATOR_A = new AnnotatorConfigurationImpl("A", false, null, null,
+            ExperimentType.A2KB);
+    private static final AnnotatorConfiguration ANNOTATOR_B = new AnnotatorConfigurationImpl("B", false, null, null,
+            ExperimentType.A2KB);
+    private static final DatasetConfiguration DATASET_1 = new TestDatasetConfig("dataset1");
+    private static final DatasetConfiguration DATASET_2 = new TestDatasetConfig("dataset2");
+
+    private List<String> startedTasks = new ArrayList<String>();
+
+    @Test
+    public void testAnnotatorLimit() throws InterruptedException {
+        ExperimentTaskScheduler scheduler = new ExperimentTaskScheduler(10, 1, 2);
+        CountDownLatch finished = new CountDownLatch(8);
+        AtomicInteger runningA = new AtomicInteger();
+        AtomicInteger maxRunningA = new AtomicInteger();
+        AtomicInteger runningB = new AtomicInteger();
+        AtomicInteger maxRunningB = new AtomicInteger();
+        for (int i = 0; i < 6; ++i) {
+            scheduler.startTask(new ConcurrencyMeasuringTask(i, ANNOTATOR_A, runningA, maxRunningA, finished));
+        }
+        for (int i = 6; i < 8; ++i) {
+            scheduler.startTask(new ConcurrencyMeasuringTask(i, ANNOTATOR_B, runningB, maxRunningB, finished));
+        }
+        Assert.assertTrue(finished.await(MAX_WAITING_TIME, TimeUnit.MILLISECONDS));
+        scheduler.shutdown();
+        Assert.assertEquals(2, maxRunningA.get());
+        Assert.assertEquals(2, maxRunningB.get());
+    }
+
+    @Test
+    public void testFairness() throws InterruptedException {
+        ExperimentTaskScheduler scheduler = new ExperimentTaskScheduler(1, 1, 0);
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(5);
+        scheduler.startTask(new RecordingTask("exp1-0", "exp1", ANNOTATOR_A, DATASET_1, blocker, finished));
+        for (int i = 1; i < 4; ++i) {
+            scheduler.startTask(new RecordingTask("exp1-" + i, "exp1", ANNOTATOR_A, DATASET_1, null, finished));
+        }
+        scheduler.startTask(new RecordingTask("exp2-0", "exp2", ANNOTATOR_B, DATASET_1, null, finished));
+        Assert.assertEquals(4, scheduler.getNumberOfQueuedTasks());
+        blocker.countDown();
+        Assert.assertTrue(finished.await(MAX_WAITING_TIME, TimeUnit.MILLISECONDS));
+        scheduler.shutdown();
+        synchronized (startedTasks) {
+            Assert.assertEquals(5, startedTasks.size());
+            Assert.assertEquals("exp1-0", startedTasks.get(0));
+            // the second experiment should not wait for all tasks of the first
+            Assert.assertEquals("exp2-0", startedTasks.get(1));
+        }
+    }
+
+    @Test
+    public void testCachedDatasetPreference() throws InterruptedException {
+        ExperimentTaskScheduler scheduler = new ExperimentTaskScheduler(1, 1, 0) {
+            @Override
+            protected boolean isDatasetCached(DatasetConfiguration datasetConfig, ExperimentType type) {
+                return datasetConfig == DATASET_2;
+            }
+        };
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(4);
+        scheduler.startTask(new RecordingTask("blocker", "exp1", ANNOTATOR_A, DATASET_1, blocker, finished));
+        scheduler.startTask(new RecordingTask("uncached1", "exp1", ANNOTATOR_A, DATASET_1, null, finished));
+        scheduler.startTask(new RecordingTask("cached", "exp1", ANNOTATOR_A, DATASET_2, null, finished));
+        scheduler.startTask(new RecordingTask("uncached2", "exp1", ANNOTATOR_A, DATASET_1, null, finished));
+        blocker.countDown();
+        Assert.assertTrue(finished.await(MAX_WAITING_TIME, TimeUnit.MILLISECONDS));
+        scheduler.shutdown();
+        synchronized (startedTasks) {
+            Assert.assertEquals(4, startedTasks.size());
+            Assert.assertEquals("blocker", startedTasks.get(0));
+            Assert.assertEquals("cached", startedTasks.get(1));
+            Assert.assertEquals("uncached1", startedTasks.get(2));
+            Assert.assertEquals("uncached2", startedTasks.get(3));
+        }
+    }
+
+    @Test
+    public void testEvaluationLimit() throws InterruptedException {
+        final int numberOfTasks = 4;
+        // all tasks run at the same time but only one of them is evaluated
+        ExperimentTaskScheduler scheduler = new ExperimentTaskScheduler(numberOfTasks, 1, 0);
+        CountDownLatch started = new CountDownLatch(numberOfTasks);
+        CountDownLatch finished = new CountDownLatch(numberOfTasks);
+        final AtomicInteger runningEvaluations = new AtomicInteger();
+        final AtomicInteger maxRunningEvaluations = new AtomicInteger();
+        Evaluator<Marking> evaluator = new Evaluator<Marking>() {
+            @Override
+            public void evaluate(List<List<Marking>> annotatorResults, List<List<Marking>> goldStandard,
+                    EvaluationResultContainer results) {
+                int current = runningEvaluations.incrementAndGet();
+                int max = maxRunningEvaluations.get();
+                while ((current > max) && !maxRunningEvaluations.compareAndSet(max, current)) {
+                    max = maxRunningEvaluations.get();
+                }
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                } finally {
+                    runningEvaluations.decrementAndGet();
+                }
+            }
+        };
+        for (int i = 0; i < numberOfTasks; ++i) {
+            scheduler.startTask(new EvaluatingTask(i, started, finished, evaluator));
+        }
+        Assert.assertTrue(finished.await(MAX_WAITING_TIME, TimeUnit.MILLISECONDS));
+        scheduler.shutdown();
+        Assert.assertEquals(1, maxRunningEvaluations.get());
+    }
+
+    @Test
+    public void testTaskWorkerIsFreedDuringEvaluation() throws InterruptedException {
+        ExperimentTaskScheduler scheduler = new ExperimentTaskScheduler(1, 1, 0);
+        final CountDownLatch evaluating = new CountDownLatch(1);
+        final CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch evaluated = new CountDownLatch(1);
+        Evaluator<Marking> evaluator = new Evaluator<Marking>() {
+            @Override
+            public void evaluate(List<List<Marking>> annotatorResults, List<List<Marking>> goldStandard,
+                    EvaluationResultContainer results) {
+                evaluating.countDown();
+                try {
+                    blocker.await();
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }
+        };
+        scheduler.startTask(new EvaluatingTask(0, null, evaluated, evaluator));
+        Assert.assertTrue(evaluating.await(MAX_WAITING_TIME, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(1, scheduler.getNumberOfEvaluatedTasks());
+        // the single task worker is free while the first task is evaluated
+        CountDownLatch finished = new CountDownLatch(1);
+        scheduler.startTask(new RecordingTask("second", "exp1", ANNOTATOR_B, DATASET_1, null, finished));
+        Assert.assertTrue(finished.await(MAX_WAITING_TIME, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(1, evaluated.getCount());
+        blocker.countDown();
+        Assert.assertTrue(evaluated.await(MAX_WAITING_TIME, TimeUnit.MILLISECONDS));
+        scheduler.shutdown();
+    }
+
+    private class RecordingTask extends ExperimentTask {
+
+        private String name;
+        private CountDownLatch blocker;
+        private CountDownLatch finished;
+
+        public RecordingTask(String name, String experimentId, AnnotatorConfiguration annotator,
+                DatasetConfiguration dataset, CountDownLatch blocker, CountDownLatch finished) {
+            super(0, null, null, null, new ExperimentTaskConfiguration(annotator, dataset, ExperimentType.A2KB,
+                    Matching.WEAK_ANNOTATION_MATCH));
+            this.name = name;
+            this.blocker = blocker;
+            this.finished = finished;
+            setExperimentId(experimentId);
+        }
+
+        @Override
+        public void run() {
+            synchronized (startedTasks) {
+                startedTasks.add(name);
+            }
+            try {
+                if (blocker != null) {
+                    blocker.await();
+                }
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            } finally {
+                finished.countDown();
+            }
+        }
+    }
+
+    private static class ConcurrencyMeasuringTask extends ExperimentTask {
+
+        private AtomicInteger running;
+        private AtomicInteger maxRunning;
+        private CountDownLatch finished;
+
+        public ConcurrencyMeasuringTask(int id, AnnotatorConfiguration annotator, AtomicInteger running,
+                AtomicInteger maxRunning, CountDownLatch finished) {
+            super(id, null, null, null, new ExperimentTaskConfiguration(annotator, DATASET_1, ExperimentType.A2KB,
+                    Matching.WEAK_ANNOTATION_MATCH));
+            this.running = running;
+            this.maxRunning = maxRunning;
+            this.finished = finished;
+        }
+
+        @Override
+        public void run() {
+            int current = running.incrementAndGet();
+            int max = maxRunning.get();
+            while ((current > max) && !maxRunning.compareAndSet(max, current)) {
+                max = maxRunning.get();
+            }
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            } finally {
+                running.decrementAndGet();
+                finished.countDown();
+            }
+        }
+    }
+
+    private static class EvaluatingTask extends ExperimentTask {
+
+        private CountDownLatch started;
+        private CountDownLatch finished;
+        private Evaluator<Marking> evaluator;
+
+        public EvaluatingTask(int id, CountDownLatch started, CountDownLatch finished, Evaluator<Marking> evaluator) {
+            super(id, null, null, null, new ExperimentTaskConfiguration(ANNOTATOR_A, DATASET_1, ExperimentType.A2KB,
+                    Matching.WEAK_ANNOTATION_MATCH));
+            this.started = started;
+            this.finished = finished;
+            this.evaluator = evaluator;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (started != null) {
+                    started.countDown();
+                    started.await();
+                }
+                List<Evaluator<? extends Marking>> evaluators = new ArrayList<Evaluator<? extends Marking>>();
+                evaluators.add(evaluator);
+                evaluate(evaluators, new ArrayList<List<Marking>>(), new ArrayList<List<Marking>>());
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            } catch (GerbilException e) {
+                e.printStackTrace();
+            } finally {
+                finished.countDown();
+            }
+        }
+    }
+
+    private static class TestDatasetConfig extends AbstractDatasetConfiguration {
+
+        public TestDatasetConfig(String name) {
+            super(name, true, ExperimentType.A2KB);
+        }
+
+        @Override
+        protected Dataset loadDataset() throws Exception {
+            return null;
+        }
+    }
+}
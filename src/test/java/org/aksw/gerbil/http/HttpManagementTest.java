@@ -0,0 +1,77 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.http;
+
+import org.aksw.gerbil.config.GerbilConfiguration;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HttpManagementTest {
+
+    private static final String LIMITED_HOST = "limited.example.org";
+    private static final String OTHER_HOST = "other.example.org";
+
+    private static final String KEYS[] = new String[] { HttpManagement.MAXIMUM_CONNECTIONS_KEY,
+            HttpManagement.MAXIMUM_CONNECTIONS_PER_ROUTE_KEY,
+            HttpManagement.MAXIMUM_CONNECTIONS_PER_ROUTE_KEY + "." + LIMITED_HOST };
+
+    @Test
+    public void testConnectionManagerConfiguration() {
+        // the configuration is shared with other tests, i.e., its previous
+        // values have to be restored
+        Object previousValues[] = new Object[KEYS.length];
+        for (int i = 0; i < KEYS.length; ++i) {
+            previousValues[i] = GerbilConfiguration.getInstance().getProperty(KEYS[i]);
+        }
+        GerbilConfiguration.getInstance().setProperty(HttpManagement.MAXIMUM_CONNECTIONS_KEY, 50);
+        GerbilConfiguration.getInstance().setProperty(HttpManagement.MAXIMUM_CONNECTIONS_PER_ROUTE_KEY, 10);
+        GerbilConfiguration.getInstance()
+                .setProperty(HttpManagement.MAXIMUM_CONNECTIONS_PER_ROUTE_KEY + "." + LIMITED_HOST, 3);
+        try {
+            PoolingHttpClientConnectionManager connectionManager = HttpManagement.createConnectionManager();
+            Assert.assertEquals(50, connectionManager.getMaxTotal());
+            Assert.assertEquals(10, connectionManager.getDefaultMaxPerRoute());
+            for (HttpRoute route : HttpManagement.getRoutes(LIMITED_HOST)) {
+                Assert.assertEquals(3, connectionManager.getMaxPerRoute(route));
+            }
+            for (HttpRoute route : HttpManagement.getRoutes(OTHER_HOST)) {
+                Assert.assertEquals(10, connectionManager.getMaxPerRoute(route));
+            }
+
+            HttpManagement management = new HttpManagement(new InterruptingObserver(1000), connectionManager,
+                    HttpManagement.DEFAULT_KEEP_ALIVE_TIME);
+            PoolStats stats = management.getPoolStats(LIMITED_HOST);
+            Assert.assertEquals(0, stats.getLeased());
+            Assert.assertEquals(0, stats.getPending());
+            Assert.assertEquals(0, stats.getAvailable());
+            // the HTTP and the HTTPS route
+            Assert.assertEquals(6, stats.getMax());
+            Assert.assertEquals(50, management.getPoolStats().getMax());
+        } finally {
+            for (int i = 0; i < KEYS.length; ++i) {
+                if (previousValues[i] == null) {
+                    GerbilConfiguration.getInstance().clearProperty(KEYS[i]);
+                } else {
+                    GerbilConfiguration.getInstance().setProperty(KEYS[i], previousValues[i]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.http;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HttpRequestGovernorTest {
+
+    private static final int MAX_CONCURRENT_REQUESTS = 2;
+    private static final int NUMBER_OF_REQUESTS = 10;
+    private static final long REQUEST_DURATION = 50;
+    private static final long INITIAL_BACKOFF_TIME = 100;
+    private static final long MAX_BACKOFF_TIME = 1000;
+
+    @Test
+    public void testConcurrencyLimit() throws Exception {
+        final HttpRequestGovernor governor = new HttpRequestGovernor("test", MAX_CONCURRENT_REQUESTS, 0,
+                INITIAL_BACKOFF_TIME, MAX_BACKOFF_TIME);
+        final AtomicInteger inFlight = new AtomicInteger(0);
+        final AtomicInteger maxInFlight = new AtomicInteger(0);
+        ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_REQUESTS);
+        List<Future<Object>> futures = new ArrayList<Future<Object>>();
+        for (int i = 0; i < NUMBER_OF_REQUESTS; ++i) {
+            futures.add(executor.submit(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    governor.acquire();
+                    int current = inFlight.incrementAndGet();
+                    int max = maxInFlight.get();
+                    while ((current > max) && !maxInFlight.compareAndSet(max, current)) {
+                        max = maxInFlight.get();
+                    }
+                    Thread.sleep(REQUEST_DURATION);
+                    inFlight.decrementAndGet();
+                    governor.release(200, -1);
+                    return null;
+                }
+            }));
+        }
+        for (Future<Object> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        Assert.assertEquals(MAX_CONCURRENT_REQUESTS, maxInFlight.get());
+        Assert.assertEquals(MAX_CONCURRENT_REQUESTS, governor.getAvailablePermits());
+    }
+
+    @Test
+    public void testRateLimit() throws Exception {
+        HttpRequestGovernor governor = new HttpRequestGovernor("test", 0, 20, INITIAL_BACKOFF_TIME,
+                MAX_BACKOFF_TIME);
+        long startTime = System.currentTimeMillis();
+        for (int i = 0; i < NUMBER_OF_REQUESTS; ++i) {
+            governor.acquire();
+            governor.release(200, -1);
+        }
+        // the first request is sent directly, the others have to wait 50ms
+        long duration = System.currentTimeMillis() - startTime;
+        Assert.assertTrue("Took only " + duration + "ms", duration >= 400);
+    }
+
+    @Test
+    public void testBackoff() throws Exception {
+        HttpRequestGovernor governor = new HttpRequestGovernor("test", 0, 0, INITIAL_BACKOFF_TIME,
+                MAX_BACKOFF_TIME);
+        governor.acquire();
+        long startTime = System.currentTimeMillis();
+        governor.release(HttpRequestGovernor.TOO_MANY_REQUESTS_STATUS_CODE, -1);
+        Assert.assertEquals(INITIAL_BACKOFF_TIME, governor.getBackoffTime());
+        governor.acquire();
+        long duration = System.currentTimeMillis() - startTime;
+        Assert.assertTrue("Waited only " + duration + "ms", duration >= INITIAL_BACKOFF_TIME);
+        // the backoff time is doubled
+        governor.release(HttpRequestGovernor.SERVICE_UNAVAILABLE_STATUS_CODE, -1);
+        Assert.assertEquals(2 * INITIAL_BACKOFF_TIME, governor.getBackoffTime());
+        governor.acquire();
+        // a successful request halves the backoff time
+        governor.release(200, -1);
+        Assert.assertEquals(INITIAL_BACKOFF_TIME, governor.getBackoffTime());
+        governor.acquire();
+        governor.release(200, -1);
+        Assert.assertEquals(0, governor.getBackoffTime());
+
+        // the Retry-After time of the server is used if it is longer
+        governor.acquire();
+        startTime = System.currentTimeMillis();
+        governor.release(HttpRequestGovernor.TOO_MANY_REQUESTS_STATUS_CODE, 3 * INITIAL_BACKOFF_TIME);
+        governor.acquire();
+        duration = System.currentTimeMillis() - startTime;
+        Assert.assertTrue("Waited only " + duration + "ms", duration >= (3 * INITIAL_BACKOFF_TIME));
+        governor.release(200, -1);
+    }
+}
@@ -0,0 +1,217 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.http;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class InterruptingObserverTest {
+
+    private static final long MAX_WAITING_TIME = 200;
+    private static final long SHORT_WAITING_TIME = 50;
+
+    @Test
+    public void testDeadlines() throws Exception {
+        ControlledClockObserver observer = new ControlledClockObserver(MAX_WAITING_TIME);
+        observer.setMaxWaitingTime("fast", SHORT_WAITING_TIME);
+
+        RecordingEmitter slowEmitter = new RecordingEmitter("slow");
+        RecordingEmitter fastEmitter = new RecordingEmitter("fast");
+        HttpUriRequest slowRequest = new HttpGet("http://localhost/slow");
+        HttpUriRequest fastRequest = new HttpGet("http://localhost/fast");
+        HttpUriRequest finishedRequest = new HttpGet("http://localhost/finished");
+
+        long startTime = 1000;
+        observer.now = startTime;
+        observer.reportStart(slowEmitter, slowRequest);
+        observer.reportStart(fastEmitter, fastRequest);
+        observer.reportStart(slowEmitter, finishedRequest);
+        Assert.assertEquals(3, observer.getNumberOfScheduledDeadlines());
+        // the deadline of a finished request is removed immediately
+        observer.reportEnd(slowEmitter, finishedRequest);
+        Assert.assertEquals(2, observer.getNumberOfScheduledDeadlines());
+
+        // a request is not interrupted before its deadline
+        observer.advanceTo(startTime + SHORT_WAITING_TIME - 1);
+        Assert.assertTrue(fastEmitter.interruptionTimes.isEmpty());
+        // but at most one tick after its deadline
+        observer.advanceTo(startTime + SHORT_WAITING_TIME + InterruptingObserver.TICK_DURATION);
+        Assert.assertTrue(fastEmitter.interruptionTimes.containsKey(fastRequest));
+        Assert.assertEquals(1, observer.getNumberOfScheduledDeadlines());
+
+        observer.advanceTo(startTime + MAX_WAITING_TIME - 1);
+        Assert.assertTrue(slowEmitter.interruptionTimes.isEmpty());
+        observer.advanceTo(startTime + MAX_WAITING_TIME + InterruptingObserver.TICK_DURATION);
+        Assert.assertTrue(slowEmitter.interruptionTimes.containsKey(slowRequest));
+        Assert.assertEquals(0, observer.getNumberOfScheduledDeadlines());
+
+        // the finished request shouldn't be interrupted
+        Assert.assertFalse(slowEmitter.interruptionTimes.containsKey(finishedRequest));
+        // ending an interrupted request shouldn't cause any problem
+        observer.reportEnd(slowEmitter, slowRequest);
+        Assert.assertEquals(0, observer.getNumberOfRunningRequests());
+    }
+
+    @Test
+    public void testLongDeadline() throws Exception {
+        // the deadline is several rounds of the timing wheel ahead
+        long maxWaitingTime = 3 * InterruptingObserver.WHEEL_SIZE * InterruptingObserver.TICK_DURATION + 5;
+        ControlledClockObserver observer = new ControlledClockObserver(maxWaitingTime);
+        RecordingEmitter emitter = new RecordingEmitter("emitter");
+        HttpUriRequest request = new HttpGet("http://localhost/long");
+
+        observer.now = 0;
+        observer.reportStart(emitter, request);
+        observer.advanceTo(maxWaitingTime - 1);
+        Assert.assertTrue(emitter.interruptionTimes.isEmpty());
+        observer.advanceTo(maxWaitingTime + InterruptingObserver.TICK_DURATION);
+        Assert.assertTrue(emitter.interruptionTimes.containsKey(request));
+    }
+
+    @Test
+    public void testResetDeadline() throws Exception {
+        ControlledClockObserver observer = new ControlledClockObserver(MAX_WAITING_TIME);
+        RecordingEmitter emitter = new RecordingEmitter("emitter");
+        HttpUriRequest request = new HttpGet("http://localhost/waiting");
+
+        long startTime = 1000;
+        observer.now = startTime;
+        observer.reportStart(emitter, request);
+        // the request waits before it is sent and its deadline is restarted
+        long sendTime = startTime + MAX_WAITING_TIME - 1;
+        observer.advanceTo(sendTime);
+        observer.resetDeadline(emitter, request);
+        Assert.assertEquals(1, observer.getNumberOfScheduledDeadlines());
+
+        observer.advanceTo(sendTime + MAX_WAITING_TIME - 1);
+        Assert.assertTrue(emitter.interruptionTimes.isEmpty());
+        observer.advanceTo(sendTime + MAX_WAITING_TIME + InterruptingObserver.TICK_DURATION);
+        Assert.assertTrue(emitter.interruptionTimes.containsKey(request));
+    }
+
+    @Test
+    public void testRequestStartedWhileItsBucketIsChecked() throws Exception {
+        final ControlledClockObserver observer = new ControlledClockObserver(MAX_WAITING_TIME);
+        observer.setMaxWaitingTime("late", 0);
+        final RecordingEmitter lateEmitter = new RecordingEmitter("late");
+        final HttpUriRequest lateRequest = new HttpGet("http://localhost/late");
+        // the interruption of this request happens while its bucket is
+        // checked. At the same time, another thread starts a request whose
+        // deadline lies in the same bucket.
+        RecordingEmitter emitter = new RecordingEmitter("emitter") {
+            @Override
+            public void interrupt(HttpUriRequest request) throws UnsupportedOperationException {
+                super.interrupt(request);
+                long checkTime = observer.now;
+                observer.now = checkTime - 1;
+                observer.reportStart(lateEmitter, lateRequest);
+                observer.now = checkTime;
+            }
+        };
+        HttpUriRequest request = new HttpGet("http://localhost/request");
+
+        long startTime = 1000;
+        observer.now = startTime;
+        observer.reportStart(emitter, request);
+        observer.advanceTo(startTime + MAX_WAITING_TIME + InterruptingObserver.TICK_DURATION);
+        Assert.assertTrue(emitter.interruptionTimes.containsKey(request));
+        // the late request has to be interrupted with the next tick instead of
+        // waiting for a complete round of the wheel
+        observer.advanceTo(observer.now + InterruptingObserver.TICK_DURATION);
+        Assert.assertTrue(lateEmitter.interruptionTimes.containsKey(lateRequest));
+    }
+
+    @Test
+    public void testObservingThread() throws Exception {
+        InterruptingObserver observer = new InterruptingObserver(SHORT_WAITING_TIME);
+        Thread t = new Thread(observer);
+        t.setDaemon(true);
+        t.start();
+        RecordingEmitter emitter = new RecordingEmitter("emitter");
+        HttpUriRequest request = new HttpGet("http://localhost/request");
+        observer.reportStart(emitter, request);
+        // the exact point in time depends on the scheduling of the threads.
+        // Thus, we only wait generously for the interruption.
+        long timeout = System.currentTimeMillis() + 10000;
+        while (!emitter.interruptionTimes.containsKey(request) && (System.currentTimeMillis() < timeout)) {
+            Thread.sleep(InterruptingObserver.TICK_DURATION);
+        }
+        Assert.assertTrue(emitter.interruptionTimes.containsKey(request));
+    }
+
+    /**
+     * An observer whose clock is controlled by the test. The deadlines are
+     * checked by the test instead of an observing thread.
+     */
+    public static class ControlledClockObserver extends InterruptingObserver {
+
+        public volatile long now;
+
+        public ControlledClockObserver(long maxWaitingTime) {
+            super(maxWaitingTime);
+        }
+
+        public void advanceTo(long time) {
+            // check every tick like the observing thread
+            while (now < time) {
+                now = Math.min(now + TICK_DURATION, time);
+                checkDeadlines(now);
+            }
+        }
+
+        @Override
+        protected long currentTimeMillis() {
+            return now;
+        }
+    }
+
+    public static class RecordingEmitter implements HttpRequestEmitter {
+
+        private String name;
+        public Map<HttpUriRequest, Long> interruptionTimes = new ConcurrentHashMap<HttpUriRequest, Long>();
+
+        public RecordingEmitter(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void interrupt(HttpUriRequest request) throws UnsupportedOperationException {
+            interruptionTimes.put(request, System.currentTimeMillis());
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void close() throws IOException {
+            // nothing to do
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.matching.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.aksw.gerbil.transfer.nif.Span;
+import org.aksw.gerbil.transfer.nif.data.SpanImpl;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.carrotsearch.hppc.BitSet;
+
+/**
+ * Compares the results of the {@link SortedSpanIndex} with a simple linear
+ * search over randomly generated spans.
+ */
+public class SortedSpanIndexTest {
+
+    private static final int NUMBER_OF_DOCUMENTS = 2000;
+    private static final int NUMBER_OF_QUERIES = 10;
+
+    @Test
+    public void test() {
+        Random random = new Random(42);
+        List<Span> spans;
+        BitSet alreadyUsed, expectedWeak, expectedStrong, weak, strong;
+        SortedSpanIndex index;
+        int numberOfSpans, start, length, end, rStart, rEnd;
+        for (int d = 0; d < NUMBER_OF_DOCUMENTS; ++d) {
+            numberOfSpans = random.nextInt(30);
+            spans = new ArrayList<Span>(numberOfSpans);
+            alreadyUsed = new BitSet(numberOfSpans);
+            for (int i = 0; i < numberOfSpans; ++i) {
+                spans.add(new SpanImpl(random.nextInt(50), random.nextInt(8)));
+                if (random.nextInt(4) == 0) {
+                    alreadyUsed.set(i);
+                }
+            }
+            index = new SortedSpanIndex(spans);
+            for (int q = 0; q < NUMBER_OF_QUERIES; ++q) {
+                start = random.nextInt(55);
+                length = random.nextInt(8);
+                end = start + length;
+                expectedWeak = new BitSet(numberOfSpans);
+                expectedStrong = new BitSet(numberOfSpans);
+                for (int i = 0; i < numberOfSpans; ++i) {
+                    if (!alreadyUsed.get(i)) {
+                        rStart = spans.get(i).getStartPosition();
+                        rEnd = rStart + spans.get(i).getLength();
+                        if (((rStart >= start) && (rStart < end)) || ((rStart < start) && (start < rEnd))) {
+                            expectedWeak.set(i);
+                        }
+                        if ((rStart == start) && (spans.get(i).getLength() == length)) {
+                            expectedStrong.set(i);
+                        }
+                    }
+                }
+                weak = new BitSet(numberOfSpans);
+                index.searchOverlaps(start, end, alreadyUsed, weak);
+                Assert.assertEquals(expectedWeak, weak);
+                strong = new BitSet(numberOfSpans);
+                index.searchExactMatches(start, length, alreadyUsed, strong);
+                Assert.assertEquals(expectedStrong, strong);
+            }
+        }
+    }
+}
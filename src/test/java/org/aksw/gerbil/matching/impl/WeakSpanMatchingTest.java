@@ -16,8 +16,15 @@
  */
 package org.aksw.gerbil.matching.impl;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.aksw.gerbil.transfer.nif.Span;
 import org.aksw.gerbil.transfer.nif.data.SpanImpl;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.carrotsearch.hppc.BitSet;
 
 public class WeakSpanMatchingTest extends AbstractMatchingsCounterTest<Span> {
 
@@ -51,4 +58,19 @@ public class WeakSpanMatchingTest extends AbstractMatchingsCounterTest<Span> {
     public WeakSpanMatchingTest() {
         super(new WeakSpanMatchingsCounter<Span>(), EXAMPLES);
     }
+
+    /**
+     * Checks that the searcher does not reuse the index of a list that has
+     * been changed since the last call.
+     */
+    @Test
+    public void testChangedList() {
+        WeakSpanMatchingsCounter<Span> searcher = new WeakSpanMatchingsCounter<Span>();
+        List<Span> annotatorResult = new ArrayList<Span>();
+        annotatorResult.add(new SpanImpl(0, 10));
+        Span expected = new SpanImpl(2, 5);
+        Assert.assertFalse(searcher.findMatchings(expected, annotatorResult, new BitSet(1)).isEmpty());
+        annotatorResult.set(0, new SpanImpl(20, 10));
+        Assert.assertTrue(searcher.findMatchings(expected, annotatorResult, new BitSet(1)).isEmpty());
+    }
 }
@@ -0,0 +1,116 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import javax.management.ObjectName;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void testCounters() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Counter counter = registry.getCounter("test_requests_total", "Test requests.");
+        counter.increment();
+        counter.add(2);
+        // the same counter should be returned
+        Assert.assertSame(counter, registry.getCounter("test_requests_total", "Test requests."));
+        Counter labeledCounter = registry.getCounter("test_requests_total", MetricsRegistry.label("host", "a"),
+                "Test requests.");
+        Assert.assertNotSame(counter, labeledCounter);
+        labeledCounter.increment();
+
+        Map<String, Double> values = registry.getValues();
+        Assert.assertEquals(3.0, values.get("test_requests_total"), 0);
+        Assert.assertEquals(1.0, values.get("test_requests_total{host=\"a\"}"), 0);
+
+        try {
+            registry.getTimer("test_requests_total", "Test requests.");
+            Assert.fail("Expected an IllegalArgumentException.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testGauges() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.register(new Gauge("test_queue", "Test queue.") {
+            @Override
+            public double getValue() {
+                return 1;
+            }
+        });
+        // a new gauge with the same name replaces the old one
+        registry.register(new Gauge("test_queue", "Test queue.") {
+            @Override
+            public double getValue() {
+                return 2;
+            }
+        });
+        Assert.assertEquals(1, registry.getMetrics().size());
+        Assert.assertEquals(2.0, registry.getValues().get("test_queue"), 0);
+        registry.remove("test_queue", null);
+        Assert.assertEquals(0, registry.getMetrics().size());
+    }
+
+    @Test
+    public void testPrometheusText() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.getCounter("b_total", MetricsRegistry.label("name", "x\"y"), "Counter b.").increment();
+        registry.getCounter("b_total", MetricsRegistry.label("name", "a"), "Counter b.").add(5);
+        registry.getCounter("b_total_other", "Other counter.");
+        registry.register(new Gauge("a_ratio", "Gauge a.") {
+            @Override
+            public double getValue() {
+                return 0.25;
+            }
+        });
+        registry.getTimer("c_millis", "Timer c.").record(10);
+
+        String expected = "# HELP a_ratio Gauge a.\n" + "# TYPE a_ratio gauge\n" + "a_ratio 0.25\n"
+                + "# HELP b_total Counter b.\n" + "# TYPE b_total counter\n" + "b_total{name=\"a\"} 5\n"
+                + "b_total{name=\"x\\\"y\"} 1\n" + "# HELP b_total_other Other counter.\n"
+                + "# TYPE b_total_other counter\n" + "b_total_other 0\n" + "# HELP c_millis Timer c.\n"
+                + "# TYPE c_millis summary\n" + "c_millis{quantile=\"0.5\"} 10\n"
+                + "c_millis{quantile=\"0.9\"} 10\n" + "c_millis{quantile=\"0.99\"} 10\n"
+                + "c_millis{quantile=\"1.0\"} 10\n" + "c_millis_sum 10\n" + "c_millis_count 1\n";
+        Assert.assertEquals(expected, registry.toPrometheusText());
+    }
+
+    @Test
+    public void testJmx() throws Exception {
+        MetricsRegistry registry = MetricsRegistry.getInstance();
+        registry.getCounter("test_jmx_total", "JMX test counter.").add(7);
+        Object value = ManagementFactory.getPlatformMBeanServer()
+                .getAttribute(new ObjectName(MetricsRegistry.JMX_OBJECT_NAME), "test_jmx_total");
+        Assert.assertEquals(7.0, (Double) value, 0);
+        registry.remove("test_jmx_total", null);
+        // the labels are transformed into a valid attribute name
+        String labels = MetricsRegistry.label("host", "localhost:8080");
+        registry.getCounter("test_jmx_total", labels, "JMX test counter.").add(3);
+        value = ManagementFactory.getPlatformMBeanServer().getAttribute(
+                new ObjectName(MetricsRegistry.JMX_OBJECT_NAME), "test_jmx_total_host_localhost_8080");
+        Assert.assertEquals(3.0, (Double) value, 0);
+        registry.remove("test_jmx_total", labels);
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TimerTest {
+
+    @Test
+    public void testWindows() {
+        TestTimer timer = new TestTimer(1000);
+        for (int i = 1; i <= 100; ++i) {
+            timer.record(i);
+        }
+        long quantiles[] = timer.getQuantiles();
+        Assert.assertEquals(50, quantiles[0]);
+        // 90 is counted in a bucket of the width 2
+        Assert.assertEquals(91, quantiles[1]);
+        Assert.assertEquals(99, quantiles[2]);
+        Assert.assertEquals(100, quantiles[3]);
+
+        // after one window, the old values are still taken into account
+        timer.time = 1000;
+        timer.record(1000);
+        Assert.assertEquals(1000, timer.getQuantiles()[3]);
+        Assert.assertEquals(51, timer.getQuantiles()[0]);
+
+        // after the next window, the first values are dropped
+        timer.time = 2000;
+        timer.record(5);
+        quantiles = timer.getQuantiles();
+        Assert.assertEquals(5, quantiles[0]);
+        Assert.assertEquals(1000, quantiles[3]);
+
+        // after two more windows, all values are dropped
+        timer.time = 4000;
+        quantiles = timer.getQuantiles();
+        Assert.assertEquals(0, quantiles[3]);
+
+        // count and sum are never reset
+        Assert.assertEquals(102, timer.getCount());
+        Assert.assertEquals(5050 + 1000 + 5, timer.getSum());
+    }
+
+    private static class TestTimer extends Timer {
+
+        private long time = 0;
+
+        public TestTimer(long windowLength) {
+            super("test_millis", null, "Test timer.", windowLength);
+        }
+
+        @Override
+        protected long currentTime() {
+            return time;
+        }
+    }
+}
@@ -18,18 +18,19 @@ package org.aksw.gerbil.semantic.sameas;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Assert;
 import org.junit.Test;
 
-import com.carrotsearch.hppc.BitSet;
-import com.carrotsearch.hppc.ObjectIntOpenHashMap;
-
 public class FileBasedCachingSameAsRetrieverTest extends FileBasedCachingSameAsRetriever {
 
     private static final int MODULO_NR = 1024;
@@ -42,9 +43,8 @@ public class FileBasedCachingSameAsRetrieverTest extends FileBasedCachingSameAsR
     private Semaphore cacheUsageFinished = new Semaphore(0);
 
     public FileBasedCachingSameAsRetrieverTest() throws IOException {
-        super(new RandomNumberReturningSameAsRetriever(), new ObjectIntOpenHashMap<String>(),
-                new ArrayList<Set<String>>(), false, File.createTempFile("cache_test_", ".cache"),
-                File.createTempFile("cache_test_", ".cache_temp"));
+        super(new RandomNumberReturningSameAsRetriever(), new SameAsClusterStore(), false,
+                File.createTempFile("cache_test_", ".cache"), File.createTempFile("cache_test_", ".cache_temp"));
     }
 
     @Test
@@ -59,62 +59,54 @@ public class FileBasedCachingSameAsRetrieverTest extends FileBasedCachingSameAsR
 
         storeCache();
 
-        int setId;
         Set<String> uris;
-        BitSet checkedSets = new BitSet(sets.size());
-        for (int i = 0; i < uriSetIdMapping.allocated.length; ++i) {
-            if (uriSetIdMapping.allocated[i]) {
-                setId = uriSetIdMapping.values[i];
-                if (setId != ENTITY_NOT_FOUND) {
-                    // make sure that the set can exist
-                    Assert.assertTrue(setId < sets.size());
-                    uris = sets.get(setId);
+        String uri;
+        int numberOfUris = 0;
+        // the retriever returns numbers that are smaller than 2 * MAX_NR
+        for (int i = 0; i < (2 * MAX_NR); ++i) {
+            uri = Integer.toString(i);
+            uris = cache.getCluster(uri);
+            if (uris != null) {
+                ++numberOfUris;
+                if (uris != NULL_SENTINEL) {
                     // make sure that the URI pointing to this set is part of it
-                    Assert.assertTrue(uris.contains(((Object[]) uriSetIdMapping.keys)[i]));
-                    // If this set does not have been checked before, check all
-                    // the URIs inside
-                    if (!checkedSets.get(setId)) {
-                        for (String s : uris) {
-                            Assert.assertTrue(uriSetIdMapping.containsKey(s));
-                            Assert.assertEquals(setId, uriSetIdMapping.get(s));
-                        }
-                        checkedSets.set(setId);
+                    Assert.assertTrue(uris.contains(uri));
+                    // make sure that all URIs of the set are pointing to it
+                    for (String s : uris) {
+                        Assert.assertEquals(uris, cache.getCluster(s));
                     }
                 }
             }
         }
+        Assert.assertEquals(numberOfUris, cache.size());
+
+        ///// test the single-flight requesting
+        // every URI should have been requested at most once
+        for (Entry<String, AtomicInteger> entry : ((RandomNumberReturningSameAsRetriever) decoratedRetriever).requests
+                .entrySet()) {
+            Assert.assertEquals("URI " + entry.getKey() + " has been requested several times.", 1,
+                    entry.getValue().get());
+        }
 
         ///// test the read/write operation
         // read the cache with another cache object
         FileBasedCachingSameAsRetriever otherCache = FileBasedCachingSameAsRetriever.create(decoratedRetriever, false,
                 cacheFile);
 
-        Assert.assertEquals(sets.size(), otherCache.sets.size());
-        Assert.assertEquals(uriSetIdMapping.assigned, otherCache.uriSetIdMapping.assigned);
-        checkedSets = new BitSet(sets.size());
-        int otherSetId;
-        String uri;
+        Assert.assertEquals(cache.size(), otherCache.cache.size());
         Set<String> otherUris;
-        for (int i = 0; i < uriSetIdMapping.allocated.length; ++i) {
-            if (uriSetIdMapping.allocated[i]) {
-                setId = uriSetIdMapping.values[i];
-                uri = (String) ((Object[]) uriSetIdMapping.keys)[i];
-                Assert.assertTrue(otherCache.uriSetIdMapping.containsKey(uri));
-                otherSetId = otherCache.uriSetIdMapping.get(uri);
-                if (setId != ENTITY_NOT_FOUND) {
-                    Assert.assertNotEquals(ENTITY_NOT_FOUND, otherSetId);
-                    uris = sets.get(setId);
-                    otherUris = otherCache.sets.get(otherSetId);
-                    Assert.assertEquals(uris.size(), otherUris.size());
-
-                    for (String s : uris) {
-                        Assert.assertTrue(otherUris.contains(s));
-                        Assert.assertTrue(otherCache.uriSetIdMapping.containsKey(s));
-                        Assert.assertEquals(otherSetId, otherCache.uriSetIdMapping.get(s));
-                    }
-                } else {
-                    Assert.assertEquals(ENTITY_NOT_FOUND, otherSetId);
-                }
+        for (int i = 0; i < (2 * MAX_NR); ++i) {
+            uri = Integer.toString(i);
+            uris = cache.getCluster(uri);
+            otherUris = otherCache.cache.getCluster(uri);
+            if (uris == null) {
+                Assert.assertNull(otherUris);
+            } else if (uris != NULL_SENTINEL) {
+                Assert.assertNotNull(otherUris);
+                Assert.assertNotSame(NULL_SENTINEL, otherUris);
+                Assert.assertEquals(uris, otherUris);
+            } else {
+                Assert.assertSame(NULL_SENTINEL, otherUris);
             }
         }
     }
@@ -150,9 +142,14 @@ public class FileBasedCachingSameAsRetrieverTest extends FileBasedCachingSameAsR
     public static class RandomNumberReturningSameAsRetriever implements SameAsRetriever {
 
         private Random random = new Random();
+        private ConcurrentHashMap<String, AtomicInteger> requests = new ConcurrentHashMap<String, AtomicInteger>();
 
         @Override
         public Set<String> retrieveSameURIs(String uri) {
+            AtomicInteger count = requests.putIfAbsent(uri, new AtomicInteger(1));
+            if (count != null) {
+                count.incrementAndGet();
+            }
             int uriValue = Integer.parseInt(uri);
             int sameAsFound = random.nextInt(MAX_NR_SAME_AS_FOUND);
             if (sameAsFound == 0) {
@@ -176,17 +173,14 @@ public class FileBasedCachingSameAsRetrieverTest extends FileBasedCachingSameAsR
             return result;
         }
 
+        @Override
+        public Map<String, Set<String>> retrieveSameURIs(Collection<String> uris) {
+            return SameAsRetrieverUtils.retrieveSameURIs(this, uris);
+        }
+
         @Override
         public void addSameURIs(Set<String> uris) {
-            Set<String> temp = new HashSet<String>();
-            Set<String> result;
-            for (String uri : uris) {
-                result = retrieveSameURIs(uri);
-                if (result != null) {
-                    temp.addAll(retrieveSameURIs(uri));
-                }
-            }
-            uris.addAll(temp);
+            SameAsRetrieverUtils.addSameURIs(this, uris);
         }
     }
 
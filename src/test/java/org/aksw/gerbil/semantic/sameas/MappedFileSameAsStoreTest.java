@@ -0,0 +1,232 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.semantic.sameas;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Compares the content of a {@link MappedFileSameAsStore} with a simple in
+ * memory model after adding random sets, reopening the store, rebuilding its
+ * index, removing an incomplete record at the end of its log and compacting
+ * the log.
+ */
+public class MappedFileSameAsStoreTest {
+
+    private static final int NUMBER_OF_URIS = 5000;
+    private static final int NUMBER_OF_OPERATIONS = 1000;
+    private static final int MAX_SET_SIZE = 3;
+
+    private Random random = new Random(42);
+    /**
+     * The expected sets. URIs without sameAs links are mapped to
+     * {@link MappedFileSameAsStore#ENTITY_NOT_FOUND}.
+     */
+    private Map<String, Set<String>> expectedSets = new HashMap<String, Set<String>>();
+
+    @Test
+    public void test() throws IOException {
+        File storeFile = File.createTempFile("sameAs_test_", ".store");
+        File indexFile = new File(storeFile.getAbsolutePath() + MappedFileSameAsStore.INDEX_FILE_SUFFIX);
+        storeFile.deleteOnExit();
+        indexFile.deleteOnExit();
+
+        // use a small index to make sure that it has to be resized
+        MappedFileSameAsStore store = MappedFileSameAsStore.open(storeFile, 16);
+        addRandomSets(store);
+        checkStore(store);
+        store.close();
+
+        // reopen the store
+        store = MappedFileSameAsStore.open(storeFile);
+        checkStore(store);
+        addRandomSets(store);
+        checkStore(store);
+        store.close();
+
+        // rebuild the index from the log
+        Assert.assertTrue(indexFile.delete());
+        store = MappedFileSameAsStore.open(storeFile);
+        checkStore(store);
+        store.close();
+
+        // append an incomplete record to the log
+        RandomAccessFile raf = new RandomAccessFile(storeFile, "rw");
+        raf.seek(raf.length());
+        raf.writeInt(1000);
+        raf.writeByte(1);
+        raf.close();
+        // remove the index since it would not contain the incomplete record
+        Assert.assertTrue(indexFile.delete());
+        store = MappedFileSameAsStore.open(storeFile);
+        checkStore(store);
+        addRandomSets(store);
+        checkStore(store);
+        store.compact();
+        checkStore(store);
+        store.close();
+
+        store = MappedFileSameAsStore.open(storeFile);
+        checkStore(store);
+        store.close();
+    }
+
+    @Test
+    public void testLogGrowth() throws IOException {
+        File storeFile = File.createTempFile("sameAs_test_", ".store");
+        File indexFile = new File(storeFile.getAbsolutePath() + MappedFileSameAsStore.INDEX_FILE_SUFFIX);
+        storeFile.deleteOnExit();
+        indexFile.deleteOnExit();
+
+        // grow a single set by one URI per merge
+        MappedFileSameAsStore store = MappedFileSameAsStore.open(storeFile, 16);
+        Set<String> set = new HashSet<String>();
+        for (int i = 0; i < NUMBER_OF_OPERATIONS; ++i) {
+            set.clear();
+            set.add(createUri(i));
+            set.add(createUri(i + 1));
+            Assert.assertEquals(addExpectedSet(set), store.mergeSet(set));
+        }
+        // merging a known set doesn't change the log
+        long logLength = storeFile.length();
+        Assert.assertEquals(expectedSets.get(createUri(0)), store.mergeSet(set));
+        Assert.assertEquals(logLength, storeFile.length());
+        checkStore(store);
+        store.close();
+        // appending the complete set for every merge would need more than
+        // 30MB. The log has to grow linearly with the number of merges.
+        Assert.assertTrue("The log has " + logLength + " bytes.", logLength < (NUMBER_OF_OPERATIONS * 1000L));
+
+        store = MappedFileSameAsStore.open(storeFile);
+        checkStore(store);
+        store.compact();
+        checkStore(store);
+        store.close();
+        Assert.assertTrue(storeFile.length() < logLength);
+
+        // rebuild the index from the compacted log
+        Assert.assertTrue(indexFile.delete());
+        store = MappedFileSameAsStore.open(storeFile);
+        checkStore(store);
+        store.close();
+    }
+
+    @Test
+    public void testAccessAfterClose() throws IOException {
+        File storeFile = File.createTempFile("sameAs_test_", ".store");
+        File indexFile = new File(storeFile.getAbsolutePath() + MappedFileSameAsStore.INDEX_FILE_SUFFIX);
+        storeFile.deleteOnExit();
+        indexFile.deleteOnExit();
+
+        MappedFileSameAsStore store = MappedFileSameAsStore.open(storeFile);
+        Set<String> set = new HashSet<String>();
+        set.add(createUri(0));
+        set.add(createUri(1));
+        store.mergeSet(set);
+        Assert.assertEquals(set, store.get(createUri(0)));
+        store.close();
+
+        // a closed store behaves like an empty store for reading threads
+        Assert.assertNull(store.get(createUri(0)));
+        try {
+            store.mergeSet(set);
+            Assert.fail("Expected an IOException.");
+        } catch (IOException e) {
+            // expected
+        }
+        try {
+            store.putNotFound(createUri(2));
+            Assert.fail("Expected an IOException.");
+        } catch (IOException e) {
+            // expected
+        }
+        // flushing and closing a closed store don't have any effect
+        store.flush();
+        store.close();
+    }
+
+    private void addRandomSets(MappedFileSameAsStore store) throws IOException {
+        Set<String> set;
+        for (int i = 0; i < NUMBER_OF_OPERATIONS; ++i) {
+            if (random.nextInt(4) == 0) {
+                String uri = createUri();
+                store.putNotFound(uri);
+                if (!expectedSets.containsKey(uri)) {
+                    expectedSets.put(uri, MappedFileSameAsStore.ENTITY_NOT_FOUND);
+                }
+            } else {
+                set = new HashSet<String>();
+                int size = 1 + random.nextInt(MAX_SET_SIZE);
+                for (int j = 0; j < size; ++j) {
+                    set.add(createUri());
+                }
+                Assert.assertEquals(addExpectedSet(set), store.mergeSet(set));
+            }
+        }
+    }
+
+    private Set<String> addExpectedSet(Set<String> set) {
+        Set<String> mergedSet = new HashSet<String>(set);
+        Set<String> existingSet;
+        for (String uri : set) {
+            existingSet = expectedSets.get(uri);
+            if ((existingSet != null) && (existingSet != MappedFileSameAsStore.ENTITY_NOT_FOUND)) {
+                mergedSet.addAll(existingSet);
+            }
+        }
+        for (String uri : mergedSet) {
+            expectedSets.put(uri, mergedSet);
+        }
+        return mergedSet;
+    }
+
+    private void checkStore(MappedFileSameAsStore store) throws IOException {
+        Assert.assertEquals(expectedSets.size(), store.size());
+        String uri;
+        Set<String> result;
+        for (int i = 0; i < NUMBER_OF_URIS; ++i) {
+            uri = createUri(i);
+            result = store.get(uri);
+            if (expectedSets.containsKey(uri)) {
+                if (expectedSets.get(uri) == MappedFileSameAsStore.ENTITY_NOT_FOUND) {
+                    Assert.assertSame(MappedFileSameAsStore.ENTITY_NOT_FOUND, result);
+                } else {
+                    Assert.assertEquals(expectedSets.get(uri), result);
+                }
+            } else {
+                Assert.assertNull(result);
+            }
+        }
+    }
+
+    private String createUri() {
+        return createUri(random.nextInt(NUMBER_OF_URIS));
+    }
+
+    private String createUri(int id) {
+        return "http://example.org/entity_" + id;
+    }
+}
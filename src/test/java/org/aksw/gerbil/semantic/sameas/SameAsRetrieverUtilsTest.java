@@ -0,0 +1,231 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.semantic.sameas;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks that {@link SameAsRetrieverUtils#addSameURIs(SameAsRetriever, Collection)}
+ * retrieves every URI only once, skips URIs that are covered by the result of
+ * another URI and adds the retrieved links to all sets containing the URI.
+ * Checks that
+ * {@link SameAsRetrieverUtils#addSameURIs(SameAsRetriever, Set)} retrieves
+ * every URI only once and skips URIs that are already covered by the result
+ * of another URI. Checks that concurrent retrievals share a single executor,
+ * i.e., the number of concurrent requests is limited for the whole process.
+ */
+public class SameAsRetrieverUtilsTest {
+
+    private static final int NUMBER_OF_SETS = 200;
+    private static final int NUMBER_OF_URIS = 50;
+
+    @Test
+    public void testSequential() {
+        test(1);
+    }
+
+    @Test
+    public void testConcurrent() {
+        test(4);
+    }
+
+    @Test
+    public void testSingleSet() {
+        CountingSameAsRetriever retriever = new CountingSameAsRetriever(1);
+        Set<String> uris = new LinkedHashSet<String>(
+                Arrays.asList(createUri(0), createUri(NUMBER_OF_URIS), createUri(1), createUri(0)));
+        long skippedBefore = SameAsRetrieverUtils.getNumberOfSkippedUris();
+        retriever.addSameURIs(uris);
+        Assert.assertEquals(new HashSet<String>(Arrays.asList(createUri(0), createUri(NUMBER_OF_URIS), createUri(1),
+                createUri(1 + NUMBER_OF_URIS))), uris);
+        Assert.assertEquals(2, retriever.requests.size());
+        Assert.assertEquals(1, retriever.requests.get(createUri(0)).get());
+        Assert.assertEquals(1, retriever.requests.get(createUri(1)).get());
+        Assert.assertTrue(SameAsRetrieverUtils.getNumberOfSkippedUris() >= skippedBefore + 1);
+    }
+
+    @Test
+    public void testSharedExecutor() throws InterruptedException {
+        final int maxConcurrentRequests = SameAsRetrieverUtils.getMaxConcurrentRequests();
+        final int numberOfCallers = 4;
+        final SlowSameAsRetriever retriever = new SlowSameAsRetriever();
+        final CountDownLatch finished = new CountDownLatch(numberOfCallers);
+        final AtomicInteger retrievedUris = new AtomicInteger();
+        for (int i = 0; i < numberOfCallers; ++i) {
+            final int offset = i * NUMBER_OF_URIS;
+            new Thread() {
+                @Override
+                public void run() {
+                    List<String> uris = new ArrayList<String>();
+                    for (int j = 0; j < NUMBER_OF_URIS; ++j) {
+                        uris.add(createUri(offset + j));
+                    }
+                    try {
+                        // every caller would be allowed to use more threads
+                        // than the shared executor has
+                        retrievedUris.addAndGet(SameAsRetrieverUtils
+                                .retrieveSameURIsConcurrently(retriever, uris, NUMBER_OF_URIS).size());
+                    } finally {
+                        finished.countDown();
+                    }
+                }
+            }.start();
+        }
+        Assert.assertTrue(finished.await(60, TimeUnit.SECONDS));
+        Assert.assertEquals(numberOfCallers * NUMBER_OF_URIS, retrievedUris.get());
+        Assert.assertTrue("Got " + retriever.maxRunning.get() + " concurrent requests.",
+                retriever.maxRunning.get() <= maxConcurrentRequests);
+
+        // a new executor is created after the shutdown
+        SameAsRetrieverUtils.shutdown();
+        Assert.assertEquals(2, SameAsRetrieverUtils
+                .retrieveSameURIsConcurrently(retriever, Arrays.asList(createUri(0), createUri(1)), 2).size());
+    }
+
+    @Test
+    public void testSkippingSets() {
+        CountingSameAsRetriever retriever = new CountingSameAsRetriever(4);
+        List<Set<String>> uriSets = new ArrayList<Set<String>>();
+        uriSets.add(new LinkedHashSet<String>(Arrays.asList(createUri(0), createUri(NUMBER_OF_URIS))));
+        uriSets.add(new LinkedHashSet<String>(Arrays.asList(createUri(1))));
+        uriSets.add(new LinkedHashSet<String>(Arrays.asList(createUri(1 + NUMBER_OF_URIS), createUri(1))));
+        long requestedBefore = SameAsRetrieverUtils.getNumberOfRequestedUris();
+        long skippedBefore = SameAsRetrieverUtils.getNumberOfSkippedUris();
+        SameAsRetrieverUtils.addSameURIs(retriever, uriSets);
+        Assert.assertEquals(new HashSet<String>(Arrays.asList(createUri(0), createUri(NUMBER_OF_URIS))),
+                uriSets.get(0));
+        Assert.assertEquals(new HashSet<String>(Arrays.asList(createUri(1), createUri(1 + NUMBER_OF_URIS))),
+                uriSets.get(1));
+        Assert.assertEquals(new HashSet<String>(Arrays.asList(createUri(1), createUri(1 + NUMBER_OF_URIS),
+                createUri(1 + (2 * NUMBER_OF_URIS)))), uriSets.get(2));
+        // the second URI of the first set is covered by the first URI. The
+        // second URI of the third set has been retrieved for the second set.
+        Assert.assertEquals(3, retriever.requests.size());
+        Assert.assertFalse(retriever.requests.containsKey(createUri(NUMBER_OF_URIS)));
+        for (AtomicInteger count : retriever.requests.values()) {
+            Assert.assertEquals(1, count.get());
+        }
+        Assert.assertTrue(SameAsRetrieverUtils.getNumberOfRequestedUris() >= requestedBefore + 3);
+        Assert.assertTrue(SameAsRetrieverUtils.getNumberOfSkippedUris() >= skippedBefore + 1);
+    }
+
+    private void test(int maxConcurrentRequests) {
+        CountingSameAsRetriever retriever = new CountingSameAsRetriever(maxConcurrentRequests);
+        List<Set<String>> uriSets = new ArrayList<Set<String>>();
+        for (int i = 0; i < NUMBER_OF_SETS; ++i) {
+            uriSets.add(new HashSet<String>(Arrays.asList(createUri(i % NUMBER_OF_URIS))));
+        }
+        SameAsRetrieverUtils.addSameURIs(retriever, uriSets);
+        for (int i = 0; i < NUMBER_OF_SETS; ++i) {
+            Assert.assertEquals(new HashSet<String>(Arrays.asList(createUri(i % NUMBER_OF_URIS),
+                    createUri((i % NUMBER_OF_URIS) + NUMBER_OF_URIS))), uriSets.get(i));
+        }
+        Assert.assertEquals(NUMBER_OF_URIS, retriever.requests.size());
+        for (AtomicInteger count : retriever.requests.values()) {
+            Assert.assertEquals(1, count.get());
+        }
+    }
+
+    private static String createUri(int id) {
+        return "http://example.org/" + id;
+    }
+
+    /**
+     * Returns every URI as its own sameAs link after a short delay and
+     * measures the maximum number of concurrent requests.
+     */
+    private static class SlowSameAsRetriever implements SameAsRetriever {
+
+        private AtomicInteger running = new AtomicInteger();
+        private AtomicInteger maxRunning = new AtomicInteger();
+
+        @Override
+        public Set<String> retrieveSameURIs(String uri) {
+            int current = running.incrementAndGet();
+            int max = maxRunning.get();
+            while ((current > max) && !maxRunning.compareAndSet(max, current)) {
+                max = maxRunning.get();
+            }
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+            }
+            return new HashSet<String>(Arrays.asList(uri));
+        }
+
+        @Override
+        public Map<String, Set<String>> retrieveSameURIs(Collection<String> uris) {
+            return SameAsRetrieverUtils.retrieveSameURIsConcurrently(this, uris);
+        }
+
+        @Override
+        public void addSameURIs(Set<String> uris) {
+            SameAsRetrieverUtils.addSameURIs(this, uris);
+        }
+    }
+
+    /**
+     * Returns the URI with the id + {@link #NUMBER_OF_URIS} as sameAs link of
+     * every URI and counts the requests per URI.
+     */
+    private static class CountingSameAsRetriever implements SameAsRetriever {
+
+        private ConcurrentHashMap<String, AtomicInteger> requests = new ConcurrentHashMap<String, AtomicInteger>();
+        private int maxConcurrentRequests;
+
+        public CountingSameAsRetriever(int maxConcurrentRequests) {
+            this.maxConcurrentRequests = maxConcurrentRequests;
+        }
+
+        @Override
+        public Set<String> retrieveSameURIs(String uri) {
+            AtomicInteger count = requests.putIfAbsent(uri, new AtomicInteger(1));
+            if (count != null) {
+                count.incrementAndGet();
+            }
+            int id = Integer.parseInt(uri.substring(uri.lastIndexOf('/') + 1));
+            return new HashSet<String>(Arrays.asList(uri, createUri(id + NUMBER_OF_URIS)));
+        }
+
+        @Override
+        public Map<String, Set<String>> retrieveSameURIs(Collection<String> uris) {
+            return SameAsRetrieverUtils.retrieveSameURIsConcurrently(this, uris, maxConcurrentRequests);
+        }
+
+        @Override
+        public void addSameURIs(Set<String> uris) {
+            SameAsRetrieverUtils.addSameURIs(this, uris);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.tools;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.aksw.gerbil.annotator.AnnotatorConfiguration;
+import org.aksw.gerbil.annotator.StoredOutputAnnotatorConfiguration;
+import org.aksw.gerbil.annotator.TestA2KBAnnotator;
+import org.aksw.gerbil.annotator.TestD2KBAnnotator;
+import org.aksw.gerbil.database.ExperimentDAO;
+import org.aksw.gerbil.database.SimpleLoggingResultStoringDAO4Debugging;
+import org.aksw.gerbil.dataset.DatasetConfiguration;
+import org.aksw.gerbil.dataset.impl.nif.NIFFileDatasetConfig;
+import org.aksw.gerbil.datatypes.ExperimentTaskConfiguration;
+import org.aksw.gerbil.datatypes.ExperimentTaskResult;
+import org.aksw.gerbil.datatypes.ExperimentType;
+import org.aksw.gerbil.evaluate.EvaluatorFactory;
+import org.aksw.gerbil.execute.AnnotatorOutputWriter;
+import org.aksw.gerbil.execute.ExperimentTaskScheduler;
+import org.aksw.gerbil.io.nif.impl.TurtleNIFWriter;
+import org.aksw.gerbil.matching.Matching;
+import org.aksw.gerbil.semantic.kb.SimpleWhiteListBasedUriKBClassifier;
+import org.aksw.gerbil.transfer.nif.Document;
+import org.aksw.gerbil.transfer.nif.Marking;
+import org.aksw.gerbil.transfer.nif.data.DocumentImpl;
+import org.aksw.gerbil.transfer.nif.data.NamedEntity;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AnnotatorOutputRescorerTest {
+
+    private static final String TEXTS[] = new String[] {
+            "Florence May Harding studied at a school in Sydney, and with Douglas Robert Dundas , but in effect had no formal training in either botany or art.",
+            "Such notables include James Carville, who was the senior political adviser to Bill Clinton, and Donna Brazile, the campaign manager of the 2000 presidential campaign of Vice-President Al Gore.",
+            "The senator received a Bachelor of Laws from the Columbia University." };
+    private static final String DOCUMENT_URI_PREFIX = "http://www.ontologydesignpatterns.org/data/oke-challenge/task-1/";
+    private static final String DBPEDIA = "http://dbpedia.org/resource/";
+    private static final double DELTA = 0.0000001;
+
+    @Test
+    public void testSearchStoredOutputs() throws Exception {
+        File outputDirectory = File.createTempFile("annotatorOutput", "");
+        Assert.assertTrue(outputDirectory.delete());
+        try {
+            AnnotatorOutputWriter writer = new AnnotatorOutputWriter(outputDirectory.getAbsolutePath());
+            AnnotatorConfiguration annotator = new TestA2KBAnnotator(new ArrayList<Document>(0));
+            annotator.setName("Test Annotator");
+            DatasetConfiguration dataset = new NIFFileDatasetConfig("Test-Dataset", "test.ttl", true,
+                    ExperimentType.A2KB);
+            DatasetConfiguration otherDataset = new NIFFileDatasetConfig("Other-Dataset", "other.ttl", true,
+                    ExperimentType.A2KB);
+            // create the output files of two tasks
+            Assert.assertTrue(writer.generateOutputFile(new ExperimentTaskConfiguration(annotator, dataset,
+                    ExperimentType.A2KB, Matching.WEAK_ANNOTATION_MATCH)).createNewFile());
+            Assert.assertTrue(writer.generateOutputFile(new ExperimentTaskConfiguration(annotator, dataset,
+                    ExperimentType.C2KB, Matching.STRONG_ENTITY_MATCH)).createNewFile());
+
+            AnnotatorOutputRescorer rescorer = new AnnotatorOutputRescorer(null, null, null, writer);
+            // the annotator is listed twice but its outputs should be found
+            // only once
+            List<ExperimentTaskConfiguration> configs = rescorer.searchStoredOutputs(
+                    Arrays.asList(annotator, annotator), Arrays.asList(dataset, otherDataset));
+            Assert.assertEquals(2, configs.size());
+            boolean foundA2KB = false, foundC2KB = false;
+            for (ExperimentTaskConfiguration config : configs) {
+                Assert.assertTrue(config.annotatorConfig instanceof StoredOutputAnnotatorConfiguration);
+                Assert.assertEquals("Test Annotator", config.annotatorConfig.getName());
+                Assert.assertSame(dataset, config.datasetConfig);
+                if (config.type == ExperimentType.A2KB) {
+                    Assert.assertEquals(Matching.WEAK_ANNOTATION_MATCH, config.matching);
+                    foundA2KB = true;
+                } else {
+                    Assert.assertEquals(ExperimentType.C2KB, config.type);
+                    Assert.assertEquals(Matching.STRONG_ENTITY_MATCH, config.matching);
+                    foundC2KB = true;
+                }
+            }
+            Assert.assertTrue(foundA2KB);
+            Assert.assertTrue(foundC2KB);
+        } finally {
+            FileUtils.deleteDirectory(outputDirectory);
+        }
+    }
+
+    /**
+     * Stores the output of an entity linker for the OKE task 1 example data
+     * (the same output as in the second case of the
+     * {@link org.aksw.gerbil.execute.EntityLinkingTest}), re-scores it and
+     * checks the stored results.
+     */
+    @Test
+    public void testRescore() throws Exception {
+        File outputDirectory = File.createTempFile("annotatorOutput", "");
+        Assert.assertTrue(outputDirectory.delete());
+        ExperimentTaskScheduler overseer = new ExperimentTaskScheduler(1, 1, 0);
+        try {
+            AnnotatorOutputWriter writer = new AnnotatorOutputWriter(outputDirectory.getAbsolutePath());
+            AnnotatorConfiguration annotator = new TestD2KBAnnotator(new ArrayList<Document>(0));
+            DatasetConfiguration dataset = new NIFFileDatasetConfig("OKE_Task1",
+                    "src/test/resources/OKE_Challenge/example_data/task1.ttl", false, ExperimentType.A2KB);
+            List<Document> output = Arrays.asList(
+                    (Document) new DocumentImpl(TEXTS[0], DOCUMENT_URI_PREFIX + "sentence-1",
+                            Arrays.asList((Marking) new NamedEntity(0, 20, DBPEDIA + "Florence_May_Harding"),
+                                    (Marking) new NamedEntity(44, 6, DBPEDIA + "Sydney"))),
+                    (Document) new DocumentImpl(TEXTS[1], DOCUMENT_URI_PREFIX + "sentence-2",
+                            Arrays.asList((Marking) new NamedEntity(22, 14, DBPEDIA + "James_Carville"),
+                                    (Marking) new NamedEntity(57, 17, DBPEDIA + "Political_consulting"),
+                                    (Marking) new NamedEntity(78, 12, DBPEDIA + "Bill_Clinton"),
+                                    (Marking) new NamedEntity(96, 13, DBPEDIA + "Donna_Brazile"),
+                                    (Marking) new NamedEntity(115, 16, DBPEDIA + "Campaign_manager"),
+                                    (Marking) new NamedEntity(184, 7, DBPEDIA + "Al_Gore"))),
+                    (Document) new DocumentImpl(TEXTS[2], DOCUMENT_URI_PREFIX + "sentence-3",
+                            Arrays.asList((Marking) new NamedEntity(49, 19, DBPEDIA + "Columbia_University"))));
+            FileOutputStream fout = new FileOutputStream(writer.generateOutputFile(new ExperimentTaskConfiguration(
+                    annotator, dataset, ExperimentType.D2KB, Matching.WEAK_ANNOTATION_MATCH)));
+            try {
+                new TurtleNIFWriter().writeNIF(output, fout);
+            } finally {
+                IOUtils.closeQuietly(fout);
+            }
+
+            SimpleLoggingResultStoringDAO4Debugging experimentDAO = new SimpleLoggingResultStoringDAO4Debugging();
+            AnnotatorOutputRescorer rescorer = new AnnotatorOutputRescorer(experimentDAO, null,
+                    new EvaluatorFactory(new SimpleWhiteListBasedUriKBClassifier(DBPEDIA)),
+                    writer);
+            List<ExperimentTaskConfiguration> configs = rescorer.searchStoredOutputs(Arrays.asList(annotator),
+                    Arrays.asList(dataset));
+            Assert.assertEquals(1, configs.size());
+            rescorer.rescore(configs, "rescoring", overseer);
+
+            List<ExperimentTaskResult> results = experimentDAO.getResultsOfExperiment("rescoring");
+            Assert.assertEquals(1, results.size());
+            ExperimentTaskResult result = results.get(0);
+            Assert.assertEquals(ExperimentDAO.TASK_FINISHED, result.state);
+            Assert.assertEquals(1.0, result.getMacroPrecision(), DELTA);
+            Assert.assertEquals(2.0 / 3.0, result.getMacroRecall(), DELTA);
+            Assert.assertEquals(7.0 / 9.0, result.getMacroF1Measure(), DELTA);
+            Assert.assertEquals(1.0, result.getMicroPrecision(), DELTA);
+            Assert.assertEquals(0.75, result.getMicroRecall(), DELTA);
+            Assert.assertEquals(1.5 / 1.75, result.getMicroF1Measure(), DELTA);
+            Assert.assertEquals(0, result.getErrorCount());
+        } finally {
+            overseer.shutdown();
+            FileUtils.deleteDirectory(outputDirectory);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * This file is part of General Entity Annotator Benchmark.
+ *
+ * General Entity Annotator Benchmark is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * General Entity Annotator Benchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with General Entity Annotator Benchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.gerbil.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testSmallValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // values smaller than the number of sub buckets are counted exactly
+        for (int i = 1; i <= 10; ++i) {
+            histogram.record(i);
+        }
+        Assert.assertEquals(10, histogram.getTotalCount());
+        Assert.assertEquals(5, histogram.getValueAtPercentile(50));
+        Assert.assertEquals(9, histogram.getValueAtPercentile(90));
+        Assert.assertEquals(10, histogram.getValueAtPercentile(99));
+        Assert.assertEquals(1, histogram.getValueAtPercentile(0));
+        Assert.assertEquals(10, histogram.getMaxValue());
+    }
+
+    @Test
+    public void testLargeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100000; ++i) {
+            histogram.record(i);
+        }
+        checkRelativeError(50000, histogram.getValueAtPercentile(50));
+        checkRelativeError(90000, histogram.getValueAtPercentile(90));
+        checkRelativeError(99000, histogram.getValueAtPercentile(99));
+        Assert.assertEquals(100000, histogram.getValueAtPercentile(100));
+        Assert.assertEquals(100000, histogram.getMaxValue());
+    }
+
+    @Test
+    public void testTail() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 98; ++i) {
+            histogram.record(100);
+        }
+        histogram.record(30000);
+        histogram.record(Long.MAX_VALUE);
+        checkRelativeError(100, histogram.getValueAtPercentile(50));
+        checkRelativeError(100, histogram.getValueAtPercentile(98));
+        checkRelativeError(30000, histogram.getValueAtPercentile(99));
+        Assert.assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100));
+        Assert.assertEquals(Long.MAX_VALUE, histogram.getMaxValue());
+    }
+
+    @Test
+    public void testReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(0, histogram.getValueAtPercentile(50));
+        histogram.record(-5);
+        histogram.record(1000);
+        Assert.assertEquals(2, histogram.getTotalCount());
+        Assert.assertEquals(0, histogram.getValueAtPercentile(50));
+        histogram.reset();
+        Assert.assertEquals(0, histogram.getTotalCount());
+        Assert.assertEquals(0, histogram.getMaxValue());
+        Assert.assertEquals(0, histogram.getValueAtPercentile(50));
+    }
+
+    private static void checkRelativeError(long expected, long actual) {
+        Assert.assertTrue("expected " + expected + " but got " + actual,
+                Math.abs(expected - actual) <= (expected / LatencyHistogram.SUB_BUCKET_COUNT));
+    }
+}